@@ -25,8 +25,6 @@ import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.structr.agent.ReturnValue.Retry;
@@ -38,19 +36,16 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 	public static final String AVERAGE_EXECUTION_TIME = "average_execution_time";
 	public static final String EXECUTION_STATUS       = "execution_status";
-	public static final String MAX_QUEUE_SIZE         = "max_queue_size";
 	private static final Logger logger                = LoggerFactory.getLogger(Agent.class.getName());
 
 	private final AtomicBoolean suspended      = new AtomicBoolean(false);
-	private final Queue<Task<T>> taskQueue     = new ConcurrentLinkedQueue<>();
 	private final AtomicBoolean acceptingTasks = new AtomicBoolean(true);
 	private AgentService agentService          = null;
 	private long averageExecutionTime          = 0;
-	private int maxAgents                      = 10;
-	private int maxQueueSize                   = 200;
 
 	/**
-	 * This method will be called by the AgentService
+	 * This method will be called by the AgentService for each task that
+	 * this agent takes from the task queue of its task type.
 	 * @param task
 	 */
 	public abstract ReturnValue processTask(final Task<T> task) throws Throwable;
@@ -59,8 +54,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 	@Override
 	public final void run() {
 
-		agentService.notifyAgentStart(this);
-
 		do {
 
 			if (!Services.getInstance().isInitialized()) {
@@ -77,12 +70,16 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 			}
 
-			final Task<T> currentTask;
+			Task<T> currentTask = null;
+
+			try {
 
-			synchronized (taskQueue) {
+				currentTask = agentService.nextTask(getSupportedTaskType());
 
-				currentTask = taskQueue.poll();
+			} catch (InterruptedException iex) {
 
+				// agent was killed or service is shutting down
+				acceptingTasks.set(false);
 			}
 
 			if (currentTask != null) {
@@ -135,11 +132,8 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 					// wait some time
 					try { Thread.sleep(2000); } catch (InterruptedException ex) {}
 
-					synchronized (taskQueue) {
-
-						currentTask.incrementRetryCount();
-						taskQueue.add(currentTask);
-					}
+					currentTask.incrementRetryCount();
+					agentService.processTask(currentTask);
 				}
 
 				long endTime = System.nanoTime();
@@ -150,7 +144,7 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 			} else {
 
-				// queue is empty, quit.
+				// no task arrived within the idle timeout, quit.
 				acceptingTasks.set(false);
 			}
 
@@ -161,29 +155,11 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		agentService.notifyAgentStop(this);
 	}
 
-	public final boolean assignTask(final Task<T> task) {
-
-		if (canHandleMore() && acceptingTasks.get()) {
-
-			synchronized (taskQueue) {
-
-				taskQueue.add(task);
-			}
-
-			return true;
-		}
-
-		return false;
-	}
-
 	public final void killAgent() {
 
 		// stop accepting tasks
 		acceptingTasks.set(false);
 
-		// clear queue
-		taskQueue.clear();
-
 		// interrupt running process..
 		// not sure if this works... see Thread.interrupt()'s description!
 		// may not work if the processTask method itself catches the interrupt..
@@ -207,32 +183,20 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		// override me
 	}
 
-	protected boolean canHandleMore() {
-
-		int size = 0;
-
-		synchronized (taskQueue) {
-
-			// FIXME: size may not be a constant time operation! slow?
-			size = taskQueue.size();
-		}
-
-		// queue is empty, assume new agent
-		if (size == 0) {
-
-			return true;
-
-		}
-
-		return size < maxQueueSize;
-	}
-
 	public boolean createEnclosingTransaction() {
 		return true;
 	}
 
-	public final int getMaxQueueSize() {
-		return maxQueueSize;
+	/**
+	 * Returns the maximum number of agents of this type that may run at
+	 * the same time. The agent service never starts more agents than
+	 * configured in agentservice.workers, override this method for agents
+	 * whose tasks must not run concurrently.
+	 *
+	 * @return the maximum number of agents of this type
+	 */
+	public int getMaxAgents() {
+		return Integer.MAX_VALUE;
 	}
 
 	public final long getAverageExecutionTime() {
@@ -246,10 +210,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 		this.agentService = service;
 	}
 
-	public int getMaxAgents() {
-		return maxAgents;
-	}
-
 	// ----- interface StatusInfo -----
 	@Override
 	public Object getStatusProperty(String key) {
@@ -258,10 +218,6 @@ public abstract class Agent<T> extends Thread implements StatusInfo {
 
 			return (getAverageExecutionTime());
 
-		} else if (key.equals(MAX_QUEUE_SIZE)) {
-
-			return (getMaxQueueSize());
-
 		} else if (key.equals(EXECUTION_STATUS)) {
 
 			// TODO.
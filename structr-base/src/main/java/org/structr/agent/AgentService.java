@@ -21,6 +21,7 @@ package org.structr.agent;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.service.*;
 import org.structr.core.Services;
 import org.structr.schema.ConfigurationProvider;
@@ -28,11 +29,22 @@ import org.structr.schema.SchemaService;
 
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The agent service main class.
+ *
+ * Tasks are kept in a priority queue per task type. Agents take their
+ * tasks directly from the queue of their task type, and the service
+ * starts new agents whenever there are more queued tasks than idle
+ * agents, up to the configured number of workers per task type or the
+ * lower limit of its agent class.
  */
 @ServiceDependency(SchemaService.class)
 @StopServiceForMaintenanceMode
@@ -40,12 +52,17 @@ public class AgentService extends Thread implements RunnableService {
 
 	private static final Logger logger = LoggerFactory.getLogger(AgentService.class.getName());
 
-	private final int maxAgents                          = 10;    // TODO: make configurable
-	private final Map<String, List<Agent>> runningAgents = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Map<String, Class> agentClassCache     = new ConcurrentHashMap<>(10, 0.9f, 8);
-	private final Queue<Task> taskQueue                  = new ConcurrentLinkedQueue<>();
-	private Set<Class> supportedCommands                 = null;
-	private boolean run                                  = false;
+	private static final long AGENT_IDLE_TIMEOUT = 10L;    // seconds
+
+	private final Map<String, List<Agent>> runningAgents              = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Class> agentClassCache                  = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, BlockingQueue<QueuedTask>> taskQueues   = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, AtomicInteger> idleAgents               = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final Map<String, Integer> agentLimits                    = new ConcurrentHashMap<>(10, 0.9f, 8);
+	private final BlockingQueue<Class> dispatchQueue                  = new LinkedBlockingQueue<>();
+	private final AtomicLong sequence                                 = new AtomicLong();
+	private Set<Class> supportedCommands                              = null;
+	private volatile boolean run                                      = false;
 
 	public AgentService() {
 
@@ -56,13 +73,29 @@ public class AgentService extends Thread implements RunnableService {
 		super.setDaemon(true);
 	}
 
-	public void processTask(Task task) {
+	public void processTask(final Task task) {
+		processTasks(Collections.singletonList(task));
+	}
 
-		synchronized (taskQueue) {
+	/**
+	 * Adds the given tasks to the queues of their task types and wakes up
+	 * the service to start agents for them if necessary.
+	 *
+	 * @param tasks
+	 */
+	public void processTasks(final Collection<Task> tasks) {
+
+		final Set<Class> taskTypes = new LinkedHashSet<>();
+
+		for (final Task task : tasks) {
+
+			getQueueForTask(task.getClass()).add(new QueuedTask(task, sequence.incrementAndGet()));
+			taskTypes.add(task.getClass());
 
-			taskQueue.add(task);
 			logger.debug("Task {} added to task queue", task);
 		}
+
+		dispatchQueue.addAll(taskTypes);
 	}
 
 	@Override
@@ -72,14 +105,14 @@ public class AgentService extends Thread implements RunnableService {
 
 		while (run) {
 
-			Task nextTask = taskQueue.poll();
-			if (nextTask != null) {
+			try {
 
-				assignNextAgentForTask(nextTask);
-			}
+				startAgentsForTask(dispatchQueue.take());
+
+			} catch (InterruptedException iex) {
 
-			// let others act
-			try { Thread.sleep(10); } catch(Throwable ignore) {}
+				// service is being stopped
+			}
 		}
 	}
 
@@ -94,11 +127,17 @@ public class AgentService extends Thread implements RunnableService {
 
 	public void notifyAgentStop(Agent agent) {
 
-		List<Agent> agents = getRunningAgentsForTask(agent.getSupportedTaskType());
+		final Class taskClass = agent.getSupportedTaskType();
+		List<Agent> agents    = getRunningAgentsForTask(taskClass);
 
 		synchronized (agents) {
 			agents.remove(agent);
 		}
+
+		// tasks may have arrived while the agent was shutting down
+		if (!getQueueForTask(taskClass).isEmpty()) {
+			dispatchQueue.add(taskClass);
+		}
 	}
 
 	public Map<String, Class<? extends Agent>> getAgents() {
@@ -112,6 +151,34 @@ public class AgentService extends Thread implements RunnableService {
 		return Collections.emptyMap();
 	}
 
+	/**
+	 * Returns the number of queued tasks, running and idle agents for
+	 * each task type.
+	 *
+	 * @return info
+	 */
+	public Map<String, Map<String, Integer>> getInfo() {
+
+		final Map<String, Map<String, Integer>> info = new LinkedHashMap<>();
+
+		for (final Entry<String, BlockingQueue<QueuedTask>> entry : taskQueues.entrySet()) {
+
+			final String taskType           = entry.getKey();
+			final Map<String, Integer> data = new LinkedHashMap<>();
+			final List<Agent> agents        = runningAgents.get(taskType);
+			final AtomicInteger idle        = idleAgents.get(taskType);
+
+			data.put("queued",  entry.getValue().size());
+			data.put("agents",  agents != null ? agents.size() : 0);
+			data.put("idle",    idle != null ? idle.get() : 0);
+			data.put("workers", getMaxAgents(taskType));
+
+			info.put(taskType, data);
+		}
+
+		return info;
+	}
+
 	@Override
 	public void injectArguments(Command command) {
 		command.setArgument("agentService", this);
@@ -137,7 +204,9 @@ public class AgentService extends Thread implements RunnableService {
 
 	@Override
 	public void stopService() {
+
 		run = false;
+		this.interrupt();
 	}
 
 	@Override
@@ -145,72 +214,105 @@ public class AgentService extends Thread implements RunnableService {
 		return true;
 	}
 
-	private void assignNextAgentForTask(final Task nextTask) {
-
-		Class taskClass    = nextTask.getClass();
-		List<Agent> agents = getRunningAgentsForTask(taskClass);
+	/**
+	 * Waits for the next task of the given type. Returns null if no task
+	 * arrived within the idle timeout, so the agent can shut down.
+	 */
+	Task nextTask(final Class taskClass) throws InterruptedException {
 
-		// need to synchronize on agents
-		synchronized (agents) {
+		final AtomicInteger idle = idleAgents.computeIfAbsent(taskClass.getName(), k -> new AtomicInteger());
 
-			// find next free agent (agents should be sorted by load, so one
-			// of the first should do..
-			for (Agent agent : agents) {
+		idle.incrementAndGet();
 
-				if (agent.assignTask(nextTask)) {
+		try {
 
-					// ok, task is assigned
-					logger.debug("Task assigned to agent {} ({})", agent.getName(), agent.hashCode());
+			final QueuedTask queuedTask = getQueueForTask(taskClass).poll(AGENT_IDLE_TIMEOUT, TimeUnit.SECONDS);
+			if (queuedTask != null) {
 
-					return;
-				}
+				return queuedTask.task;
 			}
+
+			return null;
+
+		} finally {
+
+			idle.decrementAndGet();
 		}
+	}
+
+	private void startAgentsForTask(final Class taskClass) {
 
-		if (agents.size() < maxAgents) {
+		final BlockingQueue<QueuedTask> queue = getQueueForTask(taskClass);
+		final List<Agent> agents              = getRunningAgentsForTask(taskClass);
+		final AtomicInteger idle              = idleAgents.computeIfAbsent(taskClass.getName(), k -> new AtomicInteger());
+		final int maxAgents                   = getMaxAgents(taskClass);
 
-			// if we get here, task was not assigned to any agent, need to create a new one.
-			Agent agent = createAgent(nextTask);
+		// need to synchronize on agents
+		synchronized (agents) {
 
-			if ((agent != null) && agent.assignTask(nextTask)) {
+			// start a new agent for each queued task that no idle agent can take
+			int count = Math.min(queue.size() - idle.get(), maxAgents - agents.size());
 
-				agent.start();
+			while (count-- > 0) {
 
-			} else {
+				final Agent agent = createAgent(taskClass);
+				if (agent == null) {
 
-				// re-add task..
-				synchronized (taskQueue) {
-					taskQueue.add(nextTask);
+					logger.warn("No agent found for task type {}, {} tasks remain queued", taskClass.getSimpleName(), queue.size());
+					return;
 				}
+
+				notifyAgentStart(agent);
+				agent.start();
+
+				logger.debug("Started agent {} for task type {}", agent.getName(), taskClass.getSimpleName());
 			}
 
-		} else {
+			if (agents.size() >= maxAgents) {
+				logger.debug("Agents limit reached for task type {}, {} tasks queued", taskClass.getSimpleName(), queue.size());
+			}
+		}
+	}
+
+	private int getMaxAgents(final Class taskClass) {
 
-			logger.debug("Overall agents limit reached, re-queueing task");
+		// the limit of the agent class cannot change, ask a single instance
+		if (!agentLimits.containsKey(taskClass.getName())) {
 
-			// re-add task..
-			synchronized (taskQueue) {
-				taskQueue.add(nextTask);
+			final Agent agent = lookupAgent(taskClass);
+			if (agent != null) {
+
+				agentLimits.put(taskClass.getName(), agent.getMaxAgents());
 			}
 		}
+
+		return getMaxAgents(taskClass.getName());
+	}
+
+	private int getMaxAgents(final String taskType) {
+		return Math.max(1, Math.min(Settings.AgentServiceWorkers.getValue(), agentLimits.getOrDefault(taskType, Integer.MAX_VALUE)));
+	}
+
+	private BlockingQueue<QueuedTask> getQueueForTask(final Class taskClass) {
+		return taskQueues.computeIfAbsent(taskClass.getName(), k -> new PriorityBlockingQueue<>());
 	}
 
 	/**
-	 * Creates a new agent for the given Task. Note that the agent must be
-	 * started manually after creation.
+	 * Creates a new agent for the given task type. Note that the agent must
+	 * be started manually after creation.
 	 *
-	 * @param forTask
-	 * @return a new agent for the given task
+	 * @param taskClass
+	 * @return a new agent for the given task type
 	 */
-	private Agent createAgent(Task forTask) {
+	private Agent createAgent(final Class taskClass) {
 
-		logger.debug("Creating new agent for task {}", forTask.getClass().getSimpleName());
+		logger.debug("Creating new agent for task {}", taskClass.getSimpleName());
 
 		Agent agent = null;
 
 		try {
 
-			agent = lookupAgent(forTask);
+			agent = lookupAgent(taskClass);
 
 			if (agent != null) {
 
@@ -225,10 +327,9 @@ public class AgentService extends Thread implements RunnableService {
 		return (agent);
 	}
 
-	private Agent lookupAgent(Task task) {
+	private Agent lookupAgent(final Class taskClass) {
 
 		// FIXME: superuser security context
-		Class taskClass  = task.getClass();
 		Agent agent      = null;
 		Class agentClass = agentClassCache.get(taskClass.getName());
 
@@ -275,7 +376,17 @@ public class AgentService extends Thread implements RunnableService {
 	 * @return tasks
 	 */
 	public Collection<Task> getTaskQueue() {
-		return (taskQueue);
+
+		final List<Task> tasks = new LinkedList<>();
+
+		for (final BlockingQueue<QueuedTask> queue : taskQueues.values()) {
+
+			for (final QueuedTask queuedTask : queue) {
+				tasks.add(queuedTask.task);
+			}
+		}
+
+		return tasks;
 	}
 
 	/**
@@ -288,17 +399,7 @@ public class AgentService extends Thread implements RunnableService {
 
 	private List<Agent> getRunningAgentsForTask(Class taskClass) {
 
-		List<Agent> agents = runningAgents.get(taskClass.getName());
-
-		if (agents == null) {
-
-			agents = Collections.synchronizedList(new LinkedList<>());
-
-			// Hashtable is synchronized
-			runningAgents.put(taskClass.getName(), agents);
-		}
-
-		return (agents);
+		return runningAgents.computeIfAbsent(taskClass.getName(), k -> Collections.synchronizedList(new LinkedList<>()));
 	}
 
 	@Override
@@ -321,4 +422,26 @@ public class AgentService extends Thread implements RunnableService {
 	public String getModuleName() {
 		return "agents";
 	}
+
+	// ----- nested classes -----
+	private static class QueuedTask implements Comparable<QueuedTask> {
+
+		private final Task task;
+		private final long sequence;
+
+		public QueuedTask(final Task task, final long sequence) {
+
+			this.task     = task;
+			this.sequence = sequence;
+		}
+
+		@Override
+		public int compareTo(final QueuedTask other) {
+
+			// higher priority first, FIFO for tasks with the same priority
+			final int result = Integer.compare(other.task.priority(), task.priority());
+
+			return result != 0 ? result : Long.compare(sequence, other.sequence);
+		}
+	}
 }
@@ -18,6 +18,8 @@
  */
 package org.structr.agent;
 
+import java.util.Arrays;
+
 /**
  * Hands over one ore more {@link Task}s to the agent service for processing.
  * 
@@ -30,10 +32,7 @@ public class ProcessTaskCommand extends AgentServiceCommand {
 		AgentService agentService = (AgentService)arguments.get("agentService");
 		if(agentService != null) {
 			
-			for(Task task : tasks) {
-				
-				agentService.processTask(task);
-			}
+			agentService.processTasks(Arrays.asList(tasks));
 		}
 	}
 }
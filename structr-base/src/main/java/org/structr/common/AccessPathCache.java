@@ -18,24 +18,32 @@
  */
 package org.structr.common;
 
+import org.structr.api.config.Settings;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.graph.Relationship;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.FixedSizeCache;
 import org.structr.core.graph.NodeInterface;
 
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- *
+ * Caches the results of permission resolution between two nodes. Each
+ * entry records the UUIDs and relationship types of the path it was
+ * computed from, and reverse indexes from UUID and relationship type
+ * to cache entries make invalidation proportional to the number of
+ * affected entries. The indexes contain entries instead of keys, so an
+ * outdated entry can not remove the registration of a newer entry with
+ * the same key.
  */
 public class AccessPathCache {
 
-	private static final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-	private static final Set<String> allRelTypes       = new HashSet<>();
-	private static final Set<String> allUuids          = new HashSet<>();
+	private static final FixedSizeCache<String, CacheEntry> cache = new FixedSizeCache<>("Access path cache", Settings.AccessPathCacheSize.getValue());
+	private static final Map<String, Set<CacheEntry>> relTypeIndex = new ConcurrentHashMap<>();
+	private static final Map<String, Set<CacheEntry>> uuidIndex    = new ConcurrentHashMap<>();
 
 	public static PermissionResolutionMask get(final NodeInterface startNode, final NodeInterface endNode) {
 
@@ -53,10 +61,6 @@ public class AccessPathCache {
 
 		final CacheEntry entry = getOrCreateCacheEntry(startNode, endNode);
 
-		// remember UUIDs
-		allUuids.add(startNode.getUuid());
-		allUuids.add(endNode.getUuid());
-
 		entry.mask = mask;
 	}
 
@@ -68,7 +72,7 @@ public class AccessPathCache {
 		if (uuid != null) {
 
 			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			addToIndex(uuidIndex, uuid, entry);
 		}
 	}
 
@@ -82,51 +86,32 @@ public class AccessPathCache {
 			final String relType   = rel.getType().name();
 
 			entry.uuids.add(uuid);
-			allUuids.add(uuid);
+			addToIndex(uuidIndex, uuid, entry);
 
 			entry.relTypes.add(relType);
-			allRelTypes.add(relType);
-
+			addToIndex(relTypeIndex, relType, entry);
 		}
 	}
 
 	public static void invalidateForId(final String uuid) {
-
-		if (allUuids.contains(uuid)) {
-
-			for (final CacheEntry entry : cache.values()) {
-
-				if (entry.uuids.contains(uuid)) {
-					cache.remove(entry.key);
-				}
-			}
-
-			allUuids.remove(uuid);
-		}
+		invalidate(uuidIndex.remove(uuid));
 	}
 
 	public static void invalidateForRelType(final String relType) {
-
-		if (allRelTypes.contains(relType)) {
-
-			for (final CacheEntry entry : cache.values()) {
-
-				if (entry.relTypes.contains(relType)) {
-					cache.remove(entry.key);
-				}
-			}
-
-			allRelTypes.remove(relType);
-		}
+		invalidate(relTypeIndex.remove(relType));
 	}
 
 	public static void invalidate() {
 
-		allRelTypes.clear();
-		allUuids.clear();
+		relTypeIndex.clear();
+		uuidIndex.clear();
 		cache.clear();
 	}
 
+	public static Map<String, Integer> getCacheInfo() {
+		return cache.getCacheInfo();
+	}
+
 	// ----- private methods -----
 	private static CacheEntry getOrCreateCacheEntry(final NodeInterface startNode, final NodeInterface endNode) {
 
@@ -135,15 +120,63 @@ public class AccessPathCache {
 
 		if (entry == null) {
 
-			entry = new CacheEntry();
-			entry.key = cacheKey;
+			final CacheEntry newEntry = new CacheEntry(cacheKey);
+
+			entry = cache.putIfAbsent(cacheKey, newEntry);
+			if (entry == null) {
 
-			cache.put(cacheKey, entry);
+				entry = newEntry;
+			}
 		}
 
 		return entry;
 	}
 
+	private static void invalidate(final Set<CacheEntry> entries) {
+
+		if (entries != null) {
+
+			for (final CacheEntry entry : entries) {
+
+				entry.removeFromIndexes();
+
+				// the key can be mapped to a newer entry, which is removed as well
+				final CacheEntry current = cache.remove(entry.key);
+				if (current != null && current != entry) {
+
+					current.removeFromIndexes();
+				}
+			}
+		}
+	}
+
+	private static void addToIndex(final Map<String, Set<CacheEntry>> index, final String value, final CacheEntry entry) {
+
+		index.compute(value, (k, entries) -> {
+
+			final Set<CacheEntry> set = entries != null ? entries : ConcurrentHashMap.newKeySet();
+
+			set.add(entry);
+
+			return set;
+		});
+
+		// the entry was removed concurrently, so nobody else removes it from the index
+		if (entry.removed) {
+			removeFromIndex(index, value, entry);
+		}
+	}
+
+	private static void removeFromIndex(final Map<String, Set<CacheEntry>> index, final String value, final CacheEntry entry) {
+
+		index.computeIfPresent(value, (k, entries) -> {
+
+			entries.remove(entry);
+
+			return entries.isEmpty() ? null : entries;
+		});
+	}
+
 	private static String cacheKey(final NodeInterface startNode, final NodeInterface endNode) {
 		return startNode.getUuid() + endNode.getUuid();
 	}
@@ -158,11 +191,37 @@ public class AccessPathCache {
 	}
 
 	// ----- nested classes -----
-	private static class CacheEntry {
+	private static class CacheEntry implements Cachable {
+
+		protected final Set<String> uuids                = ConcurrentHashMap.newKeySet();
+		protected final Set<String> relTypes             = ConcurrentHashMap.newKeySet();
+		protected volatile PermissionResolutionMask mask = null;
+		protected volatile boolean removed               = false;
+		protected String key                             = null;
+
+		public CacheEntry(final String key) {
+			this.key = key;
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+
+			// evicted due to size restrictions
+			removeFromIndexes();
+		}
+
+		public void removeFromIndexes() {
 
-		protected Set<String> uuids             = new HashSet<>();
-		protected Set<String> relTypes          = new HashSet<>();
-		protected PermissionResolutionMask mask = null;
-		protected String key                    = null;
+			// must be set first, see addToIndex
+			removed = true;
+
+			for (final String uuid : uuids) {
+				removeFromIndex(uuidIndex, uuid, this);
+			}
+
+			for (final String relType : relTypes) {
+				removeFromIndex(relTypeIndex, relType, this);
+			}
+		}
 	}
 }
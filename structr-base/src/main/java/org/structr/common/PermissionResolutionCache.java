@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import org.structr.api.config.Settings;
+import org.structr.api.util.FixedSizeCache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches permission decisions per node and principal.
+ *
+ * For each node, a map from principal UUID to a small bit field holds
+ * three flags per permission: the positive result of a complete
+ * isGranted() check, and whether and how the permission was resolved
+ * during permission propagation. The number of nodes is bounded, and
+ * entries can be invalidated per node or as a whole.
+ */
+public class PermissionResolutionCache {
+
+	private static final FixedSizeCache<String, NodeEntry> cache = new FixedSizeCache<>("Permission resolution cache", Settings.PermissionResolutionCacheSize.getValue());
+	private static final String ANONYMOUS                        = "";
+
+	private static final int GRANTED  = 1;
+	private static final int RESOLVED = 2;
+	private static final int ALLOWED  = 4;
+
+	public static boolean isGranted(final String nodeId, final String principalId, final Permission permission) {
+		return hasFlag(nodeId, principalId, permission, GRANTED);
+	}
+
+	public static void storeGranted(final String nodeId, final String principalId, final Permission permission) {
+		setFlags(nodeId, principalId, permission, GRANTED);
+	}
+
+	/**
+	 * Returns the result of permission propagation for the given
+	 * node, principal and permission, or null if it is not known.
+	 */
+	public static Boolean getResolutionResult(final String nodeId, final String principalId, final Permission permission) {
+
+		if (hasFlag(nodeId, principalId, permission, RESOLVED)) {
+			return hasFlag(nodeId, principalId, permission, ALLOWED);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores the result of permission propagation. A positive result
+	 * is never overwritten by a negative one.
+	 */
+	public static void storeResolutionResult(final String nodeId, final String principalId, final Permission permission, final boolean value) {
+		setFlags(nodeId, principalId, permission, value ? RESOLVED | ALLOWED : RESOLVED);
+	}
+
+	public static void invalidateForNode(final String nodeId) {
+
+		if (nodeId != null) {
+			cache.remove(nodeId);
+		}
+	}
+
+	public static void invalidate() {
+		cache.clear();
+	}
+
+	public static Map<String, Integer> getCacheInfo() {
+		return cache.getCacheInfo();
+	}
+
+	// ----- private methods -----
+	private static boolean hasFlag(final String nodeId, final String principalId, final Permission permission, final int flag) {
+
+		final int shift = getShift(permission);
+		if (nodeId != null && shift >= 0) {
+
+			final NodeEntry entry = cache.get(nodeId);
+			if (entry != null) {
+
+				final Integer bits = entry.principals.get(principalId != null ? principalId : ANONYMOUS);
+				if (bits != null) {
+
+					return (bits & (flag << shift)) != 0;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	private static void setFlags(final String nodeId, final String principalId, final Permission permission, final int flags) {
+
+		final int shift = getShift(permission);
+		if (nodeId != null && shift >= 0) {
+
+			NodeEntry entry = cache.get(nodeId);
+			if (entry == null) {
+
+				final NodeEntry newEntry = new NodeEntry();
+
+				entry = cache.putIfAbsent(nodeId, newEntry);
+				if (entry == null) {
+
+					entry = newEntry;
+				}
+			}
+
+			entry.principals.merge(principalId != null ? principalId : ANONYMOUS, flags << shift, (a, b) -> a | b);
+		}
+	}
+
+	private static int getShift(final Permission permission) {
+
+		if (Permission.read.equals(permission)) {
+			return 0;
+		}
+
+		if (Permission.write.equals(permission)) {
+			return 3;
+		}
+
+		if (Permission.delete.equals(permission)) {
+			return 6;
+		}
+
+		if (Permission.accessControl.equals(permission)) {
+			return 9;
+		}
+
+		// unknown permissions are not cached
+		return -1;
+	}
+
+	// ----- nested classes -----
+	private static class NodeEntry {
+
+		private final Map<String, Integer> principals = new ConcurrentHashMap<>(4);
+	}
+}
@@ -895,6 +895,48 @@ public class SecurityContext {
 		this.contextStore = contextStore;
 	}
 
+	/**
+	 * Returns a copy of this context for a thread that works on the same
+	 * request in parallel. The copy has its own serialization depth,
+	 * transaction flags, library cache and context store.
+	 */
+	public SecurityContext copy() {
+
+		final SecurityContext copy = this instanceof SuperUserSecurityContext ? new SuperUserSecurityContext() : new SecurityContext();
+
+		copy.remoteCollectionMergeMode     = remoteCollectionMergeMode;
+		copy.returnDetailedCreationResults = returnDetailedCreationResults;
+		copy.uuidWasSetManually            = uuidWasSetManually;
+		copy.doTransactionNotifications    = doTransactionNotifications;
+		copy.forceMergeOfNestedProperties  = forceMergeOfNestedProperties;
+		copy.doCascadingDelete             = doCascadingDelete;
+		copy.modifyAccessTime              = modifyAccessTime;
+		copy.disableSoftLimit              = disableSoftLimit;
+		copy.disableUuidValidation         = disableUuidValidation;
+		copy.forceResultCount              = forceResultCount;
+		copy.preventDuplicateRelationships = preventDuplicateRelationships;
+		copy.doInnerCallbacks              = doInnerCallbacks;
+		copy.isReadOnlyTransaction         = isReadOnlyTransaction;
+		copy.doMultiThreadedJsonOutput     = doMultiThreadedJsonOutput;
+		copy.doIndexing                    = doIndexing;
+		copy.serializationDepth            = serializationDepth;
+		copy.accessMode                    = accessMode;
+		copy.authenticator                 = authenticator;
+		copy.cachedUser                    = cachedUser;
+		copy.request                       = request;
+		copy.response                      = response;
+		copy.customView                    = customView;
+		copy.cachedUserName                = cachedUserName;
+		copy.cachedUserId                  = cachedUserId;
+		copy.sessionId                     = sessionId;
+		copy.contextStore                  = contextStore != null ? new ContextStore(contextStore) : null;
+
+		copy.ranges.putAll(ranges);
+		copy.attrs.putAll(attrs);
+
+		return copy;
+	}
+
 	public void setReadOnlyTransaction() {
 		this.isReadOnlyTransaction = true;
 	}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.common;
+
+import org.structr.api.config.Settings;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.core.property.PropertyKey;
+
+/**
+ * Bounded in-memory index of values that passed a uniqueness
+ * validation, mapping (type, property, value) to the UUID of the
+ * object that holds the value. Entries are hints only, a conflicting
+ * entry must be verified before it is reported.
+ */
+class UniqueValueIndex {
+
+	private static final FixedSizeCache<String, String> index = new FixedSizeCache<>("Unique value index", Settings.UniqueValueIndexSize.getValue());
+
+	public static boolean isEnabled() {
+		return Settings.UniqueValueIndexEnabled.getValue();
+	}
+
+	public static String get(final Class type, final PropertyKey key, final Object value) {
+
+		final String indexKey = indexKey(type, key, value);
+		if (indexKey != null) {
+
+			return index.get(indexKey);
+		}
+
+		return null;
+	}
+
+	public static void put(final Class type, final PropertyKey key, final Object value, final String uuid) {
+
+		final String indexKey = indexKey(type, key, value);
+		if (indexKey != null && uuid != null) {
+
+			index.put(indexKey, uuid);
+		}
+	}
+
+	public static void remove(final Class type, final PropertyKey key, final Object value) {
+
+		final String indexKey = indexKey(type, key, value);
+		if (indexKey != null) {
+
+			index.remove(indexKey);
+		}
+	}
+
+	// ----- private methods -----
+	private static String indexKey(final Class type, final PropertyKey key, final Object value) {
+
+		// only scalar values are indexed
+		if (value instanceof String || value instanceof Number || value instanceof Boolean || value instanceof Enum) {
+
+			return type.getName() + '\u0000' + key.jsonName() + '\u0000' + value.getClass().getSimpleName() + '\u0000' + value;
+		}
+
+		return null;
+	}
+}
@@ -33,9 +33,11 @@ import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 /**
@@ -47,8 +49,16 @@ public class ValidationHelper {
 
 	private static final Logger logger = LoggerFactory.getLogger(ValidationHelper.class.getName());
 
-	private static final PropertyKey UnknownType       = new GenericProperty("unknown type");
-	private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+	private static final PropertyKey UnknownType         = new GenericProperty("unknown type");
+	private static final Map<String, Pattern> patterns   = new ConcurrentHashMap<>();
+	private static final ReentrantLock[] uniquenessLocks = new ReentrantLock[256];
+
+	static {
+
+		for (int i=0; i<uniquenessLocks.length; i++) {
+			uniquenessLocks[i] = new ReentrantLock();
+		}
+	}
 
 	// ----- public static methods -----
 
@@ -539,7 +549,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
@@ -547,7 +557,6 @@ public class ValidationHelper {
 			if (value != null) {
 
 				// validation will only be executed for non-null values
-				List<GraphObject> result = null;
 
 				// use declaring class for inheritance-aware uniqueness
 				Class type = key.getDeclaringClass();
@@ -557,59 +566,16 @@ public class ValidationHelper {
 					type = object.getClass();
 				}
 
-				try {
-
-					if (object instanceof NodeInterface) {
-
-						result = StructrApp.getInstance()
-								.nodeQuery(type)
-								.and(key, value)
-								.sort(GraphObject.createdDate)
-								.getAsList();
-
-					} else {
-
-						result = StructrApp.getInstance()
-								.relationshipQuery(type)
-								.and(key, value)
-								.sort(GraphObject.createdDate)
-								.getAsList();
-
-					}
-
-				} catch (FrameworkException fex) {
+				final ReentrantLock lock = getUniquenessLock(type.getName(), key.jsonName(), value);
 
-					logger.warn("", fex);
-
-				}
-
-				/* This validation code runs at the end of a transaction, so if there
-				 * is a constraint violation, there are at least two different nodes
-				 * with the same value for the unique key. At this point, we don't
-				 * know which node we are currently examining, so we sort by creation
-				 * date (ascending order) and look at the first node of the result
-				 * list. We want the validation code to fail for all constraint
-				 * violating nodes that are older than the first node.
-				 */
-
-				if (result != null) {
-
-					final Identity identity = object.getPropertyContainer().getId();
-
-					for (final GraphObject foundNode : result) {
+				lock.lock();
+				try {
 
-						if (!identity.equals(foundNode.getPropertyContainer().getId())) {
+					return isUnique(object, type, key, value, errorBuffer);
 
-							// validation is aborted when the first validation failure occurs, so
-							// we can assume that the object currently examined is the first
-							// existing object, hence all others get the error message with the
-							// UUID of the first one.
-							errorBuffer.add(new UniqueToken(object.getType(), key, object.getUuid(), foundNode.getUuid(), value));
+				} finally {
 
-							// error!
-							return false;
-						}
-					}
+					lock.unlock();
 				}
 			}
 		}
@@ -618,7 +584,7 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
+	public static boolean areValidCompoundUniqueProperties(final GraphObject object, final ErrorBuffer errorBuffer, final PropertyKey... keys) {
 
 		if (keys != null && keys.length > 0) {
 
@@ -643,6 +609,17 @@ public class ValidationHelper {
 				type = object.getClass();
 			}
 
+			final Object[] lockKey = new Object[keys.length + 1];
+
+			lockKey[0] = type.getName();
+
+			for (int i=0; i<keys.length; i++) {
+				lockKey[i + 1] = properties.get(keys[i]);
+			}
+
+			final ReentrantLock lock = getUniquenessLock(lockKey);
+
+			lock.lock();
 			try {
 
 				if (object instanceof NodeInterface) {
@@ -667,6 +644,9 @@ public class ValidationHelper {
 
 				logger.warn("", fex);
 
+			} finally {
+
+				lock.unlock();
 			}
 
 			/* This validation code runs at the end of a transaction, so if there
@@ -703,67 +683,164 @@ public class ValidationHelper {
 		return true;
 	}
 
-	public static synchronized boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
+	public static boolean isValidGloballyUniqueProperty(final GraphObject object, final PropertyKey key, final ErrorBuffer errorBuffer) {
 
 		if (key != null) {
 
-			final Object value                 = object.getProperty(key);
-			List<? extends GraphObject> result = null;
+			final Object value = object.getProperty(key);
+			Class type         = null;
+
+			if (object instanceof NodeInterface) {
+
+				type = NodeInterface.class;
+
+			} else if (object instanceof RelationshipInterface) {
+
+				type = RelationshipInterface.class;
+
+			} else {
+
+				logger.error("GraphObject is neither NodeInterface nor RelationshipInterface");
+
+				return false;
+			}
+
+			final ReentrantLock lock = getUniquenessLock(type.getName(), key.jsonName(), value);
 
+			lock.lock();
 			try {
 
-				if (object instanceof NodeInterface) {
+				return isUnique(object, type, key, value, errorBuffer);
 
-					result = StructrApp.getInstance()
-							.nodeQuery(NodeInterface.class)
-							.and(key, value)
-							.sort(GraphObject.createdDate)
-							.getAsList();
+			} finally {
 
-				} else if (object instanceof RelationshipInterface) {
+				lock.unlock();
+			}
+		}
 
-					result = StructrApp.getInstance()
-							.relationshipQuery(RelationshipInterface.class)
-							.and(key, value)
-							.sort(GraphObject.createdDate)
-							.getAsList();
+		// no error
+		return true;
 
-				} else {
+	}
+
+	// ----- private static methods -----
+	private static boolean isUnique(final GraphObject object, final Class type, final PropertyKey key, final Object value, final ErrorBuffer errorBuffer) {
+
+		final boolean useIndex = UniqueValueIndex.isEnabled();
+		final String uuid      = object.getUuid();
+
+		if (useIndex) {
 
-					logger.error("GraphObject is neither NodeInterface nor RelationshipInterface");
+			final String indexedUuid = UniqueValueIndex.get(type, key, value);
+			if (indexedUuid != null) {
 
+				if (indexedUuid.equals(uuid)) {
+
+					// value was already validated for this object
+					return true;
+				}
+
+				final GraphObject existing = getExistingObject(object, type, key, value, indexedUuid);
+				if (existing != null) {
+
+					errorBuffer.add(new UniqueToken(object.getType(), key, uuid, existing.getUuid(), value));
+
+					// error!
 					return false;
 				}
 
-			} catch (FrameworkException fex) {
+				// stale index entry
+				UniqueValueIndex.remove(type, key, value);
+			}
+		}
 
-				logger.warn("Unable to fetch list of nodes for uniqueness check", fex);
-				// handle error
+		List<? extends GraphObject> result = null;
+
+		try {
+
+			if (object instanceof NodeInterface) {
+
+				result = StructrApp.getInstance()
+						.nodeQuery(type)
+						.and(key, value)
+						.sort(GraphObject.createdDate)
+						.getAsList();
+
+			} else {
+
+				result = StructrApp.getInstance()
+						.relationshipQuery(type)
+						.and(key, value)
+						.sort(GraphObject.createdDate)
+						.getAsList();
 			}
 
-			if (result != null) {
+		} catch (FrameworkException fex) {
 
-				final Identity identity = object.getPropertyContainer().getId();
+			logger.warn("Unable to fetch list of nodes for uniqueness check", fex);
+			// handle error
+		}
 
-				for (final GraphObject foundNode : result) {
+		/* This validation code runs at the end of a transaction, so if there
+		 * is a constraint violation, there are at least two different nodes
+		 * with the same value for the unique key. At this point, we don't
+		 * know which node we are currently examining, so we sort by creation
+		 * date (ascending order) and look at the first node of the result
+		 * list. We want the validation code to fail for all constraint
+		 * violating nodes that are older than the first node.
+		 */
 
-					if (!identity.equals(foundNode.getPropertyContainer().getId())) {
+		if (result != null) {
 
-						// validation is aborted when the first validation failure occurs, so
-						// we can assume that the object currently examined is the first
-						// existing object, hence all others get the error message with the
-						// UUID of the first one.
-						errorBuffer.add(new UniqueToken(object.getType(), key, object.getUuid(), foundNode.getUuid(), value));
+			final Identity identity = object.getPropertyContainer().getId();
 
-						// error!
-						return false;
-					}
+			for (final GraphObject foundNode : result) {
+
+				if (!identity.equals(foundNode.getPropertyContainer().getId())) {
+
+					// validation is aborted when the first validation failure occurs, so
+					// we can assume that the object currently examined is the first
+					// existing object, hence all others get the error message with the
+					// UUID of the first one.
+					errorBuffer.add(new UniqueToken(object.getType(), key, uuid, foundNode.getUuid(), value));
+
+					// error!
+					return false;
 				}
 			}
+
+			if (useIndex) {
+				UniqueValueIndex.put(type, key, value, uuid);
+			}
 		}
 
 		// no error
 		return true;
+	}
+
+	/**
+	 * Returns the object with the given UUID if it still holds the given
+	 * value, or null if the index entry is outdated.
+	 */
+	private static GraphObject getExistingObject(final GraphObject object, final Class type, final PropertyKey key, final Object value, final String uuid) {
+
+		try {
+
+			final GraphObject existing = object instanceof NodeInterface ? StructrApp.getInstance().getNodeById(uuid) : StructrApp.getInstance().getRelationshipById(uuid);
+
+			if (existing != null && type.isAssignableFrom(existing.getClass()) && value.equals(existing.getProperty(key))) {
+
+				return existing;
+			}
+
+		} catch (Throwable t) {
+			logger.debug("Unable to verify unique value index entry", t);
+		}
+
+		return null;
+	}
 
+	private static ReentrantLock getUniquenessLock(final Object... parts) {
+		return uniquenessLocks[(Arrays.deepHashCode(parts) & 0x7fffffff) % uniquenessLocks.length];
 	}
 }
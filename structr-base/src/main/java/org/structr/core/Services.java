@@ -43,6 +43,7 @@ import org.structr.core.cluster.BroadcastReceiver;
 import org.structr.core.cluster.ClusterManager;
 import org.structr.core.cluster.StructrMessage;
 import org.structr.core.entity.Principal;
+import org.structr.core.graph.ChangelogStore;
 import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.ManageDatabasesCommand;
 import org.structr.core.graph.NodeService;
@@ -61,10 +62,12 @@ import java.net.URLConnection;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class Services implements StructrServices, BroadcastReceiver {
@@ -81,6 +84,9 @@ public class Services implements StructrServices, BroadcastReceiver {
 	private static boolean skipIndexConfiguration      = false;
 	private static Boolean cachedTestingFlag           = null;
 
+	// listeners for cluster messages of other modules
+	private static final Map<String, Set<Consumer<List>>> messageListeners = new ConcurrentHashMap<>();
+
 	// non-static members
 	private final Map<Class, Map<String, Service>> serviceCache = new ConcurrentHashMap<>(10, 0.9f, 8);
 	private final Set<Permission> permissionsForOwnerlessNodes  = new LinkedHashSet<>();
@@ -608,6 +614,9 @@ public class Services implements StructrServices, BroadcastReceiver {
 
 			serviceCache.clear();
 
+			// write pending changelog entries
+			ChangelogStore.shutdown();
+
 			// shut down configuration provider
 			configuration.shutdown();
 
@@ -1407,6 +1416,30 @@ public class Services implements StructrServices, BroadcastReceiver {
 		}
 	}
 
+	/**
+	 * Sends the given message to all other cluster nodes, where it is
+	 * delivered to the listeners registered for its type.
+	 */
+	public void broadcastMessage(final String type, final List payload) {
+
+		try {
+
+			Services.getInstance().broadcastMessageToCluster(type, payload);
+
+		} catch (Throwable t) {
+			logger.warn("Unable to broadcast {} message: {}", type, t.getMessage());
+		}
+	}
+
+	/**
+	 * Registers a listener for cluster messages of the given type, so that
+	 * other modules can react to messages without a dependency from this
+	 * class, see {@link #broadcastMessage(String, List)}.
+	 */
+	public static void registerMessageListener(final String type, final Consumer<List> listener) {
+		messageListeners.computeIfAbsent(type, k -> new CopyOnWriteArraySet<>()).add(listener);
+	}
+
 	public void broadcastSchemaChange() {
 		try {
 			Services.getInstance().broadcastMessageToCluster("schema-changed", null);
@@ -1457,6 +1490,13 @@ public class Services implements StructrServices, BroadcastReceiver {
 				}
 
 				break;
+
+			default:
+
+				for (final Consumer<List> listener : messageListeners.getOrDefault(type, Set.of())) {
+					listener.accept(message.getPayloadAsList());
+				}
+				break;
 		}
 	}
 
@@ -351,10 +351,7 @@ public class StructrApp implements App {
 		final AgentService agentService = getService(AgentService.class);
 		if(agentService != null) {
 
-			for(final Task task : tasks) {
-
-				agentService.processTask(task);
-			}
+			agentService.processTasks(Arrays.asList(tasks));
 		}
 	}
 
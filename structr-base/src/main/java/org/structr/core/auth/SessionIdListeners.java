@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.auth;
+
+import org.structr.core.entity.Principal;
+
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Listeners that are notified when a session ID is added to or removed
+ * from a principal, so that caches outside of the core module can be
+ * kept up to date without a dependency from the principal entity.
+ */
+public class SessionIdListeners {
+
+	private static final Set<BiConsumer<String, Principal>> addListeners = new CopyOnWriteArraySet<>();
+	private static final Set<Consumer<String>> removeListeners            = new CopyOnWriteArraySet<>();
+
+	public static void registerSessionIdAddedListener(final BiConsumer<String, Principal> listener) {
+		addListeners.add(listener);
+	}
+
+	public static void registerSessionIdRemovedListener(final Consumer<String> listener) {
+		removeListeners.add(listener);
+	}
+
+	public static void sessionIdAdded(final String sessionId, final Principal principal) {
+
+		for (final BiConsumer<String, Principal> listener : addListeners) {
+			listener.accept(sessionId, principal);
+		}
+	}
+
+	public static void sessionIdRemoved(final String sessionId) {
+
+		for (final Consumer<String> listener : removeListeners) {
+			listener.accept(sessionId);
+		}
+	}
+}
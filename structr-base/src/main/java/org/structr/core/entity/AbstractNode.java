@@ -58,11 +58,9 @@ import java.util.*;
  */
 public abstract class AbstractNode implements NodeInterface, AccessControllable {
 
-	private static final int permissionResolutionMaxLevel                                                     = Settings.ResolutionDepth.getValue();
-	private static final Logger logger                                                                        = LoggerFactory.getLogger(AbstractNode.class.getName());
-	private static final FixedSizeCache<String, Boolean> isGrantedResultCache                                 = new FixedSizeCache<String, Boolean>("Grant result cache", 100000);
-	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache                     = new FixedSizeCache<>("Relationship template cache", 1000);
-	private static final Map<String, Map<String, PermissionResolutionResult>> globalPermissionResolutionCache = new HashMap<>();
+	private static final int permissionResolutionMaxLevel                                 = Settings.ResolutionDepth.getValue();
+	private static final Logger logger                                                    = LoggerFactory.getLogger(AbstractNode.class.getName());
+	private static final FixedSizeCache<String, Object> relationshipTemplateInstanceCache = new FixedSizeCache<>("Relationship template cache", 1000);
 
 	public static final View defaultView = new View(AbstractNode.class, PropertyView.Public, id, type, name);
 
@@ -756,17 +754,19 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 			accessingUser = context.getUser(false);
 		}
 
-		final String cacheKey = getUuid() + "." + permission.name() + "." + context.getCachedUserId();
-		final Boolean cached  = isGrantedResultCache.get(cacheKey);
+		final String userId = context.getCachedUserId();
 
-		if (cached != null && cached == true) {
+		if (PermissionResolutionCache.isGranted(getUuid(), userId, permission)) {
 			return true;
 		}
 
 		final boolean doLog  = securityContext.hasParameter("logPermissionResolution");
 		final boolean result = isGranted(permission, accessingUser, new PermissionResolutionMask(), 0, new AlreadyTraversed(), true, doLog, isCreation);
 
-		isGrantedResultCache.put(cacheKey, result);
+		// only positive results are used
+		if (result) {
+			PermissionResolutionCache.storeGranted(getUuid(), userId, permission);
+		}
 
 		return result;
 	}
@@ -1160,68 +1160,30 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 	}
 
 	private Boolean getPermissionResolutionResult(final String principalId, final Permission permission) {
-
-		Map<String, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getUuid());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getUuid(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result != null) {
-
-			if (permission.equals(Permission.read)) {
-				return result.read;
-			}
-
-			if (permission.equals(Permission.write)) {
-				return result.write;
-			}
-
-			if (permission.equals(Permission.delete)) {
-				return result.delete;
-			}
-
-			if (permission.equals(Permission.accessControl)) {
-				return result.accessControl;
-			}
-		}
-
-		return null;
+		return PermissionResolutionCache.getResolutionResult(getUuid(), principalId, permission);
 	}
 
 	private void storePermissionResolutionResult(final String principalId, final Permission permission, final boolean value) {
+		PermissionResolutionCache.storeResolutionResult(getUuid(), principalId, permission, value);
+	}
 
-		Map<String, PermissionResolutionResult> permissionResolutionCache = globalPermissionResolutionCache.get(getUuid());
-		if (permissionResolutionCache == null) {
-
-			permissionResolutionCache = new HashMap<>();
-			globalPermissionResolutionCache.put(getUuid(), permissionResolutionCache);
-		}
-
-		PermissionResolutionResult result = permissionResolutionCache.get(principalId);
-		if (result == null) {
-
-			result = new PermissionResolutionResult();
-			permissionResolutionCache.put(principalId, result);
-		}
+	/**
+	 * Invalidates the cached permission decisions that can be affected by a
+	 * change of the owner or the security relationships of this node. Other
+	 * nodes are only affected if permissions are propagated from this node.
+	 */
+	public void invalidateCachedPermissions() {
 
-		if (permission.equals(Permission.read) && (result.read == null || result.read == false)) {
-			result.read = value;
-		}
+		for (final Class<Relation> propagatingType : SchemaRelationshipNode.getPropagatingRelationshipTypes()) {
 
-		if (permission.equals(Permission.write) && (result.write == null || result.write == false)) {
-			result.write = value;
-		}
+			if (getRelationshipsAsSuperUser(propagatingType).iterator().hasNext()) {
 
-		if (permission.equals(Permission.delete) && (result.delete == null || result.delete == false)) {
-			result.delete = value;
+				PermissionResolutionCache.invalidate();
+				return;
+			}
 		}
 
-		if (permission.equals(Permission.accessControl) && (result.accessControl == null || result.accessControl == false)) {
-			result.accessControl = value;
-		}
+		PermissionResolutionCache.invalidateForNode(getUuid());
 	}
 
 	private Security getSecurityRelationship(final Principal p, final Map<String, Security> securityRelationships) {
@@ -1263,12 +1225,15 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 
 	@Override
 	public void onModification(SecurityContext securityContext, ErrorBuffer errorBuffer, final ModificationQueue modificationQueue) throws FrameworkException {
-		clearCaches();
+
+		// properties of this node can only affect decisions about this node, structural
+		// changes are handled in GraphObjectModificationState
+		PermissionResolutionCache.invalidateForNode(getUuid());
 	}
 
 	@Override
 	public void onDeletion(SecurityContext securityContext, ErrorBuffer errorBuffer, PropertyMap properties) throws FrameworkException {
-		clearCaches();
+		PermissionResolutionCache.invalidateForNode(getUuid());
 	}
 
 	@Override
@@ -1285,22 +1250,22 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 
 	@Override
 	public void ownerModified(SecurityContext securityContext) {
-		clearCaches();
+		invalidateCachedPermissions();
 	}
 
 	@Override
 	public void securityModified(SecurityContext securityContext) {
-		clearCaches();
+		invalidateCachedPermissions();
 	}
 
 	@Override
 	public void locationModified(SecurityContext securityContext) {
-		clearCaches();
+		PermissionResolutionCache.invalidateForNode(getUuid());
 	}
 
 	@Override
 	public void propagatedModification(SecurityContext securityContext) {
-		clearCaches();
+		PermissionResolutionCache.invalidateForNode(getUuid());
 	}
 
 	@Override
@@ -1513,8 +1478,7 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 	}
 
 	public static void clearCaches() {
-		globalPermissionResolutionCache.clear();
-		isGrantedResultCache.clear();
+		PermissionResolutionCache.invalidate();
 	}
 
 	public static <A extends NodeInterface, B extends NodeInterface, R extends Relation<A, B, ?, ?>> R getRelationshipForType(final Class<R> type) {
@@ -2077,11 +2041,4 @@ public abstract class AbstractNode implements NodeInterface, AccessControllable
 		}
 	}
 
-	private static class PermissionResolutionResult {
-
-		Boolean read          = null;
-		Boolean write         = null;
-		Boolean delete        = null;
-		Boolean accessControl = null;
-	}
 }
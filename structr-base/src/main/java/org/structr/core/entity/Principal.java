@@ -33,6 +33,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.auth.HashHelper;
+import org.structr.core.auth.SessionIdListeners;
 import org.structr.core.entity.relationship.PrincipalOwnsNode;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.property.EndNodes;
@@ -258,6 +259,8 @@ public interface Principal extends NodeInterface, AccessControllable {
 				principal.setProperty(key, new String[] {  sessionId } );
 			}
 
+			SessionIdListeners.sessionIdAdded(sessionId, principal);
+
 			return true;
 
 		} catch (FrameworkException ex) {
@@ -324,6 +327,8 @@ public interface Principal extends NodeInterface, AccessControllable {
 				principal.setProperty(key, (String[]) sessionIds.toArray(new String[0]));
 			}
 
+			SessionIdListeners.sessionIdRemoved(sessionId);
+
 		} catch (FrameworkException ex) {
 
 			final Logger logger = LoggerFactory.getLogger(Principal.class);
@@ -23,6 +23,7 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
@@ -33,6 +34,7 @@ import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
+import org.structr.core.graph.ChangelogStore;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
 import org.structr.core.property.EndNodeProperty;
@@ -76,39 +78,40 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 
 			assertArrayHasMinLengthAndAllElementsNotNull(sources, 1);
 
-			final String changelog = getChangelogForObject(sources[0]);
+			final ChangelogFilter changelogFilter = new ChangelogFilter();
+			changelogFilter.setIsUserCentricChangelog(isUserCentric());
 
-			if (changelog != null && !("".equals(changelog))) {
+			if (sources.length >= 3 && sources[2] != null) {
 
-				final ChangelogFilter changelogFilter = new ChangelogFilter();
-				changelogFilter.setIsUserCentricChangelog(isUserCentric());
+				if (sources[2] instanceof Map) {
 
-				if (sources.length >= 3 && sources[2] != null) {
+					changelogFilter.processJavaScriptConfigurationObject((Map)sources[2]);
 
-					if (sources[2] instanceof Map) {
+				} else {
 
-						changelogFilter.processJavaScriptConfigurationObject((Map)sources[2]);
+					final int maxLength = sources.length;
 
-					} else {
+					for (int i = 2; (i + 2) <= maxLength; i += 2) {
 
-						final int maxLength = sources.length;
-
-						for (int i = 2; (i + 2) <= maxLength; i += 2) {
-
-							if (sources[i] != null && sources[i+1] != null) {
-								changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
-							}
+						if (sources[i] != null && sources[i+1] != null) {
+							changelogFilter.addFilterEntry(sources[i].toString(), sources[i+1]);
 						}
+					}
 
-						if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
-							logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
-						}
+					if (maxLength % 2 == 1 && sources[maxLength-1] != null) {
+						logger.warn("Ignoring dangling filterKey: {}", sources[maxLength-1]);
 					}
 				}
+			}
 
-				if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
-					changelogFilter.setResolveTargets(true);
-				}
+			if (sources.length >= 2 && Boolean.TRUE.equals(sources[1])) {
+				changelogFilter.setResolveTargets(true);
+			}
+
+			// the time range is used to skip entries in the changelog store
+			final List<String> changelog = getChangelogForObject(sources[0], changelogFilter._filterTimeFrom, changelogFilter._filterTimeTo);
+
+			if (!changelog.isEmpty()) {
 
 				return changelogFilter.getFilteredChangelog(changelog);
 			}
@@ -147,15 +150,15 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 		return "Returns the changelog object";
 	}
 
-	private String getChangelogForObject (final Object obj) throws IOException {
+	private List<String> getChangelogForObject (final Object obj, final Long timeFrom, final Long timeTo) throws IOException {
 
 		if (obj instanceof GraphObject) {
 
-			return getChangelogForGraphObject((GraphObject)obj);
+			return getChangelogForGraphObject((GraphObject)obj, timeFrom, timeTo);
 
 		} else if (obj instanceof String) {
 
-			return getChangelogForString((String) obj);
+			return getChangelogForString((String) obj, timeFrom, timeTo);
 
 		} else {
 
@@ -163,20 +166,20 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 		}
 	}
 
-	protected String getChangelogForGraphObject (final GraphObject obj) throws IOException {
+	protected List<String> getChangelogForGraphObject (final GraphObject obj, final Long timeFrom, final Long timeTo) throws IOException {
 
-		return getChangelogForUUID(obj.getUuid(), (obj.isNode() ? "n" : "r"));
+		return getChangelogForUUID(obj.getUuid(), (obj.isNode() ? "n" : "r"), timeFrom, timeTo);
 
 	}
 
-	protected String getChangelogForString (final String inputString) throws IOException {
+	protected List<String> getChangelogForString (final String inputString, final Long timeFrom, final Long timeTo) throws IOException {
 
 		if (Settings.isValidUuid(inputString)) {
 
-			String changelog = getChangelogForUUID(inputString, "n");
+			List<String> changelog = getChangelogForUUID(inputString, "n", timeFrom, timeTo);
 
-			if (changelog.equals("")) {
-				changelog = getChangelogForUUID(inputString, "r");
+			if (changelog.isEmpty()) {
+				changelog = getChangelogForUUID(inputString, "r", timeFrom, timeTo);
 			}
 
 			return changelog;
@@ -187,18 +190,25 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 		}
 	}
 
-	protected String getChangelogForUUID (final String uuid, final String changelogType) throws IOException {
+	protected List<String> getChangelogForUUID (final String uuid, final String changelogType, final Long timeFrom, final Long timeTo) throws IOException {
 
-		java.io.File file = getChangeLogFileOnDisk(changelogType, uuid, false);
+		final List<String> changelog = new ArrayList<>();
+		final java.io.File file      = getChangeLogFileOnDisk(changelogType, uuid, false);
 
+		// entries written to the per-object files of earlier versions come first
 		if (file.exists()) {
 
-			return FileUtils.readFileToString(file, "utf-8");
+			for (final String line : FileUtils.readLines(file, "utf-8")) {
 
-		} else {
-
-			return "";
+				if (StringUtils.isNotBlank(line)) {
+					changelog.add(line);
+				}
+			}
 		}
+
+		changelog.addAll(ChangelogStore.getInstance().read(changelogType, uuid, timeFrom, timeTo));
+
+		return changelog;
 	}
 
 	public static java.io.File getChangeLogFileOnDisk(final String typeFolderName, final String uuid, final boolean create) {
@@ -207,12 +217,11 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 		final String uuidPath      = getDirectoryPath(uuid);
 		final java.io.File file    = new java.io.File(changelogPath + java.io.File.separator + typeFolderName + java.io.File.separator + uuidPath + java.io.File.separator + uuid);
 
-		// create parent directory tree
-		file.getParentFile().mkdirs();
-
-		// create file only if requested
+		// create parent directory tree and file only if requested
 		if (!file.exists() && create) {
 
+			file.getParentFile().mkdirs();
+
 			try {
 
 				file.createNewFile();
@@ -356,8 +365,13 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 
 			assignStringsIfPresent(javascriptConfigObject.get("verb"), _filterVerbs);
 
-			assignLongIfPresent(javascriptConfigObject.get("timeFrom"), _filterTimeFrom);
-			assignLongIfPresent(javascriptConfigObject.get("timeTo"), _filterTimeTo);
+			if (javascriptConfigObject.get("timeFrom") != null) {
+				_filterTimeFrom = toLong(javascriptConfigObject.get("timeFrom"));
+			}
+
+			if (javascriptConfigObject.get("timeTo") != null) {
+				_filterTimeTo = toLong(javascriptConfigObject.get("timeTo"));
+			}
 
 			assignStringsIfPresent(javascriptConfigObject.get("userId"), _filterUserId);
 			assignStringsIfPresent(javascriptConfigObject.get("userName"), _filterUserName);
@@ -371,13 +385,6 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 			assignStringsIfPresent(javascriptConfigObject.get("key"), _filterKey);
 		}
 
-		private void assignLongIfPresent (final Object possibleLong, Long targetLongReference) {
-
-			if (possibleLong != null) {
-				targetLongReference = ((Long)possibleLong);
-			}
-		}
-
 		private void assignStringsIfPresent (final Object possibleListOrString, ArrayList<String> targetListReference) {
 
 			if (possibleListOrString != null) {
@@ -393,7 +400,7 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 			_resolveTargets = resolve;
 		}
 
-		public List getFilteredChangelog (final String changelog) throws FrameworkException {
+		public List getFilteredChangelog (final List<String> changelog) throws FrameworkException {
 
 			final List list = new ArrayList();
 
@@ -402,7 +409,7 @@ public class ChangelogFunction extends AdvancedScriptingFunction {
 				_filterUserName.isEmpty() && _filterRelType.isEmpty() && _filterRelDir == null && _filterTarget.isEmpty() && _filterKey.isEmpty()
 			);
 
-			for (final String entry : changelog.split("\n")) {
+			for (final String entry : changelog) {
 
 				final JsonObject jsonObj = _jsonParser.parse(entry).getAsJsonObject();
 				final String verb     = jsonObj.get("verb").getAsString();
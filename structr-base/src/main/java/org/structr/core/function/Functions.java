@@ -22,7 +22,9 @@ import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.service.LicenseManager;
+import org.structr.api.util.FixedSizeCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.common.error.UnlicensedScriptException;
 import org.structr.core.GraphObject;
@@ -44,6 +46,7 @@ public class Functions {
 
 	protected static final Logger logger = LoggerFactory.getLogger(Functions.class.getName());
 	private static final Map<String, Function<Object, Object>> functions = new LinkedHashMap<>();
+	private static volatile FixedSizeCache<String, Expression> expressionCache = null;
 
 	public static void put(final LicenseManager licenseManager, final Function<Object, Object> function) {
 
@@ -54,6 +57,9 @@ public class Functions {
 		function.aliases().forEach(alias -> {
 			registerFunction(licensed, alias, function);
 		});
+
+		// parsed expressions reference the registered functions
+		clearExpressionCache();
 	}
 
 	private static void registerFunction(final boolean licensed, final String name, final Function<Object, Object> function) {
@@ -240,11 +246,26 @@ public class Functions {
 
 	public static Object evaluate(final ActionContext actionContext, final GraphObject entity, final Snippet snippet, final EvaluationHints hints) throws FrameworkException, UnlicensedScriptException {
 
-		final Expression root = parse(actionContext, entity, snippet, new ParseResult());
+		final Expression root = getExpression(actionContext, entity, snippet);
 
 		return root.evaluate(actionContext, entity, hints);
 	}
 
+	public static void clearExpressionCache() {
+		expressionCache = null;
+	}
+
+	public static Map<String, Integer> getCacheInfo() {
+
+		final FixedSizeCache<String, Expression> cache = getExpressionCache();
+		if (cache != null) {
+
+			return cache.getCacheInfo();
+		}
+
+		return Map.of();
+	}
+
 	public static String cleanString(final Object input) {
 
 		if (input == null) {
@@ -297,6 +318,55 @@ public class Functions {
 	}
 
 	// ----- private methods -----
+	/**
+	 * Returns the parsed expression tree for the given snippet. Expression
+	 * trees are not modified after parsing and keep no evaluation state,
+	 * so a cached tree can be evaluated by multiple threads at once.
+	 */
+	private static Expression getExpression(final ActionContext actionContext, final GraphObject entity, final Snippet snippet) throws FrameworkException, UnlicensedScriptException {
+
+		final FixedSizeCache<String, Expression> cache = getExpressionCache();
+		final String source                            = snippet.getSource();
+
+		if (cache == null || source == null) {
+			return parse(actionContext, entity, snippet, new ParseResult());
+		}
+
+		Expression root = cache.get(source);
+		if (root == null) {
+
+			// expressions with syntax errors are not cached, parse() throws
+			root = parse(actionContext, entity, snippet, new ParseResult());
+
+			final Expression existing = cache.putIfAbsent(source, root);
+			if (existing != null) {
+
+				return existing;
+			}
+		}
+
+		return root;
+	}
+
+	private static FixedSizeCache<String, Expression> getExpressionCache() {
+
+		FixedSizeCache<String, Expression> cache = expressionCache;
+
+		if (cache == null && Settings.StructrScriptCacheSize.getValue() > 0) {
+
+			synchronized (Functions.class) {
+
+				if (expressionCache == null) {
+					expressionCache = new FixedSizeCache<>("StructrScript expression cache", Settings.StructrScriptCacheSize.getValue());
+				}
+
+				cache = expressionCache;
+			}
+		}
+
+		return cache;
+	}
+
 	private static Expression checkReservedWords(final String word, final int level, final Map<Integer, String> namespace, final int row, final int column) throws FrameworkException {
 
 		if (word == null) {
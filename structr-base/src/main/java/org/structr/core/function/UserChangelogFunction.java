@@ -24,6 +24,7 @@ import org.structr.api.config.Settings;
 import org.structr.core.GraphObject;
 
 import java.io.IOException;
+import java.util.List;
 
 public class UserChangelogFunction extends ChangelogFunction {
 
@@ -46,18 +47,18 @@ public class UserChangelogFunction extends ChangelogFunction {
 	}
 
 	@Override
-	protected String getChangelogForGraphObject (final GraphObject obj) throws IOException {
+	protected List<String> getChangelogForGraphObject (final GraphObject obj, final Long timeFrom, final Long timeTo) throws IOException {
 
-		return getChangelogForUUID(obj.getUuid(), "u");
+		return getChangelogForUUID(obj.getUuid(), "u", timeFrom, timeTo);
 
 	}
 
 	@Override
-	protected String getChangelogForString (final String inputString) throws IOException {
+	protected List<String> getChangelogForString (final String inputString, final Long timeFrom, final Long timeTo) throws IOException {
 
 		if (Settings.isValidUuid(inputString)) {
 
-			return getChangelogForUUID(inputString, "u");
+			return getChangelogForUUID(inputString, "u", timeFrom, timeTo);
 
 		} else {
 
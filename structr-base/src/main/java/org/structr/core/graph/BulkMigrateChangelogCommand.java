@@ -37,7 +37,9 @@ import java.util.Map;
 
 /**
  * Maintenance command to migrate structrChangeLog property values
- * to the new disk-based storage.
+ * to the disk-based storage. The values are older than all entries on
+ * disk, so they are prepended to the per-object files, which are read
+ * before the changelog store.
  */
 public class BulkMigrateChangelogCommand extends NodeServiceCommand implements MaintenanceCommand {
 
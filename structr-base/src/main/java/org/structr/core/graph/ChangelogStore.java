@@ -0,0 +1,1016 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only storage for the object and user changelogs.
+ *
+ * Changelog entries are queued when a transaction is committed and
+ * written to segment files by a background thread, which syncs each
+ * batch to disk once. Every segment has an index that maps the UUID of
+ * an object or user to the time and file offset of its entries, so a
+ * changelog query only reads the matching records.
+ *
+ * The queue is bounded. When it is full, a commit waits a limited time
+ * for the writer to take entries from the queue, e.g. when the disk is
+ * full. After that, the entry fails the commit or is dropped, depending
+ * on application.changelog.queue.policy. Until the writer takes entries
+ * again, later commits do not wait.
+ */
+public class ChangelogStore {
+
+	private static final Logger logger        = LoggerFactory.getLogger(ChangelogStore.class.getName());
+	private static final String SegmentSuffix = ".log";
+	private static final String IndexSuffix   = ".idx";
+	private static final int IndexMagic       = 0x53434c31;
+	private static final int MaxBatchSize     = 10_000;
+	private static final int MaxQueueSize     = 100_000;
+	private static final int CachedIndexCount = 16;
+	private static ChangelogStore instance    = null;
+
+	private BlockingQueue<Entry> queue                = null;
+	private final List<Segment> segments              = new ArrayList<>();
+	private final Map<String, Integer> pending        = new HashMap<>();
+	private final Map<Long, SegmentIndex> indexCache  = new LinkedHashMap<>(CachedIndexCount, 0.75f, true);
+	private final ByteArrayOutputStream recordBuffer  = new ByteArrayOutputStream();
+	private final CRC32 crc                           = new CRC32();
+	private Segment activeSegment                     = null;
+	private FileChannel activeChannel                 = null;
+	private Thread writer                             = null;
+	private volatile boolean running                  = true;
+	private boolean closed                            = false;
+	private boolean throttled                         = false;
+	private boolean stalled                           = false;
+	private boolean dropWhenFull                      = false;
+	private Throwable failure                         = null;
+	private Path directory                            = null;
+	private long maxSegmentSize                       = 0L;
+	private long queueTimeout                         = 0L;
+
+	ChangelogStore(final Path directory, final long maxSegmentSize) throws IOException {
+		this(directory, maxSegmentSize, MaxQueueSize);
+	}
+
+	ChangelogStore(final Path directory, final long maxSegmentSize, final int maxQueueSize) throws IOException {
+		this(directory, maxSegmentSize, maxQueueSize, TimeUnit.SECONDS.toMillis(Math.max(0, Settings.ChangelogQueueTimeout.getValue())), "drop".equals(Settings.ChangelogQueuePolicy.getValue()));
+	}
+
+	ChangelogStore(final Path directory, final long maxSegmentSize, final int maxQueueSize, final long queueTimeout, final boolean dropWhenFull) throws IOException {
+
+		this.queue          = new LinkedBlockingQueue<>(maxQueueSize);
+		this.directory      = directory;
+		this.maxSegmentSize = maxSegmentSize;
+		this.queueTimeout   = queueTimeout;
+		this.dropWhenFull   = dropWhenFull;
+
+		open();
+
+		writer = new Thread(this::run, "ChangelogWriter");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	public static synchronized ChangelogStore getInstance() throws IOException {
+
+		if (instance == null) {
+
+			instance = new ChangelogStore(Paths.get(Settings.ChangelogPath.getValue(), "segments"), Math.max(1, Settings.ChangelogSegmentSize.getValue()) * 1024L * 1024L);
+		}
+
+		return instance;
+	}
+
+	/**
+	 * Writes all pending entries, stores the index of the active segment
+	 * and closes the store. The next call to getInstance opens it again.
+	 */
+	public static synchronized void shutdown() {
+
+		if (instance != null) {
+
+			instance.close();
+			instance = null;
+		}
+	}
+
+	/**
+	 * Queues the given changelog text, which can contain several entries
+	 * separated by newlines, for the object or user with the given UUID.
+	 * Throws an exception if the queue stays full and the policy is not
+	 * to drop entries.
+	 *
+	 * @param kind "n" for nodes, "r" for relationships, "u" for users
+	 * @param uuid
+	 * @param changelog
+	 */
+	public void append(final String kind, final String uuid, final String changelog) throws FrameworkException {
+
+		if (uuid == null || StringUtils.isBlank(changelog)) {
+			return;
+		}
+
+		final Entry entry   = new Entry(kind, uuid, changelog);
+		final long deadline = System.currentTimeMillis() + queueTimeout;
+		boolean interrupted = false;
+		boolean queued      = false;
+		boolean full        = false;
+
+		synchronized (this) {
+
+			// back-pressure: the commit waits a limited time for the writer to take entries from the queue
+			while (!closed && !(queued = queue.offer(entry))) {
+
+				final long remaining = deadline - System.currentTimeMillis();
+
+				if (stalled || remaining <= 0) {
+
+					// no more waiting until the writer takes entries again
+					stalled = true;
+					full    = true;
+					break;
+				}
+
+				if (!throttled) {
+
+					logger.warn("Changelog queue is full, commits wait for the changelog writer");
+					throttled = true;
+				}
+
+				try {
+
+					wait(remaining);
+
+				} catch (InterruptedException iex) {
+					interrupted = true;
+				}
+			}
+
+			if (queued) {
+				pending.merge(entry.key, 1, Integer::sum);
+			}
+		}
+
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (full) {
+
+			if (dropWhenFull) {
+
+				logger.error("Changelog queue is full, dropping changelog of {}", uuid);
+				return;
+			}
+
+			throw new FrameworkException(503, "Changelog queue is full, the changelog writer did not take entries within " + queueTimeout + " ms");
+		}
+
+		if (!queued) {
+
+			try {
+
+				// this store was closed in the meantime, write the entry to the reopened store
+				final ChangelogStore store = getInstance();
+				if (store != this) {
+
+					store.append(kind, uuid, changelog);
+					return;
+				}
+
+			} catch (IOException ioex) {
+				logger.error("Unable to reopen changelog store: {}", ioex.getMessage());
+			}
+
+			logger.error("Unable to write changelog of {}, changelog store is closed", uuid);
+		}
+	}
+
+	/**
+	 * Returns the changelog entries of the given object or user in the
+	 * order in which they were written. Entries outside of the given time
+	 * range are skipped using the index, a null bound is open. Throws an
+	 * exception if queued entries cannot be written.
+	 */
+	public List<String> read(final String kind, final String uuid, final Long timeFrom, final Long timeTo) throws IOException {
+
+		final String key          = kind + uuid;
+		final List<String> result = new ArrayList<>();
+		final List<Segment> list;
+
+		awaitPending(key);
+
+		synchronized (this) {
+			list = new ArrayList<>(segments);
+		}
+
+		for (final Segment segment : list) {
+
+			if (!segment.overlaps(timeFrom, timeTo)) {
+				continue;
+			}
+
+			final long[] postings = getPostings(segment, key);
+			if (postings == null) {
+				continue;
+			}
+
+			try (final FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ)) {
+
+				for (int i=0; i<postings.length; i+=2) {
+
+					final long time = postings[i];
+
+					if ((timeFrom == null || time >= timeFrom) && (timeTo == null || time <= timeTo)) {
+
+						final Record record = readRecord(channel, postings[i+1]);
+						if (record != null) {
+
+							result.add(record.payload);
+
+						} else {
+
+							logger.warn("Skipping unreadable changelog record at offset {} of {}", postings[i+1], segment.path);
+						}
+					}
+				}
+			}
+		}
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private void open() throws IOException {
+
+		Files.createDirectories(directory);
+
+		final List<Path> files = new ArrayList<>();
+
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SegmentSuffix)) {
+
+			for (final Path file : stream) {
+				files.add(file);
+			}
+		}
+
+		Collections.sort(files);
+
+		long nextId = 0L;
+
+		for (final Path file : files) {
+
+			final String name     = file.getFileName().toString();
+			final long id         = Long.parseLong(StringUtils.substringBefore(name, SegmentSuffix));
+			final Segment segment = new Segment(id, file);
+
+			if (!readIndexHeader(segment)) {
+
+				// segment was not closed properly, rebuild its index and drop a partially written record
+				final SegmentIndex index = scan(segment);
+
+				writeIndex(segment, index);
+			}
+
+			segments.add(segment);
+
+			nextId = Math.max(nextId, id + 1);
+		}
+
+		startSegment(nextId);
+	}
+
+	void close() {
+
+		running = false;
+
+		try {
+
+			writer.join(TimeUnit.SECONDS.toMillis(30));
+
+		} catch (InterruptedException iex) {
+			Thread.currentThread().interrupt();
+		}
+
+		// the writer may still use the active segment, its index is rebuilt on the next start
+		if (writer.isAlive()) {
+
+			logger.error("Changelog writer did not stop, leaving segment {} unsealed", activeSegment.path);
+
+			synchronized (this) {
+				notifyAll();
+			}
+
+			return;
+		}
+
+		final List<Entry> remaining = new ArrayList<>();
+
+		synchronized (this) {
+
+			// entries that were queued after the writer stopped, later entries go to the reopened store
+			queue.drainTo(remaining);
+
+			closed = true;
+			notifyAll();
+		}
+
+		try {
+
+			if (!remaining.isEmpty()) {
+
+				write(remaining);
+				finishBatch(remaining, null);
+			}
+
+			seal(activeSegment, activeChannel, false);
+
+		} catch (IOException ioex) {
+
+			logger.error("Unable to close changelog segment {}: {}", activeSegment.path, ioex.getMessage());
+
+			if (!remaining.isEmpty()) {
+				finishBatch(remaining, ioex);
+			}
+		}
+	}
+
+	private void run() {
+
+		final List<Entry> batch = new ArrayList<>();
+
+		while (running || !queue.isEmpty() || !batch.isEmpty()) {
+
+			try {
+
+				// a failed batch is written again before new entries are taken
+				if (batch.isEmpty()) {
+
+					final Entry first = queue.poll(1, TimeUnit.SECONDS);
+					if (first == null) {
+						continue;
+					}
+
+					batch.add(first);
+					queue.drainTo(batch, MaxBatchSize);
+
+					// wake up commits that wait for space in the queue
+					synchronized (this) {
+
+						stalled = false;
+						notifyAll();
+					}
+				}
+
+				write(batch);
+				finishBatch(batch, null);
+
+			} catch (InterruptedException iex) {
+
+				// keep draining the queue until the store is closed
+
+			} catch (Throwable t) {
+
+				if (running) {
+
+					logger.error("Unable to write {} changelog entries, retrying: {}", batch.size(), t.getMessage());
+
+					synchronized (this) {
+
+						failure = t;
+						notifyAll();
+					}
+
+					try {
+
+						Thread.sleep(1000);
+
+					} catch (InterruptedException iex) {
+
+						// the writer is only interrupted to stop it, pending entries are discarded
+						Thread.currentThread().interrupt();
+						running = false;
+					}
+
+				} else {
+
+					logger.error("Unable to write {} changelog entries, discarding them on shutdown: {}", batch.size(), t.getMessage());
+
+					finishBatch(batch, t);
+				}
+			}
+		}
+	}
+
+	private synchronized void finishBatch(final List<Entry> batch, final Throwable error) {
+
+		for (final Entry entry : batch) {
+			pending.computeIfPresent(entry.key, (key, count) -> count > 1 ? count - 1 : null);
+		}
+
+		if (throttled && queue.isEmpty()) {
+
+			logger.info("Changelog writer caught up with the changelog queue");
+			throttled = false;
+		}
+
+		failure = error;
+
+		batch.clear();
+		notifyAll();
+	}
+
+	private void write(final List<Entry> batch) throws IOException {
+
+		for (final Entry entry : batch) {
+
+			// lines that were written before a failure are skipped when the batch is retried
+			while (entry.next < entry.lines.length) {
+
+				final String line = entry.lines[entry.next];
+
+				if (StringUtils.isNotBlank(line)) {
+
+					final long time     = getTime(line);
+					final byte[] record = encode(entry.kind, entry.uuid, time, line);
+
+					if (activeSegment.size > 0 && activeSegment.size + record.length > maxSegmentSize) {
+						rollSegment();
+					}
+
+					writeRecord(record);
+
+					synchronized (this) {
+
+						activeSegment.add(entry.key, time, activeSegment.size);
+						activeSegment.size += record.length;
+					}
+				}
+
+				entry.next++;
+			}
+		}
+
+		// one sync per batch instead of one per entry
+		activeChannel.force(false);
+	}
+
+	/**
+	 * Writes the given record at the end of the active segment. After a
+	 * failure, the partially written record is removed and the write is
+	 * retried once, then the record is written to a new segment.
+	 */
+	private void writeRecord(final byte[] record) throws IOException {
+
+		try {
+
+			writeFully(record);
+			return;
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to write changelog segment {}, retrying: {}", activeSegment.path, ioex.getMessage());
+		}
+
+		try {
+
+			activeChannel.truncate(activeSegment.size);
+			writeFully(record);
+			return;
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to write changelog segment {}, starting a new segment: {}", activeSegment.path, ioex.getMessage());
+		}
+
+		rollSegment();
+
+		writeFully(record);
+	}
+
+	private void writeFully(final byte[] record) throws IOException {
+
+		final ByteBuffer buffer = ByteBuffer.wrap(record);
+		long position           = activeSegment.size;
+
+		while (buffer.hasRemaining()) {
+			position += activeChannel.write(buffer, position);
+		}
+	}
+
+	/**
+	 * Starts a new active segment and seals the previous one. Readers use
+	 * the in-memory index of the previous segment until its index file is
+	 * written, so sealing does not hold the monitor.
+	 */
+	private void rollSegment() throws IOException {
+
+		final Segment segment     = activeSegment;
+		final FileChannel channel = activeChannel;
+
+		startSegment(segment.id + 1);
+
+		try {
+
+			seal(segment, channel, true);
+
+		} catch (IOException ioex) {
+
+			// the segment keeps its index in memory, the index file is rebuilt on the next start
+			logger.warn("Unable to seal changelog segment {}: {}", segment.path, ioex.getMessage());
+
+			try { channel.close(); } catch (IOException ignore) {}
+		}
+	}
+
+	/**
+	 * Waits until the queued entries of the given key are written.
+	 */
+	private void awaitPending(final String key) throws IOException {
+
+		synchronized (this) {
+
+			while (pending.containsKey(key) && running) {
+
+				if (failure != null) {
+					throw new IOException("Unable to write changelog entries", failure);
+				}
+
+				try {
+
+					wait(1000);
+
+				} catch (InterruptedException iex) {
+
+					Thread.currentThread().interrupt();
+					return;
+				}
+			}
+		}
+	}
+
+	private long[] getPostings(final Segment segment, final String key) throws IOException {
+
+		synchronized (this) {
+
+			if (segment.index != null) {
+
+				final Postings postings = segment.index.postings.get(key);
+
+				return postings != null ? postings.toArray() : null;
+			}
+		}
+
+		SegmentIndex index = null;
+
+		synchronized (indexCache) {
+			index = indexCache.get(segment.id);
+		}
+
+		if (index == null) {
+
+			index = readIndex(segment);
+
+			synchronized (indexCache) {
+
+				indexCache.put(segment.id, index);
+
+				if (indexCache.size() > CachedIndexCount) {
+
+					final Iterator<Long> it = indexCache.keySet().iterator();
+
+					it.next();
+					it.remove();
+				}
+			}
+		}
+
+		final Postings postings = index.postings.get(key);
+
+		return postings != null ? postings.toArray() : null;
+	}
+
+	private void startSegment(final long id) throws IOException {
+
+		final Path path           = directory.resolve(String.format("%020d", id) + SegmentSuffix);
+		final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		final Segment segment     = new Segment(id, path);
+
+		segment.index = new SegmentIndex();
+
+		synchronized (this) {
+
+			activeSegment = segment;
+			activeChannel = channel;
+
+			segments.add(segment);
+		}
+	}
+
+	/**
+	 * Syncs and closes a segment that no longer receives records and writes
+	 * its index file. Only the writer calls this, so the segment and its
+	 * in-memory index do not change while the index is written.
+	 */
+	private void seal(final Segment segment, final FileChannel channel, final boolean keepEmpty) throws IOException {
+
+		channel.force(true);
+		channel.close();
+
+		if (segment.size == 0 && !keepEmpty) {
+
+			synchronized (this) {
+				segments.remove(segment);
+			}
+
+			Files.deleteIfExists(segment.path);
+
+		} else {
+
+			writeIndex(segment, segment.index);
+
+			synchronized (indexCache) {
+				indexCache.put(segment.id, segment.index);
+			}
+		}
+
+		synchronized (this) {
+			segment.index = null;
+		}
+	}
+
+	private SegmentIndex scan(final Segment segment) throws IOException {
+
+		final SegmentIndex index = new SegmentIndex();
+
+		segment.index = index;
+
+		try (final FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+			final long size = channel.size();
+			long offset     = 0L;
+
+			while (offset + 8 <= size) {
+
+				final Record record = readRecord(channel, offset);
+				if (record == null) {
+					break;
+				}
+
+				segment.add(record.kind + record.uuid, record.time, offset);
+
+				offset += record.length;
+			}
+
+			if (offset < size) {
+
+				logger.warn("Truncating incomplete changelog segment {} at offset {}", segment.path, offset);
+				channel.truncate(offset);
+			}
+
+			segment.size = offset;
+		}
+
+		segment.index = null;
+
+		return index;
+	}
+
+	private void writeIndex(final Segment segment, final SegmentIndex index) throws IOException {
+
+		final Path indexPath = getIndexPath(segment);
+		final Path tmp       = indexPath.resolveSibling(indexPath.getFileName() + ".tmp");
+
+		try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+
+			out.writeInt(IndexMagic);
+			out.writeLong(segment.size);
+			out.writeLong(segment.minTime);
+			out.writeLong(segment.maxTime);
+			out.writeInt(index.postings.size());
+
+			for (final Map.Entry<String, Postings> entry : index.postings.entrySet()) {
+
+				final Postings postings = entry.getValue();
+
+				out.writeUTF(entry.getKey());
+				out.writeInt(postings.size);
+
+				for (int i=0; i<postings.size; i++) {
+					out.writeLong(postings.data[i]);
+				}
+			}
+		}
+
+		Files.move(tmp, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	private boolean readIndexHeader(final Segment segment) throws IOException {
+
+		final Path indexPath = getIndexPath(segment);
+
+		if (Files.exists(indexPath)) {
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath)))) {
+
+				if (in.readInt() == IndexMagic) {
+
+					final long size = in.readLong();
+
+					// index is only valid for the exact segment it was written for
+					if (size == Files.size(segment.path)) {
+
+						segment.size    = size;
+						segment.minTime = in.readLong();
+						segment.maxTime = in.readLong();
+
+						return true;
+					}
+				}
+
+			} catch (EOFException eof) {
+				logger.warn("Ignoring incomplete changelog index {}", indexPath);
+			}
+		}
+
+		return false;
+	}
+
+	private SegmentIndex readIndex(final Segment segment) throws IOException {
+
+		final SegmentIndex index = new SegmentIndex();
+
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(getIndexPath(segment)), 65536))) {
+
+			// skip magic, size and time range
+			in.readInt();
+			in.readLong();
+			in.readLong();
+			in.readLong();
+
+			final int keyCount = in.readInt();
+
+			for (int i=0; i<keyCount; i++) {
+
+				final String key        = in.readUTF();
+				final int size          = in.readInt();
+				final Postings postings = new Postings(size);
+
+				for (int j=0; j<size; j++) {
+					postings.data[j] = in.readLong();
+				}
+
+				postings.size = size;
+
+				index.postings.put(key, postings);
+			}
+		}
+
+		return index;
+	}
+
+	private Path getIndexPath(final Segment segment) {
+		return directory.resolve(String.format("%020d", segment.id) + IndexSuffix);
+	}
+
+	/**
+	 * Record layout: body length (int), CRC32 of the body (int), body.
+	 * Body layout: kind (UTF), uuid (UTF), time (long), payload length
+	 * (int) and the UTF-8 encoded JSON payload.
+	 */
+	private byte[] encode(final String kind, final String uuid, final long time, final String payload) throws IOException {
+
+		final byte[] data = payload.getBytes(StandardCharsets.UTF_8);
+
+		recordBuffer.reset();
+
+		final DataOutputStream body = new DataOutputStream(recordBuffer);
+
+		body.writeInt(0);
+		body.writeInt(0);
+		body.writeUTF(kind);
+		body.writeUTF(uuid);
+		body.writeLong(time);
+		body.writeInt(data.length);
+		body.write(data);
+		body.flush();
+
+		final byte[] record = recordBuffer.toByteArray();
+		final int length    = record.length - 8;
+
+		crc.reset();
+		crc.update(record, 8, length);
+
+		ByteBuffer.wrap(record).putInt(length).putInt((int)crc.getValue());
+
+		return record;
+	}
+
+	private Record readRecord(final FileChannel channel, final long offset) throws IOException {
+
+		final ByteBuffer header = ByteBuffer.allocate(8);
+
+		if (!readFully(channel, header, offset)) {
+			return null;
+		}
+
+		final int length = header.getInt(0);
+		final int check  = header.getInt(4);
+
+		if (length <= 0 || offset + 8 + length > channel.size()) {
+			return null;
+		}
+
+		final ByteBuffer body = ByteBuffer.allocate(length);
+
+		if (!readFully(channel, body, offset + 8)) {
+			return null;
+		}
+
+		final CRC32 bodyCrc = new CRC32();
+
+		bodyCrc.update(body.array());
+
+		if ((int)bodyCrc.getValue() != check) {
+			return null;
+		}
+
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(body.array()));
+		final Record record      = new Record();
+
+		record.kind   = in.readUTF();
+		record.uuid   = in.readUTF();
+		record.time   = in.readLong();
+		record.length = 8 + length;
+
+		final byte[] data = new byte[in.readInt()];
+
+		in.readFully(data);
+
+		record.payload = new String(data, StandardCharsets.UTF_8);
+
+		return record;
+	}
+
+	private boolean readFully(final FileChannel channel, final ByteBuffer buffer, final long offset) throws IOException {
+
+		long position = offset;
+
+		while (buffer.hasRemaining()) {
+
+			final int count = channel.read(buffer, position);
+			if (count < 0) {
+				return false;
+			}
+
+			position += count;
+		}
+
+		return true;
+	}
+
+	private long getTime(final String line) {
+
+		try {
+
+			final JsonObject obj   = JsonParser.parseString(line).getAsJsonObject();
+			final JsonElement time = obj.get("time");
+
+			if (time != null) {
+				return time.getAsLong();
+			}
+
+		} catch (Throwable t) {
+			logger.warn("Unable to read time of changelog entry: {}", t.getMessage());
+		}
+
+		return System.currentTimeMillis();
+	}
+
+	// ----- nested classes -----
+	private static class Entry {
+
+		private String[] lines = null;
+		private String kind    = null;
+		private String uuid    = null;
+		private String key     = null;
+		private int next       = 0;
+
+		Entry(final String kind, final String uuid, final String changelog) {
+
+			this.lines = changelog.split("\n");
+			this.kind  = kind;
+			this.uuid  = uuid;
+			this.key   = kind + uuid;
+		}
+	}
+
+	private static class Record {
+
+		private String payload = null;
+		private String kind    = null;
+		private String uuid    = null;
+		private long time      = 0L;
+		private int length     = 0;
+	}
+
+	private static class Segment {
+
+		private SegmentIndex index = null;
+		private long minTime       = Long.MAX_VALUE;
+		private long maxTime       = Long.MIN_VALUE;
+		private long size          = 0L;
+		private Path path          = null;
+		private long id            = 0L;
+
+		Segment(final long id, final Path path) {
+
+			this.path = path;
+			this.id   = id;
+		}
+
+		void add(final String key, final long time, final long offset) {
+
+			index.postings.computeIfAbsent(key, k -> new Postings(4)).add(time, offset);
+
+			minTime = Math.min(minTime, time);
+			maxTime = Math.max(maxTime, time);
+		}
+
+		boolean overlaps(final Long timeFrom, final Long timeTo) {
+
+			if (index != null) {
+
+				// active segment, time range is still growing
+				return true;
+			}
+
+			return minTime <= maxTime && (timeFrom == null || maxTime >= timeFrom) && (timeTo == null || minTime <= timeTo);
+		}
+	}
+
+	private static class SegmentIndex {
+
+		private final Map<String, Postings> postings = new HashMap<>();
+	}
+
+	/**
+	 * Time and offset pairs of the records of a single key.
+	 */
+	private static class Postings {
+
+		private long[] data = null;
+		private int size    = 0;
+
+		Postings(final int capacity) {
+			this.data = new long[Math.max(2, capacity)];
+		}
+
+		void add(final long time, final long offset) {
+
+			if (size + 2 > data.length) {
+				data = Arrays.copyOf(data, data.length * 2);
+			}
+
+			data[size++] = time;
+			data[size++] = offset;
+		}
+
+		long[] toArray() {
+			return Arrays.copyOf(data, size);
+		}
+	}
+}
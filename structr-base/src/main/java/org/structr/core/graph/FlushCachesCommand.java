@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.DatabaseService;
 import org.structr.common.AccessPathCache;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
 import org.structr.core.app.StructrApp;
@@ -31,10 +32,13 @@ import org.structr.core.function.LocalizeFunction;
 import org.structr.schema.action.Actions;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class FlushCachesCommand extends NodeServiceCommand implements MaintenanceCommand {
 
-	private static final Logger logger = LoggerFactory.getLogger(FlushCachesCommand.class.getName());
+	private static final Logger logger                = LoggerFactory.getLogger(FlushCachesCommand.class.getName());
+	private static final Set<Runnable> flushListeners = new CopyOnWriteArraySet<>();
 
 	@Override
 	public void execute(Map<String, Object> attributes) throws FrameworkException {
@@ -61,12 +65,25 @@ public class FlushCachesCommand extends NodeServiceCommand implements Maintenanc
 		ResourceAccess.clearCache();
 		Actions.clearCache();
 		AccessPathCache.invalidate();
+		PermissionResolutionCache.invalidate();
 		LocalizeFunction.invalidateCache();
 		AbstractSchemaNode.clearCachedSchemaMethods();
 
+		for (final Runnable listener : flushListeners) {
+			listener.run();
+		}
+
 		StructrApp.getInstance().invalidateCache();
 	}
 
+	/**
+	 * Registers a listener that clears a cache outside of the core module
+	 * when all caches are flushed.
+	 */
+	public static void registerFlushListener(final Runnable listener) {
+		flushListeners.add(listener);
+	}
+
 	public static void flushLocalizationCache() {
 
 		logger.info("Clearing localization cache.");
@@ -24,11 +24,15 @@ import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
 import org.structr.api.graph.RelationshipType;
 import org.structr.common.AccessPathCache;
+import org.structr.common.PermissionPropagation;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.PropertyView;
+import org.structr.common.RelType;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
+import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Principal;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -229,7 +233,13 @@ public class GraphObjectModificationState implements ModificationEvent {
 		// only update cache if key, prev and new values are null
 		// because that's when a relationship has been created / removed
 		if (key == null && previousValue == null && newValue == null) {
+
 			updateCache();
+
+		} else if (!isNode) {
+
+			// properties of security and permission propagation relationships
+			updatePermissionCache();
 		}
 	}
 
@@ -673,6 +683,37 @@ public class GraphObjectModificationState implements ModificationEvent {
 		if (relType != null) {
 			AccessPathCache.invalidateForRelType(relType.name());
 		}
+
+		updatePermissionCache();
+	}
+
+	private void updatePermissionCache() {
+
+		if (!isNode) {
+
+			final RelationshipInterface rel = (RelationshipInterface)object;
+
+			try {
+
+				final NodeInterface source = rel.getSourceNode();
+				final NodeInterface target = rel.getTargetNode();
+
+				if (rel instanceof PermissionPropagation || (source instanceof Principal && target instanceof Principal)) {
+
+					// permission propagation and group membership can affect any decision
+					PermissionResolutionCache.invalidate();
+
+				} else if ((RelType.OWNS.equals(relType) || RelType.SECURITY.equals(relType)) && target instanceof AbstractNode) {
+
+					((AbstractNode)target).invalidateCachedPermissions();
+				}
+
+			} catch (Throwable t) {
+
+				// relationship or nodes not accessible anymore
+				PermissionResolutionCache.invalidate();
+			}
+		}
 	}
 
 	private void addToCollection(final Map<String, Object> properties, final PropertyKey key, final Object value) {
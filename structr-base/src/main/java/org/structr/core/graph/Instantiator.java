@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+import java.util.function.Supplier;
+
+/**
+ * Creates instances of entity classes without reflection. The constructor
+ * of each class is resolved once and stored with the class itself, so the
+ * factories of dynamic types are discarded together with the classes when
+ * the schema is recompiled.
+ */
+public class Instantiator {
+
+	private static final MethodType SUPPLIER_TYPE = MethodType.methodType(Supplier.class);
+	private static final MethodType GET_TYPE      = MethodType.methodType(Object.class);
+	private static final MethodType VOID_TYPE     = MethodType.methodType(void.class);
+
+	private static final ClassValue<Supplier<Object>> factories = new ClassValue<>() {
+
+		@Override
+		protected Supplier<Object> computeValue(final Class<?> type) {
+			return createFactory(type);
+		}
+	};
+
+	/**
+	 * Creates a new instance of the given class using its no-arg constructor.
+	 * Like Class.newInstance, this method propagates any exception thrown
+	 * by the constructor, including checked exceptions.
+	 *
+	 * @param <T>
+	 * @param type
+	 * @return a new instance
+	 * @throws InstantiationException if the class is abstract or has no accessible no-arg constructor
+	 */
+	public static <T> T newInstance(final Class<T> type) throws InstantiationException {
+
+		if (type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+			throw new InstantiationException(type.getName());
+		}
+
+		final Supplier<Object> factory;
+
+		try {
+
+			factory = factories.get(type);
+
+		} catch (FactoryException fex) {
+
+			// failures are not stored in the ClassValue, so the next call tries again
+			throw (InstantiationException)new InstantiationException(type.getName()).initCause(fex.getCause());
+		}
+
+		return (T)factory.get();
+	}
+
+	// ----- private methods -----
+	private static Supplier<Object> createFactory(final Class<?> type) {
+
+		try {
+
+			final MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			final MethodHandle constructor    = lookup.findConstructor(type, VOID_TYPE);
+
+			// a lambda factory needs full privilege access to the class, which is
+			// only available for classes in our own module (i.e. not for dynamic
+			// types, which are defined by the class loader of the schema compiler)
+			if (lookup.hasFullPrivilegeAccess()) {
+
+				final CallSite site = LambdaMetafactory.metafactory(lookup, "get", SUPPLIER_TYPE, GET_TYPE, constructor, MethodType.methodType(type));
+
+				return (Supplier<Object>)site.getTarget().invoke();
+			}
+
+			final MethodHandle handle = constructor.asType(GET_TYPE);
+
+			return () -> {
+
+				try {
+
+					return handle.invokeExact();
+
+				} catch (Throwable t) {
+					throw Instantiator.<RuntimeException>rethrow(t);
+				}
+			};
+
+		} catch (Throwable t) {
+			throw new FactoryException(t);
+		}
+	}
+
+	private static <E extends Throwable> E rethrow(final Throwable t) throws E {
+		throw (E)t;
+	}
+
+	// ----- nested classes -----
+	private static class FactoryException extends RuntimeException {
+
+		public FactoryException(final Throwable cause) {
+			super(cause);
+		}
+	}
+}
@@ -18,7 +18,6 @@
  */
 package org.structr.core.graph;
 
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
@@ -34,7 +33,6 @@ import org.structr.core.GraphObject;
 import org.structr.core.GraphObjectMap;
 import org.structr.core.entity.Principal;
 import org.structr.core.entity.Relation;
-import org.structr.core.function.ChangelogFunction;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -184,7 +182,7 @@ public class ModificationQueue {
 		}
 	}
 
-	public void updateChangelog() {
+	public void updateChangelog() throws FrameworkException {
 
 		final boolean objectChangelog = Settings.ChangelogEnabled.getValue();
 		final boolean userChangelog   = Settings.UserChangelogEnabled.getValue();
@@ -193,41 +191,49 @@ public class ModificationQueue {
 
 			final long t0 = System.currentTimeMillis();
 
-			for (final ModificationEvent ev: modificationEvents) {
+			try {
 
-				try {
+				// entries are only queued here, the store writes them in the background
+				final ChangelogStore store = ChangelogStore.getInstance();
 
-					if (objectChangelog) {
+				for (final ModificationEvent ev: modificationEvents) {
 
-						final GraphObject obj = ev.getGraphObject();
-						final String newLog   = ev.getChangeLog();
+					try {
 
-						if (obj != null && obj.changelogEnabled()) {
+						if (objectChangelog) {
 
-							final String uuid           = ev.isDeleted() ? ev.getUuid() : obj.getUuid();
-							final String typeFolderName = obj.isNode() ? "n" : "r";
+							final GraphObject obj = ev.getGraphObject();
+							final String newLog   = ev.getChangeLog();
 
-							java.io.File file = ChangelogFunction.getChangeLogFileOnDisk(typeFolderName, uuid, true);
+							if (obj != null && obj.changelogEnabled()) {
 
-							FileUtils.write(file, newLog, "utf-8", true);
-						}
-					}
+								final String uuid           = ev.isDeleted() ? ev.getUuid() : obj.getUuid();
+								final String typeFolderName = obj.isNode() ? "n" : "r";
 
-					if (userChangelog) {
+								store.append(typeFolderName, uuid, newLog);
+							}
+						}
 
-						for (Map.Entry<String, StringBuilder> entry : ev.getUserChangeLogs().entrySet()) {
+						if (userChangelog) {
 
-							java.io.File file = ChangelogFunction.getChangeLogFileOnDisk("u", entry.getKey(), true);
+							for (Map.Entry<String, StringBuilder> entry : ev.getUserChangeLogs().entrySet()) {
 
-							FileUtils.write(file, entry.getValue().toString(), "utf-8", true);
+								store.append("u", entry.getKey(), entry.getValue().toString());
+							}
 						}
-					}
 
-				} catch (IOException ioex) {
-					logger.error("Unable to write changelog to file: {}", ioex.getMessage());
-				} catch (Throwable t) {
-					logger.warn("", t);
+					} catch (FrameworkException fex) {
+
+						// the changelog queue is full, fail the commit
+						throw fex;
+
+					} catch (Throwable t) {
+						logger.warn("", t);
+					}
 				}
+
+			} catch (IOException ioex) {
+				logger.error("Unable to write changelog to file: {}", ioex.getMessage());
 			}
 
 			changelogUpdateTime = System.currentTimeMillis() - t0;
@@ -83,9 +83,9 @@ public class NodeFactory<T extends NodeInterface & AccessControllable> extends F
 		T newNode                       = null;
 
 		try {
-			newNode = nodeClass.newInstance();
+			newNode = Instantiator.newInstance(nodeClass);
 
-		} catch (NoClassDefFoundError|InstantiationException|IllegalAccessException itex) {
+		} catch (NoClassDefFoundError|InstantiationException itex) {
 			newNode = null;
 		}
 
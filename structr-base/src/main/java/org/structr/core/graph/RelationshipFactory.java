@@ -89,7 +89,7 @@ public class RelationshipFactory<T extends RelationshipInterface> extends Factor
 
 		try {
 
-			newRel = relClass.newInstance();
+			newRel = Instantiator.newInstance(relClass);
 
 		} catch (Throwable t) {
 			logger.warn("", t);
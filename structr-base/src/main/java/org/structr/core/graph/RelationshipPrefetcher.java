@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import org.structr.api.DatabaseService;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.Node;
+import org.structr.core.GraphObject;
+import org.structr.core.Services;
+import org.structr.core.entity.Relation;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.RelationProperty;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Loads the related nodes of a batch of nodes with one query per relation
+ * property instead of one query per node, before the nodes are read one
+ * by one, e.g. during serialization.
+ */
+public class RelationshipPrefetcher {
+
+	/**
+	 * Returns an iterator that reads the given source iterator in batches
+	 * and prefetches the relationships of each batch for the relation
+	 * properties returned by the given key provider.
+	 */
+	public static <T> Iterator<T> iterator(final Iterator<T> source, final Function<GraphObject, Iterable<PropertyKey>> keyProvider) {
+
+		final int batchSize = Settings.RelationshipPrefetchBatchSize.getValue();
+		if (batchSize > 1) {
+
+			return new PrefetchingIterator<>(source, keyProvider, batchSize);
+		}
+
+		return source;
+	}
+
+	public static void prefetch(final Collection<?> objects, final Function<GraphObject, Iterable<PropertyKey>> keyProvider) {
+
+		final Map<Class, List<RelationProperty>> keysByType = new HashMap<>();
+		final Map<List<Object>, Request> requests           = new LinkedHashMap<>();
+
+		for (final Object obj : objects) {
+
+			if (obj instanceof NodeInterface) {
+
+				final NodeInterface node = (NodeInterface)obj;
+				final Node dbNode        = node.getNode();
+
+				if (dbNode != null) {
+
+					for (final RelationProperty key : keysByType.computeIfAbsent(node.getClass(), k -> getRelationProperties(node, keyProvider))) {
+
+						final Relation relation = key.getRelation();
+						if (relation != null) {
+
+							final boolean outgoing    = "out".equals(key.getDirectionKey());
+							final Direction direction = outgoing ? Direction.OUTGOING : Direction.INCOMING;
+							final Class otherType     = outgoing ? relation.getTargetType() : relation.getSourceType();
+
+							// relation instances have no database relationship, so they can not be used as a key
+							requests.computeIfAbsent(Arrays.asList(direction, relation.getClass(), otherType.getSimpleName()), k -> new Request(direction, relation, otherType.getSimpleName())).nodes.add(dbNode);
+						}
+					}
+				}
+			}
+		}
+
+		if (!requests.isEmpty()) {
+
+			final DatabaseService db = Services.getInstance().getDatabaseService();
+
+			for (final Request request : requests.values()) {
+
+				if (request.nodes.size() > 1) {
+
+					db.prefetchRelationships(request.nodes, request.direction, request.relation, request.otherType);
+				}
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private static List<RelationProperty> getRelationProperties(final GraphObject obj, final Function<GraphObject, Iterable<PropertyKey>> keyProvider) {
+
+		final List<RelationProperty> properties = new ArrayList<>();
+		final Iterable<PropertyKey> keys        = keyProvider.apply(obj);
+
+		if (keys != null) {
+
+			for (final PropertyKey key : keys) {
+
+				if (key instanceof RelationProperty) {
+
+					properties.add((RelationProperty)key);
+				}
+			}
+		}
+
+		return properties;
+	}
+
+	// ----- nested classes -----
+	private static class Request {
+
+		private final List<Node> nodes = new ArrayList<>();
+		private Direction direction    = null;
+		private Relation relation      = null;
+		private String otherType       = null;
+
+		public Request(final Direction direction, final Relation relation, final String otherType) {
+
+			this.direction = direction;
+			this.relation  = relation;
+			this.otherType = otherType;
+		}
+	}
+
+	private static class PrefetchingIterator<T> implements Iterator<T> {
+
+		private final Function<GraphObject, Iterable<PropertyKey>> keyProvider;
+		private final List<T> batch = new ArrayList<>();
+		private Iterator<T> source  = null;
+		private int batchSize       = 0;
+		private int position        = 0;
+
+		public PrefetchingIterator(final Iterator<T> source, final Function<GraphObject, Iterable<PropertyKey>> keyProvider, final int batchSize) {
+
+			this.keyProvider = keyProvider;
+			this.batchSize   = batchSize;
+			this.source      = source;
+		}
+
+		@Override
+		public boolean hasNext() {
+
+			if (position >= batch.size()) {
+
+				batch.clear();
+				position = 0;
+
+				while (batch.size() < batchSize && source.hasNext()) {
+					batch.add(source.next());
+				}
+
+				prefetch(batch, keyProvider);
+			}
+
+			return position < batch.size();
+		}
+
+		@Override
+		public T next() {
+
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+
+			return batch.get(position++);
+		}
+	}
+}
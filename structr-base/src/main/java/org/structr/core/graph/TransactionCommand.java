@@ -42,10 +42,13 @@ import org.structr.core.entity.Principal;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.scheduler.TransactionPostProcessQueue;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
 
 /**
  * Graph service command for database operations that need to be wrapped in
@@ -53,10 +56,11 @@ import java.util.Set;
  */
 public class TransactionCommand {
 
-	private static final Logger logger                             = LoggerFactory.getLogger(TransactionCommand.class.getName());
-	private static final Set<StructrTransactionListener> listeners = new LinkedHashSet<>();
-	private static final ThreadLocal<TransactionCommand> commands  = new ThreadLocal<>();
-	private static final MultiSemaphore                  semaphore = new MultiSemaphore();
+	private static final Logger logger                                                = LoggerFactory.getLogger(TransactionCommand.class.getName());
+	private static final Set<StructrTransactionListener> listeners                    = new LinkedHashSet<>();
+	private static final Set<Consumer<Collection<ModificationEvent>>> commitListeners = new CopyOnWriteArraySet<>();
+	private static final ThreadLocal<TransactionCommand> commands                     = new ThreadLocal<>();
+	private static final MultiSemaphore                  semaphore                    = new MultiSemaphore();
 
 	private TransactionReference transaction             = null;
 	private ModificationQueue queue                      = null;
@@ -428,6 +432,18 @@ public class TransactionCommand {
 		return listeners;
 	}
 
+	/**
+	 * Registers a listener that is notified after every commit, independent
+	 * of the transaction notification settings of the security context.
+	 */
+	public static void registerCommitListener(final Consumer<Collection<ModificationEvent>> listener) {
+		commitListeners.add(listener);
+	}
+
+	public static Set<Consumer<Collection<ModificationEvent>>> getCommitListeners() {
+		return commitListeners;
+	}
+
 	public static void simpleBroadcastWarning(final String title, final String text, final Predicate<String> sessionIdPredicate) {
 
 		final Map<String, Object> messageData = new HashMap();
@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  *
@@ -93,6 +94,11 @@ public class Tx implements AutoCloseable {
 
 						modificationQueue.doOuterCallbacks(securityContext);
 
+						for (final Consumer<Collection<ModificationEvent>> listener : TransactionCommand.getCommitListeners()) {
+
+							listener.accept(modificationQueue.getModificationEvents());
+						}
+
 						// notify listeners if desired, and allow this setting to be overriden locally AND remotely
 						if ( (securityContext == null) ? doNotifications : doNotifications && securityContext.doTransactionNotifications() ) {
 
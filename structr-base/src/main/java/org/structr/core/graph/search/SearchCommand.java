@@ -18,9 +18,13 @@
  */
 package org.structr.core.graph.search;
 
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.DatabaseFeature;
+import org.structr.api.DatabaseService;
 import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.index.Index;
 import org.structr.api.search.Occurrence;
@@ -45,6 +49,7 @@ import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.schema.ConfigurationProvider;
 
+import java.lang.reflect.Method;
 import java.util.*;
 import org.structr.api.search.ComparisonQuery;
 
@@ -56,6 +61,38 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 	private static final Logger logger = LoggerFactory.getLogger(SearchCommand.class.getName());
 
+	// upper bound for the number of elements kept in memory by the top-k selection in sortAndPage
+	private static final int MaxTopKSize = 100_000;
+
+	// true if the visibility checks of a node class can be expressed in a database query
+	private static final ClassValue<Boolean> DefaultVisibility = new ClassValue<>() {
+
+		@Override
+		protected Boolean computeValue(final Class<?> type) {
+
+			if (!AbstractNode.class.isAssignableFrom(type)) {
+				return false;
+			}
+
+			for (Class<?> current = type; !AbstractNode.class.equals(current); current = current.getSuperclass()) {
+
+				for (final Method method : current.getDeclaredMethods()) {
+
+					switch (method.getName()) {
+
+						case "isVisibleToPublicUsers":
+						case "isVisibleToAuthenticatedUsers":
+						case "isGranted":
+						case "allowedBySchema":
+							return false;
+					}
+				}
+			}
+
+			return true;
+		}
+	};
+
 	protected static final boolean INCLUDE_DELETED_AND_HIDDEN = true;
 	protected static final boolean PUBLIC_ONLY		  = false;
 
@@ -82,6 +119,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 	private Class type                           = null;
 	private int pageSize                         = Integer.MAX_VALUE;
 	private int page                             = 1;
+	private boolean visibilityIsExact            = false;
 
 	public abstract Factory<S, T> getFactory(final SecurityContext securityContext, final boolean includeHidden, final boolean publicOnly, final int pageSize, final int page);
 	public abstract boolean isRelationshipSearch();
@@ -125,9 +163,16 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			rootGroup.add(new PropertySearchAttribute(NodeInterface.hidden,  true, Occurrence.FORBIDDEN, true));
 		}
 
+		// let the database discard nodes that can not be visible for the current user
+		if (!isRelationshipSearch() && !isCountedInDatabase() && Settings.VisibilityPushdown.getValue()) {
+
+			addVisibilitySearchAttribute(user);
+		}
+
 		// At this point, all search attributes are ready
 		final List<SourceSearchAttribute> sources    = new ArrayList<>();
 		Iterable indexHits                           = null;
+		Index<S> countIndex                          = null;
 
 		// resolve search attribute groups
 		handleSearchAttributeGroup(config, rootGroup, sources);
@@ -155,18 +200,13 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 				}
 
 				// do query
-				indexHits = Iterables.map(factory, index.query(getQueryContext(), rootGroup, pageSize, page));
+				indexHits  = Iterables.map(factory, index.query(getQueryContext(), rootGroup, pageSize, page));
+				countIndex = index;
 
 				if (comparator != null) {
 
-					// pull results into memory
-					final List<T> rawResult = Iterables.toList(indexHits);
-
-					// sort result
-					Collections.sort(rawResult, comparator);
-
-					// return paging iterable
-					return new PagingIterable(description, rawResult, pageSize, page, queryContext.getSkipped());
+					// sort result and return paging iterable
+					return sortAndPage(description, indexHits, comparator);
 				}
 			}
 		}
@@ -219,7 +259,7 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 			// sort list
 			if (!sortOrder.isEmpty()) {
 
-				Collections.sort(finalResult, sortOrder);
+				return sortAndPage(description, finalResult, sortOrder);
 			}
 
 			return new PagingIterable(description, finalResult, pageSize, page, queryContext.getSkipped());
@@ -228,13 +268,216 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 
 			if (!sortOrder.isEmpty()) {
 
-				final List<T> finalResult = new LinkedList<>(Iterables.toList(indexHits));
-				Collections.sort(finalResult, sortOrder);
-				return new PagingIterable(description, finalResult, pageSize, page, queryContext.getSkipped());
+				return sortAndPage(description, indexHits, sortOrder);
 			}
+
 			// no filtering
-			return new PagingIterable(description, indexHits, pageSize, page, queryContext.getSkipped());
+			final PagingIterable<T> result = new PagingIterable(description, indexHits, pageSize, page, queryContext.getSkipped());
+
+			if (countIndex != null && (isCountedInDatabase() || isCountEstimated())) {
+
+				final Index<S> index       = countIndex;
+				final QueryContext context = getQueryContext();
+
+				// the count query is only sent if the result count is requested
+				result.setResultCountProvider(() -> (int)Math.min(index.count(context, rootGroup), Integer.MAX_VALUE));
+			}
+
+			return result;
+		}
+	}
+
+	/**
+	 * Indicates whether the number of database results equals the number of
+	 * results that pass the factory, i.e. no permission filtering happens
+	 * after the query.
+	 */
+	private boolean isCountedInDatabase() {
+
+		if (isRelationshipSearch()) {
+
+			// relationships are not filtered by the factory, anonymous users get a post-filter
+			return true;
+		}
+
+		return visibilityIsExact || (!publicOnly && (securityContext.isSuperUser() || securityContext.isSuperUserSecurityContext()));
+	}
+
+	/**
+	 * Indicates whether the database count may be reported although it
+	 * includes results that the user can not see. Anonymous and public
+	 * queries are always counted exactly, so the count does not disclose
+	 * the number of invisible entities to unauthenticated users.
+	 */
+	private boolean isCountEstimated() {
+		return "estimated".equals(Settings.ResultCountMode.getValue()) && !publicOnly && securityContext.getUser(false) != null;
+	}
+
+	/**
+	 * Adds a predicate for the visibility flags, ownership and direct
+	 * security grants of the given user and its groups to the query. Rules
+	 * the database can not evaluate (schema grants, custom visibility
+	 * methods and custom permission queries) disable the predicate, nodes
+	 * with permission-propagating relationships are included and resolved
+	 * by the factory.
+	 */
+	private void addVisibilitySearchAttribute(final Principal user) {
+
+		final DatabaseService db = (DatabaseService)arguments.get("graphDb");
+		if (db == null || !db.supportsFeature(DatabaseFeature.VisibilityQueries)) {
+			return;
+		}
+
+		// an OR'ed predicate on the top level would bind weaker than the visibility predicate
+		for (final SearchAttribute attr : rootGroup.getSearchAttributes()) {
+
+			if (Occurrence.OPTIONAL.equals(attr.getOccurrence()) && !(attr instanceof TypeSearchAttribute)) {
+				return;
+			}
+		}
+
+		if (!hasDefaultVisibility(rootGroup)) {
+			return;
+		}
+
+		final Set<String> propagatingTypes = new LinkedHashSet<>();
+		final Set<String> principalIds     = new LinkedHashSet<>();
+		final boolean authenticated        = user != null && !publicOnly;
+
+		if (authenticated) {
+
+			if (!collectPrincipalIds(user, principalIds)) {
+				return;
+			}
+
+			for (final Class type : SchemaRelationshipNode.getPropagatingRelationshipTypes()) {
+
+				propagatingTypes.add(AbstractNode.getRelationshipForType(type).name());
+			}
+		}
+
+		rootGroup.add(new VisibilitySearchAttribute(principalIds, propagatingTypes, authenticated));
+
+		// without propagation, the database result equals the readable nodes
+		visibilityIsExact = propagatingTypes.isEmpty();
+	}
+
+	private boolean collectPrincipalIds(final Principal principal, final Set<String> principalIds) {
+
+		if (principalIds.add(principal.getUuid())) {
+
+			final PropertyKey<String> key = StructrApp.getConfiguration().getPropertyKeyForJSONName(Principal.class, "customPermissionQueryRead");
+			if (key != null && StringUtils.isNotEmpty(principal.getProperty(key))) {
+
+				return false;
+			}
+
+			for (final Principal parent : principal.getParentsPrivileged()) {
+
+				if (!collectPrincipalIds(parent, principalIds)) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	private boolean hasDefaultVisibility(final SearchAttributeGroup group) {
+
+		final Map<String, Class<? extends NodeInterface>> nodeEntities = StructrApp.getConfiguration().getNodeEntities();
+		final Set<String> typeNames                                   = new LinkedHashSet<>();
+
+		collectTypeNames(group, typeNames);
+
+		for (final Map.Entry<String, Class<? extends NodeInterface>> entry : nodeEntities.entrySet()) {
+
+			if ((typeNames.isEmpty() || typeNames.contains(entry.getKey())) && !DefaultVisibility.get(entry.getValue())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void collectTypeNames(final SearchAttributeGroup group, final Set<String> typeNames) {
+
+		for (final SearchAttribute attr : group.getSearchAttributes()) {
+
+			if (attr instanceof SearchAttributeGroup) {
+
+				collectTypeNames((SearchAttributeGroup)attr, typeNames);
+			}
+
+			if (attr instanceof TypeSearchAttribute) {
+
+				typeNames.addAll(getAllSubtypesAsStringSet((String)attr.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * Sorts the given result with the given comparator and returns the
+	 * requested page. If the page is small enough, only the elements up to
+	 * the end of the requested page are kept in a bounded heap instead of
+	 * sorting the whole result. Ties are resolved by the original position,
+	 * so the result is the same as with a stable sort of the full list.
+	 */
+	private ResultStream<T> sortAndPage(final String description, final Iterable<T> source, final Comparator comparator) {
+
+		final int skipped = queryContext.getSkipped();
+		final long limit  = (long)page * (long)pageSize;
+
+		if (page < 1 || skipped != 0 || limit > MaxTopKSize) {
+
+			final List<T> list = Iterables.toList(source);
+
+			Collections.sort(list, comparator);
+
+			return new PagingIterable(description, list, pageSize, page, skipped);
+		}
+
+		final Comparator<Candidate<T>> order  = (o1, o2) -> {
+
+			final int result = comparator.compare(o1.value, o2.value);
+
+			return result != 0 ? result : Long.compare(o1.position, o2.position);
+		};
+
+		// max-heap that holds the smallest <limit> candidates, largest on top
+		final PriorityQueue<Candidate<T>> heap = new PriorityQueue<>((int)Math.min(limit, 1024), order.reversed());
+		long position                          = 0L;
+
+		for (final T value : source) {
+
+			final Candidate<T> candidate = new Candidate<>(value, position++);
+
+			if (heap.size() < limit) {
+
+				heap.add(candidate);
+
+			} else if (order.compare(candidate, heap.peek()) < 0) {
+
+				heap.poll();
+				heap.add(candidate);
+			}
+		}
+
+		final List<Candidate<T>> candidates = new ArrayList<>(heap);
+		final List<T> selection             = new ArrayList<>(candidates.size());
+
+		candidates.sort(order);
+
+		for (final Candidate<T> candidate : candidates) {
+			selection.add(candidate.value);
 		}
+
+		final PagingIterable<T> result = new PagingIterable<>(description, selection, pageSize, page, skipped);
+
+		// the selection only contains the elements up to the requested page
+		result.setOverriddenResultCount((int)Math.min(position, Integer.MAX_VALUE));
+
+		return result;
 	}
 
 	private void handleSearchAttributeGroup(final SearchConfig config, final SearchAttributeGroup group, final List<SourceSearchAttribute> sources) throws FrameworkException {
@@ -968,4 +1211,16 @@ public abstract class SearchCommand<S extends PropertyContainer, T extends Graph
 		public boolean hasEmptySearchFields            = false;
 		public boolean hasRelationshipVisibilitySearch = false;
 	}
+
+	private static class Candidate<T> {
+
+		private final T value;
+		private final long position;
+
+		public Candidate(final T value, final long position) {
+
+			this.value    = value;
+			this.position = position;
+		}
+	}
 }
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph.search;
+
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.VisibilityQuery;
+import org.structr.core.GraphObject;
+
+import java.util.Set;
+
+/**
+ * Restricts a node query to the nodes that can possibly be visible for a
+ * set of principals, so that the database does not return rows that the
+ * factory would discard anyway. The final permission check is still done
+ * when the nodes are instantiated, so this attribute accepts all entities.
+ */
+public class VisibilitySearchAttribute extends SearchAttribute implements VisibilityQuery {
+
+	private Set<String> propagatingRelationshipTypes = null;
+	private Set<String> principalIds                 = null;
+	private boolean includeAuthenticated             = false;
+
+	public VisibilitySearchAttribute(final Set<String> principalIds, final Set<String> propagatingRelationshipTypes, final boolean includeAuthenticated) {
+
+		super(Occurrence.REQUIRED);
+
+		this.propagatingRelationshipTypes = propagatingRelationshipTypes;
+		this.includeAuthenticated         = includeAuthenticated;
+		this.principalIds                 = principalIds;
+	}
+
+	@Override
+	public String toString() {
+		return "VisibilitySearchAttribute(" + principalIds + ")";
+	}
+
+	@Override
+	public boolean includeInResult(final GraphObject entity) {
+		return true;
+	}
+
+	@Override
+	public Class getQueryType() {
+		return VisibilityQuery.class;
+	}
+
+	@Override
+	public boolean isExactMatch() {
+		return true;
+	}
+
+	@Override
+	public String getName() {
+		return null;
+	}
+
+	// ----- interface VisibilityQuery -----
+	@Override
+	public Set<String> getPrincipalIds() {
+		return principalIds;
+	}
+
+	@Override
+	public Set<String> getPropagatingRelationshipTypes() {
+		return propagatingRelationshipTypes;
+	}
+
+	@Override
+	public boolean includeAuthenticated() {
+		return includeAuthenticated;
+	}
+}
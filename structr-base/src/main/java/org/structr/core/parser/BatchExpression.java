@@ -38,10 +38,12 @@ public class BatchExpression extends Expression {
 
 	public static final String ERROR_MESSAGE_BATCH = "Usage: ${batch(statement, batchSize)}. Example: ${batch(delete(find('User')), 1000)}";
 
+	// batch size of the current evaluation, parsed expressions can be shared between threads
+	private static final ThreadLocal<Integer> batchSize = new ThreadLocal<>();
+
 	private Expression batchExpression = null;
 	private Expression sizeExpression  = null;
 	private boolean background         = false;
-	private int batchSize              = -1;
 
 	public BatchExpression(final int row, final int column) {
 		super("batch", row, column);
@@ -77,8 +79,7 @@ public class BatchExpression extends Expression {
 		final Object value = sizeExpression.evaluate(ctx, entity, hints);
 		if (value != null && value instanceof Number) {
 
-			// store batch size for children to use
-			this.batchSize = ((Number)value).intValue();
+			final int size = ((Number)value).intValue();
 
 			// initialize holders to store results from worker thread (must be final)
 			final StaticValue<FrameworkException> exception = new StaticValue<>(null);
@@ -86,6 +87,9 @@ public class BatchExpression extends Expression {
 
 			final Thread workerThread = new Thread(() -> {
 
+				// store batch size for children to use
+				batchSize.set(size);
+
 				try {
 					result.set(null, batchExpression.evaluate(ctx, entity, hints));
 
@@ -126,6 +130,13 @@ public class BatchExpression extends Expression {
 
 	@Override
 	public int getBatchSize() {
-		return batchSize;
+
+		final Integer size = batchSize.get();
+		if (size != null) {
+
+			return size;
+		}
+
+		return -1;
 	}
 }
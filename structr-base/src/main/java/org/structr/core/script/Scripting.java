@@ -57,6 +57,10 @@ public class Scripting {
 	private static final Pattern ScriptEngineExpression             = Pattern.compile("^\\$\\{(\\w+)\\{(.*)\\}\\}$", Pattern.DOTALL);
 	private static final Logger logger                              = LoggerFactory.getLogger(Scripting.class.getName());
 
+	public static Map<String, Integer> getSourceCacheInfo() {
+		return sourceCache.getCacheInfo();
+	}
+
 	public static String replaceVariables(final ActionContext actionContext, final GraphObject entity, final Object rawValue) throws FrameworkException {
 		return replaceVariables(actionContext, entity, rawValue, false, "script source");
 	}
@@ -269,7 +273,9 @@ public class Scripting {
 
 				try {
 
-					Source source = sourceCache.get(snippet.getSource());
+					final String cacheKey = getSourceCacheKey("js", snippet);
+					Source source         = sourceCache.get(cacheKey);
+
 					if (source == null) {
 
 						final String code = embedInFunction(snippet);
@@ -277,7 +283,7 @@ public class Scripting {
 						source = Source.newBuilder("js", code, snippet.getName()).mimeType(snippet.getMimeType()).build();
 
 						// store in cache
-						sourceCache.put(snippet.getSource(), source);
+						sourceCache.put(cacheKey, source);
 					}
 
 					final Value value = context.eval(source);
@@ -374,14 +380,15 @@ public class Scripting {
 
 			try {
 
-				Source source = sourceCache.get(snippet.getSource());
+				final String cacheKey = getSourceCacheKey(engineName, snippet);
+				Source source         = sourceCache.get(cacheKey);
 
 				if (source == null) {
 
 					source = Source.newBuilder(engineName, snippet.getSource(), snippet.getName()).build();
 
 					// store in cache
-					sourceCache.put(snippet.getSource(), source);
+					sourceCache.put(cacheKey, source);
 				}
 
 				final Value value = context.eval(source);
@@ -454,6 +461,16 @@ public class Scripting {
 		}
 	}
 
+	/**
+	 * Sources are shared by all contexts of the engine, which also shares
+	 * the parsed code of a source between them. The key contains everything
+	 * the source is built from, so a snippet never gets the source of a
+	 * different language, name or embedding.
+	 */
+	private static String getSourceCacheKey(final String language, final Snippet snippet) {
+		return language + ":" + snippet.embed() + ":" + snippet.getName() + ":" + snippet.getSource();
+	}
+
 	private static String embedInFunction(final Snippet snippet) {
 
 		if (snippet.embed()) {
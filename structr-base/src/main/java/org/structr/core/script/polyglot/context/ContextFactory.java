@@ -28,14 +28,20 @@ import org.structr.core.script.polyglot.StructrBinding;
 import org.structr.core.script.polyglot.filesystem.PolyglotFilesystem;
 import org.structr.schema.action.ActionContext;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 
 public abstract class ContextFactory {
 
-	private static String debuggerPath        = "/structr/scripting/remotedebugger/";
-	private static String currentDebuggerUUID = "";
-	private static Engine engine              = buildEngine();
+	private static final AtomicLong contextsCreated     = new AtomicLong();
+	private static final AtomicLong contextsReused      = new AtomicLong();
+	private static final AtomicLong contextCreationTime = new AtomicLong();
+	private static String debuggerPath                  = "/structr/scripting/remotedebugger/";
+	private static String currentDebuggerUUID           = "";
+	private static Engine engine                        = buildEngine();
 
 	// javascript context builder
 	private static final Context.Builder jsBuilder = Context.newBuilder("js")
@@ -128,13 +134,20 @@ public abstract class ContextFactory {
 			storedContext = updateBindings(storedContext, language, actionContext, entity);
 			actionContext.putScriptingContext(language, storedContext);
 
+			contextsReused.incrementAndGet();
+
 		} else {
 
 			try {
 
+				final long t0 = System.nanoTime();
+
 				storedContext = contextCreationFunc.call();
 				actionContext.putScriptingContext(language, storedContext);
 
+				contextCreationTime.addAndGet(System.nanoTime() - t0);
+				contextsCreated.incrementAndGet();
+
 			} catch (Exception ex) {
 
 				throw new FrameworkException(500, "Exception while trying to initialize new context for language: " + language + ". Cause: " + ex.getMessage());
@@ -144,6 +157,25 @@ public abstract class ContextFactory {
 		return  storedContext;
 	}
 
+	/**
+	 * Returns the number of scripting contexts that were created, the time
+	 * spent creating them and the number of evaluations that reused the
+	 * context of their action context.
+	 */
+	public static Map<String, Object> getContextInfo() {
+
+		final Map<String, Object> info = new LinkedHashMap<>();
+		final long created             = contextsCreated.get();
+		final double creationTime      = contextCreationTime.get() / 1_000_000.0;
+
+		info.put("created",              created);
+		info.put("reused",               contextsReused.get());
+		info.put("creation_time_ms",     (long)creationTime);
+		info.put("avg_creation_time_ms", created > 0 ? creationTime / created : 0.0);
+
+		return info;
+	}
+
 	private static Context buildJSContext(final ActionContext actionContext, final GraphObject entity) {
 		return updateBindings(jsBuilder.build(), "js", actionContext, entity);
 	}
@@ -100,6 +100,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 	private FactoryDefinition factoryDefinition                                                    = new DefaultFactoryDefinition();
 	private LicenseManager licenseManager                                                          = null;
+	private volatile TypeRegistry registry                                                         = TypeRegistry.EMPTY;
+	private boolean registryChanged                                                                = false;
 
 	// ----- interface ConfigurationProvider -----
 	@Override
@@ -107,7 +109,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		this.licenseManager = licenseManager;
 
-		scanResources();
+		synchronized (SchemaService.class) {
+
+			scanResources();
+			publishEntityTypes();
+		}
 	}
 
 	@Override
@@ -122,25 +128,54 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 	@Override
 	public Map<String, Class<? extends NodeInterface>> getNodeEntities() {
 
-		synchronized (SchemaService.class) {
+		// the thread that rebuilds the schema must see its own registrations
+		if (Thread.holdsLock(SchemaService.class)) {
 			return nodeEntityClassCache;
 		}
+
+		return registry.getNodeEntities();
 	}
 
 	@Override
 	public Map<String, Class<? extends RelationshipInterface>> getRelationshipEntities() {
 
-		synchronized (SchemaService.class) {
+		if (Thread.holdsLock(SchemaService.class)) {
 			return relationshipEntityClassCache;
 		}
+
+		return registry.getRelationshipEntities();
 	}
 
 	@Override
 	public Set<Class> getClassesForInterface(final String simpleName) {
 
-		synchronized (SchemaService.class) {
+		if (Thread.holdsLock(SchemaService.class)) {
 			return interfaceCache.get(simpleName);
 		}
+
+		return registry.getClassesForInterface(simpleName);
+	}
+
+	@Override
+	public void publishEntityTypes() {
+
+		synchronized (SchemaService.class) {
+
+			registry        = new TypeRegistry(nodeEntityClassCache, relationshipEntityClassCache, interfaceCache);
+			registryChanged = false;
+		}
+	}
+
+	/**
+	 * Publishes the registry if types were registered since the last
+	 * publication. Must be called with the SchemaService lock held, by
+	 * a thread that is not in the middle of a schema rebuild.
+	 */
+	private void publishIfChanged() {
+
+		if (registryChanged) {
+			publishEntityTypes();
+		}
 	}
 
 	@Override
@@ -150,6 +185,25 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		if ((simpleName != null) && (!simpleName.isEmpty())) {
 
+			final boolean reloading = Thread.holdsLock(SchemaService.class);
+
+			if (!reloading) {
+
+				final TypeRegistry current  = registry;
+				final Class registeredClass = current.getNodeEntities().get(simpleName);
+
+				if (registeredClass != null) {
+
+					return registeredClass;
+				}
+
+				// names that are not a type do not need the lock until they are registered
+				if (current.isUnknownNodeType(simpleName)) {
+					return null;
+				}
+			}
+
+			// slow path: load class by name and publish it
 			synchronized (SchemaService.class) {
 
 				nodeEntityClass = nodeEntityClassCache.get(simpleName);
@@ -168,6 +222,7 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 									nodeEntityClassCache.put(simpleName, nodeClass);
 									nodeEntityClass = nodeClass;
+									registryChanged = true;
 
 									// first match wins
 									break;
@@ -178,6 +233,15 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 						}
 					}
 				}
+
+				if (!reloading) {
+
+					publishIfChanged();
+
+					if (nodeEntityClass == null) {
+						registry.addUnknownNodeType(simpleName);
+					}
+				}
 			}
 		}
 
@@ -192,6 +256,24 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 
 		if ((name != null) && (name.length() > 0)) {
 
+			final boolean reloading = Thread.holdsLock(SchemaService.class);
+
+			if (!reloading) {
+
+				final TypeRegistry current  = registry;
+				final Class registeredClass = current.getRelationshipEntities().get(name);
+
+				if (registeredClass != null) {
+
+					return registeredClass;
+				}
+
+				if (current.isUnknownRelationshipType(name)) {
+					return null;
+				}
+			}
+
+			// slow path: load class by name and publish it
 			synchronized (SchemaService.class) {
 
 				relationClass = relationshipEntityClassCache.get(name);
@@ -209,6 +291,11 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 								if (!Modifier.isAbstract(nodeClass.getModifiers())) {
 
 									relationshipEntityClassCache.put(name, nodeClass);
+									registryChanged = true;
+
+									if (!reloading) {
+										publishIfChanged();
+									}
 
 									// first match wins
 									return nodeClass;
@@ -222,6 +309,15 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 						}
 					}
 				}
+
+				if (!reloading) {
+
+					publishIfChanged();
+
+					if (relationClass == null) {
+						registry.addUnknownRelationshipType(name);
+					}
+				}
 			}
 		}
 
@@ -500,6 +596,8 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 					classes.remove(oldType);
 				}
 			}
+
+			registryChanged = true;
 		}
 	}
 
@@ -516,18 +614,34 @@ public class JarConfigurationProvider implements ConfigurationProvider {
 			return;
 		}
 
+		synchronized (SchemaService.class) {
+
+			registryChanged = true;
+
+			// lookups of this name must wait for the new snapshot
+			registry.removeUnknownType(simpleName);
+		}
+
 		if (AbstractNode.class.isAssignableFrom(type)) {
 
 			nodeEntityClassCache.put(simpleName, type);
-			nodeEntityPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")));
 			globalPropertyViewMap.remove(fqcn);
+
+			if (nodeEntityPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")))) {
+
+				// unknown names may be found in the new package
+				registry.clearUnknownTypes();
+			}
 		}
 
 		if (AbstractRelationship.class.isAssignableFrom(type)) {
 
 			relationshipEntityClassCache.put(simpleName, type);
-			relationshipPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")));
 			globalPropertyViewMap.remove(fqcn);
+
+			if (relationshipPackages.add(fqcn.substring(0, fqcn.lastIndexOf(".")))) {
+				registry.clearUnknownTypes();
+			}
 		}
 
 		// interface that extends NodeInterface, must be stored
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.module;
+
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.RelationshipInterface;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable snapshot of the registered entity types, so that type lookups
+ * can be answered without locking while the schema is being rebuilt.
+ *
+ * Names that were looked up and are not a type are remembered per
+ * snapshot, so unknown names (e.g. from REST paths) do not need the lock
+ * either. A name is forgotten when a type with that name is registered,
+ * and a new snapshot starts without them.
+ */
+class TypeRegistry {
+
+	static final TypeRegistry EMPTY = new TypeRegistry(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap());
+
+	private static final int MaxUnknownNames = 10_000;
+
+	private final Set<String> unknownNodeTypes         = ConcurrentHashMap.newKeySet();
+	private final Set<String> unknownRelationshipTypes = ConcurrentHashMap.newKeySet();
+	private final Map<String, Class<? extends NodeInterface>> nodeEntities;
+	private final Map<String, Class<? extends RelationshipInterface>> relationshipEntities;
+	private final Map<String, Set<Class>> classesForInterface;
+
+	TypeRegistry(final Map<String, Class<? extends NodeInterface>> nodeEntities, final Map<String, Class<? extends RelationshipInterface>> relationshipEntities, final Map<String, Set<Class>> classesForInterface) {
+
+		final Map<String, Set<Class>> interfaces = new HashMap<>();
+
+		for (final Map.Entry<String, Set<Class>> entry : classesForInterface.entrySet()) {
+			interfaces.put(entry.getKey(), Collections.unmodifiableSet(new LinkedHashSet<>(entry.getValue())));
+		}
+
+		this.nodeEntities         = Collections.unmodifiableMap(new LinkedHashMap<>(nodeEntities));
+		this.relationshipEntities = Collections.unmodifiableMap(new LinkedHashMap<>(relationshipEntities));
+		this.classesForInterface  = Collections.unmodifiableMap(interfaces);
+	}
+
+	Map<String, Class<? extends NodeInterface>> getNodeEntities() {
+		return nodeEntities;
+	}
+
+	Map<String, Class<? extends RelationshipInterface>> getRelationshipEntities() {
+		return relationshipEntities;
+	}
+
+	Set<Class> getClassesForInterface(final String simpleName) {
+		return classesForInterface.get(simpleName);
+	}
+
+	boolean isUnknownNodeType(final String name) {
+		return unknownNodeTypes.contains(name);
+	}
+
+	boolean isUnknownRelationshipType(final String name) {
+		return unknownRelationshipTypes.contains(name);
+	}
+
+	void addUnknownNodeType(final String name) {
+		addBounded(unknownNodeTypes, name);
+	}
+
+	void addUnknownRelationshipType(final String name) {
+		addBounded(unknownRelationshipTypes, name);
+	}
+
+	void removeUnknownType(final String name) {
+
+		unknownNodeTypes.remove(name);
+		unknownRelationshipTypes.remove(name);
+	}
+
+	void clearUnknownTypes() {
+
+		unknownNodeTypes.clear();
+		unknownRelationshipTypes.clear();
+	}
+
+	// ----- private methods -----
+	private void addBounded(final Set<String> names, final String name) {
+
+		// arbitrary names must not grow the snapshot without limit, further names use the locked lookup
+		if (names.size() < MaxUnknownNames) {
+			names.add(name);
+		}
+	}
+}
@@ -242,8 +242,17 @@ public class AuthHelper {
 
 	public static Principal getPrincipalForSessionId(final String sessionId, final boolean isPing) {
 
-		return getPrincipalForCredential(StructrApp.key(Principal.class, "sessionIds"), new String[]{ sessionId }, isPing);
+		final Principal cached = SessionPrincipalCache.get(sessionId, isPing);
+		if (cached != null) {
 
+			return cached;
+		}
+
+		final Principal principal = getPrincipalForCredential(StructrApp.key(Principal.class, "sessionIds"), new String[]{ sessionId }, isPing);
+
+		SessionPrincipalCache.put(sessionId, principal);
+
+		return principal;
 	}
 
 	public static void doLogin(final HttpServletRequest request, final Principal user) throws FrameworkException {
@@ -38,7 +38,7 @@ import org.structr.core.property.PropertyKey;
 import org.structr.rest.service.HttpService;
 
 import java.time.Instant;
-import java.util.Date;
+import java.util.*;
 
 /**
  * Utility class for session handling
@@ -115,27 +115,55 @@ public class SessionHelper {
 			return;
 		}
 
+		clearSessions(List.of(sessionId));
+	}
+
+	/**
+	 * Make sure none of the given sessionIds is set for any user. The
+	 * cached principals of all sessionIds are invalidated with a single
+	 * cluster message.
+	 *
+	 * @param sessionIds
+	 */
+	public static void clearSessions(final Collection<String> sessionIds) {
+
+		final Set<String> ids = new LinkedHashSet<>();
+
+		for (final String sessionId : sessionIds) {
+
+			if (StringUtils.isNotBlank(sessionId)) {
+
+				ids.add(sessionId);
+
+				// also remove short session id if the current session id is the long session id
+				ids.add(getShortSessionId(sessionId));
+			}
+		}
+
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		SessionPrincipalCache.invalidate(ids);
+
 		final App app                            = StructrApp.getInstance();
 		final PropertyKey<String[]> sessionIdKey = StructrApp.key(Principal.class, "sessionIds");
-		final Query<Principal> query             = app.nodeQuery(Principal.class).and(sessionIdKey, new String[]{sessionId}).disableSorting();
 
-		try {
+		for (final String sessionId : ids) {
 
-			for (final Principal p : query.getAsList()) {
+			final Query<Principal> query = app.nodeQuery(Principal.class).and(sessionIdKey, new String[]{sessionId}).disableSorting();
 
-				p.removeSessionId(sessionId);
-			}
+			try {
 
-		} catch (Exception fex) {
+				for (final Principal p : query.getAsList()) {
 
-			logger.warn("Error while removing sessionId " + sessionId + " from all principals", fex);
-		}
+					p.removeSessionId(sessionId);
+				}
 
-		// also remove short session id if the current session id is the long session id
-		final String shortSessionId = getShortSessionId(sessionId);
-		if (!sessionId.equals(shortSessionId)) {
+			} catch (Exception fex) {
 
-			clearSession(shortSessionId);
+				logger.warn("Error while removing sessionId " + sessionId + " from all principals", fex);
+			}
 		}
 	}
 
@@ -154,16 +182,22 @@ public class SessionHelper {
 		if (sessionIds != null && sessionIds.length > 0) {
 
 			final SessionCache sessionCache = getDefaultSessionCache();
+			final List<String> invalidIds   = new LinkedList<>();
 
 			for (final String sessionId : sessionIds) {
 
 				Session session = getSessionFromCache(sessionCache, sessionId);
 
 				if (session == null || SessionHelper.isSessionTimedOut(session)) {
-					SessionHelper.clearSession(sessionId);
-					SessionHelper.invalidateSession(sessionId);
+					invalidIds.add(sessionId);
 				}
 			}
+
+			SessionHelper.clearSessions(invalidIds);
+
+			for (final String sessionId : invalidIds) {
+				SessionHelper.invalidateSession(sessionId);
+			}
 		}
 	}
 
@@ -185,9 +219,10 @@ public class SessionHelper {
 
 			if (sessionIds != null && sessionIds.length > 0) {
 
+				SessionHelper.clearSessions(Arrays.asList(sessionIds));
+
 				for (final String sessionId : sessionIds) {
 
-					SessionHelper.clearSession(sessionId);
 					SessionHelper.invalidateSession(sessionId);
 				}
 			}
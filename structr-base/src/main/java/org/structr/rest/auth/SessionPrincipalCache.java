@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.auth;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.structr.api.config.Settings;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.auth.SessionIdListeners;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.NodeInterface;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded in-memory index of session IDs to the UUID of the principal
+ * that owns the session. Entries are hints only, the session ID is
+ * verified against the sessionIds property of the principal on every
+ * lookup, so a stale entry can never authenticate a request.
+ */
+public class SessionPrincipalCache {
+
+	private static final FixedSizeCache<String, String> cache = new FixedSizeCache<>("Session principal cache", Math.max(1, Settings.SessionPrincipalCacheSize.getValue()));
+	private static final String InvalidationMessage           = "sessions-invalidated";
+
+	static {
+
+		// the core entities do not know about the rest layer, entries can
+		// only exist after this class has been initialized
+		Services.registerMessageListener(InvalidationMessage, SessionPrincipalCache::removeAll);
+		SessionIdListeners.registerSessionIdAddedListener(SessionPrincipalCache::put);
+		SessionIdListeners.registerSessionIdRemovedListener(SessionPrincipalCache::remove);
+	}
+
+	public static boolean isEnabled() {
+		return Settings.SessionPrincipalCacheSize.getValue() > 0;
+	}
+
+	/**
+	 * Returns the principal for the given session ID if the index
+	 * contains a valid entry for it, or null otherwise. The isPing flag
+	 * is passed to the database query if the principal is not cached.
+	 */
+	public static Principal get(final String sessionId, final boolean isPing) {
+
+		if (sessionId == null || !isEnabled()) {
+			return null;
+		}
+
+		final String uuid = cache.get(sessionId);
+		if (uuid != null) {
+
+			try {
+
+				final NodeInterface node = getPrincipal(uuid, isPing);
+				if (node instanceof Principal && ArrayUtils.contains(node.getProperty(StructrApp.key(Principal.class, "sessionIds")), sessionId)) {
+
+					return (Principal)node;
+				}
+
+			} catch (FrameworkException fex) {
+				// fall through and remove the entry
+			}
+
+			cache.remove(sessionId);
+		}
+
+		return null;
+	}
+
+	public static void put(final String sessionId, final Principal principal) {
+
+		if (sessionId != null && principal != null && isEnabled()) {
+
+			cache.put(sessionId, principal.getUuid());
+		}
+	}
+
+	/**
+	 * Removes the given session IDs from the local index and from the
+	 * indexes of all other cluster nodes, using a single cluster message.
+	 */
+	public static void invalidate(final Collection<String> sessionIds) {
+
+		if (sessionIds != null && !sessionIds.isEmpty() && isEnabled()) {
+
+			final List<String> list = new ArrayList<>(sessionIds);
+
+			cache.removeAll(list);
+
+			Services.getInstance().broadcastMessage(InvalidationMessage, list);
+		}
+	}
+
+	/**
+	 * Removes the given session ID from the local index only, used when
+	 * a session ID is removed from a principal. Other cluster nodes verify
+	 * the session ID on every lookup, so their entries can not
+	 * authenticate a request either.
+	 */
+	public static void remove(final String sessionId) {
+
+		if (sessionId != null) {
+
+			cache.remove(sessionId);
+		}
+	}
+
+	/**
+	 * Removes the given session IDs from the local index only, used
+	 * when an invalidation is received from another cluster node.
+	 */
+	public static void removeAll(final List<String> sessionIds) {
+
+		if (sessionIds != null) {
+
+			cache.removeAll(sessionIds);
+		}
+	}
+
+	public static void clear() {
+		cache.clear();
+	}
+
+	public static Map<String, Integer> getCacheInfo() {
+		return cache.getCacheInfo();
+	}
+
+	// ----- private methods -----
+	private static NodeInterface getPrincipal(final String uuid, final boolean isPing) throws FrameworkException {
+
+		final App app = StructrApp.getInstance();
+
+		if (isPing) {
+
+			return app.nodeQuery(Principal.class).uuid(uuid).disableSorting().isPing(true).getFirst();
+		}
+
+		return app.getNodeById(Principal.class, uuid);
+	}
+}
@@ -32,6 +32,7 @@ import org.structr.core.GraphObject;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.graphql.GraphQLQuery;
 import org.structr.core.graphql.GraphQLQueryConfiguration;
+import org.structr.core.graph.RelationshipPrefetcher;
 import org.structr.core.graphql.GraphQLRequest;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -39,6 +40,7 @@ import org.structr.schema.SchemaService;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
@@ -123,12 +125,14 @@ public class GraphQLWriter {
 				writer.name(query.getFieldName());
 				writer.beginArray();
 
-				final int softLimit = securityContext.getSoftLimit(0);
-				int count           = 0;
+				final Set<PropertyKey> keys          = query.getPropertyKeys(query.getRootPath());
+				final Iterator<GraphObject> iterator = RelationshipPrefetcher.iterator(query.getEntities(securityContext).iterator(), obj -> keys);
+				final int softLimit                  = securityContext.getSoftLimit(0);
+				int count                            = 0;
 
-				for (final GraphObject object : query.getEntities(securityContext)) {
+				while (iterator.hasNext()) {
 
-					root.serialize(writer, null, object, query, query.getRootPath());
+					root.serialize(writer, null, iterator.next(), query, query.getRootPath());
 
 					if (count++ > softLimit) {
 						break;
@@ -354,10 +358,13 @@ public class GraphQLWriter {
 			}
 
 			final int softLimit = securityContext.getSoftLimit(config.getPageSize());
+			final Iterator it   = RelationshipPrefetcher.iterator(value.iterator(), obj -> config.getPropertyKeys());
 
 			writer.beginArray();
 
-			for (Object o : value) {
+			while (it.hasNext()) {
+
+				final Object o = it.next();
 
 				if (predicate == null || predicate.accept(o)) {
 
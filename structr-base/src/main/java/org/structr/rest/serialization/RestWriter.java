@@ -55,6 +55,14 @@ public interface RestWriter {
 	public void raw(final String data) throws IOException;
 	public void flush() throws IOException;
 
+	/**
+	 * Indicates whether this writer supports raw output, which is required
+	 * for multi-threaded serialization into separate buffers.
+	 */
+	default public boolean supportsRawOutput() {
+		return false;
+	}
+
 	default public void increaseSerializationDepth() {
 
 		getSecurityContext().increaseSerializationDepth();
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.rest.serialization;
+
+import org.structr.api.config.Settings;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded thread pool that is shared by all StreamingWriter instances
+ * for multi-threaded JSON generation. Idle threads are released after
+ * a short timeout. When the queue is full, the submitting thread runs
+ * the task itself, so serialization degrades to single-threaded output
+ * instead of creating more threads.
+ */
+public class SerializationExecutor {
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+	private static final AtomicLong submitted      = new AtomicLong();
+	private static final AtomicLong completed      = new AtomicLong();
+	private static final AtomicLong callerRuns     = new AtomicLong();
+	private static final ThreadPoolExecutor pool   = createPool();
+
+	public static <T> Future<T> submit(final Callable<T> task) {
+
+		submitted.incrementAndGet();
+
+		return pool.submit(() -> {
+
+			try {
+
+				return task.call();
+
+			} finally {
+
+				completed.incrementAndGet();
+			}
+		});
+	}
+
+	public static int getParallelism() {
+		return pool.getMaximumPoolSize();
+	}
+
+	public static Map<String, Object> getInfo() {
+
+		final Map<String, Object> info = new LinkedHashMap<>();
+
+		info.put("parallelism", pool.getMaximumPoolSize());
+		info.put("threads",     pool.getPoolSize());
+		info.put("active",      pool.getActiveCount());
+		info.put("queued",      pool.getQueue().size());
+		info.put("submitted",   submitted.get());
+		info.put("completed",   completed.get());
+		info.put("callerRuns",  callerRuns.get());
+
+		return info;
+	}
+
+	// ----- private methods -----
+	private static ThreadPoolExecutor createPool() {
+
+		final int parallelism           = Math.max(1, Settings.JsonParallelizationThreads.getValue());
+		final ThreadPoolExecutor result = new ThreadPoolExecutor(parallelism, parallelism, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(parallelism * 16), r -> {
+
+			final Thread thread = new Thread(r, "JsonSerializer-" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+
+		}, (r, executor) -> {
+
+			callerRuns.incrementAndGet();
+
+			if (!executor.isShutdown()) {
+				r.run();
+			}
+		});
+
+		result.allowCoreThreadTimeOut(true);
+
+		return result;
+	}
+}
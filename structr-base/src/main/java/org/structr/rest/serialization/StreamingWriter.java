@@ -19,7 +19,6 @@
 package org.structr.rest.serialization;
 
 import jakarta.servlet.http.HttpServletRequest;
-import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.eclipse.jetty.io.QuietException;
 import org.slf4j.Logger;
@@ -36,6 +35,7 @@ import org.structr.core.Value;
 import org.structr.core.app.StructrApp;
 import org.structr.core.converter.PropertyConverter;
 import org.structr.core.entity.AbstractNode;
+import org.structr.core.graph.RelationshipPrefetcher;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
@@ -48,9 +48,10 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -58,11 +59,10 @@ import java.util.concurrent.Future;
  */
 public abstract class StreamingWriter {
 
-	private static final Logger logger                   = LoggerFactory.getLogger(StreamingWriter.class.getName());
-	private static final Set<PropertyKey> idTypeNameOnly = new LinkedHashSet<>(Arrays.asList(GraphObject.id, AbstractNode.type, AbstractNode.name));
+	private static final Logger logger                       = LoggerFactory.getLogger(StreamingWriter.class.getName());
+	private static final Set<PropertyKey> idTypeNameOnly     = new LinkedHashSet<>(Arrays.asList(GraphObject.id, AbstractNode.type, AbstractNode.name));
+	private static final Map<String, String> serializerCache = new ConcurrentHashMap<>();
 
-	private final ExecutorService threadPool              = Executors.newWorkStealingPool();
-	private final Map<String, Serializer> serializerCache = new LinkedHashMap<>();
 	private final Map<String, Serializer> serializers     = new LinkedHashMap<>();
 	private final Serializer<GraphObject> root            = new RootSerializer();
 	private final Set<String> nonSerializerClasses        = new LinkedHashSet<>();
@@ -75,7 +75,7 @@ public abstract class StreamingWriter {
 	private Value<String> propertyView                    = null;
 	protected boolean indent                              = true;
 	protected boolean wrapSingleResultInArray             = false;
-	private int skippedDeletedObjects                     = 0;
+	private final AtomicInteger skippedDeletedObjects     = new AtomicInteger();
 	private Integer overriddenResultCount                 = null;
 
 	private boolean reduceNestedObjectsForRestrictedViews = true;
@@ -193,17 +193,18 @@ public abstract class StreamingWriter {
 			}
 
 			// in the future more conditions could be added to show different warnings
-			final boolean hasWarnings = (skippedDeletedObjects > 0);
+			final int skipped         = skippedDeletedObjects.get();
+			final boolean hasWarnings = (skipped > 0);
 
 			if (hasWarnings) {
 
 				rootWriter.name("warnings").beginArray();
 
-				if (skippedDeletedObjects > 0) {
+				if (skipped > 0) {
 					rootWriter.beginObject();
 					rootWriter.name("token").value("SKIPPED_OBJECTS");
-					rootWriter.name("message").value("Skipped serializing " + skippedDeletedObjects + " object(s) because they were deleted between the creation and the serialization of the result. The result_count will differ from the number of returned results");
-					rootWriter.name("skipped").value(skippedDeletedObjects);
+					rootWriter.name("message").value("Skipped serializing " + skipped + " object(s) because they were deleted between the creation and the serialization of the result. The result_count will differ from the number of returned results");
+					rootWriter.name("skipped").value(skipped);
 					rootWriter.endObject();
 				}
 
@@ -237,8 +238,6 @@ public abstract class StreamingWriter {
 		// finished
 		rootWriter.endObject();
 		rootWriter.endDocument();
-
-		threadPool.shutdown();
 	}
 
 	public void setResultKeyName(final String resultKeyName) {
@@ -253,43 +252,45 @@ public abstract class StreamingWriter {
 		this.overriddenResultCount = resultCount;
 	}
 
-	private Serializer getSerializerForType(Class type) {
+	private Serializer getSerializerForType(final Class type) {
 
-		Class localType       = type;
-		Serializer serializer = serializerCache.get(type.getName());
+		final String typeName = type.getName();
 
-		if (serializer == null && !nonSerializerClasses.contains(type.getName())) {
+		if (nonSerializerClasses.contains(typeName)) {
+			return null;
+		}
 
-			do {
-				serializer = serializers.get(localType.getName());
+		// the lookup result is shared between all writers, the serializer instances are not
+		final String serializerName = serializerCache.computeIfAbsent(typeName, k -> findSerializerName(type));
 
-				if (serializer == null) {
+		return serializers.get(serializerName);
+	}
 
-					Set<Class> interfaces = new LinkedHashSet<>();
-					collectAllInterfaces(localType, interfaces);
+	private String findSerializerName(final Class type) {
 
-					for (Class interfaceType : interfaces) {
+		Class localType = type;
 
-						serializer = serializers.get(interfaceType.getName());
+		do {
+			if (serializers.containsKey(localType.getName())) {
+				return localType.getName();
+			}
 
-						if (serializer != null) {
-							break;
-						}
-					}
-				}
+			Set<Class> interfaces = new LinkedHashSet<>();
+			collectAllInterfaces(localType, interfaces);
 
-				localType = localType.getSuperclass();
+			for (Class interfaceType : interfaces) {
 
-			} while (serializer == null && !localType.equals(Object.class));
+				if (serializers.containsKey(interfaceType.getName())) {
+					return interfaceType.getName();
+				}
+			}
 
+			localType = localType.getSuperclass();
 
-			// cache found serializer
-			if (serializer != null) {
-				serializerCache.put(type.getName(), serializer);
-			}
-		}
+		} while (localType != null && !localType.equals(Object.class));
 
-		return serializer;
+		// no serializer, empty string marks the type as primitive
+		return "";
 	}
 
 	private void collectAllInterfaces(Class type, Set<Class> interfaces) {
@@ -421,7 +422,7 @@ public abstract class StreamingWriter {
 				final boolean notVisitedBefore = visitedObjects.add(hashCode);
 
 				if (source.getPropertyContainer() != null && source.getPropertyContainer().isDeleted()) {
-					skippedDeletedObjects++;
+					skippedDeletedObjects.incrementAndGet();
 					return 1;
 				}
 
@@ -498,7 +499,7 @@ public abstract class StreamingWriter {
 			final SecurityContext securityContext = parentWriter.getSecurityContext();
 			final int pageSize                    = parentWriter.getPageSize();
 			final int softLimit                   = securityContext.getSoftLimit(pageSize);
-			final Iterator iterator               = value.iterator();
+			final Iterator iterator               = doPrefetch(depth, localPropertyView) ? RelationshipPrefetcher.iterator(value.iterator(), obj -> obj.getPropertyKeys(localPropertyView)) : value.iterator();
 			final Object firstValue               = iterator.hasNext() ? iterator.next() : null;
 			final Object secondValue              = iterator.hasNext() ? iterator.next() : null;
 			long actualResultCount                = 0;
@@ -515,8 +516,12 @@ public abstract class StreamingWriter {
 
 				parentWriter.beginArray();
 
-				// prevent endless recursion by pruning at depth n
-				if (depth <= outputNestingDepth) {
+				// large result pages can be serialized by multiple threads
+				if (depth == 0 && depth <= outputNestingDepth && secondValue != null && securityContext.doMultiThreadedJsonOutput() && parentWriter.supportsRawOutput()) {
+
+					actualResultCount = serializeParallel(parentWriter, firstValue, secondValue, iterator, localPropertyView, visitedObjects, softLimit);
+
+				} else if (depth <= outputNestingDepth) {
 
 					// first value?
 					if (firstValue != null) {
@@ -613,65 +618,158 @@ public abstract class StreamingWriter {
 	}
 
 	// ----- private methods -----
-	private void doParallel(final List list, final RestWriter parentWriter, final Set<Integer> visitedObjects, final Operation op) {
+	private boolean doPrefetch(final int depth, final String localPropertyView) {
 
-		final SecurityContext securityContext = parentWriter.getSecurityContext();
-		final int numberOfPartitions          = (int)Math.rint(Math.log(list.size())) + 1;
-		final List<List> partitions           = ListUtils.partition(list, numberOfPartitions);
-		final List<Future<String>> futures    = new LinkedList<>();
+		if (depth > outputNestingDepth) {
+			return false;
+		}
 
-		for (final List partition : partitions) {
+		// nested objects in restricted views are reduced to (id, type, name), see RootSerializer
+		return !(reduceNestedObjectsForRestrictedViews && depth > reduceNestedObjectsInRestrictedViewsDepth && Schema.RestrictedViews.contains(localPropertyView));
+	}
 
-			futures.add(threadPool.submit(() -> {
+	/**
+	 * Serializes the elements of a result page in chunks on the shared
+	 * serialization executor. Each chunk is rendered into its own buffer,
+	 * the buffers are written in order as soon as they are complete, and
+	 * at most a few chunks per thread are in flight at any time. Each chunk
+	 * uses its own copy of the security context, which is not thread-safe.
+	 */
+	private long serializeParallel(final RestWriter parentWriter, final Object firstValue, final Object secondValue, final Iterator iterator, final String localPropertyView, final Set<Integer> visitedObjects, final int softLimit) throws IOException {
 
-				final StringWriter buffer = new StringWriter();
+		final SecurityContext securityContext = parentWriter.getSecurityContext();
+		final int chunkSize                   = Math.max(1, Settings.JsonParallelizationThreshold.getValue());
+		final int maxPending                  = SerializationExecutor.getParallelism() * 2;
+		final Deque<Future<String>> pending   = new ArrayDeque<>();
+		List<Object> chunk                    = new ArrayList<>(chunkSize);
+		boolean first                         = true;
+		long count                            = 2L;
 
-				// avoid deadlocks by preventing writes in this transaction
-				securityContext.setReadOnlyTransaction();
+		chunk.add(firstValue);
+		chunk.add(secondValue);
 
-				try (final Tx tx = StructrApp.getInstance(securityContext).tx(false, false, false)) {
+		try {
 
-					final RestWriter bufferingRestWriter = getRestWriter(securityContext, buffer);
-					final Set<Integer> nestedObjects     = new LinkedHashSet<>(visitedObjects);
-					configureWriter(bufferingRestWriter);
+			while (iterator.hasNext() && count < softLimit) {
 
-					bufferingRestWriter.beginArray();
+				chunk.add(iterator.next());
+				count++;
 
-					for (final Object o : partition) {
+				if (chunk.size() >= chunkSize) {
 
-						op.run(bufferingRestWriter, o, nestedObjects);
-					}
+					pending.add(submitChunk(securityContext, chunk, localPropertyView, visitedObjects));
+					chunk = new ArrayList<>(chunkSize);
 
-					bufferingRestWriter.endArray();
-					bufferingRestWriter.flush();
+					while (pending.size() >= maxPending) {
 
-					tx.success();
+						first = writeChunk(parentWriter, pending.poll(), first);
+					}
 				}
+			}
+
+			if (!chunk.isEmpty()) {
+				pending.add(submitChunk(securityContext, chunk, localPropertyView, visitedObjects));
+			}
+
+			while (!pending.isEmpty()) {
 
-				final String data = buffer.toString();
-				final String sub  = data.substring(1, data.length() - 1);
+				first = writeChunk(parentWriter, pending.poll(), first);
+			}
 
-				return sub;
+		} finally {
 
-			}));
+			for (final Future<String> future : pending) {
+				future.cancel(true);
+			}
 		}
 
-		for (final Iterator<Future<String>> it = futures.iterator(); it.hasNext();) {
+		return count;
+	}
 
-			try {
+	private Future<String> submitChunk(final SecurityContext securityContext, final List<Object> chunk, final String localPropertyView, final Set<Integer> visitedObjects) {
+
+		final Set<Integer> nestedObjects    = new LinkedHashSet<>(visitedObjects);
+		final SecurityContext workerContext = securityContext.copy();
+
+		// avoid deadlocks by preventing writes in the serialization transactions
+		workerContext.setReadOnlyTransaction();
+
+		return SerializationExecutor.submit(() -> {
+
+			final StringWriter buffer = new StringWriter();
 
-				final Future<String> future = it.next();
-				final String raw            = future.get();
+			try (final Tx tx = StructrApp.getInstance(workerContext).tx(false, false, false)) {
 
-				parentWriter.raw(raw);
+				final RestWriter bufferingRestWriter = getRestWriter(workerContext, buffer);
+				configureWriter(bufferingRestWriter);
 
-				if (it.hasNext()) {
+				bufferingRestWriter.beginArray();
+
+				for (final Object o : chunk) {
+
+					if (o instanceof GraphObject) {
+
+						final GraphObject graphObject         = (GraphObject)o;
+						final SecurityContext previousContext = graphObject.getSecurityContext();
+
+						// objects evaluate their properties in the worker security context while they are serialized
+						graphObject.setSecurityContext(workerContext);
+
+						try {
+
+							root.serializeRoot(bufferingRestWriter, o, localPropertyView, 0, nestedObjects);
+
+						} finally {
+
+							graphObject.setSecurityContext(previousContext);
+						}
+
+					} else {
+
+						root.serializeRoot(bufferingRestWriter, o, localPropertyView, 0, nestedObjects);
+					}
+				}
+
+				bufferingRestWriter.endArray();
+				bufferingRestWriter.flush();
+
+				tx.success();
+			}
+
+			final String data = buffer.toString();
+
+			return data.substring(1, data.length() - 1);
+		});
+	}
+
+	private boolean writeChunk(final RestWriter parentWriter, final Future<String> future, final boolean first) throws IOException {
+
+		try {
+
+			final String data = future.get();
+
+			if (!data.isEmpty()) {
+
+				if (!first) {
 					parentWriter.raw(",");
 				}
 
-			} catch (Throwable t) {
-				logger.error(ExceptionUtils.getStackTrace(t));
+				parentWriter.raw(data);
+
+				return false;
 			}
+
+			return first;
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+			throw new IOException(iex);
+
+		} catch (ExecutionException eex) {
+
+			logger.error(ExceptionUtils.getStackTrace(eex.getCause()));
+			throw new IOException(eex.getCause());
 		}
 	}
 
@@ -684,11 +782,6 @@ public abstract class StreamingWriter {
 		throw new NullPointerException();
 	}
 
-	private interface Operation {
-
-		public void run(final RestWriter writer, final Object o, final Set<Integer> visitedObjects) throws IOException;
-	}
-
 	private static class JsonProgressWatcher implements ProgressWatcher, AutoCloseable {
 
 		private final SimpleDateFormat df = new SimpleDateFormat("yyyyMMdd-HHmmss");
@@ -152,6 +152,11 @@ public class StructrJsonWriter implements RestWriter {
 		rawWriter.flush();
 	}
 
+	@Override
+	public boolean supportsRawOutput() {
+		return true;
+	}
+
 	@Override
 	public void flush() throws IOException {
 		writer.flush();
@@ -32,8 +32,8 @@ import org.structr.core.entity.Principal;
 import org.structr.core.entity.SessionDataNode;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
-import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.rest.auth.AuthHelper;
 
 import java.util.Date;
 import java.util.HashSet;
@@ -65,9 +65,7 @@ public class StructrSessionDataStore extends AbstractSessionDataStore {
 
 		try (final Tx tx = app.tx()) {
 
-			final PropertyKey<String[]> key = StructrApp.key(Principal.class, "sessionIds");
-			final String[] value            = new String[] { id };
-			final Principal user            = app.nodeQuery(Principal.class).and(key, value).disableSorting().getFirst();
+			final Principal user = AuthHelper.getPrincipalForSessionId(id);
 
 			if (user != null) {
 
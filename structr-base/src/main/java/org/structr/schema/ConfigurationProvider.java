@@ -46,6 +46,7 @@ public interface ConfigurationProvider {
 
 	public void unregisterEntityType(final Class oldType);
 	public void registerEntityType(final Class newType);
+	public void publishEntityTypes();
 	public void registerEntityCreationTransformation(final Class type, final Transformation<GraphObject> transformation);
 
 	public Map<String, Class<? extends Agent>> getAgents();
@@ -272,6 +272,9 @@ public class SchemaService implements Service {
 								}
 							}
 
+							// make the new types visible to all other threads
+							config.publishEntityTypes();
+
 							// calculate difference between previous and new classes
 							removedClasses.keySet().removeAll(translateRelationshipClassesToRelTypes(StructrApp.getConfiguration().getTypeAndPropertyMapping()).keySet());
 
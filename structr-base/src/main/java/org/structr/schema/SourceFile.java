@@ -38,6 +38,8 @@ public class SourceFile extends SimpleJavaFileObject {
 	public SourceFile(final String className) {
 
 		super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+
+		this.className = className;
 	}
 
 	public void importLine(final String className) {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.schema.compiler;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Stores the byte code of compiled dynamic types on disk. Each top-level
+ * class is stored in a directory named after its key, together with its
+ * inner classes. The key must change whenever the compiled byte code of
+ * the class would change.
+ */
+public class ClassFileCache {
+
+	private static final Logger logger   = LoggerFactory.getLogger(ClassFileCache.class);
+	private static final String SUFFIX   = ".class";
+
+	private final Path directory;
+
+	public ClassFileCache(final Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Returns the class files stored under the given key, mapped by their
+	 * binary names, or null if there is no complete entry for the key.
+	 */
+	public Map<String, byte[]> load(final String key) {
+
+		final Path entry = directory.resolve(key);
+		if (Files.isDirectory(entry)) {
+
+			final Map<String, byte[]> classes = new LinkedHashMap<>();
+
+			try (final Stream<Path> files = Files.list(entry)) {
+
+				for (final Path file : (Iterable<Path>)files::iterator) {
+
+					final String fileName = file.getFileName().toString();
+					if (fileName.endsWith(SUFFIX)) {
+
+						classes.put(fileName.substring(0, fileName.length() - SUFFIX.length()), Files.readAllBytes(file));
+					}
+				}
+
+				if (!classes.isEmpty()) {
+
+					// the modification time records the last use, see removeUnused
+					Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+
+					return classes;
+				}
+
+			} catch (IOException ioex) {
+				logger.warn("Unable to read cached classes from {}: {}", entry, ioex.getMessage());
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Stores the given class files under the given key. The files are written
+	 * to a temporary directory first, so an entry is either complete or absent.
+	 */
+	public void store(final String key, final Map<String, byte[]> classes) {
+
+		final Path entry = directory.resolve(key);
+		if (Files.isDirectory(entry)) {
+			return;
+		}
+
+		Path tmp = null;
+
+		try {
+
+			Files.createDirectories(directory);
+
+			tmp = Files.createTempDirectory(directory, key);
+
+			for (final Map.Entry<String, byte[]> cls : classes.entrySet()) {
+				Files.write(tmp.resolve(cls.getKey() + SUFFIX), cls.getValue());
+			}
+
+			Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE);
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to write compiled classes to {}: {}", entry, ioex.getMessage());
+
+			if (tmp != null) {
+				FileUtils.deleteQuietly(tmp.toFile());
+			}
+		}
+	}
+
+	/**
+	 * Returns a hash over the name, size and modification time of every jar
+	 * file and every class file in the directories of the given class path,
+	 * or null if the class path cannot be read. Unlike the version string,
+	 * this changes with every rebuild of a development or IDE build.
+	 */
+	public static String getFingerprint(final String classPath) {
+
+		final StringBuilder buf = new StringBuilder();
+
+		try {
+
+			for (final String element : classPath.split(File.pathSeparator)) {
+
+				final Path path = Path.of(element);
+
+				if (Files.isDirectory(path)) {
+
+					try (final Stream<Path> files = Files.walk(path)) {
+
+						for (final Path file : (Iterable<Path>)files.sorted()::iterator) {
+
+							if (file.getFileName().toString().endsWith(SUFFIX) && Files.isRegularFile(file)) {
+								appendFileInfo(buf, file);
+							}
+						}
+					}
+
+				} else if (Files.isRegularFile(path)) {
+
+					appendFileInfo(buf, path);
+				}
+			}
+
+		} catch (IOException | InvalidPathException ex) {
+
+			logger.warn("Unable to fingerprint class path: {}", ex.getMessage());
+			return null;
+		}
+
+		return DigestUtils.md5Hex(buf.toString());
+	}
+
+	/**
+	 * Removes the least recently used entries until at most maxEntries
+	 * entries are left. Entries with the given keys are always kept. The
+	 * cache can be shared by instances with a different class path (e.g.
+	 * during a rolling update), so entries of other instances are only
+	 * removed when the cache is full.
+	 */
+	public void removeUnused(final Set<String> keys, final int maxEntries) {
+
+		if (!Files.isDirectory(directory)) {
+			return;
+		}
+
+		final List<Path> unused = new ArrayList<>();
+		int count               = 0;
+
+		try (final Stream<Path> entries = Files.list(directory)) {
+
+			for (final Path entry : (Iterable<Path>)entries::iterator) {
+
+				if (!keys.contains(entry.getFileName().toString())) {
+					unused.add(entry);
+				}
+
+				count++;
+			}
+
+			// oldest first
+			unused.sort(Comparator.comparingLong(ClassFileCache::getLastModified));
+
+			for (final Path entry : unused) {
+
+				if (count <= maxEntries) {
+					break;
+				}
+
+				if (FileUtils.deleteQuietly(entry.toFile())) {
+
+					count--;
+
+				} else {
+
+					logger.debug("Unable to remove cached classes in {}", entry);
+				}
+			}
+
+		} catch (IOException ioex) {
+			logger.warn("Unable to clean up compiled classes in {}: {}", directory, ioex.getMessage());
+		}
+	}
+
+	// ----- private methods -----
+	private static long getLastModified(final Path path) {
+
+		try {
+
+			return Files.getLastModifiedTime(path).toMillis();
+
+		} catch (IOException ioex) {
+			return 0L;
+		}
+	}
+
+	private static void appendFileInfo(final StringBuilder buf, final Path file) throws IOException {
+		buf.append(file).append(Files.size(file)).append(Files.getLastModifiedTime(file).toMillis());
+	}
+}
@@ -55,6 +55,20 @@ public class JavaClassObject extends SimpleJavaFileObject {
 		this.className = name;
 	}
 
+	/**
+	 * Registers an already compiled class object, e.g. from the class
+	 * file cache.
+	 *
+	 * @param name Full name of the compiled class
+	 * @param bytes the byte code of the class
+	 */
+	public JavaClassObject(String name, byte[] bytes) {
+
+		this(name, Kind.CLASS);
+
+		bos.write(bytes, 0, bytes.length);
+	}
+
 	/**
 	 * Will be used by our file manager to get the byte code that can be put
 	 * into memory to instantiate our class
@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Predicate;
 import org.structr.api.config.Settings;
+import org.structr.common.VersionHelper;
 import org.structr.common.error.DiagnosticErrorToken;
 import org.structr.common.error.ErrorBuffer;
 import org.structr.core.Services;
@@ -37,7 +38,10 @@ import javax.tools.*;
 import javax.tools.Diagnostic.Kind;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
@@ -48,23 +52,29 @@ import static org.apache.commons.codec.digest.DigestUtils.md5Hex;
  */
 public class NodeExtender {
 
-	private static final Logger logger   = LoggerFactory.getLogger(NodeExtender.class.getName());
+	private static final Logger logger          = LoggerFactory.getLogger(NodeExtender.class.getName());
+	private static final int CachedVersionCount = 4;
 
 	private static final JavaCompiler compiler           = ToolProvider.getSystemJavaCompiler();
 	private static final ClassFileManager fileManager    = new ClassFileManager(compiler.getStandardFileManager(null, null, null));
 	private static final ClassLoader classLoader         = fileManager.getClassLoader(null);
 	private static final Map<String, Class> classes      = new TreeMap<>();
 	private static final Map<String, String> contentsMD5 = new HashMap<>();
+	private static final Map<String, String> classKeys   = new HashMap<>();
+	private static final Pattern identifierPattern       = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+	private static String environment                    = null;
 
-	private List<SourceFile> sources     = null;
-	private Set<String> fqcns            = null;
-	private String initiatedBySessionId  = null;
-	private boolean fullReload           = false;
+	private Map<String, SourceFile> allSources = null;
+	private List<SourceFile> sources           = null;
+	private Set<String> fqcns                  = null;
+	private String initiatedBySessionId        = null;
+	private boolean fullReload                 = false;
 
 	public NodeExtender(final String initiatedBySessionId, final boolean fullReload) {
 
 		this.initiatedBySessionId = initiatedBySessionId;
 		this.fullReload           = fullReload;
+		this.allSources           = new LinkedHashMap<>();
 		this.sources              = new ArrayList<>();
 		this.fqcns                = new LinkedHashSet<>();
 	}
@@ -87,6 +97,7 @@ public class NodeExtender {
 
 			final String fqcn = getFQCNForClassname(className);
 			fqcns.add(fqcn);
+			allSources.put(fqcn, sourceFile);
 
 			// skip if not changed
 			String oldMD5 = contentsMD5.get(fqcn);
@@ -117,18 +128,69 @@ public class NodeExtender {
 
 	public synchronized Map<String, Class> compile(final ErrorBuffer errorBuffer) throws ClassNotFoundException {
 
-		final Writer errorWriter     = new StringWriter();
-		final List<Class> newClasses = new LinkedList<>();
+		final Writer errorWriter          = new StringWriter();
+		final List<Class> newClasses      = new LinkedList<>();
+		final List<SourceFile> uncached   = new LinkedList<>();
+		final ClassFileCache classCache   = getClassFileCache();
+		final String environment          = classCache != null ? getEnvironment() : null;
+		final Map<String, String> keys    = getClassKeys(environment);
+		final ClassFileCache cache        = environment != null ? classCache : null;
+		final Set<String> selected        = new HashSet<>();
+
+		for (final SourceFile sf : sources) {
+			selected.add(getFQCNForClassname(sf.getClassName()));
+		}
+
+		// types that depend on a changed type must be recompiled as well
+		for (final Map.Entry<String, SourceFile> entry : allSources.entrySet()) {
+
+			final String fqcn = entry.getKey();
+
+			if (!selected.contains(fqcn) && !keys.get(fqcn).equals(classKeys.get(fqcn))) {
+
+				sources.add(entry.getValue());
+				selected.add(fqcn);
+			}
+		}
+
+		// load unchanged types from the class file cache
+		for (final SourceFile sf : sources) {
+
+			final String fqcn                      = getFQCNForClassname(sf.getClassName());
+			final Map<String, byte[]> cachedClasses = cache != null ? cache.load(keys.get(fqcn)) : null;
+
+			if (cachedClasses != null) {
+
+				removeClassObjects(fqcn);
+
+				for (final Map.Entry<String, byte[]> cachedClass : cachedClasses.entrySet()) {
+					fileManager.objects.put(cachedClass.getKey(), new JavaClassObject(cachedClass.getKey(), cachedClass.getValue()));
+				}
+
+			} else {
+
+				uncached.add(sf);
+			}
+		}
 
 		if (!sources.isEmpty()) {
 
-			logger.info("Compiling {} dynamic entities...", sources.size());
+			Boolean success = true;
+
+			if (sources.size() > uncached.size()) {
+				logger.info("Loaded {} dynamic entities from cache", sources.size() - uncached.size());
+			}
+
+			if (!uncached.isEmpty()) {
 
-			final long t0 = System.currentTimeMillis();
+				logger.info("Compiling {} dynamic entities...", uncached.size());
 
-			Boolean success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), Arrays.asList("-g"), null, sources).call();
+				final long t0 = System.currentTimeMillis();
 
-			logger.info("Compiling done in {} ms", System.currentTimeMillis() - t0);
+				success = compiler.getTask(errorWriter, fileManager, new Listener(errorBuffer), Arrays.asList("-g"), null, uncached).call();
+
+				logger.info("Compiling done in {} ms", System.currentTimeMillis() - t0);
+			}
 
 			if (success) {
 
@@ -138,6 +200,20 @@ public class NodeExtender {
 					final String fqcn = getFQCNForClassname(sf.getClassName());
 
 					contentsMD5.put(fqcn, md5Hex(sf.getContent()));
+					classKeys.put(fqcn, keys.get(fqcn));
+				}
+
+				if (cache != null) {
+
+					for (final SourceFile sf : uncached) {
+
+						final String fqcn = getFQCNForClassname(sf.getClassName());
+
+						cache.store(keys.get(fqcn), getClassObjects(fqcn));
+					}
+
+					// leave room for the types of other class path versions that share the cache
+					cache.removeUnused(new HashSet<>(keys.values()), keys.size() * CachedVersionCount);
 				}
 
 				final ClassLoader loader = fileManager.getClassLoader(null);
@@ -172,8 +248,9 @@ public class NodeExtender {
 				// remove deleted classes (note: handle inner classes)
 				fileManager.objects.entrySet().removeIf(entry -> !fqcns.contains(entry.getKey().split("\\$")[0]));
 				contentsMD5.entrySet().removeIf(entry -> !fqcns.contains(entry.getKey()));
+				classKeys.entrySet().removeIf(entry -> !fqcns.contains(entry.getKey()));
 
-				logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { sources.size(), sources.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
+				logger.info("Successfully compiled {} dynamic entities: {}", new Object[] { uncached.size(), uncached.stream().map(f -> f.getName().replaceFirst("/", "")).collect(Collectors.joining(", ")) });
 
 				final Map<String, Object> data = new LinkedHashMap();
 				data.put("success", true);
@@ -198,6 +275,118 @@ public class NodeExtender {
 		return JarConfigurationProvider.DYNAMIC_TYPES_PACKAGE + "." + className;
 	}
 
+	/**
+	 * Calculates a key for each dynamic type that changes whenever the source
+	 * code of the type or of one of the dynamic types it depends on (directly
+	 * or transitively) changes, or when the given environment changes.
+	 */
+	private Map<String, String> getClassKeys(final String environment) {
+
+		final Map<String, String> hashes            = new LinkedHashMap<>();
+		final Map<String, String> names             = new LinkedHashMap<>();
+		final Map<String, Set<String>> dependencies = new LinkedHashMap<>();
+		final Map<String, String> keys              = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, SourceFile> entry : allSources.entrySet()) {
+
+			hashes.put(entry.getKey(), md5Hex(entry.getValue().getContent()));
+			names.put(entry.getValue().getClassName(), entry.getKey());
+		}
+
+		// collect references to other dynamic types from the source code
+		for (final Map.Entry<String, SourceFile> entry : allSources.entrySet()) {
+
+			final Set<String> direct = new HashSet<>();
+			final Matcher matcher    = identifierPattern.matcher(entry.getValue().getContent());
+
+			while (matcher.find()) {
+
+				final String dependency = names.get(matcher.group());
+				if (dependency != null && !dependency.equals(entry.getKey())) {
+
+					direct.add(dependency);
+				}
+			}
+
+			dependencies.put(entry.getKey(), direct);
+		}
+
+		for (final String fqcn : allSources.keySet()) {
+
+			final Set<String> closure    = new TreeSet<>();
+			final Deque<String> queue    = new ArrayDeque<>(dependencies.get(fqcn));
+			final StringBuilder buf      = new StringBuilder().append(environment).append(fqcn).append(hashes.get(fqcn));
+
+			while (!queue.isEmpty()) {
+
+				final String dependency = queue.pop();
+
+				if (!dependency.equals(fqcn) && closure.add(dependency)) {
+					queue.addAll(dependencies.get(dependency));
+				}
+			}
+
+			for (final String dependency : closure) {
+				buf.append(dependency).append(hashes.get(dependency));
+			}
+
+			keys.put(fqcn, md5Hex(buf.toString()));
+		}
+
+		return keys;
+	}
+
+	private Map<String, byte[]> getClassObjects(final String fqcn) {
+
+		final Map<String, byte[]> result = new LinkedHashMap<>();
+
+		for (final Map.Entry<String, JavaClassObject> entry : fileManager.objects.entrySet()) {
+
+			if (fqcn.equals(entry.getKey().split("\\$")[0])) {
+				result.put(entry.getKey(), entry.getValue().getBytes());
+			}
+		}
+
+		return result;
+	}
+
+	private void removeClassObjects(final String fqcn) {
+		fileManager.objects.entrySet().removeIf(entry -> fqcn.equals(entry.getKey().split("\\$")[0]));
+	}
+
+	/**
+	 * Returns a hash of the Structr version, the Java runtime and the class
+	 * files on the class path, or null if the class path could not be read
+	 * and cached classes must not be used. The version alone is not enough
+	 * because development builds all report the same version string.
+	 * Hashing the class path is expensive, so it is only done when the class
+	 * file cache is enabled.
+	 */
+	private static synchronized String getEnvironment() {
+
+		if (environment == null) {
+
+			final String fingerprint = ClassFileCache.getFingerprint(VersionHelper.getClassPath());
+			if (fingerprint != null) {
+
+				environment = md5Hex(VersionHelper.getFullVersionInfo() + Runtime.version() + fingerprint);
+			}
+		}
+
+		return environment;
+	}
+
+	private ClassFileCache getClassFileCache() {
+
+		final String path = Settings.SchemaCachePath.getValue();
+		if (StringUtils.isBlank(path)) {
+
+			return null;
+		}
+
+		return new ClassFileCache(Paths.get(Settings.getFullSettingPath(Settings.SchemaCachePath)));
+	}
+
 	private static class Listener implements DiagnosticListener<JavaFileObject> {
 
 		private ErrorBuffer errorBuffer = null;
@@ -21,11 +21,15 @@ package org.structr.storage;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.LoggerFactory;
+import org.structr.api.util.FixedSizeCache;
 import org.structr.web.entity.AbstractFile;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
 import org.structr.web.entity.StorageConfiguration;
 
 /**
@@ -33,6 +37,9 @@ import org.structr.web.entity.StorageConfiguration;
  */
 public abstract class AbstractStorageProvider implements StorageProvider {
 
+	private static final FixedSizeCache<String, Long> writeVersions = new FixedSizeCache<>("Storage write versions", 10_000);
+	private static long writeCounter                                = 0L;
+
 	private final StorageConfiguration config;
 	private final AbstractFile file;
 	private final String name;
@@ -79,6 +86,16 @@ public abstract class AbstractStorageProvider implements StorageProvider {
 		return false;
 	}
 
+	/**
+	 * Returns the version of the last write to the content of the given
+	 * file, or null if it is not known. The version changes whenever the
+	 * content is opened for writing through a storage provider, so data
+	 * that was derived from a write can be checked against later writes.
+	 */
+	public static Long getWriteVersion(final AbstractFile file) {
+		return writeVersions.get(file.getUuid());
+	}
+
 	@Override
 	public void moveTo(final StorageProvider newFileStorageProvider) {
 
@@ -105,4 +122,24 @@ public abstract class AbstractStorageProvider implements StorageProvider {
 			}
 		}
 	}
+
+	// ----- protected methods -----
+	/**
+	 * Must be called by the implementations whenever the content of the
+	 * file is opened for writing.
+	 */
+	protected void registerWrite() {
+
+		synchronized (writeVersions) {
+
+			writeVersions.put(getAbstractFile().getUuid(), ++writeCounter);
+		}
+	}
+
+	protected void registerWrite(final Set<? extends OpenOption> options) {
+
+		if (options.contains(StandardOpenOption.WRITE) || options.contains(StandardOpenOption.APPEND)) {
+			registerWrite();
+		}
+	}
 }
@@ -77,6 +77,8 @@ public class LocalFSStorageProvider extends AbstractStorageProvider {
 		try {
 
 			ensureFileExists();
+			registerWrite();
+
 			return new FileOutputStream(fsHelper.getFileOnDisk(getAbstractFile()), append);
 		} catch (FileNotFoundException ex) {
 
@@ -101,6 +103,8 @@ public class LocalFSStorageProvider extends AbstractStorageProvider {
 		try {
 
 			ensureFileExists();
+			registerWrite(options);
+
 			return FileChannel.open(fsHelper.getFileOnDisk(getAbstractFile()).toPath(), options);
 		} catch (IOException ex) {
 
@@ -55,7 +55,7 @@ public class InMemoryStorageProvider extends AbstractStorageProvider {
 
 	@Override
 	public OutputStream getOutputStream() {
-		return new InMemoryOutputStream(false);
+		return getOutputStream(false);
 	}
 
 	@Override
@@ -70,12 +70,17 @@ public class InMemoryStorageProvider extends AbstractStorageProvider {
 
 	@Override
 	public OutputStream getOutputStream(boolean append) {
+
+		registerWrite();
+
 		return new InMemoryOutputStream(append);
 	}
 
 	@Override
 	public SeekableByteChannel getSeekableByteChannel(final Set<? extends OpenOption> options) {
 
+		registerWrite(options);
+
 		return new SavingInMemorySeekableByteChannel();
 	}
 
@@ -26,10 +26,11 @@ import java.util.Queue;
  *
  *
  */
-public class AsyncBuffer {
+public class AsyncBuffer implements RenderBuffer {
 
 	private final Queue<String> queue = new ArrayDeque<>(1000);
 
+	@Override
 	public AsyncBuffer append(final String s) {
 
 		synchronized(queue) {
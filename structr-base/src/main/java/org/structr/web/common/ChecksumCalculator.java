@@ -0,0 +1,241 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.core.app.StructrApp;
+import org.structr.core.property.PropertyMap;
+import org.structr.web.entity.File;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.util.zip.CRC32;
+
+/**
+ * Computes the additional checksums of a file (crc32, md5, sha1 and
+ * sha512) from the bytes that pass through a wrapped stream, so all
+ * of them can be calculated in a single pass over the file content.
+ *
+ * The xxHash in File.checksum is not streamable and must be set from
+ * the outside.
+ */
+public class ChecksumCalculator {
+
+	private final String enabledChecksums;
+	private final CRC32 crc32;
+	private final MessageDigest md5;
+	private final MessageDigest sha1;
+	private final MessageDigest sha512;
+	private PropertyMap digests = null;
+	private Long writeVersion   = null;
+	private Long checksum       = null;
+	private long size           = 0L;
+
+	public ChecksumCalculator(final String enabledChecksums) {
+
+		this.enabledChecksums = enabledChecksums;
+		this.crc32            = StringUtils.contains(enabledChecksums, "crc32")  ? new CRC32()                   : null;
+		this.md5              = StringUtils.contains(enabledChecksums, "md5")    ? DigestUtils.getMd5Digest()    : null;
+		this.sha1             = StringUtils.contains(enabledChecksums, "sha1")   ? DigestUtils.getSha1Digest()   : null;
+		this.sha512           = StringUtils.contains(enabledChecksums, "sha512") ? DigestUtils.getSha512Digest() : null;
+	}
+
+	public void update(final byte[] buffer, final int offset, final int length) {
+
+		if (length <= 0) {
+			return;
+		}
+
+		if (crc32 != null) {
+			crc32.update(buffer, offset, length);
+		}
+
+		if (md5 != null) {
+			md5.update(buffer, offset, length);
+		}
+
+		if (sha1 != null) {
+			sha1.update(buffer, offset, length);
+		}
+
+		if (sha512 != null) {
+			sha512.update(buffer, offset, length);
+		}
+
+		size += length;
+	}
+
+	public InputStream wrap(final InputStream inputStream) {
+		return new CalculatingInputStream(inputStream);
+	}
+
+	public OutputStream wrap(final OutputStream outputStream) {
+		return new CalculatingOutputStream(outputStream);
+	}
+
+	public Long getChecksum() {
+		return checksum;
+	}
+
+	public void setChecksum(final Long checksum) {
+		this.checksum = checksum;
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Sets the write version of the content that passed through this
+	 * calculator, see AbstractStorageProvider.getWriteVersion.
+	 */
+	public void setWriteVersion(final Long writeVersion) {
+		this.writeVersion = writeVersion;
+	}
+
+	/**
+	 * Indicates whether this calculator has seen the content of the given
+	 * write, exactly the given number of bytes, and was created for the
+	 * given set of enabled checksums.
+	 */
+	public boolean matches(final Long writeVersion, final String enabledChecksums, final long size) {
+		return this.writeVersion != null && this.writeVersion.equals(writeVersion) && this.size == size && StringUtils.equals(this.enabledChecksums, enabledChecksums);
+	}
+
+	/**
+	 * Returns the checksum properties of this calculator. The digests are
+	 * finished on the first call, so no more bytes may be added afterwards.
+	 */
+	public PropertyMap getProperties() {
+
+		if (digests == null) {
+
+			digests = new PropertyMap();
+
+			if (crc32 != null) {
+				digests.put(StructrApp.key(File.class, "crc32"), crc32.getValue());
+			}
+
+			if (md5 != null) {
+				digests.put(StructrApp.key(File.class, "md5"), Hex.encodeHexString(md5.digest()));
+			}
+
+			if (sha1 != null) {
+				digests.put(StructrApp.key(File.class, "sha1"), Hex.encodeHexString(sha1.digest()));
+			}
+
+			if (sha512 != null) {
+				digests.put(StructrApp.key(File.class, "sha512"), Hex.encodeHexString(sha512.digest()));
+			}
+		}
+
+		final PropertyMap properties = new PropertyMap();
+
+		properties.put(StructrApp.key(File.class, "checksum"), checksum);
+		properties.putAll(digests);
+
+		return properties;
+	}
+
+	// ----- nested classes -----
+	private class CalculatingInputStream extends FilterInputStream {
+
+		public CalculatingInputStream(final InputStream inputStream) {
+			super(inputStream);
+		}
+
+		@Override
+		public int read() throws IOException {
+
+			final int b = super.read();
+			if (b != -1) {
+
+				update(new byte[] { (byte)b }, 0, 1);
+			}
+
+			return b;
+		}
+
+		@Override
+		public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+
+			final int count = super.read(buffer, offset, length);
+
+			update(buffer, offset, count);
+
+			return count;
+		}
+
+		@Override
+		public long skip(final long n) throws IOException {
+
+			if (n <= 0) {
+				return 0L;
+			}
+
+			// skipped bytes must pass through the digests as well
+			final byte[] buffer = new byte[(int)Math.min(n, 8192)];
+			long remaining      = n;
+
+			while (remaining > 0) {
+
+				final int count = read(buffer, 0, (int)Math.min(remaining, buffer.length));
+				if (count < 0) {
+					break;
+				}
+
+				remaining -= count;
+			}
+
+			return n - remaining;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	private class CalculatingOutputStream extends FilterOutputStream {
+
+		public CalculatingOutputStream(final OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(final int b) throws IOException {
+
+			out.write(b);
+			update(new byte[] { (byte)b }, 0, 1);
+		}
+
+		@Override
+		public void write(final byte[] buffer, final int offset, final int length) throws IOException {
+
+			out.write(buffer, offset, length);
+			update(buffer, offset, length);
+		}
+	}
+}
@@ -47,6 +47,7 @@ import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
+import org.structr.storage.AbstractStorageProvider;
 import org.structr.storage.StorageProvider;
 import org.structr.storage.StorageProviderFactory;
 import org.structr.util.Base64;
@@ -71,6 +72,7 @@ import java.util.zip.CRC32;
  */
 public class FileHelper {
 
+	private static final String PENDING_CHECKSUMS_KEY     = "pendingChecksums";
 	private static final String UNKNOWN_MIME_TYPE         = "application/octet-stream";
 	private static final Logger logger                    = LoggerFactory.getLogger(FileHelper.class.getName());
 	private static final MimetypesFileTypeMap mimeTypeMap = new MimetypesFileTypeMap(FileHelper.class.getResourceAsStream("/mime.types"));
@@ -417,42 +419,70 @@ public class FileHelper {
 	 */
 	private static PropertyMap getChecksums(final File file) throws IOException {
 
-		final PropertyMap propertiesWithChecksums = new PropertyMap();
+		// pending checksums are only valid for the next calculation after the write
+		final ChecksumCalculator pending = (ChecksumCalculator)file.getTemporaryStorage().remove(PENDING_CHECKSUMS_KEY);
+		final Long writeVersion          = AbstractStorageProvider.getWriteVersion(file);
+		final String checksums           = getEnabledChecksums(file);
+		final StorageProvider sp         = StorageProviderFactory.getStorageProvider(file);
+		final long size                  = sp.size();
 
-		Folder parentFolder = file.getParent();
-		String checksums = null;
+		// checksums were calculated while the file content was written, and no other write happened since
+		if (pending != null && pending.matches(writeVersion, checksums, size)) {
 
-		while (parentFolder != null && checksums == null) {
+			if (pending.getChecksum() == null) {
 
-			checksums    = parentFolder.getEnabledChecksums();
-			parentFolder = parentFolder.getParent();
-		}
+				// New, very fast xxHash default checksum, will always be calculated
+				pending.setChecksum(getChecksum(sp.getInputStream(), size));
+			}
 
-		if (checksums == null) {
-			checksums = Settings.DefaultChecksums.getValue();
+			return pending.getProperties();
 		}
 
+		// calculate all checksums in a single pass over the file content
+		final ChecksumCalculator calculator = new ChecksumCalculator(checksums);
+
 		// New, very fast xxHash default checksum, will always be calculated
-		propertiesWithChecksums.put(StructrApp.key(File.class, "checksum"), FileHelper.getChecksum(file));
+		calculator.setChecksum(getChecksum(calculator.wrap(sp.getInputStream()), size));
 
-		if (StringUtils.contains(checksums, "crc32"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "crc32"), FileHelper.getCRC32Checksum(file));
-		}
+		if (calculator.getSize() != size) {
 
-		if (StringUtils.contains(checksums, "md5"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "md5"), FileHelper.getMD5Checksum(file));
+			logger.warn("Unable to calculate checksums of {}, expected {} bytes, got {}.", file.getPath(), size, calculator.getSize());
+
+			final PropertyMap propertiesWithChecksums = new PropertyMap();
+
+			propertiesWithChecksums.put(StructrApp.key(File.class, "checksum"), calculator.getChecksum());
+
+			return propertiesWithChecksums;
 		}
 
-		if (StringUtils.contains(checksums, "sha1"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "sha1"), FileHelper.getSHA1Checksum(file));
+		return calculator.getProperties();
+	}
+
+	/**
+	 * Returns the checksums that are enabled in the settings of the parent
+	 * folders of the given file, or the default checksums.
+	 *
+	 * @param file
+	 * @return
+	 */
+	private static String getEnabledChecksums(final File file) {
+
+		Folder parentFolder = file.getParent();
+		String checksums = null;
+
+		while (parentFolder != null && checksums == null) {
+
+			checksums    = parentFolder.getEnabledChecksums();
+			parentFolder = parentFolder.getParent();
 		}
 
-		if (StringUtils.contains(checksums, "sha512"))	{
-			propertiesWithChecksums.put(StructrApp.key(File.class, "sha512"), FileHelper.getSHA512Checksum(file));
+		if (checksums == null) {
+			checksums = Settings.DefaultChecksums.getValue();
 		}
 
-		return propertiesWithChecksums;
+		return checksums;
 	}
+
 	/**
 	 * Update checksums, content type, size and additional properties of the given file
 	 *
@@ -612,10 +642,17 @@ public class FileHelper {
 
 		setFilePropertiesOnCreation(fileNode);
 
-		try (final InputStream is = new ByteArrayInputStream(data); final OutputStream os = StorageProviderFactory.getStorageProvider(fileNode).getOutputStream()) {
+		final ChecksumCalculator calculator = new ChecksumCalculator(getEnabledChecksums(fileNode));
+
+		try (final InputStream is = new ByteArrayInputStream(data); final OutputStream os = calculator.wrap(StorageProviderFactory.getStorageProvider(fileNode).getOutputStream())) {
+
+			calculator.setWriteVersion(AbstractStorageProvider.getWriteVersion(fileNode));
 			IOUtils.copy(is, os);
 		}
 
+		calculator.setChecksum(getChecksum(new ByteArrayInputStream(data), data.length));
+
+		fileNode.getTemporaryStorage().put(PENDING_CHECKSUMS_KEY, calculator);
 	}
 
 	/**
@@ -630,10 +667,16 @@ public class FileHelper {
 
 		setFilePropertiesOnCreation(fileNode);
 
-		try (final OutputStream out = StorageProviderFactory.getStorageProvider(fileNode).getOutputStream()) {
+		final ChecksumCalculator calculator = new ChecksumCalculator(getEnabledChecksums(fileNode));
 
+		try (final OutputStream out = calculator.wrap(StorageProviderFactory.getStorageProvider(fileNode).getOutputStream())) {
+
+			calculator.setWriteVersion(AbstractStorageProvider.getWriteVersion(fileNode));
 			IOUtils.copy(data, out);
 		}
+
+		// the xxHash needs the total size in advance, so it is calculated when the checksums are requested
+		fileNode.getTemporaryStorage().put(PENDING_CHECKSUMS_KEY, calculator);
 	}
 
 	/**
@@ -1122,12 +1165,17 @@ public class FileHelper {
 	}
 
 	public static Long getCRC32Checksum(final File file) throws IOException {
+
 		final CRC32 crc32 = new CRC32();
-		final InputStream is = StorageProviderFactory.getStorageProvider(file).getInputStream();
-		byte[] buf = new byte[1024];
-		int length;
-		while ((length = is.read(buf)) != -1) {
-			crc32.update(buf, 0, length);
+
+		try (final InputStream is = StorageProviderFactory.getStorageProvider(file).getInputStream()) {
+
+			final byte[] buf = new byte[131072];
+			int length;
+
+			while ((length = is.read(buf)) != -1) {
+				crc32.update(buf, 0, length);
+			}
 		}
 
 		return crc32.getValue();
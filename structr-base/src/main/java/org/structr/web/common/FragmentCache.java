@@ -0,0 +1,583 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
+import org.structr.api.util.Cachable;
+import org.structr.api.util.FixedSizeCache;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Group;
+import org.structr.core.entity.Principal;
+import org.structr.core.entity.Security;
+import org.structr.core.entity.relationship.PrincipalOwnsNode;
+import org.structr.core.graph.FlushCachesCommand;
+import org.structr.core.graph.ModificationEvent;
+import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.TransactionCommand;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.PropertyMap;
+import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.entity.dom.DOMNode;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Server-side cache for the rendered output of DOM subtrees. A node opts
+ * in with a positive value in fragmentCacheForSeconds. The cache key
+ * contains the node, the render position and the current data objects,
+ * and it can be varied by the inputs listed in fragmentCacheVaryBy:
+ * "user", "locale" and the names of request parameters.
+ *
+ * Each entry records the UUIDs of the DOM nodes and data objects that
+ * were rendered into it. A transaction that modifies any of these
+ * objects removes the entry. Entries that contain a repeater are also
+ * removed when a node is created, deleted or changes its visibility,
+ * because the repeater query may return different objects. Changes to
+ * grants, ownership and group memberships clear the whole cache. Data
+ * that is only read by scripts is not tracked, so the expiry time limits
+ * how long it can be outdated.
+ *
+ * A cache hit does not run the scripts of the subtree. Output is not
+ * cached if rendering changed the status or the headers of the response
+ * (e.g. cookies or redirects), other side effects of scripts, like
+ * session changes, are not repeated on a cache hit.
+ */
+public class FragmentCache {
+
+	private static final String QUERY_DEPENDENCY                   = "*";
+	private static final FixedSizeCache<String, CacheEntry> cache = new FixedSizeCache<>("Fragment cache", Math.max(1, Settings.FragmentCacheSize.getValue()));
+	private static final Logger logger                             = LoggerFactory.getLogger(FragmentCache.class);
+	private static final Map<String, Set<CacheEntry>> uuidIndex    = new ConcurrentHashMap<>();
+	private static final Set<String> fragmentRoots                 = ConcurrentHashMap.newKeySet();
+	private static final AtomicLong generation                     = new AtomicLong();
+	private static volatile boolean fragmentRootsLoaded            = false;
+
+	static {
+
+		// the core transaction code does not know about the web layer,
+		// entries can only exist after this class has been initialized
+		TransactionCommand.registerCommitListener(FragmentCache::afterCommit);
+		FlushCachesCommand.registerFlushListener(FragmentCache::flush);
+	}
+
+	/**
+	 * Renders a DOM subtree.
+	 */
+	public interface Renderer {
+
+		void render() throws FrameworkException;
+	}
+
+	/**
+	 * Indicates whether the given node starts a cached fragment. Only nodes
+	 * that have a fragment cache time are checked for its value, so the
+	 * check does not read a property of every rendered node.
+	 */
+	public static boolean isCacheable(final DOMNode node, final RenderContext renderContext, final EditMode editMode) {
+
+		if (Settings.FragmentCacheSize.getValue() > 0 && EditMode.NONE.equals(editMode) && isFragmentRoot(node)) {
+
+			final Integer seconds = node.getProperty(StructrApp.key(DOMNode.class, "fragmentCacheForSeconds"));
+
+			return seconds != null && seconds > 0;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes the cached output of the given node to the render context, or
+	 * renders the node with the given renderer and caches its output.
+	 */
+	public static void render(final DOMNode node, final RenderContext renderContext, final int depth, final Renderer renderer) throws FrameworkException {
+
+		final Set<String> dependencies = new LinkedHashSet<>();
+		final String key               = cacheKey(node, renderContext, depth, dependencies);
+		final CacheEntry cached        = cache.get(key);
+
+		if (cached != null && !cached.isExpired()) {
+
+			cached.apply(renderContext);
+			recordDependencies(renderContext, cached.uuids);
+
+			return;
+		}
+
+		final Deque<Set<String>> stack     = renderContext.getFragmentDependencies();
+		final RenderBuffer buffer          = renderContext.getBuffer();
+		final StringRenderBuffer capture   = new StringRenderBuffer();
+		final Integer seconds              = node.getProperty(StructrApp.key(DOMNode.class, "fragmentCacheForSeconds"));
+		final String responseState         = responseState(renderContext.getResponse());
+		final long startGeneration         = generation.get();
+
+		renderContext.setBuffer(capture);
+		stack.push(dependencies);
+
+		try {
+
+			renderer.render();
+
+		} finally {
+
+			stack.pop();
+			renderContext.setBuffer(buffer);
+		}
+
+		final CacheEntry entry = new CacheEntry(key, capture.getBuffer().toString(), seconds, renderContext, dependencies);
+
+		buffer.append(entry.content);
+
+		// nested fragments are part of the enclosing fragment
+		recordDependencies(renderContext, dependencies);
+
+		// a commit during rendering may have changed data that was already rendered
+		if (generation.get() != startGeneration) {
+			return;
+		}
+
+		// changes to the response can not be repeated from the cache
+		if (!Objects.equals(responseState, responseState(renderContext.getResponse()))) {
+			return;
+		}
+
+		final CacheEntry previous = cache.get(key);
+		if (previous != null) {
+
+			previous.removeFromIndexes();
+		}
+
+		for (final String uuid : dependencies) {
+
+			addToIndex(uuid, entry);
+		}
+
+		cache.put(key, entry);
+
+		// an invalidation may have happened after the generation check
+		if (generation.get() != startGeneration) {
+			invalidateEntry(entry);
+		}
+	}
+
+	/**
+	 * Records that the fragments that are currently rendered with the
+	 * given render context depend on the given object.
+	 */
+	public static void recordDependency(final RenderContext renderContext, final GraphObject obj) {
+
+		if (obj != null && renderContext.isInCachedFragment()) {
+
+			final String uuid = obj.getUuid();
+			if (uuid != null) {
+
+				for (final Set<String> dependencies : renderContext.getFragmentDependencies()) {
+					dependencies.add(uuid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Records that the fragments that are currently rendered with the
+	 * given render context contain a repeater, so their output depends on
+	 * the result of a query.
+	 */
+	public static void recordQuery(final RenderContext renderContext) {
+
+		for (final Set<String> dependencies : renderContext.getFragmentDependencies()) {
+			dependencies.add(QUERY_DEPENDENCY);
+		}
+	}
+
+	public static void invalidateForId(final String uuid) {
+
+		final Set<CacheEntry> entries = uuidIndex.remove(uuid);
+		if (entries != null) {
+
+			for (final CacheEntry entry : entries) {
+
+				invalidateEntry(entry);
+			}
+		}
+	}
+
+	public static void invalidate() {
+
+		generation.incrementAndGet();
+
+		uuidIndex.clear();
+		cache.clear();
+	}
+
+	public static Map<String, Integer> getCacheInfo() {
+		return cache.getCacheInfo();
+	}
+
+	/**
+	 * Removes the fragments that depend on the objects modified in a
+	 * transaction. Called for every commit, independent of the transaction
+	 * notification settings of the security context.
+	 */
+	public static void afterCommit(final Collection<ModificationEvent> modificationEvents) {
+
+		if (modificationEvents.isEmpty()) {
+			return;
+		}
+
+		// fragments that are currently rendered must not be cached
+		generation.incrementAndGet();
+
+		updateFragmentRoots(modificationEvents);
+
+		if (uuidIndex.isEmpty()) {
+			return;
+		}
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			invalidateForId(event.getUuid());
+
+			if (event.isNode()) {
+
+				// repeaters may return a different set of objects
+				if (event.isCreated() || event.isDeleted() || changesVisibility(event)) {
+					invalidateForId(QUERY_DEPENDENCY);
+				}
+
+			} else if (event.getGraphObject() instanceof RelationshipInterface) {
+
+				final RelationshipInterface rel = (RelationshipInterface)event.getGraphObject();
+
+				try {
+
+					// permission changes can affect every fragment
+					if (isSecurityRelationship(rel)) {
+
+						invalidate();
+						return;
+					}
+
+					// relationship changes modify the DOM tree or the data of both nodes
+					invalidateForId(rel.getSourceNodeId());
+					invalidateForId(rel.getTargetNodeId());
+
+					if (event.isCreated() || event.isDeleted()) {
+						invalidateForId(QUERY_DEPENDENCY);
+					}
+
+				} catch (Throwable t) {
+
+					// relationship was deleted, nodes are not available
+					invalidate();
+					return;
+				}
+			}
+		}
+	}
+
+	// ----- private methods -----
+	private static void flush() {
+
+		invalidate();
+
+		fragmentRootsLoaded = false;
+	}
+
+	private static String cacheKey(final DOMNode node, final RenderContext renderContext, final int depth, final Set<String> dependencies) {
+
+		final StringBuilder buf   = new StringBuilder(node.getUuid());
+		final String varyBy       = node.getProperty(StructrApp.key(DOMNode.class, "fragmentCacheVaryBy"));
+		final GraphObject details = renderContext.getDetailsDataObject();
+
+		// the output depends on the attributes of the node itself
+		dependencies.add(node.getUuid());
+
+		buf.append(":").append(depth);
+
+		// the output of a node in a repeater depends on the current data objects
+		for (final Map.Entry<String, GraphObject> entry : renderContext.getDataObjectsMap().entrySet()) {
+
+			final GraphObject value = entry.getValue();
+			if (value != null) {
+
+				buf.append(":").append(entry.getKey()).append("=").append(value.getUuid());
+				dependencies.add(value.getUuid());
+			}
+		}
+
+		if (details != null) {
+
+			buf.append(":details=").append(details.getUuid());
+			dependencies.add(details.getUuid());
+		}
+
+		for (final String input : StringUtils.defaultIfBlank(varyBy, "user,locale").split("[, ]+")) {
+
+			switch (input) {
+
+				case "":
+				case "none":
+					break;
+
+				case "user":
+					final Principal user = renderContext.getSecurityContext().getUser(false);
+					buf.append(":user=").append(user != null ? user.getUuid() : "");
+					break;
+
+				case "locale":
+					buf.append(":locale=").append(renderContext.getLocale());
+					break;
+
+				default:
+					buf.append(":").append(input).append("=").append(StringUtils.defaultString(renderContext.getRequestParameter(input)));
+					break;
+			}
+		}
+
+		return buf.toString();
+	}
+
+	private static boolean changesVisibility(final ModificationEvent event) {
+
+		final PropertyMap modified = event.getModifiedProperties();
+		final PropertyMap removed  = event.getRemovedProperties();
+
+		return modified.containsKey(GraphObject.visibleToPublicUsers) || modified.containsKey(GraphObject.visibleToAuthenticatedUsers)
+			|| removed.containsKey(GraphObject.visibleToPublicUsers) || removed.containsKey(GraphObject.visibleToAuthenticatedUsers);
+	}
+
+	private static boolean isSecurityRelationship(final RelationshipInterface rel) {
+
+		if (rel instanceof Security || rel instanceof PrincipalOwnsNode) {
+			return true;
+		}
+
+		// group membership
+		return rel.getSourceNode() instanceof Group && rel.getTargetNode() instanceof Principal;
+	}
+
+	private static void invalidateEntry(final CacheEntry entry) {
+
+		entry.removeFromIndexes();
+
+		// the key can be mapped to a newer entry, which is removed as well
+		final CacheEntry current = cache.remove(entry.key);
+		if (current != null && current != entry) {
+
+			current.removeFromIndexes();
+		}
+	}
+
+	/**
+	 * Returns the status and the headers of the given response, so changes
+	 * made while a fragment is rendered can be detected.
+	 */
+	private static String responseState(final HttpServletResponse response) {
+
+		if (response == null) {
+			return null;
+		}
+
+		final StringBuilder buf = new StringBuilder().append(response.getStatus());
+
+		for (final String name : response.getHeaderNames()) {
+
+			buf.append("\n").append(name).append(": ").append(response.getHeaders(name));
+		}
+
+		return buf.toString();
+	}
+
+	private static void recordDependencies(final RenderContext renderContext, final Set<String> uuids) {
+
+		for (final Set<String> dependencies : renderContext.getFragmentDependencies()) {
+			dependencies.addAll(uuids);
+		}
+	}
+
+	private static boolean isFragmentRoot(final DOMNode node) {
+
+		if (!fragmentRootsLoaded) {
+
+			loadFragmentRoots();
+		}
+
+		return fragmentRoots.contains(node.getUuid());
+	}
+
+	/**
+	 * Collects the UUIDs of all nodes that have a fragment cache time. The
+	 * set is kept up to date by the commit listener and reloaded after a
+	 * flush of all caches.
+	 */
+	private static synchronized void loadFragmentRoots() {
+
+		if (!fragmentRootsLoaded) {
+
+			final PropertyKey<Integer> key = StructrApp.key(DOMNode.class, "fragmentCacheForSeconds");
+			final App app                  = StructrApp.getInstance();
+
+			try (final Tx tx = app.tx()) {
+
+				fragmentRoots.clear();
+
+				for (final DOMNode node : app.nodeQuery(DOMNode.class).notBlank(key).getAsList()) {
+					fragmentRoots.add(node.getUuid());
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+				logger.warn("Unable to load cached fragments: {}", fex.getMessage());
+			}
+
+			fragmentRootsLoaded = true;
+		}
+	}
+
+	/**
+	 * Adds the nodes whose fragment cache time was set in a transaction to
+	 * the fragment roots. Nodes whose time was removed stay in the set, the
+	 * value is checked before a fragment is cached.
+	 */
+	private static void updateFragmentRoots(final Collection<ModificationEvent> modificationEvents) {
+
+		final PropertyKey<Integer> key = StructrApp.key(DOMNode.class, "fragmentCacheForSeconds");
+
+		for (final ModificationEvent event : modificationEvents) {
+
+			if (event.isNode()) {
+
+				if (event.isDeleted()) {
+
+					fragmentRoots.remove(event.getUuid());
+
+				} else if (event.isCreated()) {
+
+					// properties set on creation are not part of the modified properties
+					final GraphObject obj = event.getGraphObject();
+					if (obj instanceof DOMNode && obj.getProperty(key) != null) {
+
+						fragmentRoots.add(event.getUuid());
+					}
+
+				} else if (event.getNewProperties().containsKey(key) || event.getModifiedProperties().containsKey(key)) {
+
+					fragmentRoots.add(event.getUuid());
+				}
+			}
+		}
+	}
+
+	private static void addToIndex(final String uuid, final CacheEntry entry) {
+
+		uuidIndex.compute(uuid, (k, entries) -> {
+
+			final Set<CacheEntry> set = entries != null ? entries : ConcurrentHashMap.newKeySet();
+
+			set.add(entry);
+
+			return set;
+		});
+	}
+
+	/**
+	 * Removes the given entry from the index. The index contains entries
+	 * instead of keys, so removing an outdated entry does not affect a
+	 * newer entry with the same key.
+	 */
+	private static void removeFromIndex(final String uuid, final CacheEntry entry) {
+
+		uuidIndex.computeIfPresent(uuid, (k, entries) -> {
+
+			entries.remove(entry);
+
+			return entries.isEmpty() ? null : entries;
+		});
+	}
+
+	// ----- nested classes -----
+	private static class CacheEntry implements Cachable {
+
+		private final Set<String> uuids                 = new LinkedHashSet<>();
+		private boolean anyChildNodeCreatesNewLine      = false;
+		private boolean appLibRendered                  = false;
+		private boolean inBody                          = false;
+		private String content                          = null;
+		private String key                              = null;
+		private long expires                            = 0L;
+
+		public CacheEntry(final String key, final String content, final int seconds, final RenderContext renderContext, final Set<String> uuids) {
+
+			this.anyChildNodeCreatesNewLine = renderContext.getAnyChildNodeCreatesNewLine();
+			this.appLibRendered             = renderContext.appLibRendered();
+			this.inBody                     = renderContext.inBody();
+			this.expires                    = System.currentTimeMillis() + seconds * 1000L;
+			this.content                    = content;
+			this.key                        = key;
+
+			this.uuids.addAll(uuids);
+		}
+
+		public boolean isExpired() {
+			return System.currentTimeMillis() > expires;
+		}
+
+		/**
+		 * Writes the cached output and restores the render state that
+		 * rendering the fragment left behind.
+		 */
+		public void apply(final RenderContext renderContext) {
+
+			renderContext.getBuffer().append(content);
+			renderContext.setAnyChildNodeCreatesNewLine(anyChildNodeCreatesNewLine);
+			renderContext.setAppLibRendered(appLibRendered);
+			renderContext.setInBody(inBody);
+		}
+
+		@Override
+		public void onRemoveFromCache() {
+
+			// evicted due to size restrictions
+			removeFromIndexes();
+		}
+
+		public void removeFromIndexes() {
+
+			for (final String uuid : uuids) {
+				removeFromIndex(uuid, this);
+			}
+		}
+	}
+}
@@ -52,9 +52,12 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.Stack;
 
 /**
@@ -68,7 +71,7 @@ public class RenderContext extends ActionContext {
 	private final Map<String, GraphObject> dataObjects = new LinkedHashMap<>();
 	private final Stack<SecurityContext> scStack       = new Stack<>();
 	private EditMode editMode                          = EditMode.NONE;
-	private AsyncBuffer buffer                         = null;
+	private RenderBuffer buffer                        = null;
 	private int depth                                  = 0;
 	private boolean inBody                             = false;
 	private boolean appLibRendered                     = false;
@@ -86,6 +89,7 @@ public class RenderContext extends ActionContext {
 	private boolean isPartialRendering                 = false;
 	private String templateRootId                      = null;
 	private String templateId                          = null;
+	private Deque<Set<String>> fragmentDependencies    = new ArrayDeque<>();
 
 	public enum EditMode {
 
@@ -127,6 +131,7 @@ public class RenderContext extends ActionContext {
 		this.anyChildNodeCreatesNewLine = other.anyChildNodeCreatesNewLine;
 		this.indentHtml                 = other.indentHtml;
 		this.buffer                     = other.buffer;
+		this.fragmentDependencies       = other.fragmentDependencies;
 
 	}
 
@@ -323,14 +328,26 @@ public class RenderContext extends ActionContext {
 		return depth;
 	}
 
-	public void setBuffer(final AsyncBuffer buffer) {
+	public void setBuffer(final RenderBuffer buffer) {
 		this.buffer = buffer;
 	}
 
-	public AsyncBuffer getBuffer() {
+	public RenderBuffer getBuffer() {
 		return buffer;
 	}
 
+	/**
+	 * Returns the dependency sets of the cached fragments that are
+	 * currently rendered, the innermost fragment first.
+	 */
+	public Deque<Set<String>> getFragmentDependencies() {
+		return fragmentDependencies;
+	}
+
+	public boolean isInCachedFragment() {
+		return !fragmentDependencies.isEmpty();
+	}
+
 	public void setInBody(final boolean inBody) {
 		this.inBody = inBody;
 	}
@@ -387,6 +404,7 @@ public class RenderContext extends ActionContext {
 	public void putDataObject(String key, GraphObject currentDataObject) {
 		dataObjects.put(key, currentDataObject);
 		setDataObject(currentDataObject);
+		FragmentCache.recordDependency(this, currentDataObject);
 
 	}
 
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.web.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Render buffer for asynchronous output that encodes the rendered markup
+ * into UTF-8 chunks of a fixed size and hands them to the writer through
+ * a bounded queue. When the queue is full, the rendering thread blocks
+ * until the client has received enough data, and the listener is called
+ * whenever a new chunk is available, so the writer does not need to poll.
+ *
+ * The buffer expects a single rendering thread.
+ */
+public class StreamingRenderBuffer implements RenderBuffer {
+
+	private static final int CHUNK_SIZE = 8192;
+	private static final int MAX_CHUNKS = 64;
+
+	private final BlockingQueue<byte[]> chunks = new ArrayBlockingQueue<>(MAX_CHUNKS);
+	private final StringBuilder current        = new StringBuilder(CHUNK_SIZE);
+	private volatile boolean finished          = false;
+	private volatile boolean aborted           = false;
+	private Runnable listener                  = null;
+
+	public StreamingRenderBuffer(final Runnable listener) {
+		this.listener = listener;
+	}
+
+	@Override
+	public StreamingRenderBuffer append(final String s) {
+
+		if (s != null && !aborted) {
+
+			current.append(s);
+
+			if (current.length() >= CHUNK_SIZE) {
+				flushChunk(false);
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Flushes the remaining output and marks the buffer as finished.
+	 */
+	public void finish() {
+
+		flushChunk(true);
+
+		finished = true;
+
+		listener.run();
+	}
+
+	/**
+	 * Discards all pending output and releases a blocked rendering thread,
+	 * e.g. when the client connection was closed.
+	 */
+	public void abort() {
+
+		aborted = true;
+
+		chunks.clear();
+	}
+
+	public byte[] poll() {
+		return chunks.poll();
+	}
+
+	public boolean isComplete() {
+		return finished && chunks.isEmpty();
+	}
+
+	// ----- private methods -----
+	private void flushChunk(final boolean last) {
+
+		int length = current.length();
+
+		// do not split surrogate pairs between two chunks
+		if (!last && length > 0 && Character.isHighSurrogate(current.charAt(length - 1))) {
+			length--;
+		}
+
+		if (length > 0 && !aborted) {
+
+			final byte[] chunk = current.substring(0, length).getBytes(StandardCharsets.UTF_8);
+
+			current.delete(0, length);
+
+			boolean queued = false;
+
+			try {
+
+				// wait for the writer, check regularly if the client is gone
+				while (!queued && !aborted) {
+					queued = chunks.offer(chunk, 100, TimeUnit.MILLISECONDS);
+				}
+
+			} catch (InterruptedException iex) {
+
+				Thread.currentThread().interrupt();
+				aborted = true;
+			}
+
+			listener.run();
+		}
+	}
+}
@@ -27,7 +27,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
 import org.structr.schema.NonIndexed;
 import org.structr.schema.SchemaService;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 
 import java.net.URI;
@@ -64,7 +64,7 @@ public interface Comment extends Content, org.w3c.dom.Comment, NonIndexed {
 
 				final SecurityContext securityContext = comment.getSecurityContext();
 				final RenderContext.EditMode edit = renderContext.getEditMode(securityContext.getUser(false));
-				final AsyncBuffer buf = renderContext.getBuffer();
+				final RenderBuffer buf = renderContext.getBuffer();
 
 				if (RenderContext.EditMode.DEPLOYMENT.equals(edit)) {
 
@@ -40,7 +40,7 @@ import org.structr.core.property.PropertyMap;
 import org.structr.core.script.Scripting;
 import org.structr.schema.NonIndexed;
 import org.structr.schema.SchemaService;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
 import org.structr.web.converter.ContentConverters;
@@ -142,6 +142,8 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 		type.addViewProperty(PropertyView.Ui, "hideOnDetail");
 		type.addViewProperty(PropertyView.Ui, "hideOnIndex");
 		type.addViewProperty(PropertyView.Ui, "sharedComponentConfiguration");
+		type.addViewProperty(PropertyView.Ui, "fragmentCacheForSeconds");
+		type.addViewProperty(PropertyView.Ui, "fragmentCacheVaryBy");
 		type.addViewProperty(PropertyView.Ui, "isDOMNode");
 		type.addViewProperty(PropertyView.Ui, "pageId");
 		type.addViewProperty(PropertyView.Ui, "parent");
@@ -233,7 +235,7 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 			final EditMode edit = renderContext.getEditMode(securityContext.getUser(false));
 			if (EditMode.DEPLOYMENT.equals(edit)) {
 
-				final AsyncBuffer buf = renderContext.getBuffer();
+				final RenderBuffer buf = renderContext.getBuffer();
 
 				// output ownership comments
 				DOMNode.renderDeploymentExportComments(thisNode, buf, true);
@@ -253,7 +255,7 @@ public interface Content extends DOMNode, Text, NonIndexed, Favoritable {
 			final RenderContextContentHandler handler = new RenderContextContentHandler(thisNode, renderContext);
 			final String id                           = thisNode.getUuid();
 			final boolean inBody                      = renderContext.inBody();
-			final AsyncBuffer out                     = renderContext.getBuffer();
+			final RenderBuffer out                    = renderContext.getBuffer();
 			final String _contentType                 = thisNode.getContentType();
 
 			// apply configuration for shared component if present
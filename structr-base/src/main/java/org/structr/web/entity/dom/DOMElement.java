@@ -57,9 +57,9 @@ import org.structr.schema.SchemaService;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Actions;
 import org.structr.schema.action.EvaluationHints;
-import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.EventContext;
 import org.structr.web.common.HtmlProperty;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
 import org.structr.web.entity.event.ActionMapping;
@@ -329,6 +329,8 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 		type.addViewProperty(PropertyView.Ui, "hideOnDetail");
 		type.addViewProperty(PropertyView.Ui, "hideOnIndex");
 		type.addViewProperty(PropertyView.Ui, "sharedComponentConfiguration");
+		type.addViewProperty(PropertyView.Ui, "fragmentCacheForSeconds");
+		type.addViewProperty(PropertyView.Ui, "fragmentCacheVaryBy");
 		type.addViewProperty(PropertyView.Ui, "isDOMNode");
 		type.addViewProperty(PropertyView.Ui, "pageId");
 		type.addViewProperty(PropertyView.Ui, "parent");
@@ -360,8 +362,8 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 	String getTag();
 	String getOffsetAttributeName(final String name, final int offset);
 
-	void openingTag(final AsyncBuffer out, final String tag, final EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException;
-	void renderStructrAppLib(final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext, final int depth) throws FrameworkException;
+	void openingTag(final RenderBuffer out, final String tag, final EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException;
+	void renderStructrAppLib(final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext, final int depth) throws FrameworkException;
 
 	Property[] getHtmlAttributes();
 	List<String> getHtmlAttributeNames();
@@ -1067,7 +1069,7 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 
 		// final variables
 		final SecurityContext securityContext = renderContext.getSecurityContext();
-		final AsyncBuffer out                 = renderContext.getBuffer();
+		final RenderBuffer out                = renderContext.getBuffer();
 		final EditMode editMode               = renderContext.getEditMode(securityContext.getUser(false));
 		final boolean isVoid                  = thisElement.isVoidElement();
 		final String _tag                     = thisElement.getTag();
@@ -1194,7 +1196,7 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 		}
 	}
 
-	static void renderStructrAppLib(final DOMElement thisElement, final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext, final int depth) throws FrameworkException {
+	static void renderStructrAppLib(final DOMElement thisElement, final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext, final int depth) throws FrameworkException {
 
 		EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
@@ -1227,7 +1229,7 @@ public interface DOMElement extends DOMNode, Element, NamedNodeMap, NonIndexed {
 		}
 	}
 
-	static void openingTag(final DOMElement thisElement, final AsyncBuffer out, final String tag, final EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException {
+	static void openingTag(final DOMElement thisElement, final RenderBuffer out, final String tag, final EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException {
 
 		final DOMElement _sharedComponentElement = (DOMElement) thisElement.getSharedComponent();
 
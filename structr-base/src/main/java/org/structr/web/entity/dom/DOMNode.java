@@ -56,7 +56,8 @@ import org.structr.core.script.Scripting;
 import org.structr.schema.SchemaService;
 import org.structr.schema.action.ActionContext;
 import org.structr.schema.action.Function;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.FragmentCache;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
 import org.structr.web.common.StringRenderBuffer;
@@ -115,6 +116,8 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		type.addBooleanProperty("hideOnIndex").setCategory(QUERY_CATEGORY);
 		type.addBooleanProperty("hideOnDetail").setCategory(QUERY_CATEGORY);
 		type.addBooleanProperty("dontCache").setDefaultValue("false");
+		type.addIntegerProperty("fragmentCacheForSeconds").setCategory(PAGE_CATEGORY).setHint("If set, the rendered output of this element and its children is cached on the server for the given number of seconds, or until one of the rendered elements or data objects is modified.");
+		type.addStringProperty("fragmentCacheVaryBy").setCategory(PAGE_CATEGORY).setHint("Comma-separated list of inputs that the cached output depends on: user, locale, or the name of a request parameter. Defaults to user,locale.");
 		type.addBooleanProperty("isDOMNode").setReadOnly(true).addTransformer(ConstantBooleanTrue.class.getName()).setCategory(PAGE_CATEGORY);
 
 		type.addIntegerProperty("domSortPosition").setCategory(PAGE_CATEGORY);
@@ -342,7 +345,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		return null;
 	}
 
-	default void renderManagedAttributes(final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+	default void renderManagedAttributes(final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
 	}
 
 	String getCypherQuery();
@@ -385,12 +388,12 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 	void checkWriteAccess() throws DOMException;
 	void checkReadAccess() throws DOMException;
 
-	void renderCustomAttributes(final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException;
+	void renderCustomAttributes(final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException;
 	void getSecurityInstructions(final Set<String> instructions);
 	void getVisibilityInstructions(final Set<String> instructions);
 	void getLinkableInstructions(final Set<String> instructions);
 	void getContentInstructions(final Set<String> instructions);
-	void renderSharedComponentConfiguration(final AsyncBuffer out, final EditMode editMode);
+	void renderSharedComponentConfiguration(final RenderBuffer out, final EditMode editMode);
 
 	List<RelationshipInterface> getChildRelationships();
 
@@ -1257,7 +1260,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		return true;
 	}
 
-	static boolean renderDeploymentExportComments(final DOMNode thisNode, final AsyncBuffer out, final boolean isContentNode) {
+	static boolean renderDeploymentExportComments(final DOMNode thisNode, final RenderBuffer out, final boolean isContentNode) {
 
 		final Set<String> instructions = new LinkedHashSet<>();
 
@@ -1302,7 +1305,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		}
 	}
 
-	static void renderSharedComponentConfiguration(final DOMNode thisNode, final AsyncBuffer out, final EditMode editMode) {
+	static void renderSharedComponentConfiguration(final DOMNode thisNode, final RenderBuffer out, final EditMode editMode) {
 
 		if (EditMode.DEPLOYMENT.equals(editMode)) {
 
@@ -1464,7 +1467,7 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 		});
 	}
 
-	static void renderCustomAttributes(final DOMNode thisNode, final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+	static void renderCustomAttributes(final DOMNode thisNode, final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
 
 		final EditMode editMode = renderContext.getEditMode(securityContext.getUser(false));
 
@@ -1637,7 +1640,6 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 		// admin-only edit modes ==> visibility check not necessary
 		final boolean isAdminOnlyEditMode = (EditMode.RAW.equals(editMode) || EditMode.WIDGET.equals(editMode) || EditMode.DEPLOYMENT.equals(editMode));
-		final boolean isPartial           = renderContext.isPartialRendering(); // renderContext.getPage() == null;
 
 		if (!isAdminOnlyEditMode && !securityContext.isVisible(thisNode)) {
 			return;
@@ -1671,6 +1673,23 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 			return;
 		}
 
+		FragmentCache.recordDependency(renderContext, thisNode);
+
+		if (FragmentCache.isCacheable(thisNode, renderContext, editMode)) {
+
+			FragmentCache.render(thisNode, renderContext, depth, () -> renderWithData(thisNode, renderContext, depth, isAdminOnlyEditMode));
+
+		} else {
+
+			renderWithData(thisNode, renderContext, depth, isAdminOnlyEditMode);
+		}
+	}
+
+	static void renderWithData(final DOMNode thisNode, final RenderContext renderContext, final int depth, final boolean isAdminOnlyEditMode) throws FrameworkException {
+
+		final SecurityContext securityContext = renderContext.getSecurityContext();
+		final boolean isPartial               = renderContext.isPartialRendering(); // renderContext.getPage() == null;
+
 		if (isAdminOnlyEditMode) {
 
 			thisNode.renderContent(renderContext, depth);
@@ -1681,6 +1700,8 @@ public interface DOMNode extends NodeInterface, Node, Renderable, DOMAdoptable,
 
 			if (StringUtils.isNotBlank(subKey)) {
 
+				FragmentCache.recordQuery(renderContext);
+
 				// fetch (optional) list of external data elements
 				final Iterable<GraphObject> listData = checkListSources(thisNode, securityContext, renderContext);
 
@@ -26,7 +26,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.RelationshipInterface;
 import org.structr.schema.SchemaService;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
 
@@ -67,7 +67,7 @@ public interface Template extends Content {
 		if (EditMode.DEPLOYMENT.equals(editMode)) {
 
 			final DOMNode _syncedNode = thisTemplate.getSharedComponent();
-			final AsyncBuffer out     = renderContext.getBuffer();
+			final RenderBuffer out    = renderContext.getBuffer();
 
 			if (depth > 0) {
 				out.append(DOMNode.indent(depth, renderContext));
@@ -119,7 +119,7 @@ public interface Template extends Content {
 
 		} else if (EditMode.SHAPES.equals(editMode)) {
 
-			final AsyncBuffer out = renderContext.getBuffer();
+			final RenderBuffer out = renderContext.getBuffer();
 
 			out.append("<structr:template data-structr-id=\"");
 			out.append(thisTemplate.getUuid());
@@ -132,7 +132,7 @@ public interface Template extends Content {
 
 		} else if (EditMode.SHAPES_MINIATURES.equals(editMode)) {
 
-			final AsyncBuffer out = renderContext.getBuffer();
+			final RenderBuffer out = renderContext.getBuffer();
 
 			out.append("<structr:template data-structr-id=\"");
 			out.append(thisTemplate.getUuid());
@@ -75,7 +75,7 @@ public interface Html extends DOMElement {
 	);
 
 	@Override
-	public void openingTag(final AsyncBuffer out, final String tag, final RenderContext.EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException {
+	public void openingTag(final RenderBuffer out, final String tag, final RenderContext.EditMode editMode, final RenderContext renderContext, final int depth) throws FrameworkException {
 
 		String custTag = getProperty(_customOpeningTag);
 
@@ -33,7 +33,7 @@ import org.structr.core.function.EqualFunction;
 import org.structr.core.property.GenericProperty;
 import org.structr.core.script.Scripting;
 import org.structr.schema.SchemaService;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.Content;
 import org.structr.web.entity.dom.DOMElement;
@@ -69,7 +69,7 @@ public interface Option extends DOMElement {
 	String getSelectedValues();
 
 	@Override
-	default void renderManagedAttributes(final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+	default void renderManagedAttributes(final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
 
 		try {
 
@@ -25,7 +25,7 @@ import org.structr.api.schema.JsonSchema;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.schema.SchemaService;
-import org.structr.web.common.AsyncBuffer;
+import org.structr.web.common.RenderBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.DOMElement;
 import org.w3c.dom.Node;
@@ -49,7 +49,7 @@ public interface TemplateElement extends DOMElement {
 	}}
 
 	@Override
-	default void renderManagedAttributes(final AsyncBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
+	default void renderManagedAttributes(final RenderBuffer out, final SecurityContext securityContext, final RenderContext renderContext) throws FrameworkException {
 
 	}
 
@@ -31,6 +31,7 @@ import org.structr.core.graph.NodeInterface;
 import org.structr.core.property.PropertyKey;
 import org.structr.storage.StorageProviderFactory;
 import org.structr.schema.action.ActionContext;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.datasource.FunctionDataSource;
 import org.structr.web.entity.File;
@@ -239,7 +240,7 @@ public class IncludeFunction extends UiCommunityFunction {
 		} else {
 
 			// output needs to be returned as a function result
-			return StringUtils.join(innerCtx.getBuffer().getQueue(), "");
+			return StringUtils.join(((AsyncBuffer)innerCtx.getBuffer()).getQueue(), "");
 		}
 	}
 
@@ -21,6 +21,7 @@ package org.structr.web.function;
 import org.apache.commons.lang3.StringUtils;
 import org.structr.common.error.FrameworkException;
 import org.structr.schema.action.ActionContext;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.DOMNode;
 
@@ -53,6 +54,7 @@ public class RenderFunction extends UiCommunityFunction {
 
 			boolean useBuffer      = false;
 			RenderContext innerCtx = null;
+			AsyncBuffer output     = null;
 
 			if (ctx.isRenderContext()) {
 
@@ -62,7 +64,10 @@ public class RenderFunction extends UiCommunityFunction {
 			} else {
 
 				innerCtx  = new RenderContext(ctx.getSecurityContext());
+				output    = new AsyncBuffer();
 				useBuffer = false;
+
+				innerCtx.setBuffer(output);
 			}
 
 			if (sources[0] instanceof DOMNode) {
@@ -91,7 +96,7 @@ public class RenderFunction extends UiCommunityFunction {
 			} else {
 
 				// output needs to be returned as a function result
-				return StringUtils.join(innerCtx.getBuffer().getQueue(), "");
+				return StringUtils.join(output.getQueue(), "");
 			}
 
 		} else {
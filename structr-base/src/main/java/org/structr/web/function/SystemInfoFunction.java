@@ -18,15 +18,24 @@
  */
 package org.structr.web.function;
 
+import org.structr.agent.AgentService;
 import org.structr.api.DatabaseService;
 import org.structr.api.config.Settings;
 import org.structr.api.util.CountResult;
+import org.structr.common.AccessPathCache;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.Services;
 import org.structr.core.function.AdvancedScriptingFunction;
+import org.structr.core.function.Functions;
 import org.structr.core.function.LocalizeFunction;
 import org.structr.core.graph.NodeService;
+import org.structr.core.script.Scripting;
+import org.structr.core.script.polyglot.context.ContextFactory;
+import org.structr.rest.auth.SessionPrincipalCache;
+import org.structr.rest.serialization.SerializationExecutor;
 import org.structr.schema.action.ActionContext;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.maintenance.DeployCommand;
 
 import java.lang.management.ManagementFactory;
@@ -108,7 +117,13 @@ public class SystemInfoFunction extends AdvancedScriptingFunction {
 				counts.put("relationships", cr.getRelationshipCount());
 
 				cacheInfo.putAll(db.getCachesInfo());
+				cacheInfo.put("scriptSources", Scripting.getSourceCacheInfo());
 				cacheInfo.put("localizations", LocalizeFunction.getCacheInfo());
+				cacheInfo.put("accessPaths",   AccessPathCache.getCacheInfo());
+				cacheInfo.put("permissions",   PermissionResolutionCache.getCacheInfo());
+				cacheInfo.put("structrScript", Functions.getCacheInfo());
+				cacheInfo.put("fragments",     FragmentCache.getCacheInfo());
+				cacheInfo.put("sessions",      SessionPrincipalCache.getCacheInfo());
 
 				info.put("counts", counts);
 				info.put("caches", cacheInfo);
@@ -117,6 +132,14 @@ public class SystemInfoFunction extends AdvancedScriptingFunction {
 
 		info.put("deployment_active", DeployCommand.isDeploymentActive());
 		info.put("maintenance_active", Settings.MaintenanceModeEnabled.getValue());
+		info.put("json_serialization", SerializationExecutor.getInfo());
+		info.put("scripting_contexts", ContextFactory.getContextInfo());
+
+		final AgentService agentService = Services.getInstance().getService(AgentService.class, "default");
+		if (agentService != null) {
+
+			info.put("agents", agentService.getInfo());
+		}
 
 		final Map<String, Map> memoryInfo = new LinkedHashMap<>();
 
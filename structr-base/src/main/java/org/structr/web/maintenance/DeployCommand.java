@@ -53,6 +53,7 @@ import org.structr.schema.export.*;
 import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.common.AbstractMapComparator;
 import org.structr.web.common.FileHelper;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.File;
 import org.structr.web.entity.*;
@@ -489,6 +490,9 @@ public class DeployCommand extends NodeServiceCommand implements MaintenanceComm
 
 			// restore saved value
 			Settings.ChangelogEnabled.setValue(changeLogEnabled);
+
+			// imported pages and data replace the cached output
+			FragmentCache.invalidate();
 		}
 	}
 
@@ -37,6 +37,7 @@ import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyMap;
 import org.structr.rest.resource.MaintenanceParameterResource;
 import org.structr.schema.SchemaHelper;
+import org.structr.web.common.FragmentCache;
 import org.structr.web.entity.AbstractFile;
 import org.structr.web.entity.File;
 import org.structr.web.entity.Folder;
@@ -308,6 +309,9 @@ public class DeployDataCommand extends DeployCommand {
 
 			// restore saved value
 			Settings.ChangelogEnabled.setValue(changeLogEnabled);
+
+			// imported pages and data replace the cached output
+			FragmentCache.invalidate();
 		}
 	}
 
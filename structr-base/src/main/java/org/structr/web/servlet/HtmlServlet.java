@@ -68,6 +68,7 @@ import org.structr.web.auth.UiAuthenticator;
 import org.structr.web.common.FileHelper;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.RenderContext.EditMode;
+import org.structr.web.common.StreamingRenderBuffer;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.*;
 import org.structr.web.entity.dom.DOMElement;
@@ -82,9 +83,12 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -106,7 +110,8 @@ public class HtmlServlet extends AbstractServletBase implements HttpServiceServl
 	public static final String ERROR_PAGE_KEY            = "onerror";
 
 	public static final String ENCODED_RENDER_STATE_PARAMETER_NAME    = "structr-encoded-render-state";
-	private static final ExecutorService threadPool                   = Executors.newCachedThreadPool();
+	private static volatile ThreadPoolExecutor threadPool             = null;
+	private static volatile int threadPoolQueueSize                   = 0;
 	private final Pattern FilenameCleanerPattern                      = Pattern.compile("[\n\r]", Pattern.CASE_INSENSITIVE | Pattern.MULTILINE | Pattern.DOTALL);
 	private final StructrHttpServiceConfig config                     = new StructrHttpServiceConfig();
 	private final Set<String> possiblePropertyNamesForEntityResolving = new LinkedHashSet<>();
@@ -839,108 +844,58 @@ public class HtmlServlet extends AbstractServletBase implements HttpServiceServl
 
 	protected void renderAsyncOutput(HttpServletRequest request, HttpServletResponse response, App app, RenderContext renderContext, DOMNode rootElement, final long requestStartTime) throws IOException {
 
-		final AsyncContext async      = request.startAsync();
-		final ServletOutputStream out = async.getResponse().getOutputStream();
-		final AtomicBoolean finished  = new AtomicBoolean(false);
-		final DOMNode rootNode        = rootElement;
+		final AsyncContext async           = request.startAsync();
+		final ServletOutputStream out      = async.getResponse().getOutputStream();
+		final AsyncOutputWriter writer     = new AsyncOutputWriter(request, async, out, renderContext);
+		final StreamingRenderBuffer buffer = writer.getBuffer();
+		final DOMNode rootNode             = rootElement;
 
-		threadPool.submit(new Runnable() {
+		renderContext.setBuffer(buffer);
 
-			@Override
-			public void run() {
+		// start output write listener before rendering starts
+		out.setWriteListener(writer);
 
-				try (final Tx tx = app.tx()) {
-
-					// render
-					rootNode.render(renderContext, 0);
-					finished.set(true);
-
-					tx.success();
-
-				} catch (Throwable t) {
-
-					logger.warn("Error while rendering page {}: {}", rootNode.getName(), t.getMessage());
-					logger.warn(ExceptionUtils.getStackTrace(t));
-
-					try {
-
-						response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-						finished.set(true);
-
-					} catch (IOException ex) {
-						logger.warn(ExceptionUtils.getStackTrace(ex));
-					}
-				}
-
-				// record async rendering time
-				HtmlServlet.super.stats.recordStatsValue("html", rootElement.getName(), System.currentTimeMillis() - requestStartTime);
-			}
-
-		});
-
-		// start output write listener
-		out.setWriteListener(new WriteListener() {
-
-			@Override
-			public void onWritePossible() throws IOException {
-
-				try {
+		try {
 
-					final Queue<String> queue = renderContext.getBuffer().getQueue();
-					while (out.isReady()) {
+			getRenderThreadPool().execute(new Runnable() {
 
-						String buffer = null;
+				@Override
+				public void run() {
 
-						synchronized (queue) {
-							buffer = queue.poll();
-						}
+					try (final Tx tx = app.tx()) {
 
-						if (buffer != null) {
+						// render
+						rootNode.render(renderContext, 0);
 
-							out.print(buffer);
+						tx.success();
 
-						} else {
+					} catch (Throwable t) {
 
-							if (finished.get()) {
+						logger.warn("Error while rendering page {}: {}", rootNode.getName(), t.getMessage());
+						logger.warn(ExceptionUtils.getStackTrace(t));
 
-								async.complete();
+						abortAsyncOutput(response, buffer, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 
-								// prevent this block from being called again
-								break;
-							}
+					} finally {
 
-							Thread.sleep(1);
-						}
+						buffer.finish();
 					}
 
-				} catch (EofException ee) {
-
-					// ignore EofException which (by jettys standards) should be handled less verbosely
-
-				} catch (IOException | InterruptedException t) {
-					//logger.warn("Unexpected exception", t);
+					// record async rendering time
+					HtmlServlet.super.stats.recordStatsValue("html", rootElement.getName(), System.currentTimeMillis() - requestStartTime);
 				}
-			}
 
-			@Override
-			public void onError(Throwable t) {
+			});
 
-				// prevent async from running into default timeout of 30s
-				async.complete();
+		} catch (RejectedExecutionException rex) {
 
-				if (t instanceof QuietException || t.getCause() instanceof QuietException) {
-					// ignore exceptions which (by jettys standards) should be handled less verbosely
-				} else {
+			logger.warn("Unable to render page {}, too many requests are waiting for a render thread.", rootNode.getName());
 
-					final SecurityContext sc = renderContext.getSecurityContext();
-					final Principal user     = sc.getUser(false);
-					final String username    = (user != null) ? user.getName() : "anonymous";
+			abortAsyncOutput(response, buffer, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
 
-					logger.warn("Could not flush the response body content to the client, probably because the network connection was terminated.");
-					logger.warn(" -> From: {} | URI: {} | Query: {} | User: {}", request.getRemoteAddr(), request.getRequestURI(), request.getQueryString(), username);
-				}
-			}
-		});
+			// completes the async request
+			buffer.finish();
+		}
 	}
 
 	protected void writeOutputStream(HttpServletResponse response, StringRenderBuffer buffer) throws IOException {
@@ -1917,6 +1872,76 @@ public class HtmlServlet extends AbstractServletBase implements HttpServiceServl
 
 		return null;
 	}
+
+	// ----- private methods -----
+	private void abortAsyncOutput(final HttpServletResponse response, final StreamingRenderBuffer buffer, final int status) {
+
+		buffer.abort();
+
+		// the status can not be changed after the first chunk was sent
+		if (!response.isCommitted()) {
+
+			try {
+
+				response.sendError(status);
+
+			} catch (IOException | IllegalStateException ex) {
+				logger.warn(ExceptionUtils.getStackTrace(ex));
+			}
+		}
+	}
+
+	// ----- private static methods -----
+	/**
+	 * Returns the thread pool for asynchronous rendering. The pool is
+	 * replaced when its settings change; the previous pool completes the
+	 * renders that were already submitted.
+	 */
+	private static ThreadPoolExecutor getRenderThreadPool() {
+
+		final int threads       = Math.max(1, Settings.HtmlAsyncRenderThreads.getValue());
+		final int queueSize     = Math.max(1, Settings.HtmlAsyncRenderQueueSize.getValue());
+		ThreadPoolExecutor pool = threadPool;
+
+		if (pool == null || pool.getMaximumPoolSize() != threads || threadPoolQueueSize != queueSize) {
+
+			synchronized (HtmlServlet.class) {
+
+				pool = threadPool;
+
+				if (pool == null || pool.getMaximumPoolSize() != threads || threadPoolQueueSize != queueSize) {
+
+					if (pool != null) {
+						pool.shutdown();
+					}
+
+					pool                = createRenderThreadPool(threads, queueSize);
+					threadPool          = pool;
+					threadPoolQueueSize = queueSize;
+				}
+			}
+		}
+
+		return pool;
+	}
+
+	private static ThreadPoolExecutor createRenderThreadPool(final int threads, final int queueSize) {
+
+		final AtomicInteger threadCount = new AtomicInteger();
+		final ThreadPoolExecutor pool   = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize), r -> {
+
+			final Thread thread = new Thread(r, "AsyncRenderer-" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+
+		pool.allowCoreThreadTimeOut(true);
+
+		return pool;
+	}
+
 	// ----- nested classes -----
 	private enum AuthState {
 		NoBasicAuth, MustAuthenticate, Authenticated
@@ -1955,4 +1980,123 @@ public class HtmlServlet extends AbstractServletBase implements HttpServiceServl
 			return rootElement;
 		}
 	}
+
+	/**
+	 * Writes the chunks of a StreamingRenderBuffer to the client. Writing
+	 * is triggered by the container when the client can accept more data,
+	 * and by the buffer when a new chunk is available. The counter makes
+	 * sure that only one thread writes at a time and that no trigger is
+	 * lost while another thread is writing.
+	 */
+	private static class AsyncOutputWriter implements WriteListener {
+
+		private final AtomicInteger pendingTriggers = new AtomicInteger();
+		private final AtomicBoolean completed       = new AtomicBoolean();
+		private StreamingRenderBuffer buffer        = null;
+		private HttpServletRequest request          = null;
+		private RenderContext renderContext         = null;
+		private ServletOutputStream out             = null;
+		private AsyncContext async                  = null;
+
+		public AsyncOutputWriter(final HttpServletRequest request, final AsyncContext async, final ServletOutputStream out, final RenderContext renderContext) {
+
+			this.buffer        = new StreamingRenderBuffer(this::write);
+			this.renderContext = renderContext;
+			this.request       = request;
+			this.async         = async;
+			this.out           = out;
+		}
+
+		public StreamingRenderBuffer getBuffer() {
+			return buffer;
+		}
+
+		@Override
+		public void onWritePossible() throws IOException {
+			write();
+		}
+
+		@Override
+		public void onError(Throwable t) {
+
+			buffer.abort();
+
+			// prevent async from running into default timeout of 30s
+			complete();
+
+			if (t instanceof QuietException || t.getCause() instanceof QuietException) {
+				// ignore exceptions which (by jettys standards) should be handled less verbosely
+			} else {
+
+				final SecurityContext sc = renderContext.getSecurityContext();
+				final Principal user     = sc.getUser(false);
+				final String username    = (user != null) ? user.getName() : "anonymous";
+
+				logger.warn("Could not flush the response body content to the client, probably because the network connection was terminated.");
+				logger.warn(" -> From: {} | URI: {} | Query: {} | User: {}", request.getRemoteAddr(), request.getRequestURI(), request.getQueryString(), username);
+			}
+		}
+
+		// ----- private methods -----
+		private void write() {
+
+			if (pendingTriggers.getAndIncrement() != 0) {
+
+				// another thread is writing and will pick up the new data
+				return;
+			}
+
+			int triggers = 1;
+
+			do {
+
+				writeAvailableChunks();
+
+				triggers = pendingTriggers.addAndGet(-triggers);
+
+			} while (triggers != 0);
+		}
+
+		private void writeAvailableChunks() {
+
+			try {
+
+				while (!completed.get() && out.isReady()) {
+
+					final byte[] chunk = buffer.poll();
+					if (chunk != null) {
+
+						out.write(chunk);
+
+					} else {
+
+						if (buffer.isComplete()) {
+							complete();
+						}
+
+						// wait for the next chunk
+						return;
+					}
+				}
+
+			} catch (EofException ee) {
+
+				// ignore EofException which (by jettys standards) should be handled less verbosely
+				buffer.abort();
+				complete();
+
+			} catch (IOException | IllegalStateException ex) {
+
+				buffer.abort();
+				complete();
+			}
+		}
+
+		private void complete() {
+
+			if (completed.compareAndSet(false, true)) {
+				async.complete();
+			}
+		}
+	}
 }
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.websocket;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded queue of serialized broadcast messages for a single websocket
+ * client. Messages with the same coalescing key replace each other while
+ * they are waiting to be sent, so that only the latest state of a
+ * frequently updated object reaches the client. The replacing message
+ * moves to the end of the queue, so messages are always sent in the
+ * order of the latest change they contain.
+ */
+class OutboundQueue {
+
+	enum State { Queued, Scheduled, Rejected }
+
+	private final Map<Object, String> pending = new LinkedHashMap<>();
+	private boolean scheduled                 = false;
+	private boolean closed                    = false;
+	private long sequence                     = 0L;
+	private int capacity                      = 0;
+
+	public OutboundQueue(final int capacity) {
+		this.capacity = Math.max(1, capacity);
+	}
+
+	/**
+	 * Adds the given message to this queue and returns Scheduled if the
+	 * caller must start sending, or Rejected if the queue is full and has
+	 * been closed as a result. Only one sender is active at a time, it
+	 * takes the messages from this queue with poll() until none is left.
+	 *
+	 * @param key the coalescing key or null
+	 * @param message
+	 */
+	public synchronized State offer(final Object key, final String message) {
+
+		if (closed) {
+			return State.Queued;
+		}
+
+		final Object pendingKey = key != null ? key : sequence++;
+
+		if (pending.size() >= capacity && !pending.containsKey(pendingKey)) {
+
+			close();
+
+			return State.Rejected;
+		}
+
+		// a replaced message must not be sent before messages queued after it
+		pending.remove(pendingKey);
+		pending.put(pendingKey, message);
+
+		if (!scheduled) {
+
+			scheduled = true;
+
+			return State.Scheduled;
+		}
+
+		return State.Queued;
+	}
+
+	/**
+	 * Removes and returns the next pending message. Null means that the
+	 * queue has been drained and the next offer starts a new sender.
+	 */
+	public synchronized String poll() {
+
+		if (pending.isEmpty() || closed) {
+
+			scheduled = false;
+
+			return null;
+		}
+
+		final Iterator<String> iterator = pending.values().iterator();
+		final String message            = iterator.next();
+
+		iterator.remove();
+
+		return message;
+	}
+
+	public synchronized void close() {
+
+		pending.clear();
+		closed = true;
+	}
+}
@@ -21,10 +21,12 @@ package org.structr.websocket;
 import com.google.gson.Gson;
 import org.eclipse.jetty.util.URIUtil;
 import org.eclipse.jetty.websocket.api.Session;
-import org.eclipse.jetty.websocket.api.exceptions.WebSocketException;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.Predicate;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.RelationshipType;
 import org.structr.api.util.Iterables;
 import org.structr.common.AccessControllable;
@@ -32,12 +34,14 @@ import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
 import org.structr.core.StructrTransactionListener;
+import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.entity.Group;
 import org.structr.core.entity.Principal;
 import org.structr.core.graph.ModificationEvent;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.RelationshipInterface;
+import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.core.property.PropertyMap;
 import org.structr.web.entity.AbstractFile;
@@ -48,6 +52,12 @@ import org.structr.websocket.message.WebSocketMessage;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *
@@ -55,11 +65,14 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class WebsocketController implements StructrTransactionListener {
 
-	private static final Logger logger                 = LoggerFactory.getLogger(WebsocketController.class.getName());
-	private static final Set<String> BroadcastCommands = new HashSet<>(Arrays.asList("UPDATE", "ADD", "CREATE"));
+	private static final Logger logger                   = LoggerFactory.getLogger(WebsocketController.class.getName());
+	private static final Set<String> BroadcastCommands   = new HashSet<>(Arrays.asList("UPDATE", "ADD", "CREATE"));
+	private static final ScheduledExecutorService sender = createSenderThreadPool();
+	private static final ExecutorService preparer        = createPreparerThread();
+	private static final BitSet Unfiltered               = new BitSet();
 
-	private final Set<StructrWebSocket> clients = ConcurrentHashMap.newKeySet();
-	private Gson gson                           = null;
+	private final Map<StructrWebSocket, OutboundQueue> clients = new ConcurrentHashMap<>();
+	private Gson gson                                          = null;
 
 	private static final Set<String> BroadcastBlacklistForNodeTypes           = new HashSet<>(Arrays.asList("IndexedWord"));
 	private static final Set<PropertyKey> BroadcastBlacklistForNodeProperties = new HashSet<>(Arrays.asList(Principal.grantedNodes, Principal.ownedNodes));
@@ -72,12 +85,16 @@ public class WebsocketController implements StructrTransactionListener {
 
 	public void registerClient(final StructrWebSocket client) {
 
-		clients.add(client);
+		clients.put(client, new OutboundQueue(Settings.WebsocketBroadcastQueueSize.getValue()));
 	}
 
 	public void unregisterClient(final StructrWebSocket client) {
 
-		clients.remove(client);
+		final OutboundQueue queue = clients.remove(client);
+		if (queue != null) {
+
+			queue.close();
+		}
 	}
 
 	private void broadcast(final WebSocketMessage webSocketData) {
@@ -85,6 +102,12 @@ public class WebsocketController implements StructrTransactionListener {
 		broadcast(webSocketData, null);
 	}
 
+	/**
+	 * Serializes the given message once for each distinct set of result
+	 * objects visible to the receiving clients and hands it over to the
+	 * outbound queues of the clients. Runs on the preparer thread, so the
+	 * committing thread neither filters nor serializes.
+	 */
 	private void broadcast(final WebSocketMessage webSocketData, final Predicate<String> receiverSessionPredicate) {
 
 		// session must be valid to be received by the client
@@ -92,15 +115,16 @@ public class WebsocketController implements StructrTransactionListener {
 
 		final String pagePath                        = webSocketData.getNodeDataStringValue("pagePath");
 		final String encodedPath                     = URIUtil.encodePath(pagePath);
-		final List<StructrWebSocket> clientsToRemove = new LinkedList<>();
 		final Iterable<? extends GraphObject> result = webSocketData.getResult();
 		final String command                         = webSocketData.getCommand();
-		final GraphObject obj                        = webSocketData.getGraphObject();
+		final boolean filterResult                   = result != null && BroadcastCommands.contains(command);
+		final List<? extends GraphObject> resultList = filterResult ? Iterables.toList(result) : null;
+		final Map<BitSet, String> messages           = new HashMap<>();
+		final Object coalescingKey                   = getCoalescingKey(webSocketData);
 
-		String message;
+		for (final Map.Entry<StructrWebSocket, OutboundQueue> entry : clients.entrySet()) {
 
-		// create message
-		for (StructrWebSocket socket : clients) {
+			final StructrWebSocket socket = entry.getKey();
 
 			String clientPagePath = socket.getPagePath();
 			if (clientPagePath != null && !clientPagePath.equals(encodedPath)) {
@@ -117,49 +141,163 @@ public class WebsocketController implements StructrTransactionListener {
 					continue;
 				}
 
-				if (result != null && BroadcastCommands.contains(command)) {
+				final BitSet visibility = filterResult ? getVisibility(securityContext, resultList) : Unfiltered;
+				String message          = messages.get(visibility);
+
+				if (message == null) {
 
-					final WebSocketMessage clientData = webSocketData.copy();
+					if (filterResult) {
 
-					clientData.setResult(filter(securityContext, result));
+						final WebSocketMessage clientData = webSocketData.copy();
 
-					message = gson.toJson(clientData, WebSocketMessage.class);
+						clientData.setResult(select(resultList, visibility));
 
-				} else {
+						message = gson.toJson(clientData, WebSocketMessage.class);
+
+					} else {
+
+						message = gson.toJson(webSocketData, WebSocketMessage.class);
+					}
 
-					message = gson.toJson(webSocketData, WebSocketMessage.class);
+					messages.put(visibility, message);
 				}
 
-				try {
+				enqueue(socket, entry.getValue(), coalescingKey, message);
+			}
+		}
+	}
 
-					session.getRemote().sendString(message);
+	private void enqueue(final StructrWebSocket socket, final OutboundQueue queue, final Object coalescingKey, final String message) {
 
-				} catch (Throwable t) {
+		switch (queue.offer(coalescingKey, message)) {
 
-					if (t instanceof WebSocketException) {
+			case Scheduled:
+				sender.schedule(() -> send(socket, queue), Math.max(0, Settings.WebsocketBroadcastDelay.getValue()), TimeUnit.MILLISECONDS);
+				break;
 
-						WebSocketException wse = (WebSocketException) t;
+			case Rejected:
+				logger.warn("Client {} cannot keep up with broadcast messages, closing connection.", socket);
+				unregisterClient(socket);
+				sender.execute(() -> close(socket));
+				break;
+		}
+	}
 
-						if ("RemoteEndpoint unavailable, current state [CLOSED], expecting [OPEN or CONNECTED]".equals(wse.getMessage())) {
-							clientsToRemove.add(socket);
-						}
-					}
+	/**
+	 * Sends the next pending message of the given queue without blocking.
+	 * The following message is sent when the write has completed, so there
+	 * is at most one write in progress per client.
+	 */
+	private void send(final StructrWebSocket socket, final OutboundQueue queue) {
+
+		final Session session = socket.getSession();
+		if (session == null) {
+
+			unregisterClient(socket);
+			return;
+		}
+
+		final String message = queue.poll();
+		if (message != null) {
+
+			final WriteCallback callback = new WriteCallback() {
 
-					logger.debug("Error sending message to client.", t);
+				@Override
+				public void writeSuccess() {
+					sender.execute(() -> send(socket, queue));
 				}
+
+				@Override
+				public void writeFailed(final Throwable t) {
+					sendFailed(socket, queue, session, t);
+				}
+			};
+
+			try {
+
+				session.getRemote().sendString(message, callback);
+
+			} catch (Throwable t) {
+
+				sendFailed(socket, queue, session, t);
 			}
 		}
+	}
+
+	private void sendFailed(final StructrWebSocket socket, final OutboundQueue queue, final Session session, final Throwable t) {
 
-		for (StructrWebSocket s : clientsToRemove) {
+		if (!session.isOpen()) {
 
-			unregisterClient(s);
+			unregisterClient(socket);
 
-			logger.warn("Client removed from broadcast list: {}", s);
+			logger.warn("Client removed from broadcast list: {}", socket);
+
+			return;
 		}
+
+		logger.debug("Error sending message to client.", t);
+
+		// continue with the next message
+		sender.execute(() -> send(socket, queue));
 	}
 
-	private <T extends GraphObject> Iterable<T> filter(final SecurityContext securityContext, final Iterable<T> all) {
-		return Iterables.filter(e -> { return securityContext.isVisible((AccessControllable)e); }, all);
+	private void close(final StructrWebSocket socket) {
+
+		final Session session = socket.getSession();
+		if (session != null) {
+
+			try {
+
+				session.close(StatusCode.TRY_AGAIN_LATER, "Too many pending messages");
+
+			} catch (Throwable t) {
+
+				logger.debug("Error closing client connection.", t);
+			}
+		}
+	}
+
+	/**
+	 * Returns the key under which consecutive messages for the same object
+	 * replace each other in the outbound queues, or null if the message
+	 * must not be combined with others. Only UPDATE messages with the same
+	 * set of modified and removed properties are combined, because the
+	 * later message contains the same keys with newer values.
+	 */
+	private Object getCoalescingKey(final WebSocketMessage message) {
+
+		if ("UPDATE".equals(message.getCommand()) && message.getGraphObject() != null && message.getId() != null) {
+
+			return Arrays.asList(message.getId(), message.getCallback(), new ArrayList<>(message.getModifiedProperties()), new ArrayList<>(message.getRemovedProperties()));
+		}
+
+		return null;
+	}
+
+	private BitSet getVisibility(final SecurityContext securityContext, final List<? extends GraphObject> list) {
+
+		final BitSet visibility = new BitSet();
+		final int size          = list.size();
+
+		for (int i=0; i<size; i++) {
+
+			if (securityContext.isVisible((AccessControllable)list.get(i))) {
+				visibility.set(i);
+			}
+		}
+
+		return visibility;
+	}
+
+	private <T extends GraphObject> List<T> select(final List<T> list, final BitSet visibility) {
+
+		final List<T> selection = new ArrayList<>(visibility.cardinality());
+
+		for (int i = visibility.nextSetBit(0); i >= 0; i = visibility.nextSetBit(i + 1)) {
+			selection.add(list.get(i));
+		}
+
+		return selection;
 	}
 
 	// ----- interface StructrTransactionListener -----
@@ -170,26 +308,67 @@ public class WebsocketController implements StructrTransactionListener {
 	@Override
 	public void afterCommit(final SecurityContext securityContext, final Collection<ModificationEvent> modificationEvents) {
 
+		if (clients.isEmpty()) {
+			return;
+		}
+
+		final List<WebSocketMessage> messages = new ArrayList<>();
+
+		// messages are created with the security context of the committing user
 		for (final ModificationEvent event : modificationEvents) {
 
 			try {
 				final WebSocketMessage message = getMessageForEvent(securityContext, event);
 				if (message != null) {
 
-					broadcast(message);
+					messages.add(message);
 				}
 
 			} catch (FrameworkException ignore) {
 			}
 		}
+
+		if (!messages.isEmpty()) {
+
+			prepare(() -> {
+
+				for (final WebSocketMessage message : messages) {
+					broadcast(message);
+				}
+			});
+		}
 	}
 
 	@Override
 	public void simpleBroadcast(final String commandName, final Map<String, Object> data, final Predicate<String> sessionIdPredicate) {
-		broadcast(MessageBuilder.forName(commandName).data(data).build(), sessionIdPredicate);
+
+		final WebSocketMessage message = MessageBuilder.forName(commandName).data(data).build();
+
+		prepare(() -> broadcast(message, sessionIdPredicate));
 	}
 
 	// ----- private methods -----
+	/**
+	 * Runs the given broadcast in a transaction on the preparer thread.
+	 * A single thread keeps the messages in the order of the commits.
+	 */
+	private void prepare(final Runnable broadcast) {
+
+		preparer.execute(() -> {
+
+			try (final Tx tx = StructrApp.getInstance().tx(false, false, false)) {
+
+				broadcast.run();
+
+				tx.success();
+
+			} catch (Throwable t) {
+
+				logger.warn("Unable to broadcast websocket message: {}", t.getMessage());
+			}
+		});
+	}
+
 	private WebSocketMessage getMessageForEvent(final SecurityContext securityContext, final ModificationEvent modificationEvent) throws FrameworkException {
 
 		final String callbackId = modificationEvent.getCallbackId();
@@ -385,6 +564,33 @@ public class WebsocketController implements StructrTransactionListener {
 		return null;
 	}
 
+	private static ScheduledExecutorService createSenderThreadPool() {
+
+		final int threads               = Math.max(1, Settings.WebsocketBroadcastThreads.getValue());
+		final AtomicInteger threadCount = new AtomicInteger();
+
+		return new ScheduledThreadPoolExecutor(threads, r -> {
+
+			final Thread thread = new Thread(r, "WebsocketBroadcast-" + threadCount.incrementAndGet());
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	private static ExecutorService createPreparerThread() {
+
+		return Executors.newSingleThreadExecutor(r -> {
+
+			final Thread thread = new Thread(r, "WebsocketBroadcastPreparer");
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
 	private WebSocketMessage createMessage(final String command, final String callbackId) {
 
 		final WebSocketMessage newMessage = new WebSocketMessage();
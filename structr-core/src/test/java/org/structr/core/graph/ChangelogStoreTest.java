@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.core.graph;
+
+import org.apache.commons.io.FileUtils;
+import org.structr.common.error.FrameworkException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+/**
+ *
+ */
+public class ChangelogStoreTest {
+
+	private Path directory = null;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("changelog");
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		FileUtils.deleteDirectory(directory.toFile());
+	}
+
+	@Test
+	public void testAppendAndRead() throws IOException, FrameworkException {
+
+		final ChangelogStore store = new ChangelogStore(directory, 1024 * 1024);
+
+		store.append("n", "a", entry(1, "a1") + "\n" + entry(2, "a2"));
+		store.append("n", "b", entry(3, "b1"));
+		store.append("u", "a", entry(4, "u1"));
+		store.append("n", "a", entry(5, "a3"));
+
+		assertEquals(List.of(entry(1, "a1"), entry(2, "a2"), entry(5, "a3")), store.read("n", "a", null, null));
+		assertEquals(List.of(entry(3, "b1")), store.read("n", "b", null, null));
+		assertEquals(List.of(entry(4, "u1")), store.read("u", "a", null, null));
+		assertEquals(List.of(), store.read("n", "c", null, null));
+
+		store.close();
+	}
+
+	@Test
+	public void testTimeRange() throws IOException, FrameworkException {
+
+		ChangelogStore store = new ChangelogStore(directory, 256);
+
+		for (int i=0; i<20; i++) {
+			store.append("n", "a", entry(1000 + i, "a" + i));
+		}
+
+		assertEquals(expected(1005, 1009), store.read("n", "a", 1005L, 1009L));
+		assertEquals(expected(1000, 1002), store.read("n", "a", null, 1002L));
+		assertEquals(expected(1017, 1019), store.read("n", "a", 1017L, null));
+		assertEquals(List.of(), store.read("n", "a", 2000L, null));
+
+		store.close();
+
+		// sealed segments are skipped by their time range
+		store = new ChangelogStore(directory, 256);
+
+		assertEquals(expected(1005, 1009), store.read("n", "a", 1005L, 1009L));
+
+		store.close();
+	}
+
+	@Test
+	public void testRollover() throws IOException, FrameworkException {
+
+		ChangelogStore store = new ChangelogStore(directory, 256);
+
+		for (int i=0; i<20; i++) {
+			store.append("n", "a", entry(1000 + i, "a" + i));
+		}
+
+		assertEquals(expected(1000, 1019), store.read("n", "a", null, null));
+
+		store.close();
+
+		final List<Path> segments = list("*.log");
+
+		assertTrue("Segments were not rolled over", segments.size() > 1);
+		assertEquals("Every segment must have an index", segments.size(), list("*.idx").size());
+
+		for (final Path segment : segments) {
+			assertTrue("Segment exceeds the maximum size", Files.size(segment) <= 256);
+		}
+
+		store = new ChangelogStore(directory, 256);
+
+		store.append("n", "a", entry(1020, "a20"));
+
+		assertEquals(expected(1000, 1020), store.read("n", "a", null, null));
+
+		store.close();
+	}
+
+	@Test
+	public void testRebuildTornIndex() throws IOException, FrameworkException {
+
+		ChangelogStore store = new ChangelogStore(directory, 1024 * 1024);
+
+		for (int i=0; i<10; i++) {
+			store.append("n", "a", entry(1000 + i, "a" + i));
+		}
+
+		store.close();
+
+		final Path segment = list("*.log").get(0);
+		final long size    = Files.size(segment);
+
+		// simulate a crash while a record was written
+		Files.write(segment, new byte[] { 0, 0, 1, 0, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+		store = new ChangelogStore(directory, 1024 * 1024);
+
+		assertEquals("Torn record was not truncated", size, Files.size(segment));
+		assertEquals(expected(1000, 1009), store.read("n", "a", null, null));
+		assertEquals(expected(1003, 1004), store.read("n", "a", 1003L, 1004L));
+
+		store.append("n", "a", entry(1010, "a10"));
+
+		assertEquals(expected(1000, 1010), store.read("n", "a", null, null));
+
+		store.close();
+
+		// a missing index is rebuilt as well
+		Files.delete(list("*.idx").get(0));
+
+		store = new ChangelogStore(directory, 1024 * 1024);
+
+		assertEquals(expected(1000, 1010), store.read("n", "a", null, null));
+
+		store.close();
+	}
+
+	@Test
+	public void testBoundedQueue() throws IOException, FrameworkException {
+
+		final ChangelogStore store = new ChangelogStore(directory, 1024 * 1024, 4);
+
+		// the writer has to catch up while the entries are appended
+		for (int i=0; i<1000; i++) {
+			store.append("n", "a", entry(1000 + i, "a" + i));
+		}
+
+		assertEquals(expected(1000, 1999), store.read("n", "a", null, null));
+
+		store.close();
+	}
+
+	@Test
+	public void testFullQueueFailsCommit() throws IOException, FrameworkException {
+
+		final ChangelogStore store = new ChangelogStore(directory, 256, 1, 200L, false);
+		boolean failed             = false;
+
+		stallWriter();
+
+		try {
+
+			for (int i=0; i<50 && !failed; i++) {
+
+				try {
+
+					store.append("n", "a", entry(1000 + i, "a" + i));
+
+				} catch (FrameworkException fex) {
+
+					assertEquals(503, fex.getStatus());
+					failed = true;
+				}
+			}
+
+		} finally {
+
+			releaseWriter();
+		}
+
+		assertTrue("Full queue did not fail the commit", failed);
+
+		store.close();
+	}
+
+	@Test
+	public void testFullQueueDropsEntries() throws IOException, FrameworkException {
+
+		ChangelogStore store = new ChangelogStore(directory, 256, 1, 200L, true);
+		final long start     = System.currentTimeMillis();
+
+		stallWriter();
+
+		try {
+
+			for (int i=0; i<50; i++) {
+				store.append("n", "a", entry(1000 + i, "a" + i));
+			}
+
+		} finally {
+
+			releaseWriter();
+		}
+
+		// only the first commit waits for the stalled writer
+		assertTrue("Commits waited for the stalled writer", System.currentTimeMillis() - start < 5000);
+
+		// the writer writes the queued entries when it is stopped
+		store.close();
+
+		store = new ChangelogStore(directory, 256);
+
+		assertFalse("No entries were dropped", store.read("n", "a", null, null).size() == 50);
+
+		store.close();
+	}
+
+	// ----- private methods -----
+	/**
+	 * Replaces the directory with a file, so the writer cannot start a
+	 * new segment and stops taking entries from the queue.
+	 */
+	private void stallWriter() throws IOException {
+
+		Files.move(directory, getMovedDirectory());
+		Files.createFile(directory);
+	}
+
+	private void releaseWriter() throws IOException {
+
+		Files.delete(directory);
+		Files.move(getMovedDirectory(), directory);
+	}
+
+	private Path getMovedDirectory() {
+		return directory.resolveSibling(directory.getFileName() + "-moved");
+	}
+
+	private String entry(final long time, final String value) {
+		return "{\"time\":" + time + ",\"verb\":\"change\",\"value\":\"" + value + "\"}";
+	}
+
+	private List<String> expected(final int from, final int to) {
+
+		final List<String> entries = new ArrayList<>();
+
+		for (int i=from; i<=to; i++) {
+			entries.add(entry(i, "a" + (i - 1000)));
+		}
+
+		return entries;
+	}
+
+	private List<Path> list(final String glob) throws IOException {
+
+		final List<Path> files = new ArrayList<>();
+
+		try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+
+			for (final Path file : stream) {
+				files.add(file);
+			}
+		}
+
+		Collections.sort(files);
+
+		return files;
+	}
+}
@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.common.AccessPathCache;
+import org.structr.common.PermissionResolutionMask;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.test.core.entity.OneOneOneToOne;
+import org.structr.test.core.entity.TestOne;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the invalidation of cached permission resolution paths.
+ */
+public class AccessPathCacheTest extends StructrTest {
+
+	@Test
+	public void testInvalidateForId() {
+
+		AccessPathCache.invalidate();
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> nodes            = createTestNodes(TestOne.class, 4);
+			final TestOne a                      = nodes.get(0);
+			final TestOne b                      = nodes.get(1);
+			final TestOne c                      = nodes.get(2);
+			final TestOne d                      = nodes.get(3);
+			final PermissionResolutionMask mask1 = new PermissionResolutionMask();
+			final PermissionResolutionMask mask2 = new PermissionResolutionMask();
+
+			AccessPathCache.put(a, b, mask1);
+			AccessPathCache.update(a, b, c.getNode());
+
+			AccessPathCache.put(a, d, mask2);
+			AccessPathCache.update(a, d, b.getNode());
+
+			assertSame(mask1, AccessPathCache.get(a, b));
+			assertSame(mask2, AccessPathCache.get(a, d));
+
+			// only paths that contain the given node are removed
+			AccessPathCache.invalidateForId(c.getUuid());
+
+			assertNull("Path was not invalidated", AccessPathCache.get(a, b));
+			assertSame("Unrelated path was invalidated", mask2, AccessPathCache.get(a, d));
+
+			AccessPathCache.invalidateForId(b.getUuid());
+
+			assertNull("Path was not invalidated", AccessPathCache.get(a, d));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testInvalidateForRelType() {
+
+		AccessPathCache.invalidate();
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> nodes           = createTestNodes(TestOne.class, 2);
+			final TestOne a                     = nodes.get(0);
+			final TestOne b                     = nodes.get(1);
+			final OneOneOneToOne rel            = createTestRelationship(a, b, OneOneOneToOne.class);
+			final PermissionResolutionMask mask = new PermissionResolutionMask();
+
+			AccessPathCache.put(a, b, mask);
+			AccessPathCache.update(a, b, rel.getRelationship());
+
+			AccessPathCache.invalidateForRelType("UNRELATED");
+
+			assertSame("Unrelated relationship type invalidated the path", mask, AccessPathCache.get(a, b));
+
+			AccessPathCache.invalidateForRelType(rel.getRelType().name());
+
+			assertNull("Path was not invalidated", AccessPathCache.get(a, b));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testIndexesAreCleanedUp() {
+
+		AccessPathCache.invalidate();
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> nodes            = createTestNodes(TestOne.class, 4);
+			final TestOne a                      = nodes.get(0);
+			final TestOne b                      = nodes.get(1);
+			final TestOne c                      = nodes.get(2);
+			final TestOne d                      = nodes.get(3);
+			final PermissionResolutionMask mask1 = new PermissionResolutionMask();
+			final PermissionResolutionMask mask2 = new PermissionResolutionMask();
+
+			AccessPathCache.put(a, b, mask1);
+			AccessPathCache.update(a, b, c.getNode());
+			AccessPathCache.update(a, b, d.getNode());
+
+			AccessPathCache.invalidateForId(c.getUuid());
+
+			assertNull(AccessPathCache.get(a, b));
+
+			// the new path does not contain d, so the old index entry of d must be gone
+			AccessPathCache.put(a, b, mask2);
+			AccessPathCache.update(a, b, c.getNode());
+
+			AccessPathCache.invalidateForId(d.getUuid());
+
+			assertSame("Stale index entry invalidated a new path", mask2, AccessPathCache.get(a, b));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testConcurrentInvalidationKeepsNewEntriesIndexed() {
+
+		AccessPathCache.invalidate();
+
+		List<TestOne> nodes = null;
+
+		try (final Tx tx = app.tx()) {
+
+			nodes = createTestNodes(TestOne.class, 5);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final TestOne a             = nodes.get(0);
+		final TestOne c             = nodes.get(1);
+		final List<TestOne> targets = nodes.subList(2, 5);
+		final List<Thread> threads  = new ArrayList<>();
+
+		for (int t=0; t<8; t++) {
+
+			threads.add(new Thread(() -> {
+
+				for (int i=0; i<5_000; i++) {
+
+					final TestOne b = targets.get(i % targets.size());
+
+					// recreate entries with the same keys while they are invalidated
+					AccessPathCache.put(a, b, new PermissionResolutionMask());
+					AccessPathCache.update(a, b, c.getNode());
+					AccessPathCache.invalidateForId(c.getUuid());
+				}
+			}));
+		}
+
+		threads.forEach(Thread::start);
+
+		try {
+
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+
+		} catch (InterruptedException iex) {
+
+			fail("Unexpected interruption");
+		}
+
+		// every remaining entry contains c, so it must be found by the index
+		AccessPathCache.invalidateForId(c.getUuid());
+
+		for (final TestOne b : targets) {
+			assertNull("Entry lost its index registration", AccessPathCache.get(a, b));
+		}
+	}
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.core.graph.Instantiator;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests creation of objects through the cached constructor handles of
+ * the Instantiator.
+ */
+public class InstantiatorTest {
+
+	@Test
+	public void testNewInstance() throws Exception {
+
+		final PlainType first  = Instantiator.newInstance(PlainType.class);
+		final PlainType second = Instantiator.newInstance(PlainType.class);
+
+		assertNotNull(first);
+		assertNotNull(second);
+		assertNotSame(first, second);
+	}
+
+	@Test
+	public void testUninstantiableClasses() {
+
+		for (final Class type : new Class[] { Runnable.class, AbstractType.class, NoDefaultConstructor.class }) {
+
+			// repeat to make sure that failures are reported the same way every time
+			for (int i=0; i<2; i++) {
+
+				try {
+
+					Instantiator.newInstance(type);
+					fail("Instantiation of " + type.getSimpleName() + " should fail");
+
+				} catch (InstantiationException iex) {
+
+					assertEquals(type.getName(), iex.getMessage());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testConstructorExceptionsArePropagated() {
+
+		try {
+
+			Instantiator.newInstance(CheckedExceptionType.class);
+			fail("Constructor exception should be propagated");
+
+		} catch (Exception ex) {
+
+			assertTrue(ex instanceof IOException);
+			assertEquals("checked", ex.getMessage());
+		}
+
+		try {
+
+			Instantiator.newInstance(UncheckedExceptionType.class);
+			fail("Constructor exception should be propagated");
+
+		} catch (Exception ex) {
+
+			assertTrue(ex instanceof IllegalStateException);
+			assertEquals("unchecked", ex.getMessage());
+		}
+	}
+
+	// ----- nested classes -----
+	public static class PlainType {
+	}
+
+	public static abstract class AbstractType {
+	}
+
+	public static class NoDefaultConstructor {
+
+		public NoDefaultConstructor(final String value) {
+		}
+	}
+
+	public static class CheckedExceptionType {
+
+		public CheckedExceptionType() throws IOException {
+			throw new IOException("checked");
+		}
+	}
+
+	public static class UncheckedExceptionType {
+
+		public UncheckedExceptionType() {
+			throw new IllegalStateException("unchecked");
+		}
+	}
+}
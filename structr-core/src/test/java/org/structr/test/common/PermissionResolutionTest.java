@@ -23,16 +23,19 @@ import org.slf4j.LoggerFactory;
 import org.structr.api.graph.PropagationDirection;
 import org.structr.api.graph.PropagationMode;
 import org.structr.common.AccessMode;
+import org.structr.common.PermissionResolutionCache;
 import org.structr.common.Permission;
 import org.structr.common.SecurityContext;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.*;
+import org.structr.core.graph.FlushCachesCommand;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
+import org.structr.test.core.entity.TestOne;
 import org.testng.annotations.Test;
 
 import java.util.List;
@@ -607,4 +610,170 @@ public class PermissionResolutionTest extends StructrTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void testGrantChangesInvalidateCachedPermissions() {
+
+		Principal user1 = null;
+
+		try (final Tx tx = app.tx()) {
+
+			user1 = app.create(Principal.class, "user1");
+
+			app.create(TestOne.class, "node");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final App userApp = StructrApp.getInstance(SecurityContext.getInstance(user1, AccessMode.Backend));
+
+		assertUserCanSee(userApp, TestOne.class, false);
+
+		grantOrRevoke(user1, true);
+		assertUserCanSee(userApp, TestOne.class, true);
+
+		grantOrRevoke(user1, false);
+		assertUserCanSee(userApp, TestOne.class, false);
+
+		grantOrRevoke(user1, true);
+		assertUserCanSee(userApp, TestOne.class, true);
+
+		FlushCachesCommand.flushAll();
+
+		assertEquals("Permission resolution cache should be empty after flushing all caches", Integer.valueOf(0), PermissionResolutionCache.getCacheInfo().get("size"));
+
+		assertUserCanSee(userApp, TestOne.class, true);
+	}
+
+	@Test
+	public void testDomainRelationshipChangesInvalidateCachedPermissions() {
+
+		Principal user1 = null;
+		PropertyKey key = null;
+		Class type1     = null;
+		Class type2     = null;
+
+		try (final Tx tx = app.tx()) {
+
+			user1 = app.create(Principal.class, "user1");
+
+			final SchemaNode t1 = app.create(SchemaNode.class, "Type1");
+			final SchemaNode t2 = app.create(SchemaNode.class, "Type2");
+
+			app.create(SchemaRelationshipNode.class,
+				new NodeAttribute<>(SchemaRelationshipNode.sourceNode, t1),
+				new NodeAttribute<>(SchemaRelationshipNode.targetNode, t2),
+				new NodeAttribute<>(SchemaRelationshipNode.relationshipType, "RELATED"),
+				new NodeAttribute<>(SchemaRelationshipNode.sourceMultiplicity, "1"),
+				new NodeAttribute<>(SchemaRelationshipNode.targetMultiplicity, "1"),
+				new NodeAttribute<>(SchemaRelationshipNode.sourceJsonName, "source"),
+				new NodeAttribute<>(SchemaRelationshipNode.targetJsonName, "target"),
+				new NodeAttribute<>(SchemaRelationshipNode.permissionPropagation, PropagationDirection.Out),
+				new NodeAttribute<>(SchemaRelationshipNode.readPropagation, PropagationMode.Add)
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			type1 = StructrApp.getConfiguration().getNodeEntityClass("Type1");
+			type2 = StructrApp.getConfiguration().getNodeEntityClass("Type2");
+			key   = StructrApp.key(type1, "target");
+
+			final NodeInterface instance1 = app.create(type1, "instance1OfType1");
+
+			app.create(type2, "instance1OfType2");
+
+			instance1.grant(Permission.read, user1);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final App userApp = StructrApp.getInstance(SecurityContext.getInstance(user1, AccessMode.Backend));
+
+		assertUserCanSee(userApp, type1, true);
+		assertUserCanSee(userApp, type2, false);
+
+		// creating the relationship propagates the read permission
+		setTarget(type1, type2, key, true);
+		assertUserCanSee(userApp, type2, true);
+
+		// removing the relationship removes the propagated permission
+		setTarget(type1, type2, key, false);
+		assertUserCanSee(userApp, type2, false);
+
+		setTarget(type1, type2, key, true);
+		assertUserCanSee(userApp, type2, true);
+	}
+
+	// ----- private methods -----
+	private void assertUserCanSee(final App userApp, final Class type, final boolean expected) {
+
+		try (final Tx tx = userApp.tx()) {
+
+			// query twice so that the second query is answered from the cache
+			for (int i=0; i<2; i++) {
+				assertEquals("Invalid permission resolution result for " + type.getSimpleName(), expected, userApp.nodeQuery(type).getFirst() != null);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private void grantOrRevoke(final Principal user, final boolean grant) {
+
+		try (final Tx tx = app.tx()) {
+
+			final TestOne node = app.nodeQuery(TestOne.class).getFirst();
+
+			if (grant) {
+
+				node.grant(Permission.read, user);
+
+			} else {
+
+				node.revoke(Permission.read, user);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private void setTarget(final Class type1, final Class type2, final PropertyKey key, final boolean linked) {
+
+		try (final Tx tx = app.tx()) {
+
+			final NodeInterface instance1 = (NodeInterface)app.nodeQuery(type1).getFirst();
+			final NodeInterface instance2 = (NodeInterface)app.nodeQuery(type2).getFirst();
+
+			instance1.setProperty(key, linked ? instance2 : null);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
 }
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.common.error.FrameworkException;
+import org.structr.core.GraphObject;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.RelationshipPrefetcher;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
+import org.structr.test.core.entity.TestOne;
+import org.structr.test.core.entity.TestSix;
+import org.structr.test.core.entity.TestThree;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.function.Function;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Compares the related nodes of prefetched and non-prefetched nodes.
+ */
+public class RelationshipPrefetcherTest extends StructrTest {
+
+	private static final Function<GraphObject, Iterable<PropertyKey>> keyProvider = obj -> {
+
+		if (obj instanceof TestSix) {
+			return List.of(TestSix.manyToManyTestOnes, TestSix.oneToManyTestOnes, TestSix.oneToOneTestThree, TestSix.name);
+		}
+
+		return List.of(TestOne.manyToManyTestSixs, TestOne.name);
+	};
+
+	@Test
+	public void testPrefetchedRelationships() {
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> ones = createTestNodes(TestOne.class, 10);
+
+			for (int i=0; i<10; i++) {
+
+				final TestSix six = createTestNode(TestSix.class, "six" + i);
+
+				// leave some nodes without relationships
+				if (i % 3 != 0) {
+
+					six.setProperty(TestSix.manyToManyTestOnes, ones.subList(0, i));
+					six.setProperty(TestSix.oneToManyTestOnes, List.of(ones.get(i)));
+					six.setProperty(TestSix.oneToOneTestThree, createTestNode(TestThree.class, "three" + i));
+				}
+			}
+
+			for (int i=0; i<ones.size(); i++) {
+				ones.get(i).setProperty(TestOne.name, "one" + i);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final Map<String, String> expected = new TreeMap<>();
+		final Map<String, String> actual   = new TreeMap<>();
+
+		try (final Tx tx = app.tx()) {
+
+			for (final NodeInterface node : getNodes()) {
+				expected.put(node.getName(), describe(node));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<NodeInterface> nodes = getNodes();
+
+			RelationshipPrefetcher.prefetch(nodes, keyProvider);
+
+			for (final NodeInterface node : nodes) {
+				actual.put(node.getName(), describe(node));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertEquals(20, expected.size());
+		assertEquals("Prefetched relationships differ", expected, actual);
+	}
+
+	@Test
+	public void testPrefetchingIterator() {
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> ones = createTestNodes(TestOne.class, 5);
+
+			for (int i=0; i<5; i++) {
+				createTestNode(TestSix.class, "six" + i).setProperty(TestSix.manyToManyTestOnes, ones);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<NodeInterface> nodes  = getNodes();
+			final Iterator<NodeInterface> it = RelationshipPrefetcher.iterator(nodes.iterator(), keyProvider);
+			int count                        = 0;
+
+			while (it.hasNext()) {
+
+				final NodeInterface node = it.next();
+
+				if (node instanceof TestSix) {
+
+					assertEquals(5, count((Iterable)node.getProperty(TestSix.manyToManyTestOnes)));
+
+				} else {
+
+					assertEquals(5, count((Iterable)node.getProperty(TestOne.manyToManyTestSixs)));
+				}
+
+				count++;
+			}
+
+			assertEquals(nodes.size(), count);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	// ----- private methods -----
+	private List<NodeInterface> getNodes() throws FrameworkException {
+
+		final List<NodeInterface> nodes = new ArrayList<>();
+
+		// mixed types in one batch
+		nodes.addAll(app.nodeQuery(TestSix.class).getAsList());
+		nodes.addAll(app.nodeQuery(TestOne.class).getAsList());
+
+		return nodes;
+	}
+
+	private String describe(final NodeInterface node) {
+
+		final List<String> names = new ArrayList<>();
+
+		for (final PropertyKey key : keyProvider.apply(node)) {
+
+			final Object value = node.getProperty(key);
+
+			if (value instanceof Iterable) {
+
+				for (final Object obj : (Iterable)value) {
+					names.add(key.jsonName() + ":" + ((NodeInterface)obj).getName());
+				}
+
+			} else if (value instanceof NodeInterface) {
+
+				names.add(key.jsonName() + ":" + ((NodeInterface)value).getName());
+			}
+		}
+
+		Collections.sort(names);
+
+		return names.toString();
+	}
+
+	private int count(final Iterable iterable) {
+
+		int count = 0;
+
+		for (final Object obj : iterable) {
+			count++;
+		}
+
+		return count;
+	}
+}
@@ -1852,6 +1852,164 @@ public class SearchAndSortingTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void test09SortedPagingWithEqualKeys() {
+
+		final PropertyKey key = TestOne.anInt;
+		final int number      = 97;
+		final int pageSize    = 10;
+
+		try {
+
+			final List<TestOne> nodes = createTestNodes(TestOne.class, number);
+
+			Collections.shuffle(nodes, new Random(System.nanoTime()));
+
+			try (final Tx tx = app.tx()) {
+
+				int i = 0;
+
+				// only 7 distinct values, so most nodes have equal sort keys
+				for (final NodeInterface node : nodes) {
+					node.setProperty(key, i++ % 7);
+				}
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			for (final boolean sortDesc : new boolean[] { false, true }) {
+
+				// unpaged queries sort the full result
+				final List<String> all = getUuids(app.nodeQuery(TestOne.class).sort(key, sortDesc).getAsList());
+
+				assertEquals(number, all.size());
+
+				for (int page = 1; page <= 11; page++) {
+
+					final ResultStream<TestOne> result = app.nodeQuery(TestOne.class).sort(key, sortDesc).pageSize(pageSize).page(page).getResultStream();
+					final List<String> expected        = all.subList(Math.min(number, (page - 1) * pageSize), Math.min(number, page * pageSize));
+
+					// equal keys must keep the order of the full sort
+					assertEquals("Sorted page differs from the full sort", expected, getUuids(result));
+					assertEquals("Invalid result count for sorted page", number, result.calculateTotalResultCount(null, Settings.ResultCountSoftLimit.getValue()));
+					assertEquals("Invalid page count for sorted page", 10, result.calculatePageCount(null, Settings.ResultCountSoftLimit.getValue()));
+
+					result.close();
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+			fail("Unexpected exception.");
+		}
+	}
+
+	@Test
+	public void test09ResultCountInDatabase() {
+
+		final int softLimit = Settings.ResultCountSoftLimit.getValue();
+		final int number    = 95;
+		Principal tester    = null;
+
+		try {
+
+			final List<TestOne> nodes = createTestNodes(TestOne.class, number);
+
+			try (final Tx tx = app.tx()) {
+
+				tester = app.create(Principal.class, "tester");
+
+				int i = 0;
+
+				for (final TestOne node : nodes) {
+
+					// 40 nodes with anInt = 1, 30 nodes visible for tester
+					node.setProperty(TestOne.anInt, i < 40 ? 1 : 0);
+
+					if (i % 3 == 0 && i < 90) {
+						node.setProperty(NodeInterface.owner, tester);
+					}
+
+					i++;
+				}
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			// count in database must match the number of unpaged results
+			assertResultCount(app.nodeQuery(TestOne.class), app.nodeQuery(TestOne.class).getAsList().size(), softLimit);
+			assertResultCount(app.nodeQuery(TestOne.class).and(TestOne.anInt, 1), app.nodeQuery(TestOne.class).and(TestOne.anInt, 1).getAsList().size(), softLimit);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		final App testerApp = StructrApp.getInstance(SecurityContext.getInstance(tester, AccessMode.Backend));
+
+		try (final Tx tx = testerApp.tx()) {
+
+			// results filtered by permissions are counted exactly by default
+			assertResultCount(testerApp.nodeQuery(TestOne.class), 30, softLimit);
+
+			// estimated count ignores permissions
+			Settings.ResultCountMode.setValue("estimated");
+
+			assertResultCount(testerApp.nodeQuery(TestOne.class), number, softLimit);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.ResultCountMode.setValue(Settings.ResultCountMode.getDefaultValue());
+		}
+
+		final App anonymousApp = StructrApp.getInstance(SecurityContext.getInstance(null, AccessMode.Frontend));
+
+		try (final Tx tx = anonymousApp.tx()) {
+
+			// anonymous users must not learn the number of invisible nodes
+			Settings.ResultCountMode.setValue("estimated");
+
+			assertResultCount(anonymousApp.nodeQuery(TestOne.class), 0, softLimit);
+			assertResultCount(testerApp.nodeQuery(TestOne.class).publicOnly(), 0, softLimit);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.ResultCountMode.setValue(Settings.ResultCountMode.getDefaultValue());
+		}
+	}
+
 	@Test
 	public void testManyToManyReverseNodeSearch() {
 
@@ -2574,6 +2732,19 @@ public class SearchAndSortingTest extends StructrTest {
 	}
 
 	// ----- private methods -----
+	private void assertResultCount(final Query<TestOne> query, final int expected, final int softLimit) throws FrameworkException {
+
+		final int pageSize = 10;
+
+		try (final ResultStream<TestOne> result = query.pageSize(pageSize).page(2).getResultStream()) {
+
+			// consume the page first, like a REST response does
+			assertEquals("Invalid page size", Math.max(0, Math.min(pageSize, expected - pageSize)), getUuids(result).size());
+			assertEquals("Invalid result count", expected, result.calculateTotalResultCount(null, softLimit));
+			assertEquals("Invalid page count", (expected + pageSize - 1) / pageSize, result.calculatePageCount(null, softLimit));
+		}
+	}
+
 	private void testPaging(final Class type, final int pageSize, final int page, final int number, final int offset, final boolean includeHidden, final PropertyKey sortKey, final boolean sortDesc) throws FrameworkException {
 
 		final Query query = app.nodeQuery(type).sort(sortKey, sortDesc).page(page).pageSize(pageSize);
@@ -2604,4 +2775,15 @@ public class SearchAndSortingTest extends StructrTest {
 
 		}
 	}
+
+	private List<String> getUuids(final Iterable<? extends GraphObject> list) {
+
+		final List<String> uuids = new ArrayList<>();
+
+		for (final GraphObject obj : list) {
+			uuids.add(obj.getUuid());
+		}
+
+		return uuids;
+	}
 }
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.StructrApp;
+import org.structr.core.cluster.StructrMessage;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
+import org.structr.rest.auth.AuthHelper;
+import org.structr.rest.auth.SessionHelper;
+import org.structr.rest.auth.SessionPrincipalCache;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the session ID to principal lookup cache.
+ */
+public class SessionPrincipalCacheTest extends StructrTest {
+
+	@Test
+	public void testLookupAndInvalidation() {
+
+		SessionPrincipalCache.clear();
+
+		try {
+
+			final List<Principal> users = createPrincipals(2);
+			final Principal a           = users.get(0);
+			final Principal b           = users.get(1);
+
+			try (final Tx tx = app.tx()) {
+
+				Principal.addSessionId(a, "session1");
+				Principal.addSessionId(b, "session2");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Invalid principal for session ID", a, AuthHelper.getPrincipalForSessionId("session1"));
+
+				final int hits = SessionPrincipalCache.getCacheInfo().get("hits");
+
+				assertEquals("Invalid principal for session ID", a, AuthHelper.getPrincipalForSessionId("session1"));
+				assertEquals("Invalid principal for session ID", b, AuthHelper.getPrincipalForSessionId("session2"));
+				assertEquals("Cached principal was not used", hits + 2, SessionPrincipalCache.getCacheInfo().get("hits").intValue());
+
+				// ping requests use the cache as well
+				assertEquals("Invalid principal for session ID", a, AuthHelper.getPrincipalForSessionId("session1", true));
+				assertEquals("Cached principal was not used", hits + 3, SessionPrincipalCache.getCacheInfo().get("hits").intValue());
+
+				tx.success();
+			}
+
+			// invalidation received from another cluster node
+			Services.getInstance().receive("cluster-node-2", new StructrMessage("sessions-invalidated", List.of("session2")));
+
+			assertEquals("Invalidated session ID was not removed", 1, SessionPrincipalCache.getCacheInfo().get("size").intValue());
+
+			try (final Tx tx = app.tx()) {
+
+				Principal.removeSessionId(a, "session1");
+				SessionHelper.clearSession("session2");
+				tx.success();
+			}
+
+			// the core entity notifies the cache through its session ID listener
+			assertEquals("Removed session ID was not removed from the cache", 0, SessionPrincipalCache.getCacheInfo().get("size").intValue());
+
+			try (final Tx tx = app.tx()) {
+
+				assertNull("Removed session ID must not be resolved", AuthHelper.getPrincipalForSessionId("session1"));
+				assertNull("Cleared session ID must not be resolved", AuthHelper.getPrincipalForSessionId("session2"));
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testStaleEntriesAreVerified() {
+
+		SessionPrincipalCache.clear();
+
+		final PropertyKey<String[]> sessionIds = StructrApp.key(Principal.class, "sessionIds");
+
+		try {
+
+			final List<Principal> users = createPrincipals(2);
+			final Principal a           = users.get(0);
+			final Principal b           = users.get(1);
+
+			// session ID added in a transaction that is rolled back
+			try (final Tx tx = app.tx()) {
+
+				Principal.addSessionId(a, "session1");
+			}
+
+			// session ID moved to another principal without invalidation (e.g. a missed cluster message)
+			try (final Tx tx = app.tx()) {
+
+				Principal.addSessionId(a, "session2");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				a.setProperty(sessionIds, new String[0]);
+				b.setProperty(sessionIds, new String[] { "session2" });
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertNull("Session ID of a rolled back transaction must not be resolved", AuthHelper.getPrincipalForSessionId("session1"));
+				assertEquals("Stale cache entry was used", b, AuthHelper.getPrincipalForSessionId("session2"));
+
+				// stale entries are removed
+				SessionPrincipalCache.put("session3", a);
+
+				assertNull("Stale cache entry was used", SessionPrincipalCache.get("session3", false));
+				assertNull("Stale cache entry was used", AuthHelper.getPrincipalForSessionId("session3"));
+
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testDisabledCache() {
+
+		SessionPrincipalCache.clear();
+		Settings.SessionPrincipalCacheSize.setValue(0);
+
+		try {
+
+			final Principal a = createPrincipals(1).get(0);
+
+			try (final Tx tx = app.tx()) {
+
+				Principal.addSessionId(a, "session1");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Invalid principal for session ID", a, AuthHelper.getPrincipalForSessionId("session1"));
+				assertEquals("Disabled cache must not store entries", 0, SessionPrincipalCache.getCacheInfo().get("size").intValue());
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			Settings.SessionPrincipalCacheSize.setValue(Settings.SessionPrincipalCacheSize.getDefaultValue());
+		}
+	}
+
+	// ----- private methods -----
+	private List<Principal> createPrincipals(final int count) throws FrameworkException {
+
+		try (final Tx tx = app.tx()) {
+
+			final List<Principal> users = createTestNodes(Principal.class, count);
+
+			tx.success();
+
+			return users;
+		}
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.api.DatabaseFeature;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Node;
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.QueryContext;
+import org.structr.api.util.ResultStream;
+import org.structr.common.AccessMode;
+import org.structr.common.Permission;
+import org.structr.common.SecurityContext;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.Services;
+import org.structr.core.app.App;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.Group;
+import org.structr.core.entity.Principal;
+import org.structr.core.graph.NodeInterface;
+import org.structr.core.graph.Tx;
+import org.structr.core.graph.search.SearchAttributeGroup;
+import org.structr.core.graph.search.TypeSearchAttribute;
+import org.structr.core.graph.search.VisibilitySearchAttribute;
+import org.structr.test.core.entity.TestOne;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests that the visibility predicate in the database query returns the
+ * same nodes as the permission checks of the factory. There are no
+ * permission-propagating relationships in this test, so the result count
+ * of the pushdown run is taken from the database and is only correct if
+ * the predicate matches exactly the readable nodes.
+ */
+public class VisibilityPushdownTest extends StructrTest {
+
+	@Test
+	public void testVisibilityPushdownMatchesFactoryFiltering() {
+
+		Principal tester1 = null;
+		Principal tester2 = null;
+		Group group       = null;
+
+		assertTrue("Database does not evaluate the visibility predicate", Services.getInstance().getDatabaseService().supportsFeature(DatabaseFeature.VisibilityQueries));
+
+		try (final Tx tx = app.tx()) {
+
+			tester1 = app.create(Principal.class, "tester1");
+			tester2 = app.create(Principal.class, "tester2");
+
+			group = app.create(Group.class, "group");
+
+			group.addMember(securityContext, tester1);
+
+			app.create(TestOne.class, "public").setProperty(AbstractNode.visibleToPublicUsers, true);
+			app.create(TestOne.class, "authenticated").setProperty(AbstractNode.visibleToAuthenticatedUsers, true);
+			app.create(TestOne.class, "ownedByTester1").setProperty(NodeInterface.owner, tester1);
+			app.create(TestOne.class, "ownedByGroup").setProperty(NodeInterface.owner, group);
+			app.create(TestOne.class, "readableByTester2").grant(Permission.read, tester2);
+			app.create(TestOne.class, "writableByTester2").grant(Permission.write, tester2);
+			app.create(TestOne.class, "private");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertVisibleNodes(SecurityContext.getInstance(null, AccessMode.Frontend),    List.of("public"));
+		assertVisibleNodes(SecurityContext.getInstance(tester1, AccessMode.Backend), List.of("authenticated", "ownedByGroup", "ownedByTester1", "public"));
+		assertVisibleNodes(SecurityContext.getInstance(tester2, AccessMode.Backend), List.of("authenticated", "public", "readableByTester2"));
+
+		// the predicate alone must match exactly the readable nodes
+		assertDatabaseResult(Set.of(), false, List.of("public"));
+		assertDatabaseResult(Set.of(tester1.getUuid(), group.getUuid()), true, List.of("authenticated", "ownedByGroup", "ownedByTester1", "public"));
+		assertDatabaseResult(Set.of(tester2.getUuid()), true, List.of("authenticated", "public", "readableByTester2"));
+	}
+
+	// ----- private methods -----
+	private void assertVisibleNodes(final SecurityContext securityContext, final List<String> expected) {
+
+		final App userApp = StructrApp.getInstance(securityContext);
+
+		for (final boolean pushdown : new boolean[] { false, true }) {
+
+			Settings.VisibilityPushdown.setValue(pushdown);
+
+			try (final Tx tx = userApp.tx()) {
+
+				assertEquals("Invalid visible nodes, visibility pushdown " + pushdown, expected, getNames(userApp.nodeQuery(TestOne.class).sort(AbstractNode.name).getAsList()));
+
+				// paged results and counts
+				try (final ResultStream<TestOne> result = userApp.nodeQuery(TestOne.class).sort(AbstractNode.name).pageSize(2).page(1).getResultStream()) {
+
+					assertEquals("Invalid page, visibility pushdown " + pushdown, expected.subList(0, Math.min(2, expected.size())), getNames(result));
+					assertEquals("Invalid result count, visibility pushdown " + pushdown, expected.size(), result.calculateTotalResultCount(null, Settings.ResultCountSoftLimit.getValue()));
+				}
+
+				// unsorted results are counted in the database if the predicate is exact
+				try (final ResultStream<TestOne> result = userApp.nodeQuery(TestOne.class).pageSize(2).page(1).getResultStream()) {
+
+					assertEquals("Invalid page size, visibility pushdown " + pushdown, Math.min(2, expected.size()), getNames(result).size());
+					assertEquals("Invalid result count, visibility pushdown " + pushdown, expected.size(), result.calculateTotalResultCount(null, Settings.ResultCountSoftLimit.getValue()));
+				}
+
+				// visibility predicate combined with other predicates
+				for (final String name : List.of("public", "private", "ownedByGroup")) {
+
+					assertEquals("Invalid visible nodes, visibility pushdown " + pushdown, expected.contains(name) ? 1 : 0, userApp.nodeQuery(TestOne.class).andName(name).getAsList().size());
+				}
+
+				tx.success();
+
+			} catch (FrameworkException fex) {
+
+				fex.printStackTrace();
+				fail("Unexpected exception");
+
+			} finally {
+
+				Settings.VisibilityPushdown.setValue(Settings.VisibilityPushdown.getDefaultValue());
+			}
+		}
+	}
+
+	private void assertDatabaseResult(final Set<String> principalIds, final boolean authenticated, final List<String> expected) {
+
+		final SearchAttributeGroup query = new SearchAttributeGroup(Occurrence.REQUIRED);
+		final List<String> names         = new LinkedList<>();
+
+		query.add(new TypeSearchAttribute(TestOne.class, Occurrence.REQUIRED, true));
+		query.add(new VisibilitySearchAttribute(principalIds, Set.of(), authenticated));
+
+		try (final Tx tx = app.tx()) {
+
+			for (final Node node : Services.getInstance().getDatabaseService().nodeIndex().query(new QueryContext(), query, Integer.MAX_VALUE, 1)) {
+				names.add((String)node.getProperty("name"));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		Collections.sort(names);
+
+		assertEquals("Invalid database result for " + principalIds, expected, names);
+	}
+
+	private List<String> getNames(final Iterable<TestOne> nodes) {
+
+		final List<String> names = new LinkedList<>();
+
+		for (final TestOne node : nodes) {
+			names.add(node.getName());
+		}
+
+		return names;
+	}
+}
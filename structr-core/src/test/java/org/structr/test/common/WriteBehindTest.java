@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.common;
+
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.graph.Tx;
+import org.structr.core.property.PropertyKey;
+import org.structr.core.property.StringProperty;
+import org.structr.test.core.entity.SixOneManyToMany;
+import org.structr.test.core.entity.TestOne;
+import org.structr.test.core.entity.TestSix;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Optional;
+import org.testng.annotations.Parameters;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Runs basic read and write operations with the write-behind mode of the
+ * database driver enabled and a small batch size, so that buffered changes
+ * are split into several batches.
+ */
+public class WriteBehindTest extends StructrTest {
+
+	@Parameters("testDatabaseConnection")
+	@BeforeClass(alwaysRun = true)
+	@Override
+	public void startSystem(@Optional String testDatabaseConnection) {
+
+		Settings.WriteBehindEnabled.setValue(true);
+		Settings.WriteBehindBatchSize.setValue(7);
+
+		super.startSystem(testDatabaseConnection);
+	}
+
+	@AfterClass(alwaysRun = true)
+	@Override
+	public void stopSystem() {
+
+		super.stopSystem();
+
+		Settings.WriteBehindEnabled.setValue(Settings.WriteBehindEnabled.getDefaultValue());
+		Settings.WriteBehindBatchSize.setValue(Settings.WriteBehindBatchSize.getDefaultValue());
+	}
+
+	@Test
+	public void testBufferedChangesAreVisibleInTransaction() {
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> nodes = createTestNodes(TestOne.class, 50);
+
+			for (int i=0; i<nodes.size(); i++) {
+
+				final TestOne node = nodes.get(i);
+
+				node.setProperty(TestOne.name, "node" + i);
+				node.setProperty(TestOne.anInt, i);
+			}
+
+			// queries must see the buffered changes
+			final TestOne found = app.nodeQuery(TestOne.class).and(TestOne.name, "node23").getFirst();
+
+			assertNotNull("Buffered property change not visible to query", found);
+			assertEquals(Integer.valueOf(23), found.getProperty(TestOne.anInt));
+			assertEquals(50, app.nodeQuery(TestOne.class).andRange(TestOne.anInt, 0, 49).getAsList().size());
+
+			// change again after the flush
+			found.setProperty(TestOne.name, "changed");
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals(50, app.nodeQuery(TestOne.class).getAsList().size());
+			assertNull(app.nodeQuery(TestOne.class).and(TestOne.name, "node23").getFirst());
+			assertEquals(Integer.valueOf(23), app.nodeQuery(TestOne.class).and(TestOne.name, "changed").getFirst().getProperty(TestOne.anInt));
+
+			for (int i=0; i<50; i++) {
+
+				if (i != 23) {
+					assertEquals(Integer.valueOf(i), app.nodeQuery(TestOne.class).and(TestOne.name, "node" + i).getFirst().getProperty(TestOne.anInt));
+				}
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testRollbackDiscardsBufferedChanges() {
+
+		String uuid = null;
+
+		try (final Tx tx = app.tx()) {
+
+			uuid = createTestNode(TestOne.class, "original").getUuid();
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			app.get(TestOne.class, uuid).setProperty(TestOne.name, "modified");
+
+			// no call to tx.success()
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			assertEquals("original", app.get(TestOne.class, uuid).getProperty(TestOne.name));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testDeleteWithBufferedChanges() {
+
+		final PropertyKey<String> note = new StringProperty("note");
+
+		try (final Tx tx = app.tx()) {
+
+			final TestOne deleted      = createTestNode(TestOne.class, "deleted");
+			final TestOne kept         = createTestNode(TestOne.class, "kept");
+			final TestSix six          = createTestNode(TestSix.class, "six");
+			final SixOneManyToMany rel = app.create(six, kept, SixOneManyToMany.class);
+
+			deleted.setProperty(TestOne.anInt, 1);
+			kept.setProperty(TestOne.anInt, 2);
+			rel.setProperty(note, "rel");
+
+			app.delete(deleted);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			final List<TestOne> nodes = app.nodeQuery(TestOne.class).getAsList();
+
+			assertEquals(1, nodes.size());
+			assertEquals("kept", nodes.get(0).getName());
+			assertEquals(Integer.valueOf(2), nodes.get(0).getProperty(TestOne.anInt));
+			assertEquals("rel", app.relationshipQuery(SixOneManyToMany.class).getFirst().getProperty(note));
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.agent;
+
+import org.structr.agent.AgentService;
+import org.structr.agent.Task;
+import org.structr.api.config.Settings;
+import org.structr.test.common.StructrTest;
+import org.testng.annotations.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the per-type task queues of the agent service.
+ */
+public class AgentServiceTest extends StructrTest {
+
+	@Test
+	public void testPriorityAndSubmissionOrder() {
+
+		final AgentService service = new AgentService();
+
+		TestAgent.reset();
+		Settings.AgentServiceWorkers.setValue(1);
+
+		try {
+
+			service.startService();
+
+			// block the only agent so that the following tasks are queued
+			final CountDownLatch started = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			final TestAgentTask blocker  = new TestAgentTask("blocker", 0);
+
+			blocker.block(started, release);
+			service.processTask(blocker);
+
+			assertTrue("Agent was not started", started.await(30, TimeUnit.SECONDS));
+
+			final List<Task> tasks = new LinkedList<>();
+
+			tasks.add(new TestAgentTask("a", 0));
+			tasks.add(new TestAgentTask("b", 1));
+			tasks.add(new TestAgentTask("c", 0));
+			tasks.add(new TestAgentTask("d", 2));
+			tasks.add(new TestAgentTask("e", 1));
+
+			service.processTasks(tasks);
+
+			final Map<String, Integer> info = service.getInfo().get(TestAgentTask.class.getName());
+
+			assertEquals("Invalid number of queued tasks", 5, info.get("queued").intValue());
+			assertEquals("Invalid number of agents",       1, info.get("agents").intValue());
+			assertEquals("Invalid number of workers",      1, info.get("workers").intValue());
+
+			release.countDown();
+
+			waitForProcessedTasks(6);
+
+			// higher priority first, submission order for tasks with the same priority
+			assertEquals("Invalid task order", List.of("blocker", "d", "b", "e", "a", "c"), TestAgent.getProcessed());
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			service.stopService();
+			Settings.AgentServiceWorkers.setValue(Settings.AgentServiceWorkers.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testWorkerLimit() {
+
+		final AgentService service = new AgentService();
+		final List<Task> tasks     = new LinkedList<>();
+		final List<String> names   = new LinkedList<>();
+
+		TestAgent.reset();
+		Settings.AgentServiceWorkers.setValue(3);
+
+		try {
+
+			service.startService();
+
+			for (int i=0; i<30; i++) {
+
+				final TestAgentTask task = new TestAgentTask("task" + i, 0);
+
+				task.setDuration(20L);
+				tasks.add(task);
+				names.add(task.getName());
+			}
+
+			service.processTasks(tasks);
+
+			waitForProcessedTasks(30);
+
+			final List<String> processed = TestAgent.getProcessed();
+
+			// every task must be processed exactly once
+			assertEquals("Invalid number of processed tasks", 30, processed.size());
+			assertTrue("Invalid processed tasks", processed.containsAll(names));
+
+			assertTrue("Worker limit was exceeded",                TestAgent.getMaximumConcurrency() <= 3);
+			assertTrue("Tasks were not processed concurrently",    TestAgent.getMaximumConcurrency() > 1);
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			service.stopService();
+			Settings.AgentServiceWorkers.setValue(Settings.AgentServiceWorkers.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testAgentLimit() {
+
+		final AgentService service = new AgentService();
+		final List<Task> tasks     = new LinkedList<>();
+
+		TestAgent.reset();
+		TestAgent.setMaxAgents(1);
+		Settings.AgentServiceWorkers.setValue(4);
+
+		try {
+
+			service.startService();
+
+			for (int i=0; i<20; i++) {
+
+				final TestAgentTask task = new TestAgentTask("task" + i, 0);
+
+				task.setDuration(20L);
+				tasks.add(task);
+			}
+
+			service.processTasks(tasks);
+
+			waitForProcessedTasks(20);
+
+			final Map<String, Integer> info = service.getInfo().get(TestAgentTask.class.getName());
+
+			assertEquals("Invalid number of processed tasks", 20, TestAgent.getProcessed().size());
+			assertEquals("Agent limit was exceeded",          1,  TestAgent.getMaximumConcurrency());
+			assertEquals("Invalid number of workers",         1,  info.get("workers").intValue());
+
+		} catch (Throwable t) {
+
+			t.printStackTrace();
+			fail("Unexpected exception");
+
+		} finally {
+
+			service.stopService();
+			TestAgent.reset();
+			Settings.AgentServiceWorkers.setValue(Settings.AgentServiceWorkers.getDefaultValue());
+		}
+	}
+
+	// ----- private methods -----
+	private void waitForProcessedTasks(final int count) throws InterruptedException {
+
+		final long timeout = System.currentTimeMillis() + 30000L;
+
+		while (TestAgent.getProcessed().size() < count && System.currentTimeMillis() < timeout) {
+
+			Thread.sleep(10L);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.agent;
+
+import org.structr.agent.Agent;
+import org.structr.agent.ReturnValue;
+import org.structr.agent.Task;
+
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An agent for testing the agent service. It records the names of the
+ * processed tasks and the maximum number of concurrently running tasks.
+ */
+public class TestAgent extends Agent<String> {
+
+	private static final List<String> processed = Collections.synchronizedList(new LinkedList<>());
+	private static final AtomicInteger running  = new AtomicInteger();
+	private static final AtomicInteger maximum  = new AtomicInteger();
+	private static volatile int maxAgents       = Integer.MAX_VALUE;
+
+	@Override
+	public Class getSupportedTaskType() {
+		return TestAgentTask.class;
+	}
+
+	@Override
+	public ReturnValue processTask(final Task<String> task) throws Throwable {
+
+		final TestAgentTask testTask = (TestAgentTask)task;
+
+		maximum.accumulateAndGet(running.incrementAndGet(), Math::max);
+
+		try {
+
+			if (testTask.getStarted() != null) {
+				testTask.getStarted().countDown();
+			}
+
+			if (testTask.getRelease() != null) {
+				testTask.getRelease().await();
+			}
+
+			if (testTask.getDuration() > 0L) {
+				Thread.sleep(testTask.getDuration());
+			}
+
+			processed.add(testTask.getName());
+
+		} finally {
+
+			running.decrementAndGet();
+		}
+
+		return ReturnValue.Success;
+	}
+
+	@Override
+	public boolean createEnclosingTransaction() {
+		return false;
+	}
+
+	@Override
+	public int getMaxAgents() {
+		return maxAgents;
+	}
+
+	public static void setMaxAgents(final int value) {
+		maxAgents = value;
+	}
+
+	public static List<String> getProcessed() {
+
+		synchronized (processed) {
+			return new LinkedList<>(processed);
+		}
+	}
+
+	public static int getMaximumConcurrency() {
+		return maximum.get();
+	}
+
+	public static void reset() {
+
+		processed.clear();
+		running.set(0);
+		maximum.set(0);
+
+		maxAgents = Integer.MAX_VALUE;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.core.agent;
+
+import org.structr.agent.AbstractTask;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * A task for testing the agent service.
+ */
+public class TestAgentTask extends AbstractTask<String> {
+
+	private CountDownLatch started = null;
+	private CountDownLatch release = null;
+	private long duration          = 0L;
+
+	public TestAgentTask(final String name, final int priority) {
+
+		super(TestAgentTask.class.getSimpleName(), null, name);
+
+		setPriority(priority);
+	}
+
+	public String getName() {
+		return getWorkObjects().get(0);
+	}
+
+	public long getDuration() {
+		return duration;
+	}
+
+	public void setDuration(final long duration) {
+		this.duration = duration;
+	}
+
+	public CountDownLatch getStarted() {
+		return started;
+	}
+
+	public CountDownLatch getRelease() {
+		return release;
+	}
+
+	/**
+	 * Makes the agent signal the start of this task and wait for the
+	 * release latch before the task is finished.
+	 */
+	public void block(final CountDownLatch started, final CountDownLatch release) {
+
+		this.started = started;
+		this.release = release;
+	}
+}
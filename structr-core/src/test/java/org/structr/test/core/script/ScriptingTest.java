@@ -40,6 +40,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.entity.*;
 import org.structr.core.function.DateFormatFunction;
 import org.structr.core.function.FindFunction;
+import org.structr.core.function.Functions;
 import org.structr.core.function.NumberFormatFunction;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.NodeInterface;
@@ -6178,6 +6179,140 @@ public class ScriptingTest extends StructrTest {
 		}
 	}
 
+	@Test
+	public void testStructrScriptExpressionCache() {
+
+		Functions.clearExpressionCache();
+
+		try (final Tx tx = app.tx()) {
+
+			final TestOne one = app.create(TestOne.class, new NodeAttribute<>(AbstractNode.name, "one"), new NodeAttribute<>(TestOne.anInt, 1));
+			final TestOne two = app.create(TestOne.class, new NodeAttribute<>(AbstractNode.name, "two"), new NodeAttribute<>(TestOne.anInt, 2));
+			final String script = "${concat(this.name, '-', this.anInt)}";
+
+			assertEquals("Invalid StructrScript evaluation result", "one-1", Scripting.replaceVariables(new ActionContext(securityContext), one, script));
+
+			final int hits = Functions.getCacheInfo().get("hits");
+			final int size = Functions.getCacheInfo().get("size");
+
+			// cached expression tree must be evaluated against the current entity
+			assertEquals("Invalid StructrScript evaluation result", "two-2", Scripting.replaceVariables(new ActionContext(securityContext), two, script));
+			assertEquals("Invalid StructrScript evaluation result", "one-1", Scripting.replaceVariables(new ActionContext(securityContext), one, script));
+
+			assertEquals("Cached expression was not reused", hits + 2, Functions.getCacheInfo().get("hits").intValue());
+			assertEquals("Cached expression was not reused", size,     Functions.getCacheInfo().get("size").intValue());
+
+			final int misses = Functions.getCacheInfo().get("misses");
+
+			// expressions with syntax errors must be parsed (and reported) on every evaluation
+			Scripting.replaceVariables(new ActionContext(securityContext), one, "${concat(this.name, 'x'}");
+			Scripting.replaceVariables(new ActionContext(securityContext), one, "${concat(this.name, 'x'}");
+
+			assertEquals("Invalid expression was cached", misses + 2, Functions.getCacheInfo().get("misses").intValue());
+			assertEquals("Invalid expression was cached", size,       Functions.getCacheInfo().get("size").intValue());
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		// cached batch expressions must be reusable
+		for (int i=0; i<2; i++) {
+
+			try (final Tx tx = app.tx()) {
+
+				Scripting.evaluate(new ActionContext(securityContext, null), null, "${batch(each(find('TestOne'), set(data, 'aString', concat(data.name, data.aString))), 1)}", "test");
+				tx.success();
+
+			} catch (FrameworkException ex) {
+				ex.printStackTrace();
+				fail("Unexpected exception");
+			}
+		}
+
+		try (final Tx tx = app.tx()) {
+
+			for (final TestOne node : app.nodeQuery(TestOne.class).getAsList()) {
+				assertEquals("Invalid batch evaluation result", node.getName() + node.getName(), node.getProperty(TestOne.aString));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	@Test
+	public void testConcurrentEvaluationOfCachedStructrScriptExpressions() {
+
+		final List<String> errors = Collections.synchronizedList(new LinkedList<>());
+		final List<TestOne> nodes = new LinkedList<>();
+		final int threadCount     = 8;
+		final int count           = 100;
+
+		Functions.clearExpressionCache();
+
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<threadCount; i++) {
+
+				nodes.add(app.create(TestOne.class, new NodeAttribute<>(AbstractNode.name, "node" + i), new NodeAttribute<>(TestOne.anInt, i)));
+			}
+
+			tx.success();
+
+		} catch (FrameworkException ex) {
+			ex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		final List<Thread> threads = new LinkedList<>();
+
+		for (final TestOne node : nodes) {
+
+			threads.add(new Thread(() -> {
+
+				for (int i=0; i<count; i++) {
+
+					try (final Tx tx = app.tx()) {
+
+						final Object result = Scripting.replaceVariables(new ActionContext(securityContext), node, "${if(equal(this.anInt, 0), 'zero', concat(this.name, '-', add(this.anInt, 1)))}");
+						final String expected = node.getProperty(TestOne.anInt) == 0 ? "zero" : node.getName() + "-" + (node.getProperty(TestOne.anInt) + 1.0);
+
+						if (!expected.equals(result)) {
+							errors.add("Expected " + expected + " but got " + result);
+						}
+
+						tx.success();
+
+					} catch (FrameworkException ex) {
+						errors.add(ex.getMessage());
+					}
+				}
+			}));
+		}
+
+		try {
+
+			for (final Thread thread : threads) {
+				thread.start();
+			}
+
+			for (final Thread thread : threads) {
+				thread.join();
+			}
+
+		} catch (InterruptedException ex) {
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Concurrent evaluation of cached expressions failed: " + errors, errors.isEmpty());
+	}
+
 	// ----- private methods ----
 	private void createTestType(final JsonSchema schema, final String name, final String createSource, final String saveSource) {
 
@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.schema;
+
+import org.structr.schema.compiler.ClassFileCache;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ *
+ */
+public class ClassFileCacheTest {
+
+	@Test
+	public void testStoreAndLoad() throws IOException {
+
+		final Path directory       = Files.createTempDirectory("structr-class-cache");
+		final ClassFileCache cache = new ClassFileCache(directory);
+		final byte[] outer         = new byte[] { 1, 2, 3 };
+		final byte[] inner         = new byte[] { 4, 5, 6 };
+
+		cache.store("key1", Map.of("org.structr.dynamic.Test", outer, "org.structr.dynamic.Test$1", inner));
+
+		final Map<String, byte[]> classes = cache.load("key1");
+
+		assertNotNull("Stored classes should be loaded", classes);
+		assertEquals(2, classes.size());
+		assertTrue(Arrays.equals(outer, classes.get("org.structr.dynamic.Test")));
+		assertTrue(Arrays.equals(inner, classes.get("org.structr.dynamic.Test$1")));
+
+		assertNull("A different key must not return cached classes", cache.load("key2"));
+	}
+
+	@Test
+	public void testRemoveUnused() throws IOException {
+
+		final Path directory       = Files.createTempDirectory("structr-class-cache");
+		final ClassFileCache cache = new ClassFileCache(directory);
+		final byte[] code          = new byte[] { 1, 2, 3 };
+
+		for (int i=1; i<=4; i++) {
+
+			cache.store("key" + i, Map.of("org.structr.dynamic.Test", code));
+
+			// key1 is the least recently used entry
+			Files.setLastModifiedTime(directory.resolve("key" + i), FileTime.fromMillis(1000L * i));
+		}
+
+		// entries of other class path versions are kept while there is room
+		cache.removeUnused(Set.of("key4"), 4);
+
+		for (int i=1; i<=4; i++) {
+			assertNotNull("Entry was removed although the cache is not full", cache.load("key" + i));
+		}
+
+		// loading an entry marks it as used, so key1 is now the most recently used entry
+		cache.load("key1");
+
+		Files.setLastModifiedTime(directory.resolve("key2"), FileTime.fromMillis(2000L));
+		Files.setLastModifiedTime(directory.resolve("key3"), FileTime.fromMillis(3000L));
+		Files.setLastModifiedTime(directory.resolve("key4"), FileTime.fromMillis(0L));
+
+		cache.removeUnused(Set.of("key4"), 2);
+
+		assertNotNull("Entry in use was removed", cache.load("key4"));
+		assertNotNull("Recently used entry was removed", cache.load("key1"));
+		assertNull("Least recently used entry was not removed", cache.load("key2"));
+		assertNull("Least recently used entry was not removed", cache.load("key3"));
+	}
+
+	@Test
+	public void testFingerprintChangesWithClassFiles() throws IOException {
+
+		final Path directory = Files.createTempDirectory("structr-class-path");
+		final Path jar       = Files.createTempFile("structr-class-path", ".jar");
+		final Path classFile = directory.resolve("Test.class");
+		final String path    = directory + File.pathSeparator + jar;
+
+		Files.write(classFile, new byte[] { 1, 2, 3 });
+		Files.write(jar, new byte[] { 1, 2, 3 });
+
+		final String initial = ClassFileCache.getFingerprint(path);
+
+		assertNotNull(initial);
+		assertEquals("Fingerprint should be stable", initial, ClassFileCache.getFingerprint(path));
+
+		// resources do not influence the compiled classes
+		Files.writeString(directory.resolve("resource.txt"), "test");
+		assertEquals("Non-class files should not change the fingerprint", initial, ClassFileCache.getFingerprint(path));
+
+		// rebuilding a class with the same size changes the modification time
+		Files.write(classFile, new byte[] { 3, 2, 1 });
+		Files.setLastModifiedTime(classFile, FileTime.fromMillis(Files.getLastModifiedTime(classFile).toMillis() + 2000));
+
+		final String rebuilt = ClassFileCache.getFingerprint(path);
+
+		assertFalse("Changed class file should change the fingerprint", initial.equals(rebuilt));
+
+		Files.write(jar, new byte[] { 1, 2, 3, 4 });
+
+		assertFalse("Changed jar file should change the fingerprint", rebuilt.equals(ClassFileCache.getFingerprint(path)));
+	}
+}
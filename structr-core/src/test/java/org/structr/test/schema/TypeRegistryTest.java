@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.schema;
+
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.AbstractNode;
+import org.structr.core.entity.SchemaNode;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.schema.ConfigurationProvider;
+import org.structr.schema.SchemaService;
+import org.structr.test.common.StructrTest;
+import org.structr.test.core.entity.TestOne;
+import org.testng.annotations.Test;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the type registry snapshot of the configuration provider.
+ */
+public class TypeRegistryTest extends StructrTest {
+
+	@Test
+	public void testLookupsDoNotBlockDuringSchemaRebuild() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		// a schema rebuild holds the SchemaService lock for its whole register phase
+		synchronized (SchemaService.class) {
+
+			final CompletableFuture<Boolean> lookup = CompletableFuture.supplyAsync(() -> {
+
+				return TestOne.class.equals(config.getNodeEntityClass("TestOne"))
+					&& TestOne.class.equals(config.getNodeEntities().get("TestOne"))
+					&& !config.getRelationshipEntities().isEmpty()
+					&& config.getClassesForInterface("NodeInterface") != null;
+			});
+
+			try {
+
+				assertTrue("Invalid type lookup result", lookup.get(10, TimeUnit.SECONDS));
+
+			} catch (Throwable t) {
+
+				t.printStackTrace();
+				fail("Type lookups must not block while the schema is rebuilt");
+			}
+		}
+	}
+
+	@Test
+	public void testUnknownNamesDoNotBlockDuringSchemaRebuild() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		// the first lookup finds out that the names are not a type
+		assertNull(config.getNodeEntityClass("NoSuchRegistryType"));
+		assertNull(config.getRelationshipEntityClass("NoSuchRegistryRelationship"));
+
+		synchronized (SchemaService.class) {
+
+			final CompletableFuture<Boolean> lookup = CompletableFuture.supplyAsync(() -> {
+
+				return config.getNodeEntityClass("NoSuchRegistryType") == null
+					&& config.getRelationshipEntityClass("NoSuchRegistryRelationship") == null;
+			});
+
+			try {
+
+				assertTrue("Invalid type lookup result", lookup.get(10, TimeUnit.SECONDS));
+
+			} catch (Throwable t) {
+
+				t.printStackTrace();
+				fail("Lookups of unknown names must not block while the schema is rebuilt");
+			}
+		}
+	}
+
+	@Test
+	public void testDynamicTypesArePublished() {
+
+		final ConfigurationProvider config = StructrApp.getConfiguration();
+
+		assertNull(config.getNodeEntities().get("RegistryTest"));
+		assertNull(config.getNodeEntityClass("RegistryTest"));
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class, new NodeAttribute<>(AbstractNode.name, "RegistryTest"));
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertNotNull("New type was not published", config.getNodeEntities().get("RegistryTest"));
+		assertNotNull("New type was not published", config.getNodeEntityClass("RegistryTest"));
+
+		try (final Tx tx = app.tx()) {
+
+			app.delete(app.nodeQuery(SchemaNode.class).andName("RegistryTest").getFirst());
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertNull("Removed type is still published", config.getNodeEntities().get("RegistryTest"));
+	}
+
+	@Test
+	public void testSnapshotIsImmutable() {
+
+		final Map<String, Class> nodeEntities = (Map)StructrApp.getConfiguration().getNodeEntities();
+
+		try {
+
+			nodeEntities.put("TypeRegistryTest", TestOne.class);
+			fail("Type registry snapshot must not be modifiable");
+
+		} catch (UnsupportedOperationException expected) {}
+	}
+}
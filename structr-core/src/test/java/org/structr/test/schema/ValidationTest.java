@@ -20,6 +20,7 @@ package org.structr.test.schema;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.common.error.ErrorToken;
 import org.structr.common.error.FrameworkException;
 import org.structr.core.GraphObject;
@@ -469,6 +470,182 @@ public class ValidationTest extends StructrTest {
 		executor.shutdownNow();
 	}
 
+	@Test
+	public void testConcurrentValidationWithUniqueValueIndex() {
+
+		final int count = 100;
+
+		Settings.UniqueValueIndexEnabled.setValue(true);
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(SchemaNode.class,
+				new NodeAttribute<>(SchemaNode.name, "Item"),
+				new NodeAttribute<>(new StringProperty("_name"), "+String!")
+			);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+		}
+
+		final Class type = StructrApp.getConfiguration().getNodeEntityClass("Item");
+		assertNotNull(type);
+
+		final Runnable tester = () -> {
+
+			for (int i=0; i<count; i++) {
+
+				// testing must be done in an isolated transaction
+				try (final Tx tx = app.tx()) {
+
+					app.create(type, "Item" + i);
+
+					tx.success();
+
+				} catch (FrameworkException ignore) {}
+			}
+		};
+
+		// submit three test instances
+		final ExecutorService executor = Executors.newCachedThreadPool();
+
+		try {
+
+			final Future f1 = executor.submit(tester);
+			final Future f2 = executor.submit(tester);
+			final Future f3 = executor.submit(tester);
+
+			f1.get();
+			f2.get();
+			f3.get();
+
+			try (final Tx tx = app.tx()) {
+
+				// verify that only count entities have been created.
+				assertEquals("Invalid concurrent validation result", count, app.nodeQuery(type).getAsList().size());
+
+				tx.success();
+			}
+
+		} catch (Throwable t) {
+
+			logger.warn("", t);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.UniqueValueIndexEnabled.setValue(false);
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testUniqueValueIndexWithChangedAndDeletedValues() {
+
+		Settings.UniqueValueIndexEnabled.setValue(true);
+
+		try {
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(SchemaNode.class,
+					new NodeAttribute<>(AbstractNode.name, "Test"),
+					new NodeAttribute<>(new StringProperty("_testUnique"), "String!")
+				);
+
+				tx.success();
+			}
+
+			final Class testType = StructrApp.getConfiguration().getNodeEntityClass("Test");
+			final PropertyKey key = StructrApp.key(testType, "testUnique");
+			NodeInterface first   = null;
+			NodeInterface second  = null;
+
+			try (final Tx tx = app.tx()) {
+
+				first = app.create(testType, new NodeAttribute<>(key, "unique"));
+				tx.success();
+			}
+
+			// duplicate must be rejected when the value is found in the index
+			assertUniqueConstraintViolation(testType, key, "unique");
+
+			// setting the same value on the same object must not fail
+			try (final Tx tx = app.tx()) {
+
+				first.setProperty(key, "unique");
+				tx.success();
+			}
+
+			// change value, the index entry for "unique" is stale now
+			try (final Tx tx = app.tx()) {
+
+				first.setProperty(key, "changed");
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				second = app.create(testType, new NodeAttribute<>(key, "unique"));
+				tx.success();
+			}
+
+			assertUniqueConstraintViolation(testType, key, "changed");
+			assertUniqueConstraintViolation(testType, key, "unique");
+
+			// delete object, the index entry for "unique" is stale again
+			try (final Tx tx = app.tx()) {
+
+				app.delete(second);
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(testType, new NodeAttribute<>(key, "unique"));
+				tx.success();
+			}
+
+			// a value validated in a failed transaction must not block later transactions
+			try (final Tx tx = app.tx()) {
+
+				app.create(testType, new NodeAttribute<>(key, "rolledBack"));
+				app.create(testType, new NodeAttribute<>(key, "rolledBack"));
+				tx.success();
+
+				fail("Uniqueness constraint violated!");
+
+			} catch (FrameworkException expected) {}
+
+			try (final Tx tx = app.tx()) {
+
+				app.create(testType, new NodeAttribute<>(key, "rolledBack"));
+				tx.success();
+			}
+
+			try (final Tx tx = app.tx()) {
+
+				assertEquals("Invalid uniqueness validation result", 1, app.nodeQuery(testType).and(key, "unique").getAsList().size());
+				assertEquals("Invalid uniqueness validation result", 1, app.nodeQuery(testType).and(key, "changed").getAsList().size());
+				assertEquals("Invalid uniqueness validation result", 1, app.nodeQuery(testType).and(key, "rolledBack").getAsList().size());
+				tx.success();
+			}
+
+		} catch (FrameworkException fex) {
+
+			logger.warn("", fex);
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.UniqueValueIndexEnabled.setValue(false);
+		}
+	}
+
 	@Test
 	public void testConcurrentValidationWithInheritance() {
 
@@ -2174,6 +2351,21 @@ public class ValidationTest extends StructrTest {
 
 	}
 
+	private void assertUniqueConstraintViolation(final Class type, final PropertyKey key, final Object value) {
+
+		try (final Tx tx = app.tx()) {
+
+			app.create(type, new NodeAttribute<>(key, value));
+			tx.success();
+
+			fail("Uniqueness constraint violated!");
+
+		} catch (FrameworkException fex) {
+
+			checkException(fex, 1, 422, type.getSimpleName(), key.jsonName(), "already_taken");
+		}
+	}
+
 	private Class createTypeWithProperty(final String typeName, final String keyName, final String keyType) {
 
 		try (final Tx tx = app.tx()) {
@@ -18,9 +18,11 @@
  */
 package org.structr.api;
 
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Identity;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 import org.structr.api.index.IndexConfig;
 import org.structr.api.util.CountResult;
@@ -80,6 +82,20 @@ public interface DatabaseService {
 	Iterable<Relationship> getAllRelationships();
 	Iterable<Relationship> getRelationshipsByType(final String type);
 
+	/**
+	 * Loads the relationships of the given type and direction for all
+	 * given nodes at once, so that subsequent calls to getRelationships
+	 * with the same arguments can be answered from the node caches.
+	 * Drivers without a relationship cache can ignore this call.
+	 *
+	 * @param nodes the nodes
+	 * @param direction the direction of the relationships
+	 * @param relationshipType the relationship type
+	 * @param otherType the type label of the other node, or null
+	 */
+	default void prefetchRelationships(final Iterable<Node> nodes, final Direction direction, final RelationshipType relationshipType, final String otherType) {
+	}
+
 	String getTenantIdentifier();
 	String getInternalTimestamp();
 	String getErrorMessage();
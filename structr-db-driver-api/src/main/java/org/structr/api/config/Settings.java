@@ -96,6 +96,7 @@ public class Settings {
 
 	// scripting related settings
 	public static final Setting<Boolean> ScriptingDebugger          = new BooleanSetting(generalGroup,         "Scripting",   "application.scripting.debugger",               false, "Enables <b>Chrome</b> debugger initialization in scripting engine. The current debugger URL will be shown in the server log and also made available on the dashboard.");
+	public static final Setting<Integer> StructrScriptCacheSize     = new IntegerSetting(generalGroup,         "Scripting",   "application.scripting.structrscript.cache.size", 10000, "Number of parsed StructrScript expressions that are kept in memory for reuse. Set to 0 to disable the cache.");
 
 	// clustering
 	public static final Setting<Boolean> ClusterModeEnabled            = new BooleanSetting(generalGroup,         "Application", "application.cluster.enabled",                  false, "Enables cluster mode (experimental)");
@@ -109,6 +110,7 @@ public class Settings {
 	public static final Setting<String> DataExchangePath               = new StringSetting(generalGroup,             "Paths",       "data.exchange.path",                    "exchange" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> SnapshotsPath                  = new StringSetting(generalGroup,             "Paths",       "snapshot.path",                         "snapshots" + File.separator, "IMPORTANT: Path is relative to base.path");
 	public static final Setting<String> WebDataPath                    = new StringSetting(generalGroup,             "Paths",       "data.webapp.path",                      "webapp-data" + File.separator, "IMPORTANT: Path is relative to base.path");
+	public static final Setting<String> SchemaCachePath                = new StringSetting(generalGroup,             "Paths",       "schema.cache.path",                     "", "Path of the cache for compiled dynamic types, so unchanged types do not need to be recompiled on startup. Empty by default, which disables the cache. The cached byte code is loaded and executed without further checks, so the directory must only be writable by Structr. IMPORTANT: Path is relative to base.path");
 	public static final Setting<Boolean> LogSchemaOutput               = new BooleanSetting(generalGroup,            "Logging",     "NodeExtender.log",                      false, "Whether to write dynamically created Java code to the logfile, for debugging purposes.");
 	public static final Setting<Boolean> LogSchemaErrors               = new BooleanSetting(generalGroup,            "Logging",     "NodeExtender.log.errors",               true);
 	public static final Setting<Integer> QueryTimeLoggingThreshold     = new IntegerSetting(generalGroup,            "Logging",     "log.querytime.threshold",               3000, "Milliseconds after which a long-running query will be logged.");
@@ -124,6 +126,7 @@ public class Settings {
 	public static final StringMultiChoiceSetting Services              = new StringMultiChoiceSetting(generalGroup,  "Services",    "configured.services",                   "NodeService SchemaService AgentService CronService HttpService", "Services that are listed in this configuration key will be started when Structr starts.");
 	public static final Setting<Integer> ServicesStartTimeout          = new IntegerSetting(generalGroup,            "Services",    "services.start.timeout",                30);
 	public static final Setting<Integer> ServicesStartRetries          = new IntegerSetting(generalGroup,            "Services",    "services.start.retries",                10);
+	public static final Setting<Integer> AgentServiceWorkers           = new IntegerSetting(generalGroup,            "Services",    "agentservice.workers",                  Runtime.getRuntime().availableProcessors(), "Maximum number of agents that the agent service runs in parallel for each task type. Fulltext indexing always runs in a single agent.");
 
 	public static final Setting<Integer> NodeServiceStartTimeout = new IntegerSetting(generalGroup,  "Services",    "nodeservice.start.timeout",     10);
 	public static final Setting<Integer> NodeServiceStartRetries = new IntegerSetting(generalGroup,  "Services",    "nodeservice.start.retries",     10);
@@ -165,6 +168,7 @@ public class Settings {
 	public static final Setting<Integer> MaxSessionsPerUser      = new IntegerSetting(serverGroup, "HTTP Settings", "application.session.max.number",       -1,    "The maximum number of active sessions per user. Default is -1 (unlimited).");
 	public static final Setting<Boolean> ClearSessionsOnStartup  = new BooleanSetting(serverGroup, "HTTP Settings", "application.session.clear.onstartup",  false, "Clear all sessions on startup if set to true.");
 	public static final Setting<Boolean> ClearSessionsOnShutdown = new BooleanSetting(serverGroup, "HTTP Settings", "application.session.clear.onshutdown", false, "Clear all sessions on shutdown if set to true.");
+	public static final Setting<Integer> SessionPrincipalCacheSize = new IntegerSetting(serverGroup, "HTTP Settings", "application.session.principalcache.size", 10000, "Number of session IDs for which the owning user is kept in memory, so that authenticated requests do not need a database query to find the user. Set to 0 to disable the cache.");
 	public static final Setting<String> UriCompliance            = new ChoiceSetting(serverGroup, "HTTP Settings",  "httpservice.uricompliance",            "RFC3986", Settings.getStringsAsSet("RFC3986", "JETTY_DEFAULT", "LEGACY", "RFC3986_UNAMBIGUOUS", "UNSAFE"), """
 		Configures the URI compliance for the Jetty server. This is simply passed down and is Jetty's own specification.
 		<dl>
@@ -224,11 +228,24 @@ public class Settings {
 	public static final Setting<Integer> RelationshipCacheSize       = new IntegerSetting(databaseGroup, "Caching",                 "database.cache.relationship.size", 500000);
 	public static final Setting<Integer> NodeCacheSize               = new IntegerSetting(databaseGroup, "Caching",                 "database.cache.node.size",         100000, "Size of the database driver node cache");
 	public static final Setting<Integer> UuidCacheSize               = new IntegerSetting(databaseGroup, "hidden",                  "database.cache.uuid.size",         1000000, "Size of the database driver relationship cache");
+	public static final Setting<Integer> AccessPathCacheSize         = new IntegerSetting(databaseGroup, "Caching",                 "database.cache.accesspath.size",   100000, "Maximum number of cached permission resolution paths");
+	public static final Setting<Integer> PermissionResolutionCacheSize = new IntegerSetting(databaseGroup, "Caching",               "database.cache.permission.size",   100000, "Maximum number of nodes for which permission decisions are cached");
+	public static final Setting<Integer> RelationshipPrefetchBatchSize = new IntegerSetting(databaseGroup, "Caching",               "database.prefetch.batchsize",      100, "Number of nodes for which related nodes are loaded with a single query when a list of nodes is serialized. Set to 0 to disable prefetching.");
 	public static final Setting<Boolean> ForceResultStreaming        = new BooleanSetting(databaseGroup, "Result Streaming",        "database.result.lazy",             false, "Forces Structr to use lazy evaluation for relationship queries");
 	public static final Setting<Boolean> CypherDebugLogging          = new BooleanSetting(databaseGroup, "Debugging",               "log.cypher.debug",                 false, "Turns on debug logging for the generated Cypher queries");
 	public static final Setting<Boolean> CypherDebugLoggingPing      = new BooleanSetting(databaseGroup, "Debugging",               "log.cypher.debug.ping",            false, "Turns on debug logging for the generated Cypher queries of the websocket PING command. Can only be used in conjunction with log.cypher.debug");
 	public static final Setting<Integer> ResultCountSoftLimit        = new IntegerSetting(databaseGroup, "Soft result count limit", "database.result.softlimit",        10_000, "Soft result count limit for a single query (can be overridden by setting the <code>_pageSize</code> request parameter or by adding the request parameter <code>_disableSoftLimit</code> to a non-null value)");
+	public static final Setting<String> ResultCountMode              = new ChoiceSetting(databaseGroup,  "Permission filtering",    "database.result.countmode",        "exact", Settings.getStringsAsSet("exact", "estimated"), "Determines how the result count of filtered queries is calculated. <code>exact</code> iterates the result when the filter cannot be evaluated in the database, <code>estimated</code> reports the number of matching entities in the database without applying permission checks (an upper bound). IMPORTANT: With <code>estimated</code>, authenticated users can learn how many entities they are not allowed to see. Anonymous users always get the exact count.");
+	public static final Setting<Boolean> VisibilityPushdown          = new BooleanSetting(databaseGroup, "Permission filtering",    "database.result.visibilityfilter", false, "Adds the visibility flags, ownership and direct security grants of non-admin users as a filter to the database query, so that fewer invisible nodes are fetched and discarded. Permissions that need propagation are still resolved after the query.");
 	public static final Setting<Integer> FetchSize                   = new IntegerSetting(databaseGroup, "Result fetch size",       "database.result.fetchsize",        100_000, "Number of database records to fetch per batch when fetching large results");
+	public static final Setting<Integer> ResultStreamTimeout         = new IntegerSetting(databaseGroup, "Result fetch size",       "database.result.timeout",          60, "Maximum time in seconds to wait for the next record of a streamed result before the query is aborted. Set to 0 to wait indefinitely.");
+	public static final Setting<Boolean> WriteBehindEnabled          = new BooleanSetting(databaseGroup, "Write-behind",            "database.writebehind.enabled",     false, "Buffers property and label changes of a transaction and writes them in batches when the transaction is committed or before a query is executed");
+	public static final Setting<Integer> WriteBehindBatchSize        = new IntegerSetting(databaseGroup, "Write-behind",            "database.writebehind.batchsize",   1000, "Maximum number of entities per batched write statement");
+
+	// in-memory database specific settings
+	public static final Setting<String> MemoryStoragePath            = new StringSetting(databaseGroup,  "In-Memory Database",      "database.memory.storage.path",      "", "Directory for the write-ahead log and the snapshots of the in-memory database. Persistence is disabled if this is empty.");
+	public static final Setting<Integer> MemorySnapshotInterval      = new IntegerSetting(databaseGroup, "In-Memory Database",      "database.memory.snapshot.interval", 10_000, "Number of logged transactions after which the in-memory database writes a compacting snapshot");
+	public static final Setting<Boolean> MemoryLogSync               = new BooleanSetting(databaseGroup, "In-Memory Database",      "database.memory.log.sync",          true, "Forces the write-ahead log of the in-memory database to disk after each transaction");
 
 	// Neo4j specific settings
 	public static final Setting<String> Neo4jDefaultUsername         = new StringSetting(databaseGroup,  "hidden",                  "database.neo4j.default.username",   "neo4j");
@@ -237,6 +254,11 @@ public class Settings {
 	// application settings
 	public static final Setting<Boolean> ChangelogEnabled            = new BooleanSetting(applicationGroup, "Changelog",    "application.changelog.enabled",                   false, "Turns on logging of changes to nodes and relationships");
 	public static final Setting<Boolean> UserChangelogEnabled        = new BooleanSetting(applicationGroup, "Changelog",    "application.changelog.user_centric.enabled",      false, "Turns on user-centric logging of what a user changed/created/deleted");
+	public static final Setting<Integer> ChangelogSegmentSize        = new IntegerSetting(applicationGroup, "Changelog",    "application.changelog.segmentsize",               64, "Maximum size in megabytes of a changelog segment file before a new segment is started");
+	public static final Setting<Integer> ChangelogQueueTimeout       = new IntegerSetting(applicationGroup, "Changelog",    "application.changelog.queue.timeout",             10, "Maximum number of seconds a commit waits for space in the changelog queue when the changelog writer does not keep up");
+	public static final Setting<String> ChangelogQueuePolicy         = new ChoiceSetting(applicationGroup,  "Changelog",    "application.changelog.queue.policy",              "fail", Settings.getStringsAsSet("fail", "drop"), "Determines what happens to a changelog entry that cannot be queued within the timeout.<dl><dt>fail</dt><dd>the commit reports an error, the changes themselves are already committed</dd><dt>drop</dt><dd>the entry is discarded and an error is logged</dd></dl>");
+	public static final Setting<Boolean> UniqueValueIndexEnabled     = new BooleanSetting(applicationGroup, "Validation",   "application.validation.uniqueindex.enabled",      false, "Remembers values that passed a uniqueness validation so that repeated validations of unchanged values do not need a database query. Only use this if all unique values are written with validation enabled.");
+	public static final Setting<Integer> UniqueValueIndexSize        = new IntegerSetting(applicationGroup, "Validation",   "application.validation.uniqueindex.size",         100000, "Maximum number of values in the uniqueness validation index");
 	public static final Setting<Boolean> FilesystemEnabled           = new BooleanSetting(applicationGroup, "Filesystem",   "application.filesystem.enabled",                  false, "If enabled, Structr will create a separate home directory for each user. See Filesystem for more information.");
 	public static final Setting<Boolean> UniquePaths                 = new BooleanSetting(applicationGroup, "Filesystem",   "application.filesystem.unique.paths",             true,  "If enabled, Structr will not allow files/folders of the same name in the same folder and automatically rename the file.");
 	public static final Setting<String> UniquePathsInsertionPosition = new ChoiceSetting(applicationGroup, "Filesystem",    "application.filesystem.unique.insertionposition", "beforeextension", Settings.getStringsAsSet("start", "beforeextension", "end"), "Defines the insertion position of the uniqueness criterion (currently a timestamp).<dl><dt>start</dt><dd>prefixes the name with a timestamp</dd><dt>beforeextension</dt><dd>puts the timestamp before the last dot (or at the end if the name does not contain a dot)</dd><dt>end</dt><dd>appends the timestamp after the complete name</dd></dl>");
@@ -308,6 +330,7 @@ public class Settings {
 	// advanced settings
 	public static final Setting<Boolean> JsonRedundancyReduction      = new BooleanSetting(advancedGroup, "JSON",   "json.redundancyreduction",       true,  "If enabled, nested nodes (which were already rendered in the current output) are rendered with limited set of attribute (id, type, name).");
 	public static final Setting<Integer> JsonParallelizationThreshold = new IntegerSetting(advancedGroup, "JSON",   "json.parallelization.threshold", 100,   "Collection size threshold for multi-threaded JSON generation");
+	public static final Setting<Integer> JsonParallelizationThreads   = new IntegerSetting(advancedGroup, "JSON",   "json.parallelization.threads",   Runtime.getRuntime().availableProcessors(), "Maximum number of threads that are shared by all requests for multi-threaded JSON generation");
 	public static final Setting<Boolean> JsonLenient                  = new BooleanSetting(advancedGroup, "JSON",   "json.lenient",                   false, "Whether to use lenient serialization, e.g. allow to serialize NaN, -Infinity, Infinity instead of just returning null. Note: as long as Javascript doesn’t support NaN etc., most of the UI will be broken");
 	public static final Setting<Boolean> ForceArrays                  = new BooleanSetting(advancedGroup, "JSON",   "json.output.forcearrays",        false, "If enabled, collections with a single element are always represented as a collection.");
 	public static final Setting<Integer> JsonReduceNestedObjectsDepth = new IntegerSetting(advancedGroup, "JSON",   "json.reductiondepth",            0,     "For restricted views (ui, custom, all), only a limited amount of attributes (id, type, name) are rendered for nested objects after this depth. The default is 0, meaning that on the root depth (0), all attributes are rendered and reduction starts at depth 1.<br><br>Can be overridden on a per-request basis by using the request parameter <code>" + (Settings.RequestParameterLegacyMode.getValue() ? "" : "_")  + "outputReductionDepth</code>");
@@ -352,6 +375,9 @@ public class Settings {
 	public static final Setting<String> HtmlResourceProvider      = new StringSetting(servletsGroup,  "hidden", "htmlservlet.resourceprovider",      "org.structr.web.common.UiResourceProvider", "FQCN of resource provider class to use in the HTTP server. Do not change unless you know what you are doing.");
 	public static final Setting<String> HtmlResolveProperties     = new StringSetting(servletsGroup,  "HtmlServlet", "htmlservlet.resolveproperties",     "AbstractNode.name", "Specifies the list of properties that are be used to resolve entities from URL paths.");
 	public static final Setting<String> HtmlCustomResponseHeaders = new TextSetting(servletsGroup,    "HtmlServlet", "htmlservlet.customresponseheaders", "Strict-Transport-Security:max-age=60,X-Content-Type-Options:nosniff,X-Frame-Options:SAMEORIGIN,X-XSS-Protection:1;mode=block", "List of custom response headers that will be added to every HTTP response");
+	public static final Setting<Integer> HtmlAsyncRenderThreads   = new IntegerSetting(servletsGroup, "HtmlServlet", "htmlservlet.async.threads",         Runtime.getRuntime().availableProcessors() * 4, "Maximum number of threads that render pages in asynchronous mode. Additional requests wait until a thread is available.");
+	public static final Setting<Integer> HtmlAsyncRenderQueueSize = new IntegerSetting(servletsGroup, "HtmlServlet", "htmlservlet.async.queuesize",       1000, "Maximum number of requests that wait for a render thread in asynchronous mode. Additional requests are rejected with status 503 (Service Unavailable).");
+	public static final Setting<Integer> FragmentCacheSize        = new IntegerSetting(servletsGroup, "HtmlServlet", "htmlservlet.fragmentcache.size",    1000, "Maximum number of rendered DOM fragments that are cached for elements with a fragment cache time. Set to 0 to disable the fragment cache. Scripts in a cached fragment are not run on a cache hit, so side effects like session changes are not repeated. Output that changes the response status or headers (cookies, redirects) is not cached.");
 
 	public static final Setting<String> PdfServletPath           = new StringSetting(servletsGroup,  "hidden", "pdfservlet.path",                  "/structr/pdf/*", "The URI under which requests are accepted by the servlet. Needs to include a wildcard at the end.");
 	public static final Setting<String> PdfServletClass          = new StringSetting(servletsGroup,  "hidden", "pdfservlet.class",                 "org.structr.pdf.servlet.PdfServlet");
@@ -367,6 +393,9 @@ public class Settings {
 	public static final Setting<String> WebsocketAuthenticator     = new StringSetting(servletsGroup,  "hidden", "websocketservlet.authenticator",     "org.structr.web.auth.UiAuthenticator", "FQCN of authenticator class to use for WebSockets. Do not change unless you know what you are doing.");
 	public static final Setting<String> WebsocketDefaultView       = new StringSetting(servletsGroup,  "hidden", "websocketservlet.defaultview",       "public", "Unused");
 	public static final Setting<Integer> WebsocketOutputDepth      = new IntegerSetting(servletsGroup, "WebSocketServlet", "websocketservlet.outputdepth",       3, "Maximum nesting depth of JSON output");
+	public static final Setting<Integer> WebsocketBroadcastThreads   = new IntegerSetting(servletsGroup, "WebSocketServlet", "websocketservlet.broadcast.threads",   4,    "Number of threads that send broadcast messages to websocket clients");
+	public static final Setting<Integer> WebsocketBroadcastDelay     = new IntegerSetting(servletsGroup, "WebSocketServlet", "websocketservlet.broadcast.delay",     20,   "Time in milliseconds that broadcast messages are held back before they are sent, so that consecutive updates of the same object can be combined into a single message");
+	public static final Setting<Integer> WebsocketBroadcastQueueSize = new IntegerSetting(servletsGroup, "WebSocketServlet", "websocketservlet.broadcast.queuesize", 1000, "Maximum number of pending broadcast messages per websocket client. Clients that exceed this limit are disconnected and need to reconnect.");
 	public static final Setting<String> WebsocketResourceProvider  = new StringSetting(servletsGroup,  "hidden", "websocketservlet.resourceprovider",  "org.structr.web.common.UiResourceProvider", "FQCN of resource provider class to use with WebSockets. Do not change unless you know what you are doing.");
 	public static final Setting<Boolean> WebsocketUserAutologin    = new BooleanSetting(servletsGroup, "hidden", "websocketservlet.user.autologin",    false, "Unused");
 	public static final Setting<Boolean> WebsocketUserAutocreate   = new BooleanSetting(servletsGroup, "hidden", "websocketservlet.user.autocreate",   false, "Unused");
@@ -26,6 +26,7 @@ import org.structr.api.search.QueryContext;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.SortOrder;
 import org.structr.api.search.TypeConverter;
+import org.structr.api.util.Iterables;
 
 /**
  *
@@ -47,6 +48,25 @@ public abstract class AbstractIndex<Q extends DatabaseQuery, R extends PropertyC
 		return getResult(getQuery(context, predicate, requestedPageSize, requestedPage));
 	}
 
+	@Override
+	public long count(final QueryContext context, final QueryPredicate predicate) {
+
+		final Q query = createQuery(context, Integer.MAX_VALUE, 1);
+
+		createQuery(predicate, query, true);
+
+		return getCount(query);
+	}
+
+	/**
+	 * Returns the number of results of the given query. The default
+	 * implementation iterates the result, indexes that can count in the
+	 * database should override this method.
+	 */
+	public long getCount(final Q query) {
+		return Iterables.count(getResult(query));
+	}
+
 	public boolean createQuery(final QueryPredicate predicate, final Q query, final boolean isFirst) {
 
 		final Class type = predicate.getQueryType();
@@ -27,5 +27,6 @@ import org.structr.api.search.QueryPredicate;
 public interface Index<T> {
 
 	Iterable<T> query(final QueryContext context, final QueryPredicate predicate, final int requestedPageSize, final int requestedPage);
+	long count(final QueryContext context, final QueryPredicate predicate);
 	boolean supports(final Class type);
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.search;
+
+import java.util.Set;
+
+/**
+ * A query predicate that restricts the result to entities that are visible
+ * to a set of principals because of their visibility flags, ownership,
+ * direct security grants or a permission-propagating relationship.
+ */
+public interface VisibilityQuery extends QueryPredicate {
+
+	Set<String> getPrincipalIds();
+	Set<String> getPropagatingRelationshipTypes();
+	boolean includeAuthenticated();
+}
@@ -18,90 +18,352 @@
  */
 package org.structr.api.util;
 
-import org.apache.commons.collections4.map.LRUMap;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.lang.management.ManagementFactory;
-import java.lang.management.MemoryPoolMXBean;
-import java.lang.management.MemoryUsage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A map-like storage structure with a fixed maximum size that
- * removes the least recently used entry when the insertion of
- * a new entry causes the map to exceed the specified maximum
+ * removes an entry that was not used recently when the insertion
+ * of a new entry causes the map to exceed the specified maximum
  * size.
  *
+ * The cache is split into segments with their own lock. Reads do
+ * not lock at all, they only mark the entry as referenced. When a
+ * segment is full, the entries are visited in insertion order and
+ * the first entry that was not referenced since the last visit is
+ * evicted (second chance / CLOCK), which approximates LRU.
+ *
  * @param <K>
  * @param <V>
  */
 public class FixedSizeCache<K, V> {
 
-	private LRUMap<K, V> cache          = null;
+	private static final int MIN_SEGMENT_SIZE = 1024;
+	private static final int MAX_SEGMENTS     = 64;
+
+	private final LongAdder hits        = new LongAdder();
+	private final LongAdder misses      = new LongAdder();
+	private final LongAdder evictions   = new LongAdder();
+	private Segment<K, V>[] segments    = null;
 	private String name                 = null;
+	private int maxSize                 = 0;
 
 	public FixedSizeCache(final String name, final int maxSize) {
 
-		this.cache       = new InvalidatingLRUMap<>(maxSize);
+		final int segmentCount = getSegmentCount(maxSize);
+
+		this.segments    = new Segment[segmentCount];
+		this.maxSize     = maxSize;
 		this.name        = name;
+
+		// distribute the maximum size over all segments
+		for (int i=0; i<segmentCount; i++) {
+
+			this.segments[i] = new Segment<>(maxSize / segmentCount + (i < maxSize % segmentCount ? 1 : 0));
+		}
 	}
 
-	public synchronized void put(final K key, final V value) {
-		cache.put(key, value);
+	public void put(final K key, final V value) {
+		put(key, value, false);
 	}
 
-	public synchronized V get(final K key) {
-		return cache.get(key);
+	/**
+	 * Stores the given value if no value is present for the given key.
+	 *
+	 * @return the existing value, or null if the given value was stored
+	 */
+	public V putIfAbsent(final K key, final V value) {
+		return put(key, value, true);
 	}
 
-	public synchronized void removeAll(final Collection<K> keys) {
-		cache.keySet().removeAll(keys);
+	public V get(final K key) {
+
+		if (key != null) {
+
+			final Entry<K, V> entry = segmentFor(key).get(key);
+			if (entry != null) {
+
+				// avoid writing to shared memory if the flag is already set
+				if (!entry.referenced) {
+					entry.referenced = true;
+				}
+
+				hits.increment();
+
+				return entry.value;
+			}
+		}
+
+		misses.increment();
+
+		return null;
+	}
+
+	public void removeAll(final Collection<K> keys) {
+
+		for (final K key : keys) {
+			remove(key);
+		}
+	}
+
+	public V remove(final K key) {
+
+		if (key != null) {
+
+			return segmentFor(key).remove(key);
+		}
+
+		return null;
 	}
 
-	public synchronized V remove(final K key) {
-		return cache.remove(key);
+	public void clear() {
+
+		for (final Segment<K, V> segment : segments) {
+			segment.clear();
+		}
 	}
 
-	public synchronized void clear() {
-		cache.clear();
+	public int size() {
+
+		int size = 0;
+
+		for (final Segment<K, V> segment : segments) {
+			size += segment.size();
+		}
+
+		return size;
+	}
+
+	public Map<String, Integer> getCacheInfo() {
+
+		return Map.of(
+			"max",       maxSize,
+			"size",      size(),
+			"hits",      toInt(hits.sum()),
+			"misses",    toInt(misses.sum()),
+			"evictions", toInt(evictions.sum())
+		);
+	}
+
+	public boolean isEmpty() {
+
+		for (final Segment<K, V> segment : segments) {
+
+			if (segment.size() > 0) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public boolean containsKey(final K key) {
+		return key != null && segmentFor(key).get(key) != null;
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+	// ----- private methods -----
+	private V put(final K key, final V value, final boolean onlyIfAbsent) {
+
+		if (key != null) {
+
+			final List<V> evicted = new ArrayList<>(1);
+			final V existing      = segmentFor(key).put(key, value, onlyIfAbsent, evicted);
+
+			if (!evicted.isEmpty()) {
+
+				evictions.add(evicted.size());
+
+				for (final V evictedValue : evicted) {
+					notifyRemoved(evictedValue);
+				}
+			}
+
+			if (onlyIfAbsent) {
+				return existing;
+			}
+		}
+
+		return null;
 	}
 
-	public synchronized int size() {
-		return cache.size();
+	private void notifyRemoved(final V value) {
+
+		if (value instanceof Cachable) {
+
+			((Cachable)value).onRemoveFromCache();
+		}
 	}
 
-	public synchronized Map<String, Integer> getCacheInfo() {
-		return Map.of("max", cache.maxSize(), "size", size());
+	private Segment<K, V> segmentFor(final K key) {
+
+		final int hash = key.hashCode();
+
+		// spread higher bits downwards, node and relationship IDs are sequential
+		return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
 	}
 
-	public synchronized boolean isEmpty() {
-		return cache.isEmpty();
+	private int toInt(final long value) {
+		return (int)Math.min(Integer.MAX_VALUE, value);
 	}
 
-	public synchronized boolean containsKey(final K key) {
-		return cache.containsKey(key);
+	private static int getSegmentCount(final int maxSize) {
+
+		final int processors = Runtime.getRuntime().availableProcessors() * 4;
+		final int limit      = Math.min(Math.min(MAX_SEGMENTS, processors), maxSize / MIN_SEGMENT_SIZE);
+
+		// number of segments must be a power of two
+		return limit > 1 ? Integer.highestOneBit(limit) : 1;
 	}
 
 	// ----- nested classes -----
-	private static class InvalidatingLRUMap<K, V> extends LRUMap<K, V> {
+	private static final class Entry<K, V> {
+
+		private final K key;
+		private volatile V value            = null;
+		private volatile boolean referenced = false;
+		private boolean removed             = false;
+
+		public Entry(final K key, final V value) {
+
+			this.key   = key;
+			this.value = value;
+		}
+	}
+
+	private static final class Segment<K, V> {
+
+		private final ConcurrentHashMap<K, Entry<K, V>> map = new ConcurrentHashMap<>();
+		private final ArrayDeque<Entry<K, V>> clock         = new ArrayDeque<>();
+		private final ReentrantLock lock                    = new ReentrantLock();
+		private int capacity                                = 0;
 
-		public InvalidatingLRUMap(final int maxSize) {
-			super(maxSize, true);
+		public Segment(final int capacity) {
+			this.capacity = capacity;
 		}
 
-		@Override
-		protected boolean removeLRU(final LinkEntry<K, V> entry) {
+		public Entry<K, V> get(final K key) {
+			return map.get(key);
+		}
+
+		public int size() {
+			return map.size();
+		}
+
+		public V put(final K key, final V value, final boolean onlyIfAbsent, final List<V> evicted) {
+
+			lock.lock();
+			try {
+
+				final Entry<K, V> existing = map.get(key);
+				if (existing != null) {
+
+					existing.referenced = true;
+
+					final V previous = existing.value;
+
+					if (!onlyIfAbsent) {
+						existing.value = value;
+					}
+
+					return previous;
+				}
+
+				final Entry<K, V> entry = new Entry<>(key, value);
+
+				map.put(key, entry);
+				clock.addLast(entry);
+
+				while (map.size() > capacity) {
+
+					final Entry<K, V> candidate = clock.pollFirst();
+					if (candidate == null) {
 
-			final V value = entry.getValue();
-			if (value != null && value instanceof Cachable) {
+						break;
+					}
 
-				((Cachable)value).onRemoveFromCache();
+					if (candidate.removed) {
+
+						continue;
+					}
+
+					// never evict the entry that is being inserted, the caller
+					// relies on it being cached (see putIfAbsent)
+					if (candidate == entry && map.size() > 1) {
+
+						clock.addLast(candidate);
+
+					} else if (candidate.referenced) {
+
+						// second chance
+						candidate.referenced = false;
+						clock.addLast(candidate);
+
+					} else {
+
+						candidate.removed = true;
+						map.remove(candidate.key);
+
+						evicted.add(candidate.value);
+					}
+				}
+
+				// remove stale entries left behind by explicit removals
+				if (clock.size() > 2 * Math.max(capacity, 16)) {
+					clock.removeIf(e -> e.removed);
+				}
+
+			} finally {
+
+				lock.unlock();
+			}
+
+			return null;
+		}
+
+		public V remove(final K key) {
+
+			lock.lock();
+			try {
+
+				final Entry<K, V> entry = map.remove(key);
+				if (entry != null) {
+
+					entry.removed = true;
+
+					return entry.value;
+				}
+
+			} finally {
+
+				lock.unlock();
 			}
 
-			return true;
+			return null;
+		}
+
+		public void clear() {
+
+			lock.lock();
+			try {
+
+				map.clear();
+				clock.clear();
+
+			} finally {
+
+				lock.unlock();
+			}
 		}
 	}
 }
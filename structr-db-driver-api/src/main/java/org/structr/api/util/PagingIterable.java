@@ -22,16 +22,19 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Iterator;
+import java.util.function.IntSupplier;
 
 /**
  * An iterable that supports pagination and result counting.
  */
 public class PagingIterable<T> implements ResultStream<T> {
 
-	private static final Logger logger    = LoggerFactory.getLogger(PagingIterable.class);
-	private PagingIterator<T> source      = null;
-	private String queryTimeFormatted     = null;
-	private Integer overriddenResultCount = null;
+	private static final Logger logger      = LoggerFactory.getLogger(PagingIterable.class);
+	private PagingIterator<T> source        = null;
+	private String queryTimeFormatted       = null;
+	private Integer overriddenResultCount   = null;
+	private IntSupplier resultCountProvider = null;
+	private Integer providedResultCount     = null;
 
 	public PagingIterable(final String description, final Iterable<T> source) {
 		this(description, source, Integer.MAX_VALUE, 1);
@@ -58,12 +61,32 @@ public class PagingIterable<T> implements ResultStream<T> {
 
 	@Override
 	public int calculateTotalResultCount(final ProgressWatcher progressConsumer, final int softLimit) {
-		return overriddenResultCount != null ? overriddenResultCount : source.getResultCount(progressConsumer, softLimit);
+
+		if (overriddenResultCount != null) {
+			return overriddenResultCount;
+		}
+
+		final Integer providedCount = getProvidedResultCount(softLimit);
+		if (providedCount != null) {
+			return providedCount;
+		}
+
+		return source.getResultCount(progressConsumer, softLimit);
 	}
 
 	@Override
 	public int calculatePageCount(final ProgressWatcher progressConsumer, final int softLimit) {
-		return overriddenResultCount != null && this.getPageSize() != 0 ? (int)Math.ceil( ((double)overriddenResultCount) / ((double)this.getPageSize())) : source.getPageCount(progressConsumer, softLimit);
+
+		if (overriddenResultCount != null && this.getPageSize() != 0) {
+			return getPageCount(overriddenResultCount);
+		}
+
+		final Integer providedCount = getProvidedResultCount(softLimit);
+		if (providedCount != null && this.getPageSize() != 0) {
+			return providedCount == -1 ? -1 : getPageCount(providedCount);
+		}
+
+		return source.getPageCount(progressConsumer, softLimit);
 	}
 
 	@Override
@@ -121,4 +144,37 @@ public class PagingIterable<T> implements ResultStream<T> {
 	public void setOverriddenResultCount(final int resultCount) {
 		this.overriddenResultCount = resultCount;
 	}
+
+	/**
+	 * Sets a provider for the total result count that is only called when
+	 * the count is actually requested, e.g. a count query in the database.
+	 */
+	public void setResultCountProvider(final IntSupplier resultCountProvider) {
+		this.resultCountProvider = resultCountProvider;
+	}
+
+	// ----- private methods -----
+	/**
+	 * Returns the count of the result count provider, or -1 if it exceeds
+	 * the soft limit, which is what the iterator reports when it stops
+	 * counting at the soft limit.
+	 */
+	private Integer getProvidedResultCount(final int softLimit) {
+
+		if (providedResultCount == null && resultCountProvider != null) {
+
+			providedResultCount = resultCountProvider.getAsInt();
+			resultCountProvider = null;
+		}
+
+		if (providedResultCount != null && providedResultCount > softLimit) {
+			return -1;
+		}
+
+		return providedResultCount;
+	}
+
+	private int getPageCount(final int resultCount) {
+		return (int)Math.ceil( ((double)resultCount) / ((double)this.getPageSize()));
+	}
 }
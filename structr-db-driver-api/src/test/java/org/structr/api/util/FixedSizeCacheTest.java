@@ -20,8 +20,14 @@ package org.structr.api.util;
 
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
 
 /**
  *
@@ -59,4 +65,118 @@ public class FixedSizeCacheTest {
 		}
 
 	}
+
+	@Test
+	public void testRecentlyUsedEntriesSurvive() {
+
+		final FixedSizeCache<Long, Long> test = new FixedSizeCache<>("Test cache", 10);
+
+		for (int i=0; i<10; i++) {
+
+			final Long value = Long.valueOf(i);
+			test.put(value, value);
+		}
+
+		// access the first entry so it gets a second chance
+		test.get(0L);
+
+		test.put(10L, 10L);
+
+		assertEquals("Recently used entry was evicted", Long.valueOf(0), test.get(0L));
+		assertNull("Least recently used entry was not evicted", test.get(1L));
+		assertEquals("Invalid FixedSizeCache size", 10, test.size());
+
+		final Map<String, Integer> info = test.getCacheInfo();
+
+		assertEquals("Invalid hit count",      Integer.valueOf(2), info.get("hits"));
+		assertEquals("Invalid miss count",     Integer.valueOf(1), info.get("misses"));
+		assertEquals("Invalid eviction count", Integer.valueOf(1), info.get("evictions"));
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+
+		final FixedSizeCache<Long, Long> test = new FixedSizeCache<>("Test cache", 10_000);
+		final List<Thread> threads            = new ArrayList<>();
+
+		for (int t=0; t<8; t++) {
+
+			final long offset = t;
+
+			threads.add(new Thread(() -> {
+
+				for (long i=0; i<50_000; i++) {
+
+					final Long key = (i * 8 + offset) % 20_000;
+
+					if (test.get(key) == null) {
+						test.putIfAbsent(key, key);
+					}
+				}
+			}));
+		}
+
+		threads.forEach(Thread::start);
+
+		for (final Thread thread : threads) {
+			thread.join();
+		}
+
+		assertTrue("FixedSizeCache exceeds maximum size", test.size() <= 10_000);
+	}
+
+	@Test
+	public void testInsertedEntryIsNotEvicted() {
+
+		final FixedSizeCache<Long, TestValue> test = new FixedSizeCache<>("Test cache", 4);
+		final TestValue value                      = new TestValue();
+
+		for (long i=0; i<4; i++) {
+			test.put(i, new TestValue());
+		}
+
+		// all existing entries get a second chance
+		for (long i=0; i<4; i++) {
+			test.get(i);
+		}
+
+		assertNull("Value should be stored by putIfAbsent", test.putIfAbsent(99L, value));
+		assertEquals("Inserted entry was evicted", value, test.get(99L));
+		assertFalse("Inserted value was notified", value.removed);
+		assertEquals("Invalid FixedSizeCache size", 4, test.size());
+		assertEquals("Invalid eviction count", Integer.valueOf(1), test.getCacheInfo().get("evictions"));
+	}
+
+	@Test
+	public void testReplacedValues() {
+
+		final FixedSizeCache<Long, TestValue> test = new FixedSizeCache<>("Test cache", 10);
+		final TestValue first                      = new TestValue();
+		final TestValue second                     = new TestValue();
+		final TestValue third                      = new TestValue();
+
+		test.put(1L, first);
+		test.put(1L, second);
+
+		// only evicted values are notified
+		assertFalse("Replaced value was notified", first.removed);
+		assertEquals("Invalid FixedSizeCache contents", second, test.get(1L));
+
+		assertEquals("Existing value should be returned", second, test.putIfAbsent(1L, third));
+		assertFalse("Existing value was notified by putIfAbsent", second.removed);
+		assertFalse("Rejected value was notified by putIfAbsent", third.removed);
+		assertEquals("Invalid FixedSizeCache contents", second, test.get(1L));
+		assertEquals("Replacement is not an eviction", Integer.valueOf(0), test.getCacheInfo().get("evictions"));
+	}
+
+	// ----- nested classes -----
+	private static class TestValue implements Cachable {
+
+		private boolean removed = false;
+
+		@Override
+		public void onRemoveFromCache() {
+			removed = true;
+		}
+	}
 }
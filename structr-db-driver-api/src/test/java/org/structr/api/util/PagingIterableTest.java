@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.api.util;
+
+import org.testng.annotations.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+/**
+ *
+ */
+public class PagingIterableTest {
+
+	@Test
+	public void testResultCountProvider() {
+
+		final AtomicInteger calls           = new AtomicInteger();
+		final PagingIterable<Integer> paged = new PagingIterable<>("test", getSource(95), 10, 2);
+
+		paged.setResultCountProvider(() -> {
+
+			calls.incrementAndGet();
+			return 1000;
+		});
+
+		assertEquals("Count provider must not be called before the count is requested", 0, calls.get());
+		assertEquals("Invalid page", List.of(10, 11, 12, 13, 14, 15, 16, 17, 18, 19), Iterables.toList(paged));
+		assertEquals("Count provider must not be called before the count is requested", 0, calls.get());
+
+		assertEquals("Invalid result count", 1000, paged.calculateTotalResultCount(null, Integer.MAX_VALUE));
+		assertEquals("Invalid page count",    100, paged.calculatePageCount(null, Integer.MAX_VALUE));
+		assertEquals("Count provider must be called only once", 1, calls.get());
+	}
+
+	@Test
+	public void testResultCountProviderRespectsSoftLimit() {
+
+		final PagingIterable<Integer> limited  = new PagingIterable<>("test", getSource(95), 10, 1);
+		final PagingIterable<Integer> iterated = new PagingIterable<>("test", getSource(95), 10, 1);
+
+		limited.setResultCountProvider(() -> 95);
+
+		assertEquals("Provided count must be limited like the iterated count", iterated.calculateTotalResultCount(null, 50), limited.calculateTotalResultCount(null, 50));
+		assertEquals("Provided count must be limited like the iterated count", -1, limited.calculatePageCount(null, 50));
+		assertEquals("Invalid result count", 95, limited.calculateTotalResultCount(null, 95));
+		assertEquals("Invalid page count",   10, limited.calculatePageCount(null, 95));
+	}
+
+	@Test
+	public void testResultCountWithoutProvider() {
+
+		final PagingIterable<Integer> paged = new PagingIterable<>("test", getSource(95), 10, 2);
+
+		assertEquals("Invalid page",         10, Iterables.toList(paged).size());
+		assertEquals("Invalid result count", 95, paged.calculateTotalResultCount(null, Integer.MAX_VALUE));
+		assertEquals("Invalid page count",   10, paged.calculatePageCount(null, Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void testOverriddenResultCountHasPrecedence() {
+
+		final PagingIterable<Integer> paged = new PagingIterable<>("test", getSource(95), 10, 1);
+
+		paged.setOverriddenResultCount(42);
+		paged.setResultCountProvider(() -> 1000);
+
+		assertEquals("Invalid result count", 42, paged.calculateTotalResultCount(null, Integer.MAX_VALUE));
+		assertEquals("Invalid page count",    5, paged.calculatePageCount(null, Integer.MAX_VALUE));
+	}
+
+	// ----- private methods -----
+	private List<Integer> getSource(final int count) {
+
+		final List<Integer> source = new LinkedList<>();
+
+		for (int i=0; i<count; i++) {
+			source.add(i);
+		}
+
+		return source;
+	}
+}
@@ -18,18 +18,28 @@
  */
 package org.structr.memory;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.structr.api.*;
+import org.structr.api.config.Settings;
 import org.structr.api.graph.*;
 import org.structr.api.index.Index;
 import org.structr.api.index.IndexConfig;
 import org.structr.api.util.CountResult;
 import org.structr.api.util.Iterables;
 import org.structr.api.util.NodeWithOwnerResult;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.MemoryNodeIndex;
 import org.structr.memory.index.MemoryRelationshipIndex;
 import org.structr.memory.index.filter.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -37,19 +47,54 @@ import java.util.Set;
  */
 public class MemoryDatabaseService extends AbstractDatabaseService {
 
+	private static final Logger logger                                  = LoggerFactory.getLogger(MemoryDatabaseService.class);
 	private static final ThreadLocal<MemoryTransaction> transactions    = new ThreadLocal<>();
 	private final MemoryRelationshipRepository relationships            = new MemoryRelationshipRepository();
 	private final MemoryNodeRepository nodes                            = new MemoryNodeRepository();
+	private final MemoryIndexRepository<MemoryRelationship> relIndexes  = new MemoryIndexRepository<>(false, label -> relationships.values(new MemoryLabelFilter<>(label)));
+	private final MemoryIndexRepository<MemoryNode> nodeIndexes         = new MemoryIndexRepository<>(true, label -> nodes.values(new MemoryLabelFilter<>(label)));
 	private MemoryRelationshipIndex relIndex                            = null;
 	private MemoryNodeIndex nodeIndex                                   = null;
+	private MemoryStorage storage                                       = null;
 
 	@Override
-	public boolean initialize(final String serviceName, final String version, final String instance) {
+	public boolean initialize(final String name, final String version, final String instance) {
+
+		String serviceName = null;
+
+		if (!"default".equals(name)) {
+
+			serviceName = name;
+		}
+
+		final String storagePath = Settings.MemoryStoragePath.getPrefixedValue(serviceName);
+		if (StringUtils.isNotBlank(storagePath)) {
+
+			storage = new MemoryStorage(this, nodes, relationships, new File(storagePath), Settings.MemorySnapshotInterval.getPrefixedValue(serviceName), Settings.MemoryLogSync.getPrefixedValue(serviceName));
+
+			try {
+
+				storage.load();
+
+			} catch (IOException ioex) {
+
+				logger.error("Unable to load in-memory database from {}: {}", storagePath, ExceptionUtils.getStackTrace(ioex));
+
+				storage = null;
+
+				return false;
+			}
+		}
+
 		return true;
 	}
 
 	@Override
 	public void shutdown() {
+
+		if (storage != null) {
+			storage.close();
+		}
 	}
 
 	@Override
@@ -69,6 +114,12 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 
 		nodes.clear();
 		relationships.clear();
+		nodeIndexes.clear();
+		relIndexes.clear();
+
+		if (storage != null) {
+			storage.snapshot();
+		}
 	}
 
 	@Override
@@ -226,6 +277,9 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 
 	@Override
 	public void updateIndexConfiguration(final Map<String, Map<String, IndexConfig>> schemaIndexConfig, final Map<String, Map<String, IndexConfig>> removedClasses, final boolean createOnly) {
+
+		nodeIndexes.updateConfiguration(schemaIndexConfig, removedClasses, createOnly);
+		relIndexes.updateConfiguration(schemaIndexConfig, removedClasses, createOnly);
 	}
 
 	@Override
@@ -274,6 +328,32 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 		});
 	}
 
+	/**
+	 * Returns a filter with the committed candidates for the given labels
+	 * and lookups, or null if the property indexes can not answer them.
+	 */
+	public MemoryIndexFilter<MemoryNode> getNodeIndexFilter(final Set<String> labels, final List<IndexLookup> lookups) {
+
+		final Set<MemoryIdentity> candidates = nodeIndexes.lookup(labels, lookups);
+		if (candidates != null) {
+
+			return new MemoryIndexFilter<>(labels, candidates);
+		}
+
+		return null;
+	}
+
+	public MemoryIndexFilter<MemoryRelationship> getRelationshipIndexFilter(final Set<String> labels, final List<IndexLookup> lookups) {
+
+		final Set<MemoryIdentity> candidates = relIndexes.lookup(labels, lookups);
+		if (candidates != null) {
+
+			return new MemoryIndexFilter<>(labels, candidates);
+		}
+
+		return null;
+	}
+
 	@Override
 	public boolean supportsFeature(final DatabaseFeature feature, final Object... parameters) {
 
@@ -290,6 +370,9 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 
 			case AuthenticationRequired:
 				return false;
+
+			case VisibilityQueries:
+				return true;
 		}
 
 		return false;
@@ -412,7 +495,7 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 		return tx;
 	}
 
-	void commitTransaction(final Map<MemoryIdentity, MemoryNode> newNodes, final Map<MemoryIdentity, MemoryRelationship> newRelationships, Set<MemoryIdentity> deletedNodes, Map<MemoryIdentity, MemoryRelationship> deletedRelationships) {
+	void commitTransaction(final Map<MemoryIdentity, MemoryNode> newNodes, final Map<MemoryIdentity, MemoryRelationship> newRelationships, Set<MemoryIdentity> deletedNodes, Map<MemoryIdentity, MemoryRelationship> deletedRelationships, final Set<MemoryEntity> modifiedEntities) {
 
 		newNodes.keySet().removeAll(deletedNodes);
 		nodes.remove(deletedNodes);
@@ -422,6 +505,30 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 		relationships.remove(deletedRelationships);
 		relationships.add(newRelationships.values());
 
+		// update secondary indexes
+		nodeIndexes.remove(deletedNodes);
+		relIndexes.remove(deletedRelationships.keySet());
+
+		for (final MemoryEntity entity : modifiedEntities) {
+
+			final MemoryIdentity id = entity.getIdentity();
+
+			if (id.isNode()) {
+
+				if (!deletedNodes.contains(id)) {
+					nodeIndexes.update(entity);
+				}
+
+			} else if (!deletedRelationships.containsKey(id)) {
+
+				relIndexes.update(entity);
+			}
+		}
+
+		// new entities without properties are not in the modified set
+		nodeIndexes.update(newNodes.values());
+		relIndexes.update(newRelationships.values());
+
 		transactions.remove();
 	}
 
@@ -429,6 +536,27 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 		transactions.remove();
 	}
 
+	void beginCommit() {
+
+		if (storage != null) {
+			storage.beginCommit();
+		}
+	}
+
+	void endCommit() {
+
+		if (storage != null) {
+			storage.endCommit();
+		}
+	}
+
+	void logTransaction(final long transactionId, final Collection<MemoryEntity> changedEntities, final Collection<MemoryIdentity> deletedNodes, final Collection<MemoryIdentity> deletedRelationships) throws IOException {
+
+		if (storage != null) {
+			storage.log(transactionId, changedEntities, deletedNodes, deletedRelationships);
+		}
+	}
+
 	Iterable<MemoryNode> getNodes(final Filter<MemoryNode> filter) {
 		return nodes.values(filter);
 	}
@@ -456,7 +584,13 @@ public class MemoryDatabaseService extends AbstractDatabaseService {
 	}
 
 	void updateCache(final MemoryNode node) {
+
 		nodes.updateCache(node);
+
+		// labels of committed nodes are not transactional
+		if (nodes.contains(node.getIdentity())) {
+			nodeIndexes.update(node);
+		}
 	}
 
 	void updateCache(final MemoryRelationship relationship) {
@@ -23,11 +23,15 @@ import org.structr.api.graph.Identity;
 import org.structr.api.graph.PropertyContainer;
 import org.structr.api.util.ChangeAwareMap;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -41,6 +45,7 @@ public abstract class MemoryEntity implements PropertyContainer {
 	private final ChangeAwareMap data              = new ChangeAwareMap();
 	private final Set<String> labels               = new LinkedHashSet<>();
 	private ReentrantLock lock                     = new ReentrantLock();
+	private boolean labelsModified                 = false;
 	protected MemoryDatabaseService db             = null;
 	private MemoryIdentity id                      = null;
 
@@ -132,6 +137,8 @@ public abstract class MemoryEntity implements PropertyContainer {
 		labels.add(label);
 
 		if (updateCache) {
+			labelsModified = true;
+			registerModification();
 			updateCache();
 		}
 	}
@@ -146,6 +153,8 @@ public abstract class MemoryEntity implements PropertyContainer {
 		labels.remove(label);
 
 		if (updateCache) {
+			labelsModified = true;
+			registerModification();
 			updateCache();
 		}
 	}
@@ -159,6 +168,10 @@ public abstract class MemoryEntity implements PropertyContainer {
 	}
 
 	// ----- package-private methods -----
+	Object getCommittedProperty(final String name) {
+		return data.get(name);
+	}
+
 	void commit(final long transactionId) {
 
 		final ChangeAwareMap changes = txData.get(transactionId);
@@ -180,14 +193,28 @@ public abstract class MemoryEntity implements PropertyContainer {
 			txData.remove(transactionId);
 		}
 
+		labelsModified = false;
+
 		unlock();
 	}
 
 	void rollback(final long transactionId) {
 		txData.remove(transactionId);
+		labelsModified = false;
 		unlock();
 	}
 
+	/**
+	 * Indicates whether this entity was actually changed in the given
+	 * transaction, as opposed to only being read.
+	 */
+	boolean hasChanges(final long transactionId) {
+
+		final ChangeAwareMap changes = txData.get(transactionId);
+
+		return labelsModified || (changes != null && !changes.getModifiedKeys().isEmpty());
+	}
+
 	void lock() {
 
 		if (!lock.isHeldByCurrentThread()) {
@@ -257,7 +284,112 @@ public abstract class MemoryEntity implements PropertyContainer {
 	}
 
 
+	/**
+	 * Writes the state of this entity as it will be after the given
+	 * transaction is committed. Must be called by the committing thread.
+	 */
+	void writeTransactionState(final long transactionId, final DataOutput out) throws IOException {
+
+		final ChangeAwareMap changes = txData.get(transactionId);
+		if (changes != null) {
+
+			writeBinary(out, changes.entrySet());
+
+		} else {
+
+			writeBinary(out, data.entrySet());
+		}
+	}
+
+	/**
+	 * Writes the committed state of this entity, waiting for a transaction
+	 * that currently modifies this entity to finish.
+	 */
+	void writeCommittedState(final DataOutput out) throws IOException {
+
+		lock.lock();
+		try {
+
+			writeBinary(out, data.entrySet());
+
+		} finally {
+
+			lock.unlock();
+		}
+	}
+
+	void readBinary(final DataInput in) throws IOException {
+
+		id = MemoryIdentity.loadFromStorage(in);
+
+		final int labelCount = in.readInt();
+
+		for (int i=0; i<labelCount; i++) {
+
+			labels.add(MemoryStorageFormat.readString(in));
+		}
+
+		final int propertyCount = in.readInt();
+
+		for (int i=0; i<propertyCount; i++) {
+
+			final String key   = MemoryStorageFormat.readString(in);
+			final Object value = MemoryStorageFormat.readValue(in);
+
+			if (value != null) {
+
+				data.put(key, value);
+			}
+		}
+	}
+
+	protected void writeBinary(final DataOutput out, final Set<Entry<String, Object>> properties) throws IOException {
+
+		id.writeToStorage(out);
+
+		final List<String> labelList = new ArrayList<>(labels);
+
+		out.writeInt(labelList.size());
+
+		for (final String label : labelList) {
+
+			MemoryStorageFormat.writeString(out, label);
+		}
+
+		// null values are removed properties
+		final List<Entry<String, Object>> entries = new ArrayList<>();
+
+		for (final Entry<String, Object> entry : properties) {
+
+			if (entry.getValue() != null) {
+				entries.add(entry);
+			}
+		}
+
+		out.writeInt(entries.size());
+
+		for (final Entry<String, Object> entry : entries) {
+
+			MemoryStorageFormat.writeString(out, entry.getKey());
+			MemoryStorageFormat.writeValue(out, entry.getValue());
+		}
+	}
+
 	// ----- private methods -----
+	/**
+	 * Registers this entity with the current transaction like getData
+	 * does, so a transaction that only changes labels is committed and
+	 * written to the write-ahead log.
+	 */
+	private void registerModification() {
+
+		final MemoryTransaction tx = db.getCurrentTransaction(false);
+		if (tx != null) {
+
+			tx.modify(this);
+		}
+	}
+
 	private ChangeAwareMap getData(final boolean read) {
 
 		// read-only access does not need a transaction
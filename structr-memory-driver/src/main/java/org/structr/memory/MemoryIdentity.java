@@ -20,9 +20,9 @@ package org.structr.memory;
 
 import org.structr.api.graph.Identity;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -89,7 +89,7 @@ public class MemoryIdentity implements Identity {
 
 
 	// ----- package-private methods -----
-	static MemoryIdentity loadFromStorage(final ObjectInputStream in) throws IOException {
+	static MemoryIdentity loadFromStorage(final DataInput in) throws IOException {
 
 		final MemoryIdentity identity = new MemoryIdentity();
 
@@ -97,10 +97,13 @@ public class MemoryIdentity implements Identity {
 		identity.type   = in.readUTF();
 		identity.id     = in.readLong();
 
+		// make sure that new identities do not collide with stored ones
+		idCounter.accumulateAndGet(identity.id + 1, Math::max);
+
 		return identity;
 	}
 
-	void writeToStorage(final ObjectOutputStream out) throws IOException {
+	void writeToStorage(final DataOutput out) throws IOException {
 
 		out.writeBoolean(isNode);
 		out.writeUTF(type);
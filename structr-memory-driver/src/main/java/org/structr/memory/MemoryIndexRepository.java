@@ -0,0 +1,348 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.structr.api.index.IndexConfig;
+import org.structr.memory.index.IndexLookup;
+import org.structr.memory.index.PropertyIndex;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Secondary property indexes for nodes or relationships, created from
+ * the schema index configuration and updated on commit.
+ */
+public class MemoryIndexRepository<T extends MemoryEntity> {
+
+	private static final Logger logger = LoggerFactory.getLogger(MemoryIndexRepository.class);
+
+	private final Map<String, Map<String, PropertyIndex>> indexes = new ConcurrentHashMap<>();
+	private final Map<String, Set<String>> inheritedKeys          = new ConcurrentHashMap<>();
+	private final Map<MemoryIdentity, Set<PropertyIndex>> members = new ConcurrentHashMap<>();
+	private final Set<String> indexedKeys                         = ConcurrentHashMap.newKeySet();
+	private Function<String, Iterable<T>> source                  = null;
+	private boolean isNodeIndex                                   = false;
+
+	public MemoryIndexRepository(final boolean isNodeIndex, final Function<String, Iterable<T>> source) {
+
+		this.isNodeIndex = isNodeIndex;
+		this.source      = source;
+	}
+
+	/**
+	 * Removes all indexed values but keeps the index configuration.
+	 */
+	public synchronized void clear() {
+
+		for (final Map<String, PropertyIndex> labelIndexes : indexes.values()) {
+
+			for (final PropertyIndex index : labelIndexes.values()) {
+				index.clear();
+			}
+		}
+
+		members.clear();
+	}
+
+	public boolean isEmpty() {
+		return indexes.isEmpty() && inheritedKeys.isEmpty();
+	}
+
+	synchronized void updateConfiguration(final Map<String, Map<String, IndexConfig>> schemaIndexConfig, final Map<String, Map<String, IndexConfig>> removedClasses, final boolean createOnly) {
+
+		final Set<PropertyIndex> newIndexes = new LinkedHashSet<>();
+
+		if (removedClasses != null) {
+
+			for (final Entry<String, Map<String, IndexConfig>> entry : removedClasses.entrySet()) {
+
+				final String label = entry.getKey();
+
+				for (final Entry<String, IndexConfig> property : entry.getValue().entrySet()) {
+
+					final IndexConfig config = property.getValue();
+					if (config.isNodeIndex() == isNodeIndex) {
+
+						dropIndex(label, property.getKey());
+					}
+				}
+
+				inheritedKeys.remove(label);
+			}
+		}
+
+		if (schemaIndexConfig != null) {
+
+			for (final Entry<String, Map<String, IndexConfig>> entry : schemaIndexConfig.entrySet()) {
+
+				final String label = entry.getKey();
+
+				for (final Entry<String, IndexConfig> property : entry.getValue().entrySet()) {
+
+					final IndexConfig config = property.getValue();
+					final String key         = property.getKey();
+
+					if (config.isNodeIndex() == isNodeIndex) {
+
+						if (config.createOrDropIndex()) {
+
+							indexedKeys.add(key);
+
+							if (getIndex(label, key) == null) {
+								newIndexes.add(createIndex(label, key));
+							}
+
+						} else {
+
+							if (!createOnly) {
+								dropIndex(label, key);
+							}
+
+							// Keys that are indexed on a supertype label are not flagged for
+							// the subtype, remember them so an index for the subtype label
+							// can be created on demand when it is first queried.
+							inheritedKeys.computeIfAbsent(label, k -> ConcurrentHashMap.newKeySet()).add(key);
+						}
+					}
+				}
+			}
+		}
+
+		if (!newIndexes.isEmpty()) {
+
+			logger.info("Populating {} in-memory {} indexes", newIndexes.size(), isNodeIndex ? "node" : "relationship");
+
+			for (final PropertyIndex index : newIndexes) {
+				populate(index);
+			}
+		}
+	}
+
+	synchronized void update(final Iterable<? extends MemoryEntity> entities) {
+
+		if (indexes.isEmpty()) {
+			return;
+		}
+
+		for (final MemoryEntity entity : entities) {
+
+			update(entity);
+		}
+	}
+
+	synchronized void update(final MemoryEntity entity) {
+
+		if (indexes.isEmpty()) {
+			return;
+		}
+
+		final MemoryIdentity id        = entity.getIdentity();
+		final Set<PropertyIndex> old   = members.remove(id);
+		final Set<PropertyIndex> added = ConcurrentHashMap.newKeySet();
+
+		for (final String label : entity.getLabels()) {
+
+			final Map<String, PropertyIndex> labelIndexes = indexes.get(label);
+			if (labelIndexes != null) {
+
+				for (final PropertyIndex index : labelIndexes.values()) {
+
+					index.put(id, entity.getCommittedProperty(index.getKey()));
+					added.add(index);
+				}
+			}
+		}
+
+		// remove entity from indexes of labels it does not have any more
+		if (old != null) {
+
+			for (final PropertyIndex index : old) {
+
+				if (!added.contains(index)) {
+					index.remove(id);
+				}
+			}
+		}
+
+		if (!added.isEmpty()) {
+			members.put(id, added);
+		}
+	}
+
+	synchronized void remove(final Collection<MemoryIdentity> ids) {
+
+		if (indexes.isEmpty()) {
+			return;
+		}
+
+		for (final MemoryIdentity id : ids) {
+
+			final Set<PropertyIndex> old = members.remove(id);
+			if (old != null) {
+
+				for (final PropertyIndex index : old) {
+					index.remove(id);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the committed candidates for the given labels (which are
+	 * combined with OR) and lookups (which are combined with AND), or
+	 * null if the indexes can not answer the query for all labels.
+	 */
+	Set<MemoryIdentity> lookup(final Set<String> labels, final List<IndexLookup> lookups) {
+
+		if (isEmpty() || labels.isEmpty() || lookups.isEmpty()) {
+			return null;
+		}
+
+		final Set<MemoryIdentity> result = new TreeSet<>();
+
+		for (final String label : labels) {
+
+			Set<MemoryIdentity> best = null;
+
+			for (final IndexLookup lookup : lookups) {
+
+				final Set<MemoryIdentity> candidates = lookup(label, lookup);
+				if (candidates != null && (best == null || candidates.size() < best.size())) {
+
+					best = candidates;
+				}
+			}
+
+			if (best == null) {
+
+				// no index for this label => fall back to full scan
+				return null;
+			}
+
+			result.addAll(best);
+		}
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private Set<MemoryIdentity> lookup(final String label, final IndexLookup lookup) {
+
+		if (!lookup.isIndexable()) {
+			return null;
+		}
+
+		final String key          = lookup.getKey();
+		final PropertyIndex index = getIndex(label, key);
+
+		if (index != null) {
+
+			return lookup.apply(index);
+		}
+
+		final Set<String> keys = inheritedKeys.get(label);
+		if (keys != null && keys.contains(key) && indexedKeys.contains(key)) {
+
+			return lookup.apply(getOrCreateIndex(label, key));
+		}
+
+		return null;
+	}
+
+	private synchronized PropertyIndex getOrCreateIndex(final String label, final String key) {
+
+		PropertyIndex index = getIndex(label, key);
+		if (index == null) {
+
+			logger.debug("Creating in-memory index for inherited key {}.{}", label, key);
+
+			index = createIndex(label, key);
+			populate(index);
+		}
+
+		return index;
+	}
+
+	private void populate(final PropertyIndex index) {
+
+		final String key = index.getKey();
+
+		for (final T entity : source.apply(index.getLabel())) {
+
+			// entity might have been removed concurrently
+			if (entity == null) {
+				continue;
+			}
+
+			final MemoryIdentity id = entity.getIdentity();
+
+			index.put(id, entity.getCommittedProperty(key));
+			members.computeIfAbsent(id, k -> ConcurrentHashMap.newKeySet()).add(index);
+		}
+	}
+
+	private PropertyIndex getIndex(final String label, final String key) {
+
+		final Map<String, PropertyIndex> labelIndexes = indexes.get(label);
+		if (labelIndexes != null) {
+
+			return labelIndexes.get(key);
+		}
+
+		return null;
+	}
+
+	private PropertyIndex createIndex(final String label, final String key) {
+
+		final PropertyIndex index = new PropertyIndex(label, key);
+
+		indexes.computeIfAbsent(label, k -> new ConcurrentHashMap<>()).put(key, index);
+
+		return index;
+	}
+
+	private void dropIndex(final String label, final String key) {
+
+		final Map<String, PropertyIndex> labelIndexes = indexes.get(label);
+		if (labelIndexes != null) {
+
+			final PropertyIndex index = labelIndexes.remove(key);
+			if (index != null) {
+
+				for (final Set<PropertyIndex> memberships : members.values()) {
+					memberships.remove(index);
+				}
+			}
+
+			if (labelIndexes.isEmpty()) {
+				indexes.remove(label);
+			}
+		}
+	}
+}
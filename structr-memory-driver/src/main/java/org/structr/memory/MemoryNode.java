@@ -26,6 +26,7 @@ import org.structr.api.graph.RelationshipType;
 import org.structr.api.util.Iterables;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 
+import java.io.DataInput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.util.Map;
@@ -134,4 +135,13 @@ public class MemoryNode extends MemoryEntity implements Node {
 
 		return node;
 	}
+
+	static MemoryNode createFromBinary(final MemoryDatabaseService db, final DataInput in) throws IOException {
+
+		final MemoryNode node = new MemoryNode(db);
+
+		node.readBinary(in);
+
+		return node;
+	}
 }
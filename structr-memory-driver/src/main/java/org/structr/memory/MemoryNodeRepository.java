@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.util.Iterables;
 import org.structr.memory.index.filter.Filter;
+import org.structr.memory.index.filter.MemoryIndexFilter;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 import org.structr.memory.index.filter.MemoryTypeFilter;
 
@@ -34,7 +35,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  */
@@ -60,6 +61,15 @@ public class MemoryNodeRepository extends EntityRepository {
 
 		if (filter != null) {
 
+			if (filter instanceof MemoryIndexFilter) {
+
+				final MemoryIndexFilter<MemoryNode> mi = (MemoryIndexFilter<MemoryNode>)filter;
+
+				// candidates from the property indexes, the entity might
+				// have been removed in the meantime
+				return Iterables.filter(e -> e != null, Iterables.map(i -> masterData.get(i), mi.getCandidates()));
+			}
+
 			if (filter instanceof MemoryLabelFilter) {
 
 				final MemoryLabelFilter<MemoryNode> mt = (MemoryLabelFilter<MemoryNode>)filter;
@@ -220,7 +230,7 @@ public class MemoryNodeRepository extends EntityRepository {
 		Set<MemoryIdentity> cache = labelCache.get(type);
 		if (cache == null) {
 
-			cache = new CopyOnWriteArraySet<>();
+			cache = new ConcurrentSkipListSet<>();
 			labelCache.put(type, cache);
 		}
 
@@ -232,7 +242,7 @@ public class MemoryNodeRepository extends EntityRepository {
 		Set<MemoryIdentity> cache = typeCache.get(type);
 		if (cache == null) {
 
-			cache = new CopyOnWriteArraySet<>();
+			cache = new ConcurrentSkipListSet<>();
 			typeCache.put(type, cache);
 		}
 
@@ -23,10 +23,14 @@ import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
 import org.structr.api.graph.RelationshipType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  */
@@ -117,6 +121,15 @@ public class MemoryRelationship extends MemoryEntity implements Relationship {
 		return relationship;
 	}
 
+	static MemoryRelationship createFromBinary(final MemoryDatabaseService db, final DataInput in) throws IOException {
+
+		final MemoryRelationship relationship = new MemoryRelationship(db);
+
+		relationship.readBinary(in);
+
+		return relationship;
+	}
+
 	@Override
 	void loadFromStorage(final ObjectInputStream in) throws IOException, ClassNotFoundException {
 
@@ -141,4 +154,26 @@ public class MemoryRelationship extends MemoryEntity implements Relationship {
 		out.writeUTF(relType.name());
 	}
 
+	@Override
+	void readBinary(final DataInput in) throws IOException {
+
+		super.readBinary(in);
+
+		sourceNode = MemoryIdentity.loadFromStorage(in);
+		targetNode = MemoryIdentity.loadFromStorage(in);
+
+		relType = db.forName(RelationshipType.class, in.readUTF());
+	}
+
+	@Override
+	protected void writeBinary(final DataOutput out, final Set<Entry<String, Object>> properties) throws IOException {
+
+		super.writeBinary(out, properties);
+
+		sourceNode.writeToStorage(out);
+		targetNode.writeToStorage(out);
+
+		out.writeUTF(relType.name());
+	}
+
 }
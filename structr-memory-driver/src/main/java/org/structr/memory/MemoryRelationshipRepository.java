@@ -23,6 +23,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.util.Iterables;
 import org.structr.memory.index.filter.Filter;
+import org.structr.memory.index.filter.MemoryIndexFilter;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 import org.structr.memory.index.filter.SourceNodeFilter;
 import org.structr.memory.index.filter.TargetNodeFilter;
@@ -36,7 +37,7 @@ import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ConcurrentSkipListSet;
 
 /**
  */
@@ -74,6 +75,15 @@ public class MemoryRelationshipRepository extends EntityRepository {
 
 		if (filter != null) {
 
+			if (filter instanceof MemoryIndexFilter) {
+
+				final MemoryIndexFilter<MemoryRelationship> mi = (MemoryIndexFilter<MemoryRelationship>)filter;
+
+				// candidates from the property indexes, the entity might
+				// have been removed in the meantime
+				return Iterables.filter(e -> e != null, Iterables.map(i -> masterData.get(i), mi.getCandidates()));
+			}
+
 			if (filter instanceof MemoryLabelFilter) {
 
 				final MemoryLabelFilter<MemoryRelationship> mt = (MemoryLabelFilter<MemoryRelationship>)filter;
@@ -269,7 +279,7 @@ public class MemoryRelationshipRepository extends EntityRepository {
 		Set<MemoryIdentity> cache = typeCache.get(type);
 		if (cache == null && create) {
 
-			cache = new CopyOnWriteArraySet<>();
+			cache = new ConcurrentSkipListSet<>();
 			typeCache.put(type, cache);
 		}
 
@@ -285,7 +295,7 @@ public class MemoryRelationshipRepository extends EntityRepository {
 		Set<MemoryIdentity> cache = sourceCache.get(source);
 		if (cache == null && create) {
 
-			cache = new CopyOnWriteArraySet<>();
+			cache = new ConcurrentSkipListSet<>();
 			sourceCache.put(source, cache);
 		}
 
@@ -301,7 +311,7 @@ public class MemoryRelationshipRepository extends EntityRepository {
 		Set<MemoryIdentity> cache = targetCache.get(target);
 		if (cache == null && create) {
 
-			cache = new CopyOnWriteArraySet<>();
+			cache = new ConcurrentSkipListSet<>();
 			targetCache.put(target, cache);
 		}
 
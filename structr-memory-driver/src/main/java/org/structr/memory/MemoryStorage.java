@@ -0,0 +1,762 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Durable storage for the in-memory database, consisting of an append-only,
+ * checksummed write-ahead log that records every committed transaction, and
+ * periodic compacting snapshots. On startup, the latest valid snapshot is
+ * loaded and the log records written after it are replayed.
+ *
+ * Log records and snapshot entries contain the full state of the changed
+ * entities, so replaying a record that is already contained in a snapshot
+ * is harmless. This allows snapshots to be written without blocking commits.
+ *
+ * The previous snapshot and the log segments written after it are kept
+ * until a newer snapshot has been read back and verified, so a damaged
+ * snapshot can be replaced by the previous one and the log on startup.
+ */
+public class MemoryStorage {
+
+	private static final Logger logger = LoggerFactory.getLogger(MemoryStorage.class);
+
+	private static final int SNAPSHOT_MAGIC          = 0x534d5350;
+	private static final int SNAPSHOT_FORMAT_VERSION = 1;
+	private static final String SNAPSHOT_PREFIX      = "snapshot-";
+	private static final String SNAPSHOT_SUFFIX      = ".bin";
+	private static final String LOG_PREFIX           = "wal-";
+	private static final String LOG_SUFFIX           = ".log";
+	private static final int RECORD_HEADER_SIZE      = 4 + 8 + 8;
+
+	private static final byte ENTRY_END                  = 0;
+	private static final byte ENTRY_NODE                 = 1;
+	private static final byte ENTRY_RELATIONSHIP         = 2;
+	private static final byte ENTRY_DELETED_NODE         = 3;
+	private static final byte ENTRY_DELETED_RELATIONSHIP = 4;
+
+	private final ReentrantReadWriteLock commitLock     = new ReentrantReadWriteLock();
+	private final AtomicBoolean snapshotRunning         = new AtomicBoolean(false);
+	private final Object logLock                        = new Object();
+	private MemoryRelationshipRepository relationships  = null;
+	private MemoryNodeRepository nodes                  = null;
+	private MemoryDatabaseService db                    = null;
+	private ExecutorService snapshotExecutor            = null;
+	private FileOutputStream logStream                  = null;
+	private DataOutputStream logOutput                  = null;
+	private IOException logFailure                      = null;
+	private File directory                              = null;
+	private long recordsSinceSnapshot                   = 0L;
+	private long sequence                               = 0L;
+	private long logPosition                            = 0L;
+	private int snapshotInterval                        = 10_000;
+	private boolean sync                                = true;
+
+	public MemoryStorage(final MemoryDatabaseService db, final MemoryNodeRepository nodes, final MemoryRelationshipRepository relationships, final File directory, final int snapshotInterval, final boolean sync) {
+
+		this.relationships    = relationships;
+		this.nodes            = nodes;
+		this.db               = db;
+		this.directory        = directory;
+		this.snapshotInterval = snapshotInterval;
+		this.sync             = sync;
+
+		this.snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+
+			final Thread thread = new Thread(r, "MemoryDatabaseSnapshotWriter");
+
+			thread.setDaemon(true);
+
+			return thread;
+		});
+	}
+
+	/**
+	 * Loads the latest valid snapshot, replays the write-ahead log and
+	 * opens a new log segment.
+	 */
+	public void load() throws IOException {
+
+		if (!directory.exists() && !directory.mkdirs()) {
+			throw new IOException("Unable to create storage directory " + directory.getAbsolutePath());
+		}
+
+		final TreeMap<Long, File> snapshots = getFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+		long snapshotSequence               = -1L;
+		boolean legacyData                  = false;
+
+		for (final Map.Entry<Long, File> entry : snapshots.descendingMap().entrySet()) {
+
+			try {
+
+				loadSnapshot(entry.getValue());
+				snapshotSequence = entry.getKey();
+				break;
+
+			} catch (IOException | RuntimeException ex) {
+
+				// corrupt data can also cause runtime exceptions, e.g. for mismatched array types
+				logger.warn("Unable to load snapshot {}, trying previous snapshot: {}", entry.getValue().getName(), ex.getMessage());
+
+				nodes.clear();
+				relationships.clear();
+			}
+		}
+
+		if (snapshotSequence < 0 && !snapshots.isEmpty()) {
+
+			// the log segments before the oldest snapshot are gone, starting
+			// with an empty database would silently lose the snapshot data
+			throw new IOException("None of the snapshots in " + directory.getAbsolutePath() + " could be loaded");
+		}
+
+		if (snapshotSequence < 0) {
+
+			// migrate data written by the old storage format
+			final File legacyNodes = directory.toPath().resolve("nodes.bin.zip").toFile();
+			if (legacyNodes.exists()) {
+
+				logger.info("Importing data from legacy storage files in {}", directory.getAbsolutePath());
+
+				nodes.loadFromStorage(db, directory);
+				relationships.loadFromStorage(db, directory);
+
+				legacyData = true;
+			}
+
+			snapshotSequence = 0L;
+		}
+
+		sequence = snapshotSequence;
+
+		final int replayed = replayLog(snapshotSequence);
+
+		logger.info("Loaded {} nodes and {} relationships, replayed {} transactions from write-ahead log", nodes.getMasterData().size(), relationships.getMasterData().size(), replayed);
+
+		openLogSegment(sequence + 1);
+
+		recordsSinceSnapshot = replayed;
+
+		if (legacyData || replayed >= snapshotInterval) {
+			snapshot();
+		}
+	}
+
+	public void close() {
+
+		// a running snapshot needs the commit lock to rotate the log
+		snapshotExecutor.shutdown();
+
+		try {
+
+			if (!snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+				logger.warn("Snapshot of in-memory database did not finish within one minute");
+			}
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+		}
+
+		commitLock.writeLock().lock();
+		try {
+
+			closeLogSegment();
+
+		} catch (IOException ioex) {
+
+			logger.warn("Unable to close write-ahead log: {}", ioex.getMessage());
+
+		} finally {
+
+			commitLock.writeLock().unlock();
+		}
+	}
+
+	void beginCommit() {
+		commitLock.readLock().lock();
+	}
+
+	void endCommit() {
+		commitLock.readLock().unlock();
+	}
+
+	/**
+	 * Appends a record for the given transaction to the write-ahead log.
+	 * Must be called between beginCommit and endCommit, and before the
+	 * changes are applied to the entities.
+	 */
+	void log(final long transactionId, final Collection<MemoryEntity> changedEntities, final Collection<MemoryIdentity> deletedNodes, final Collection<MemoryIdentity> deletedRelationships) throws IOException {
+
+		if (changedEntities.isEmpty() && deletedNodes.isEmpty() && deletedRelationships.isEmpty()) {
+			return;
+		}
+
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+		final DataOutputStream out      = new DataOutputStream(buf);
+
+		for (final MemoryEntity entity : changedEntities) {
+
+			out.writeByte(entity.getIdentity().isNode() ? ENTRY_NODE : ENTRY_RELATIONSHIP);
+			entity.writeTransactionState(transactionId, out);
+		}
+
+		for (final MemoryIdentity id : deletedNodes) {
+
+			out.writeByte(ENTRY_DELETED_NODE);
+			id.writeToStorage(out);
+		}
+
+		for (final MemoryIdentity id : deletedRelationships) {
+
+			out.writeByte(ENTRY_DELETED_RELATIONSHIP);
+			id.writeToStorage(out);
+		}
+
+		out.writeByte(ENTRY_END);
+		out.flush();
+
+		append(buf.toByteArray());
+	}
+
+	/**
+	 * Writes a compacting snapshot and removes the log segments and
+	 * snapshots that are no longer needed. The previous snapshot and the
+	 * log segments after it are kept as a fallback for the new snapshot.
+	 */
+	public synchronized void snapshot() {
+
+		final long snapshotSequence;
+
+		// start a new log segment, all records up to the current sequence
+		// are guaranteed to be applied when the write lock is acquired
+		commitLock.writeLock().lock();
+		try {
+
+			snapshotSequence = sequence;
+
+			closeLogSegment();
+			openLogSegment(snapshotSequence + 1);
+
+			recordsSinceSnapshot = 0L;
+
+		} catch (IOException ioex) {
+
+			logger.error("Unable to rotate write-ahead log: {}", ExceptionUtils.getStackTrace(ioex));
+			return;
+
+		} finally {
+
+			commitLock.writeLock().unlock();
+		}
+
+		final File snapshotFile = getFile(SNAPSHOT_PREFIX, snapshotSequence, SNAPSHOT_SUFFIX);
+		final File tmpFile      = new File(snapshotFile.getAbsolutePath() + ".tmp");
+		final long start        = System.currentTimeMillis();
+
+		try {
+
+			writeSnapshot(tmpFile, snapshotSequence);
+
+			// the older files are kept if the written data cannot be read back
+			verifySnapshot(tmpFile);
+
+			Files.move(tmpFile.toPath(), snapshotFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+			// remove everything that is not needed to restore the previous snapshot
+			final Long previousSequence = getFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).lowerKey(snapshotSequence);
+			if (previousSequence != null) {
+
+				for (final Map.Entry<Long, File> entry : getFiles(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX).headMap(previousSequence).entrySet()) {
+					Files.deleteIfExists(entry.getValue().toPath());
+				}
+
+				// segments are named after their first record, so the segment
+				// that contains the first record after the previous snapshot
+				// and all later segments are needed
+				final TreeMap<Long, File> segments = getFiles(LOG_PREFIX, LOG_SUFFIX);
+				final Long firstNeeded             = segments.floorKey(previousSequence + 1);
+
+				if (firstNeeded != null) {
+
+					for (final Map.Entry<Long, File> entry : segments.headMap(firstNeeded).entrySet()) {
+						Files.deleteIfExists(entry.getValue().toPath());
+					}
+				}
+			}
+
+			logger.info("Wrote snapshot {} of in-memory database in {} ms", snapshotSequence, System.currentTimeMillis() - start);
+
+		} catch (IOException ioex) {
+
+			logger.error("Unable to write snapshot: {}", ExceptionUtils.getStackTrace(ioex));
+			tmpFile.delete();
+		}
+	}
+
+	// ----- private methods -----
+	private void append(final byte[] payload) throws IOException {
+
+		final boolean snapshotNeeded;
+
+		synchronized (logLock) {
+
+			if (logFailure != null || logOutput == null) {
+				throw new IOException("Write-ahead log is not writable", logFailure);
+			}
+
+			final long recordSequence = sequence + 1;
+			final CRC32 crc           = new CRC32();
+
+			crc.update(longToBytes(recordSequence));
+			crc.update(payload);
+
+			try {
+
+				logOutput.writeInt(payload.length);
+				logOutput.writeLong(recordSequence);
+				logOutput.writeLong(crc.getValue());
+				logOutput.write(payload);
+				logOutput.flush();
+
+				if (sync) {
+					logStream.getFD().sync();
+				}
+
+			} catch (IOException ioex) {
+
+				// records of later transactions must not follow a torn frame,
+				// replay would stop there and discard them
+				discardIncompleteRecord();
+
+				throw ioex;
+			}
+
+			logPosition += RECORD_HEADER_SIZE + payload.length;
+			sequence     = recordSequence;
+
+			snapshotNeeded = ++recordsSinceSnapshot >= snapshotInterval;
+		}
+
+		if (snapshotNeeded && snapshotRunning.compareAndSet(false, true)) {
+
+			try {
+
+				snapshotExecutor.submit(() -> {
+
+					try {
+
+						snapshot();
+
+					} finally {
+
+						snapshotRunning.set(false);
+					}
+				});
+
+			} catch (RejectedExecutionException rex) {
+
+				// storage is closing, the next startup writes the snapshot
+				snapshotRunning.set(false);
+			}
+		}
+	}
+
+	private int replayLog(final long snapshotSequence) throws IOException {
+
+		final TreeMap<Long, File> segments = getFiles(LOG_PREFIX, LOG_SUFFIX);
+		int count                          = 0;
+
+		for (final Map.Entry<Long, File> entry : segments.entrySet()) {
+
+			final File segment     = entry.getValue();
+			final boolean isLast   = entry.getKey().equals(segments.lastKey());
+			long validLength       = 0L;
+
+			// a segment starts with the record after the last record of the previous segment
+			if (entry.getKey() > sequence + 1) {
+				throw new IOException("Write-ahead log is missing transactions " + (sequence + 1) + " to " + (entry.getKey() - 1) + " before segment " + segment.getName());
+			}
+
+			try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(segment)))) {
+
+				while (true) {
+
+					final long recordSequence;
+					final byte[] payload;
+					final int length;
+
+					try {
+
+						length = in.readInt();
+
+					} catch (EOFException eof) {
+						break;
+					}
+
+					try {
+
+						// a corrupt length field must not be used to allocate the payload buffer
+						if (length < 0 || length > segment.length() - validLength - RECORD_HEADER_SIZE) {
+							throw new IOException("Invalid record length " + length);
+						}
+
+						recordSequence       = in.readLong();
+						final long checksum  = in.readLong();
+						payload              = new byte[length];
+						final CRC32 crc      = new CRC32();
+
+						in.readFully(payload);
+
+						crc.update(longToBytes(recordSequence));
+						crc.update(payload);
+
+						if (crc.getValue() != checksum) {
+							throw new IOException("Checksum mismatch in record " + recordSequence);
+						}
+
+					} catch (IOException ex) {
+
+						if (isLast) {
+
+							// an incomplete record at the end of the log is the result of
+							// an interrupted write, the transaction was never committed
+							logger.warn("Truncating incomplete record at position {} of {}: {}", validLength, segment.getName(), ex.getMessage());
+							break;
+						}
+
+						throw new IOException("Write-ahead log segment " + segment.getName() + " is corrupt at position " + validLength, ex);
+					}
+
+					if (recordSequence > snapshotSequence) {
+
+						// a missing transaction cannot be recovered, later records depend on it
+						if (recordSequence != sequence + 1) {
+							throw new IOException("Write-ahead log segment " + segment.getName() + " contains transaction " + recordSequence + ", expected " + (sequence + 1));
+						}
+
+						applyRecord(payload);
+
+						sequence = recordSequence;
+						count++;
+					}
+
+					validLength += RECORD_HEADER_SIZE + length;
+				}
+			}
+
+			if (isLast && validLength < segment.length()) {
+
+				try (final RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+					file.setLength(validLength);
+				}
+			}
+		}
+
+		return count;
+	}
+
+	private void applyRecord(final byte[] payload) throws IOException {
+
+		final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte type                = in.readByte();
+
+		while (type != ENTRY_END) {
+
+			applyEntry(type, in);
+
+			type = in.readByte();
+		}
+	}
+
+	private void applyEntry(final byte type, final DataInputStream in) throws IOException {
+
+		switch (type) {
+
+			case ENTRY_NODE:
+
+				final MemoryNode node = MemoryNode.createFromBinary(db, in);
+
+				removeNode(node.getIdentity());
+				nodes.add(node);
+				break;
+
+			case ENTRY_RELATIONSHIP:
+
+				final MemoryRelationship relationship = MemoryRelationship.createFromBinary(db, in);
+
+				removeRelationship(relationship.getIdentity());
+				relationships.add(relationship);
+				break;
+
+			case ENTRY_DELETED_NODE:
+
+				removeNode(MemoryIdentity.loadFromStorage(in));
+				break;
+
+			case ENTRY_DELETED_RELATIONSHIP:
+
+				removeRelationship(MemoryIdentity.loadFromStorage(in));
+				break;
+
+			default:
+				throw new IOException("Unknown entry type " + type);
+		}
+	}
+
+	private void removeNode(final MemoryIdentity id) {
+
+		if (nodes.contains(id)) {
+
+			nodes.remove(Set.of(id));
+		}
+	}
+
+	private void removeRelationship(final MemoryIdentity id) {
+
+		final MemoryRelationship existing = relationships.get(id);
+		if (existing != null) {
+
+			relationships.remove(Map.of(id, existing));
+		}
+	}
+
+	/**
+	 * Reads a written snapshot back from disk and compares its checksum,
+	 * without applying its entries.
+	 */
+	private void verifySnapshot(final File file) throws IOException {
+
+		long remaining = file.length() - 8;
+
+		if (remaining < 0) {
+			throw new IOException("Snapshot " + file.getName() + " is incomplete");
+		}
+
+		try (final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 65536))) {
+
+			final byte[] buf = new byte[65536];
+			final CRC32 crc  = new CRC32();
+
+			while (remaining > 0) {
+
+				final int count = in.read(buf, 0, (int)Math.min(buf.length, remaining));
+				if (count < 0) {
+
+					throw new EOFException("Snapshot " + file.getName() + " is incomplete");
+				}
+
+				crc.update(buf, 0, count);
+				remaining -= count;
+			}
+
+			if (in.readLong() != crc.getValue()) {
+				throw new IOException("Checksum mismatch in snapshot " + file.getName());
+			}
+		}
+	}
+
+	private void loadSnapshot(final File file) throws IOException {
+
+		try (final CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32())) {
+
+			final DataInputStream in = new DataInputStream(checked);
+
+			if (in.readInt() != SNAPSHOT_MAGIC) {
+				throw new IOException("Not a snapshot file");
+			}
+
+			final int formatVersion = in.readInt();
+			if (formatVersion != SNAPSHOT_FORMAT_VERSION) {
+				throw new IOException("Snapshot format " + formatVersion + " does not match current format " + SNAPSHOT_FORMAT_VERSION);
+			}
+
+			// snapshot sequence
+			in.readLong();
+
+			byte type = in.readByte();
+
+			while (type != ENTRY_END) {
+
+				applyEntry(type, in);
+
+				type = in.readByte();
+			}
+
+			final long checksum = checked.getChecksum().getValue();
+
+			if (in.readLong() != checksum) {
+				throw new IOException("Checksum mismatch");
+			}
+		}
+	}
+
+	private void writeSnapshot(final File file, final long snapshotSequence) throws IOException {
+
+		try (final FileOutputStream fos = new FileOutputStream(file)) {
+
+			final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(fos, 65536), new CRC32());
+			final DataOutputStream out        = new DataOutputStream(checked);
+
+			out.writeInt(SNAPSHOT_MAGIC);
+			out.writeInt(SNAPSHOT_FORMAT_VERSION);
+			out.writeLong(snapshotSequence);
+
+			for (final MemoryNode node : nodes.getMasterData().values()) {
+
+				out.writeByte(ENTRY_NODE);
+				node.writeCommittedState(out);
+			}
+
+			for (final MemoryRelationship relationship : relationships.getMasterData().values()) {
+
+				out.writeByte(ENTRY_RELATIONSHIP);
+				relationship.writeCommittedState(out);
+			}
+
+			out.writeByte(ENTRY_END);
+			out.flush();
+
+			out.writeLong(checked.getChecksum().getValue());
+			out.flush();
+
+			fos.getFD().sync();
+		}
+	}
+
+	private void openLogSegment(final long firstSequence) throws IOException {
+
+		logStream   = new FileOutputStream(getFile(LOG_PREFIX, firstSequence, LOG_SUFFIX), true);
+		logOutput   = new DataOutputStream(new BufferedOutputStream(logStream, 65536));
+		logPosition = logStream.getChannel().size();
+	}
+
+	/**
+	 * Truncates the current log segment to the end of the last complete
+	 * record after a failed write. If that is not possible, the log stays
+	 * closed for writing, so no commit is acknowledged after a torn frame.
+	 */
+	private void discardIncompleteRecord() {
+
+		try {
+
+			// the buffered bytes of the failed record are dropped with the old stream
+			logStream.getChannel().truncate(logPosition);
+			logOutput = new DataOutputStream(new BufferedOutputStream(logStream, 65536));
+
+			if (sync) {
+				logStream.getFD().sync();
+			}
+
+		} catch (IOException ioex) {
+
+			logger.error("Unable to remove incomplete record from write-ahead log, no further transactions will be accepted: {}", ioex.getMessage());
+
+			logFailure = ioex;
+		}
+	}
+
+	private void closeLogSegment() throws IOException {
+
+		if (logOutput != null) {
+
+			logOutput.flush();
+
+			if (sync) {
+				logStream.getFD().sync();
+			}
+
+			logOutput.close();
+
+			logOutput = null;
+			logStream = null;
+		}
+	}
+
+	private File getFile(final String prefix, final long sequence, final String suffix) {
+		return new File(directory, prefix + String.format("%020d", sequence) + suffix);
+	}
+
+	private TreeMap<Long, File> getFiles(final String prefix, final String suffix) {
+
+		final TreeMap<Long, File> files = new TreeMap<>();
+		final File[] list               = directory.listFiles();
+
+		if (list != null) {
+
+			for (final File file : list) {
+
+				final String name = file.getName();
+
+				if (name.startsWith(prefix) && name.endsWith(suffix)) {
+
+					try {
+
+						files.put(Long.valueOf(name.substring(prefix.length(), name.length() - suffix.length())), file);
+
+					} catch (NumberFormatException ignore) {}
+				}
+			}
+		}
+
+		return files;
+	}
+
+	private byte[] longToBytes(final long value) {
+
+		final byte[] bytes = new byte[8];
+
+		for (int i=7; i>=0; i--) {
+			bytes[7 - i] = (byte)(value >>> (i * 8));
+		}
+
+		return bytes;
+	}
+}
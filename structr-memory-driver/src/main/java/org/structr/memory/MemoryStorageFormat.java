@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.lang.reflect.Array;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+/**
+ * Compact binary encoding of property values for the write-ahead log and
+ * the snapshots of the in-memory database. Common value types and arrays
+ * of them are written natively, everything else falls back to Java
+ * serialization.
+ */
+public class MemoryStorageFormat {
+
+	private static final byte TYPE_NULL       = 0;
+	private static final byte TYPE_STRING     = 1;
+	private static final byte TYPE_INTEGER    = 2;
+	private static final byte TYPE_LONG       = 3;
+	private static final byte TYPE_DOUBLE     = 4;
+	private static final byte TYPE_FLOAT      = 5;
+	private static final byte TYPE_BOOLEAN    = 6;
+	private static final byte TYPE_SHORT      = 7;
+	private static final byte TYPE_BYTE       = 8;
+	private static final byte TYPE_DATE       = 9;
+	private static final byte TYPE_ARRAY      = 10;
+	private static final byte TYPE_SERIALIZED = 99;
+
+	public static void writeString(final DataOutput out, final String value) throws IOException {
+
+		// writeUTF is limited to 64k bytes
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	public static String readString(final DataInput in) throws IOException {
+
+		final byte[] bytes = new byte[readLength(in)];
+
+		in.readFully(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	public static void writeValue(final DataOutput out, final Object value) throws IOException {
+
+		if (value == null) {
+
+			out.writeByte(TYPE_NULL);
+			return;
+		}
+
+		final Class type = value.getClass();
+
+		if (type.isArray() && getTypeTag(type.getComponentType()) != TYPE_SERIALIZED) {
+
+			final int length = Array.getLength(value);
+
+			out.writeByte(TYPE_ARRAY);
+			out.writeByte(getTypeTag(type.getComponentType()));
+			out.writeInt(length);
+
+			for (int i=0; i<length; i++) {
+				writeValue(out, Array.get(value, i));
+			}
+
+			return;
+		}
+
+		final byte tag = getTypeTag(type);
+
+		out.writeByte(tag);
+
+		switch (tag) {
+
+			case TYPE_STRING:  writeString(out, (String)value); break;
+			case TYPE_INTEGER: out.writeInt((Integer)value); break;
+			case TYPE_LONG:    out.writeLong((Long)value); break;
+			case TYPE_DOUBLE:  out.writeDouble((Double)value); break;
+			case TYPE_FLOAT:   out.writeFloat((Float)value); break;
+			case TYPE_BOOLEAN: out.writeBoolean((Boolean)value); break;
+			case TYPE_SHORT:   out.writeShort((Short)value); break;
+			case TYPE_BYTE:    out.writeByte((Byte)value); break;
+			case TYPE_DATE:    out.writeLong(((Date)value).getTime()); break;
+
+			default:
+
+				final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+				try (final ObjectOutputStream oos = new ObjectOutputStream(buf)) {
+					oos.writeObject(value);
+				}
+
+				final byte[] bytes = buf.toByteArray();
+
+				out.writeInt(bytes.length);
+				out.write(bytes);
+				break;
+		}
+	}
+
+	public static Object readValue(final DataInput in) throws IOException {
+
+		final byte tag = in.readByte();
+
+		switch (tag) {
+
+			case TYPE_NULL:    return null;
+			case TYPE_STRING:  return readString(in);
+			case TYPE_INTEGER: return in.readInt();
+			case TYPE_LONG:    return in.readLong();
+			case TYPE_DOUBLE:  return in.readDouble();
+			case TYPE_FLOAT:   return in.readFloat();
+			case TYPE_BOOLEAN: return in.readBoolean();
+			case TYPE_SHORT:   return in.readShort();
+			case TYPE_BYTE:    return in.readByte();
+			case TYPE_DATE:    return new Date(in.readLong());
+
+			case TYPE_ARRAY:
+
+				final Class componentType = getTypeForTag(in.readByte());
+				final int length          = readLength(in);
+				final Object array        = Array.newInstance(componentType, length);
+
+				for (int i=0; i<length; i++) {
+					Array.set(array, i, readValue(in));
+				}
+
+				return array;
+
+			case TYPE_SERIALIZED:
+
+				final byte[] bytes = new byte[readLength(in)];
+
+				in.readFully(bytes);
+
+				try (final ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+
+					return ois.readObject();
+
+				} catch (ClassNotFoundException cnfex) {
+					throw new IOException(cnfex);
+				}
+		}
+
+		throw new IOException("Unknown value type " + tag + " in storage data");
+	}
+
+	// ----- private methods -----
+	/**
+	 * Reads a length field and checks it against the remaining input, so
+	 * corrupt data causes an IOException instead of a huge allocation.
+	 */
+	private static int readLength(final DataInput in) throws IOException {
+
+		final int length = in.readInt();
+
+		if (length < 0 || (in instanceof InputStream && length > ((InputStream)in).available())) {
+			throw new IOException("Invalid length " + length + " in storage data");
+		}
+
+		return length;
+	}
+
+	private static byte getTypeTag(final Class type) {
+
+		if (String.class.equals(type))  { return TYPE_STRING; }
+		if (Integer.class.equals(type)) { return TYPE_INTEGER; }
+		if (Long.class.equals(type))    { return TYPE_LONG; }
+		if (Double.class.equals(type))  { return TYPE_DOUBLE; }
+		if (Float.class.equals(type))   { return TYPE_FLOAT; }
+		if (Boolean.class.equals(type)) { return TYPE_BOOLEAN; }
+		if (Short.class.equals(type))   { return TYPE_SHORT; }
+		if (Byte.class.equals(type))    { return TYPE_BYTE; }
+		if (Date.class.equals(type))    { return TYPE_DATE; }
+
+		return TYPE_SERIALIZED;
+	}
+
+	private static Class getTypeForTag(final byte tag) throws IOException {
+
+		switch (tag) {
+
+			case TYPE_STRING:  return String.class;
+			case TYPE_INTEGER: return Integer.class;
+			case TYPE_LONG:    return Long.class;
+			case TYPE_DOUBLE:  return Double.class;
+			case TYPE_FLOAT:   return Float.class;
+			case TYPE_BOOLEAN: return Boolean.class;
+			case TYPE_SHORT:   return Short.class;
+			case TYPE_BYTE:    return Byte.class;
+			case TYPE_DATE:    return Date.class;
+		}
+
+		throw new IOException("Unknown array component type " + tag + " in storage data");
+	}
+}
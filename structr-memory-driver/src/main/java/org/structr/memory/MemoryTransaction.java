@@ -19,9 +19,13 @@
 package org.structr.memory;
 
 import org.structr.api.Transaction;
+import org.structr.api.UnknownDatabaseException;
 import org.structr.api.util.Iterables;
 import org.structr.memory.index.filter.Filter;
+import org.structr.memory.index.filter.MemoryIndexFilter;
+import org.structr.memory.index.filter.MemoryLabelFilter;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -64,16 +68,35 @@ public class MemoryTransaction implements Transaction {
 	@Override
 	public void close() {
 
+		IOException storageError = null;
+
 		if (success) {
 
-			for (final MemoryEntity entity : modifiedEntities) {
+			db.beginCommit();
 
-				entity.commit(transactionId);
-			}
+			try {
+
+				// write-ahead log must be written before the changes are applied
+				db.logTransaction(transactionId, getChangedEntities(), deletedNodes, deletedRelationships.keySet());
+
+				for (final MemoryEntity entity : modifiedEntities) {
 
-			db.commitTransaction(createdNodes.getMasterData(), createdRelationships.getMasterData(), deletedNodes, deletedRelationships);
+					entity.commit(transactionId);
+				}
 
-		} else {
+				db.commitTransaction(createdNodes.getMasterData(), createdRelationships.getMasterData(), deletedNodes, deletedRelationships, modifiedEntities);
+
+			} catch (IOException ioex) {
+
+				storageError = ioex;
+
+			} finally {
+
+				db.endCommit();
+			}
+		}
+
+		if (!success || storageError != null) {
 
 			for (final MemoryEntity entity : modifiedEntities) {
 
@@ -85,6 +108,10 @@ public class MemoryTransaction implements Transaction {
 
 		createdNodes.getMasterData().values().stream().forEach(n -> n.unlock());
 		createdRelationships.getMasterData().values().stream().forEach(r -> r.unlock());
+
+		if (storageError != null) {
+			throw new UnknownDatabaseException(storageError, "StorageError", "Unable to write transaction to the write-ahead log: " + storageError.getMessage());
+		}
 	}
 
 	public void create(final MemoryNode newNode) {
@@ -116,6 +143,37 @@ public class MemoryTransaction implements Transaction {
 	// ----- package-private methods -----
 	Iterable<MemoryNode> getNodes(final Filter<MemoryNode> filter) {
 
+		if (filter instanceof MemoryIndexFilter) {
+
+			final MemoryIndexFilter<MemoryNode> indexFilter = (MemoryIndexFilter<MemoryNode>)filter;
+			final Set<String> labels                        = indexFilter.getLabels();
+			final Map<MemoryIdentity, MemoryNode> result    = new LinkedHashMap<>();
+			final Map<MemoryIdentity, MemoryNode> existing  = new TreeMap<>();
+
+			for (final MemoryNode node : createdNodes.values(new MemoryLabelFilter<>(labels))) {
+				result.put(node.getIdentity(), node);
+			}
+
+			for (final MemoryNode node : db.getNodes(filter)) {
+				existing.put(node.getIdentity(), node);
+			}
+
+			// the index only knows committed values, so entities modified
+			// in this transaction need to be checked by the predicates too
+			for (final MemoryEntity entity : modifiedEntities) {
+
+				if (entity instanceof MemoryNode && hasAnyLabel(entity, labels)) {
+					existing.put(entity.getIdentity(), (MemoryNode)entity);
+				}
+			}
+
+			for (final MemoryNode node : existing.values()) {
+				result.putIfAbsent(node.getIdentity(), node);
+			}
+
+			return Iterables.filter(n -> !deletedNodes.contains(n.getIdentity()), result.values());
+		}
+
 		final List<Iterable<MemoryNode>> sources = new LinkedList<>();
 
 		// FIXME: this might return wrong data when newly created nodes match the filter but are not filtered
@@ -128,6 +186,35 @@ public class MemoryTransaction implements Transaction {
 
 	Iterable<MemoryRelationship> getRelationships(final Filter<MemoryRelationship> filter) {
 
+		if (filter instanceof MemoryIndexFilter) {
+
+			final MemoryIndexFilter<MemoryRelationship> indexFilter = (MemoryIndexFilter<MemoryRelationship>)filter;
+			final Set<String> labels                                = indexFilter.getLabels();
+			final Map<MemoryIdentity, MemoryRelationship> result    = new LinkedHashMap<>();
+			final Map<MemoryIdentity, MemoryRelationship> existing  = new TreeMap<>();
+
+			for (final MemoryRelationship relationship : createdRelationships.values(new MemoryLabelFilter<>(labels))) {
+				result.put(relationship.getIdentity(), relationship);
+			}
+
+			for (final MemoryRelationship relationship : db.getRelationships(filter)) {
+				existing.put(relationship.getIdentity(), relationship);
+			}
+
+			for (final MemoryEntity entity : modifiedEntities) {
+
+				if (entity instanceof MemoryRelationship && hasAnyLabel(entity, labels)) {
+					existing.put(entity.getIdentity(), (MemoryRelationship)entity);
+				}
+			}
+
+			for (final MemoryRelationship relationship : existing.values()) {
+				result.putIfAbsent(relationship.getIdentity(), relationship);
+			}
+
+			return Iterables.filter(r -> !deletedRelationships.containsKey(r.getIdentity()), result.values());
+		}
+
 		final List<Iterable<MemoryRelationship>> sources = new LinkedList<>();
 
 		sources.add(createdRelationships.values(filter));
@@ -200,4 +287,47 @@ public class MemoryTransaction implements Transaction {
 
 		return createdRelationships.contains(id) || db.exists(id);
 	}
+
+	// ----- private methods -----
+	private List<MemoryEntity> getChangedEntities() {
+
+		final List<MemoryEntity> changed = new LinkedList<>();
+
+		for (final MemoryNode node : createdNodes.getMasterData().values()) {
+
+			if (!deletedNodes.contains(node.getIdentity())) {
+				changed.add(node);
+			}
+		}
+
+		for (final MemoryRelationship relationship : createdRelationships.getMasterData().values()) {
+
+			if (!deletedRelationships.containsKey(relationship.getIdentity())) {
+				changed.add(relationship);
+			}
+		}
+
+		for (final MemoryEntity entity : modifiedEntities) {
+
+			final MemoryIdentity id = entity.getIdentity();
+
+			if (!isDeleted(id) && !createdNodes.contains(id) && !createdRelationships.contains(id) && entity.hasChanges(transactionId)) {
+				changed.add(entity);
+			}
+		}
+
+		return changed;
+	}
+
+	private boolean hasAnyLabel(final MemoryEntity entity, final Set<String> labels) {
+
+		for (final String label : labels) {
+
+			if (entity.hasLabel(label)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
 }
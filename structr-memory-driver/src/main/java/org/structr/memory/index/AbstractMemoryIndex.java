@@ -90,6 +90,7 @@ public abstract class AbstractMemoryIndex<T extends PropertyContainer> extends A
 		factories.put(UuidQuery.class,         new UuidQueryFactory(this));
 		factories.put(RelationshipQuery.class, new RelationshipQueryFactory(this));
 		factories.put(ComparisonQuery.class,   new ComparisonQueryFactory(this));
+		factories.put(VisibilityQuery.class,   new VisibilityQueryFactory(this));
 
 		converters.put(Boolean.class, new BooleanTypeConverter());
 		converters.put(String.class,  new StringTypeConverter());
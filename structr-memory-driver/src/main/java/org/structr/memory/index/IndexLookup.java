@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory.index;
+
+import org.structr.memory.MemoryIdentity;
+
+import java.util.Set;
+
+/**
+ * Describes an exact or range lookup of a property value that can be
+ * answered by a {@link PropertyIndex} to reduce the candidate set of
+ * a {@link MemoryQuery}.
+ */
+public class IndexLookup {
+
+	private boolean isRange   = false;
+	private Object value      = null;
+	private Object rangeStart = null;
+	private Object rangeEnd   = null;
+	private String key        = null;
+
+	public IndexLookup(final String key, final Object value) {
+
+		this.key   = key;
+		this.value = value;
+	}
+
+	public IndexLookup(final String key, final Object rangeStart, final Object rangeEnd) {
+
+		this.key        = key;
+		this.rangeStart = rangeStart;
+		this.rangeEnd   = rangeEnd;
+		this.isRange    = true;
+	}
+
+	@Override
+	public String toString() {
+
+		if (isRange) {
+			return "LOOKUP(" + key + " in [" + rangeStart + ", " + rangeEnd + "])";
+		}
+
+		return "LOOKUP(" + key + " = " + value + ")";
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * Indicates whether this lookup can be answered by an index at all.
+	 * Null values are not stored in the index, and array values can
+	 * not be looked up by hash.
+	 */
+	public boolean isIndexable() {
+
+		if (isRange) {
+			return rangeStart != null || rangeEnd != null;
+		}
+
+		return value != null && !value.getClass().isArray();
+	}
+
+	public Set<MemoryIdentity> apply(final PropertyIndex index) {
+
+		if (isRange) {
+			return index.getRange(rangeStart, rangeEnd);
+		}
+
+		return index.getExact(value);
+	}
+}
@@ -23,6 +23,8 @@ import org.structr.api.search.QueryContext;
 import org.structr.api.util.Iterables;
 import org.structr.api.util.PagingIterable;
 import org.structr.memory.MemoryDatabaseService;
+import org.structr.memory.MemoryNode;
+import org.structr.memory.index.filter.MemoryIndexFilter;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 
 import java.util.Set;
@@ -50,7 +52,16 @@ public class MemoryNodeIndex extends AbstractMemoryIndex<Node> {
 
 		} else {
 
-			result = Iterables.filter(query, query.sort(db.getFilteredNodes(new MemoryLabelFilter<>(labels))));
+			// use property indexes to reduce the candidates if possible
+			final MemoryIndexFilter<MemoryNode> indexFilter = db.getNodeIndexFilter(labels, query.getIndexLookups());
+			if (indexFilter != null) {
+
+				result = Iterables.filter(query, query.sort(db.getFilteredNodes(indexFilter)));
+
+			} else {
+
+				result = Iterables.filter(query, query.sort(db.getFilteredNodes(new MemoryLabelFilter<>(labels))));
+			}
 		}
 
 		if (queryContext.isSliced()) {
@@ -40,6 +40,7 @@ public class MemoryQuery<T extends PropertyContainer> implements DatabaseQuery,
 
 	private static final Logger logger = LoggerFactory.getLogger(MemoryQuery.class);
 
+	private final Map<IndexLookup, GroupPredicate<T>> lookups = new LinkedHashMap<>();
 	private final GroupPredicate<T> rootPredicate = new GroupPredicate<>(null, Conjunction.And);
 	private final Set<String> labels              = new LinkedHashSet<>();
 	private GroupPredicate<T> currentPredicate    = rootPredicate;
@@ -78,6 +79,40 @@ public class MemoryQuery<T extends PropertyContainer> implements DatabaseQuery,
 		}
 	}
 
+	/**
+	 * Adds the given predicate and registers the given lookup so
+	 * the candidates can be taken from a property index.
+	 */
+	public void addPredicate(final Predicate<T> predicate, final IndexLookup lookup) {
+
+		// negated predicates can not be used to reduce the candidates
+		if (!negateNextPredicate) {
+			lookups.put(lookup, currentPredicate);
+		}
+
+		addPredicate(predicate);
+	}
+
+	/**
+	 * Returns the lookups whose predicates must be satisfied by every
+	 * result, i.e. those that are connected to the root predicate by
+	 * AND conjunctions only. The conjunction of a group can change after
+	 * a predicate was added, so this must be evaluated at query time.
+	 */
+	public List<IndexLookup> getIndexLookups() {
+
+		final List<IndexLookup> result = new LinkedList<>();
+
+		for (final Map.Entry<IndexLookup, GroupPredicate<T>> entry : lookups.entrySet()) {
+
+			if (isRequired(entry.getValue())) {
+				result.add(entry.getKey());
+			}
+		}
+
+		return result;
+	}
+
 	@Override
 	public void and() {
 		currentPredicate.setConjunction(Conjunction.And);
@@ -148,6 +183,23 @@ public class MemoryQuery<T extends PropertyContainer> implements DatabaseQuery,
 		return queryContext;
 	}
 
+	// ----- private methods -----
+	private boolean isRequired(final GroupPredicate<T> group) {
+
+		GroupPredicate<T> current = group;
+
+		while (current != null) {
+
+			if (!Conjunction.And.equals(current.getConjunction())) {
+				return false;
+			}
+
+			current = current.getParent();
+		}
+
+		return true;
+	}
+
 	// ----- nested classes -----
 	private class Sorter implements Comparator<T> {
 
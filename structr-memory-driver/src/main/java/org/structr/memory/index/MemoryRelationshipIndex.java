@@ -21,6 +21,8 @@ package org.structr.memory.index;
 import org.structr.api.graph.Relationship;
 import org.structr.api.util.Iterables;
 import org.structr.memory.MemoryDatabaseService;
+import org.structr.memory.MemoryRelationship;
+import org.structr.memory.index.filter.MemoryIndexFilter;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 
 import java.util.Set;
@@ -45,6 +47,13 @@ public class MemoryRelationshipIndex extends AbstractMemoryIndex<Relationship> {
 
 		} else {
 
+			// use property indexes to reduce the candidates if possible
+			final MemoryIndexFilter<MemoryRelationship> indexFilter = db.getRelationshipIndexFilter(labels, query.getIndexLookups());
+			if (indexFilter != null) {
+
+				return Iterables.filter(query, query.sort(db.getFilteredRelationships(indexFilter)));
+			}
+
 			return Iterables.filter(query, query.sort(db.getFilteredRelationships(new MemoryLabelFilter<>(labels))));
 		}
 	}
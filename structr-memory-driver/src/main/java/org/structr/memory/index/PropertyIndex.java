@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory.index;
+
+import org.structr.memory.MemoryIdentity;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Hash and sorted index for the values of a single property of a single
+ * type label. Writes are serialized, reads are lock-free.
+ */
+public class PropertyIndex {
+
+	private final NavigableMap<Object, Set<MemoryIdentity>> sortedIndex = new ConcurrentSkipListMap<>(new IndexValueComparator());
+	private final Map<Object, Set<MemoryIdentity>> hashIndex            = new ConcurrentHashMap<>();
+	private final Map<MemoryIdentity, Object> indexedValues             = new ConcurrentHashMap<>();
+	private final Set<MemoryIdentity> unindexedValues                   = ConcurrentHashMap.newKeySet();
+	private String label                                                = null;
+	private String key                                                  = null;
+
+	public PropertyIndex(final String label, final String key) {
+
+		this.label = label;
+		this.key   = key;
+	}
+
+	@Override
+	public String toString() {
+		return "PropertyIndex(" + label + "." + key + ")";
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public int size() {
+		return indexedValues.size() + unindexedValues.size();
+	}
+
+	public synchronized void clear() {
+
+		sortedIndex.clear();
+		hashIndex.clear();
+		indexedValues.clear();
+		unindexedValues.clear();
+	}
+
+	public synchronized void put(final MemoryIdentity id, final Object value) {
+
+		remove(id);
+
+		if (value != null) {
+
+			if (value.getClass().isArray()) {
+
+				// array values are compared with Arrays.deepEquals, so they
+				// can not be looked up by hash; always report them as candidates
+				unindexedValues.add(id);
+
+			} else {
+
+				final Object indexValue = normalize(value);
+
+				indexedValues.put(id, indexValue);
+
+				hashIndex.computeIfAbsent(indexValue, k -> ConcurrentHashMap.newKeySet()).add(id);
+
+				if (indexValue instanceof Comparable) {
+
+					sortedIndex.computeIfAbsent(indexValue, k -> ConcurrentHashMap.newKeySet()).add(id);
+				}
+			}
+		}
+	}
+
+	public synchronized void remove(final MemoryIdentity id) {
+
+		unindexedValues.remove(id);
+
+		final Object oldValue = indexedValues.remove(id);
+		if (oldValue != null) {
+
+			removeFromMap(hashIndex, oldValue, id);
+
+			if (oldValue instanceof Comparable) {
+				removeFromMap(sortedIndex, oldValue, id);
+			}
+		}
+	}
+
+	public Set<MemoryIdentity> getExact(final Object value) {
+
+		final Set<MemoryIdentity> result = new LinkedHashSet<>(unindexedValues);
+		final Set<MemoryIdentity> set    = hashIndex.get(normalize(value));
+
+		if (set != null) {
+
+			result.addAll(set);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the candidates for the given range. Bounds are always
+	 * treated as inclusive, the exact range check is left to the
+	 * predicate.
+	 */
+	public Set<MemoryIdentity> getRange(final Object rangeStart, final Object rangeEnd) {
+
+		final Set<MemoryIdentity> result                   = new LinkedHashSet<>();
+		NavigableMap<Object, Set<MemoryIdentity>> subMap   = sortedIndex;
+
+		if (rangeStart != null && rangeEnd != null) {
+
+			final Object start = normalize(rangeStart);
+			final Object end   = normalize(rangeEnd);
+
+			if (sortedIndex.comparator().compare(start, end) > 0) {
+				return result;
+			}
+
+			subMap = sortedIndex.subMap(start, true, end, true);
+
+		} else if (rangeStart != null) {
+
+			subMap = sortedIndex.tailMap(normalize(rangeStart), true);
+
+		} else if (rangeEnd != null) {
+
+			subMap = sortedIndex.headMap(normalize(rangeEnd), true);
+		}
+
+		for (final Collection<MemoryIdentity> ids : subMap.values()) {
+			result.addAll(ids);
+		}
+
+		return result;
+	}
+
+	// ----- private methods -----
+	private void removeFromMap(final Map<Object, Set<MemoryIdentity>> map, final Object value, final MemoryIdentity id) {
+
+		final Set<MemoryIdentity> set = map.get(value);
+		if (set != null) {
+
+			set.remove(id);
+
+			if (set.isEmpty()) {
+				map.remove(value);
+			}
+		}
+	}
+
+	/**
+	 * Numbers are compared by their double value in ValuePredicate, so we
+	 * need to index them the same way.
+	 */
+	private Object normalize(final Object value) {
+
+		if (value instanceof Number) {
+			return ((Number)value).doubleValue();
+		}
+
+		return value;
+	}
+
+	// ----- nested classes -----
+	private static class IndexValueComparator implements Comparator<Object> {
+
+		@Override
+		public int compare(final Object o1, final Object o2) {
+
+			final Class c1 = o1.getClass();
+			final Class c2 = o2.getClass();
+
+			// values of different types are grouped by type
+			if (!c1.equals(c2)) {
+				return c1.getName().compareTo(c2.getName());
+			}
+
+			return ((Comparable)o1).compareTo(o2);
+		}
+	}
+}
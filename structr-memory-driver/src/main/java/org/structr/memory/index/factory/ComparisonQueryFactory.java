@@ -22,6 +22,7 @@ import org.structr.api.index.AbstractIndex;
 import org.structr.api.index.AbstractQueryFactory;
 import org.structr.api.search.ComparisonQuery;
 import org.structr.api.search.QueryPredicate;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.MemoryQuery;
 import org.structr.memory.index.predicate.NotPredicate;
 import org.structr.memory.index.predicate.NullPredicate;
@@ -52,7 +53,7 @@ public class ComparisonQueryFactory extends AbstractQueryFactory<MemoryQuery> {
 
 			switch (operation) {
 				case equal:
-					query.addPredicate(new ValuePredicate(name, value));
+					query.addPredicate(new ValuePredicate(name, value), new IndexLookup(name, value));
 					return true;
 
 				case notEqual:
@@ -60,19 +61,19 @@ public class ComparisonQueryFactory extends AbstractQueryFactory<MemoryQuery> {
 					break;
 
 				case greater:
-					query.addPredicate(new RangePredicate<>(name, value, null, predicate.getType()).setStartInclusive(false));
+					query.addPredicate(new RangePredicate<>(name, value, null, predicate.getType()).setStartInclusive(false), new IndexLookup(name, value, null));
 					break;
 
 				case greaterOrEqual:
-					query.addPredicate(new RangePredicate<>(name, value, null, predicate.getType()));
+					query.addPredicate(new RangePredicate<>(name, value, null, predicate.getType()), new IndexLookup(name, value, null));
 					break;
 
 				case less:
-					query.addPredicate(new RangePredicate<>(name, null, value, predicate.getType()).setEndInclusive(false));
+					query.addPredicate(new RangePredicate<>(name, null, value, predicate.getType()).setEndInclusive(false), new IndexLookup(name, null, value));
 					break;
 
 				case lessOrEqual:
-					query.addPredicate(new RangePredicate<>(name, null, value, predicate.getType()));
+					query.addPredicate(new RangePredicate<>(name, null, value, predicate.getType()), new IndexLookup(name, null, value));
 					break;
 
 				case isNull:
@@ -21,6 +21,7 @@ package org.structr.memory.index.factory;
 import org.structr.api.index.AbstractIndex;
 import org.structr.api.index.AbstractQueryFactory;
 import org.structr.api.search.QueryPredicate;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.MemoryQuery;
 import org.structr.memory.index.predicate.Conjunction;
 import org.structr.memory.index.predicate.NullPredicate;
@@ -81,7 +82,7 @@ public class KeywordQueryFactory extends AbstractQueryFactory<MemoryQuery> {
 
 			} else {
 
-				query.addPredicate(new ValuePredicate(name, value));
+				query.addPredicate(new ValuePredicate(name, value), new IndexLookup(name, value));
 			}
 
 		} else {
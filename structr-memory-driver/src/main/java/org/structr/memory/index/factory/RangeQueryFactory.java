@@ -22,6 +22,7 @@ import org.structr.api.index.AbstractIndex;
 import org.structr.api.index.AbstractQueryFactory;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.RangeQuery;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.MemoryQuery;
 import org.structr.memory.index.predicate.RangePredicate;
 
@@ -55,7 +56,7 @@ public class RangeQueryFactory extends AbstractQueryFactory<MemoryQuery> {
 			rangePredicate.setStartInclusive(rangeQuery.getIncludeStart());
 			rangePredicate.setEndInclusive(rangeQuery.getIncludeEnd());
 
-			query.addPredicate(rangePredicate);
+			query.addPredicate(rangePredicate, new IndexLookup(name, rangeStart, rangeEnd));
 
 			return true;
 		}
@@ -23,6 +23,7 @@ import org.structr.api.index.AbstractIndex;
 import org.structr.api.index.AbstractQueryFactory;
 import org.structr.api.search.QueryPredicate;
 import org.structr.api.search.UuidQuery;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.MemoryQuery;
 import org.structr.memory.index.predicate.ValuePredicate;
 
@@ -40,7 +41,7 @@ public class UuidQueryFactory extends AbstractQueryFactory<MemoryQuery> {
 		final String uuid = ((UuidQuery)predicate).getUuid();
 		if (Settings.isValidUuid(uuid)) {
 
-			query.addPredicate(new ValuePredicate("id", uuid));
+			query.addPredicate(new ValuePredicate("id", uuid), new IndexLookup("id", uuid));
 
 		} else {
 
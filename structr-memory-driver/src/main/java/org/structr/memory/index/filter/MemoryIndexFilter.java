@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory.index.filter;
+
+import org.structr.memory.MemoryEntity;
+import org.structr.memory.MemoryIdentity;
+
+import java.util.Set;
+
+/**
+ * Label filter that carries the committed candidates found in the
+ * property indexes for the given labels.
+ */
+public class MemoryIndexFilter<T extends MemoryEntity> extends MemoryLabelFilter<T> {
+
+	private Set<MemoryIdentity> candidates = null;
+
+	public MemoryIndexFilter(final Set<String> labels, final Set<MemoryIdentity> candidates) {
+
+		super(labels);
+
+		this.candidates = candidates;
+	}
+
+	public Set<MemoryIdentity> getCandidates() {
+		return candidates;
+	}
+}
@@ -73,6 +73,10 @@ public class GroupPredicate<T> implements Predicate<T> {
 		this.conjunction = conj;
 	}
 
+	public Conjunction getConjunction() {
+		return conjunction;
+	}
+
 	@Override
 	public boolean accept(final T value) {
 
@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.memory.index.predicate;
+
+import org.structr.api.Predicate;
+import org.structr.api.graph.Direction;
+import org.structr.api.graph.PropertyContainer;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+import org.structr.api.search.VisibilityQuery;
+import org.structr.memory.MemoryNode;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Evaluates a visibility query in the same way as the Cypher predicate of
+ * the Bolt driver: nodes are accepted if they are visible by their flags,
+ * are one of the principals, are owned by a principal, have a SECURITY
+ * relationship with read permission from a principal or have a
+ * permission-propagating relationship.
+ */
+public class VisibilityPredicate<T extends PropertyContainer> implements Predicate<T> {
+
+	private VisibilityQuery visibilityQuery = null;
+
+	public VisibilityPredicate(final VisibilityQuery visibilityQuery) {
+		this.visibilityQuery = visibilityQuery;
+	}
+
+	@Override
+	public String toString() {
+		return "VISIBILITY(" + visibilityQuery.getPrincipalIds() + ")";
+	}
+
+	@Override
+	public boolean accept(final T entity) {
+
+		if (entity instanceof MemoryNode) {
+
+			final MemoryNode node          = (MemoryNode)entity;
+			final Set<String> principalIds = visibilityQuery.getPrincipalIds();
+
+			if (isTrue(node.getProperty("visibleToPublicUsers"))) {
+				return true;
+			}
+
+			if (visibilityQuery.includeAuthenticated() && isTrue(node.getProperty("visibleToAuthenticatedUsers"))) {
+				return true;
+			}
+
+			if (!principalIds.isEmpty()) {
+
+				if (principalIds.contains(node.getProperty("id"))) {
+					return true;
+				}
+
+				for (final Relationship rel : node.getRelationships(Direction.INCOMING, RelationshipType.forName("OWNS"))) {
+
+					if (principalIds.contains(rel.getStartNode().getProperty("id"))) {
+						return true;
+					}
+				}
+
+				for (final Relationship rel : node.getRelationships(Direction.INCOMING, RelationshipType.forName("SECURITY"))) {
+
+					if (principalIds.contains(rel.getStartNode().getProperty("id")) && isReadAllowed(rel.getProperty("allowed"))) {
+						return true;
+					}
+				}
+			}
+
+			for (final String relationshipType : visibilityQuery.getPropagatingRelationshipTypes()) {
+
+				if (node.getRelationships(Direction.BOTH, RelationshipType.forName(relationshipType)).iterator().hasNext()) {
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+
+	// ----- private methods -----
+	private boolean isTrue(final Object value) {
+		return Boolean.TRUE.equals(value);
+	}
+
+	private boolean isReadAllowed(final Object allowed) {
+
+		if (allowed instanceof Object[]) {
+
+			return Arrays.asList((Object[])allowed).contains("read");
+		}
+
+		if (allowed instanceof Collection) {
+
+			return ((Collection)allowed).contains("read");
+		}
+
+		return false;
+	}
+}
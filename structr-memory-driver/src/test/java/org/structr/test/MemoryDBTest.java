@@ -19,14 +19,44 @@
 package org.structr.test;
 
 import org.structr.api.Transaction;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Identity;
 import org.structr.api.graph.Node;
+import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
+import org.structr.api.index.IndexConfig;
+import org.structr.api.index.NodeIndexConfig;
+import org.structr.api.util.Iterables;
 import org.structr.memory.MemoryDatabaseService;
+import org.structr.memory.MemoryNode;
+import org.structr.memory.MemoryStorageFormat;
+import org.structr.memory.index.IndexLookup;
 import org.structr.memory.index.filter.MemoryLabelFilter;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
 
 /**
  */
@@ -67,4 +97,502 @@ public class MemoryDBTest {
 		}
 
 	}
+
+	@Test
+	public void testPropertyIndexes() {
+
+		final MemoryDatabaseService service               = new MemoryDatabaseService();
+		final Map<String, Map<String, IndexConfig>> config = new LinkedHashMap<>();
+		final Map<String, IndexConfig> testConfig         = new LinkedHashMap<>();
+		final Set<String> labels                          = Set.of("Test");
+
+		testConfig.put("name",  new NodeIndexConfig(true));
+		testConfig.put("count", new NodeIndexConfig(true));
+
+		config.put("Test", testConfig);
+
+		try (final Transaction tx = service.beginTx()) {
+
+			for (int i=0; i<100; i++) {
+
+				final Map<String, Object> properties = new LinkedHashMap<>();
+
+				properties.put("type",  "Test");
+				properties.put("name",  "node" + i);
+				properties.put("count", i);
+
+				service.createNode("Test", null, properties);
+			}
+
+			tx.success();
+		}
+
+		// no index configured yet
+		try (final Transaction tx = service.beginTx()) {
+
+			assertNull(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node5"))));
+			tx.success();
+		}
+
+		service.updateIndexConfiguration(config, Map.of(), false);
+
+		try (final Transaction tx = service.beginTx()) {
+
+			assertEquals(1,  Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node5"))))));
+			assertEquals(10, Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("count", 10, 19))))));
+			assertEquals(5,  Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("count", 95L, null))))));
+
+			// unindexed key
+			assertNull(service.getNodeIndexFilter(labels, List.of(new IndexLookup("other", "value"))));
+
+			tx.success();
+		}
+
+		// modify and delete nodes, index must follow the committed state
+		try (final Transaction tx = service.beginTx()) {
+
+			final Node node5 = Iterables.first(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node5")))));
+			final Node node6 = Iterables.first(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node6")))));
+
+			node5.setProperty("name", "renamed");
+			node6.delete(true);
+
+			// uncommitted changes must be visible in the same transaction
+			assertEquals(1, Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node5"))))));
+
+			tx.success();
+		}
+
+		try (final Transaction tx = service.beginTx()) {
+
+			assertEquals(0, Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node5"))))));
+			assertEquals(0, Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "node6"))))));
+			assertEquals(1, Iterables.count(service.getFilteredNodes(service.getNodeIndexFilter(labels, List.of(new IndexLookup("name", "renamed"))))));
+
+			tx.success();
+		}
+	}
+
+	@Test
+	public void testPersistence() throws IOException {
+
+		final Path storagePath = Files.createTempDirectory("structr-memory-test");
+
+		Settings.MemoryStoragePath.setValue(storagePath.toString());
+		Settings.MemorySnapshotInterval.setValue(1000);
+
+		try {
+
+			final MemoryDatabaseService first = new MemoryDatabaseService();
+
+			assertTrue(first.initialize("default", null, null));
+
+			try (final Transaction tx = first.beginTx()) {
+
+				for (int i=0; i<10; i++) {
+
+					final Map<String, Object> properties = new LinkedHashMap<>();
+
+					properties.put("type",    "Test");
+					properties.put("name",    "node" + i);
+					properties.put("count",   i);
+					properties.put("tags",    new String[] { "a", "b" });
+					properties.put("created", new Date(1000L * i));
+
+					first.createNode("Test", Set.of("Base"), properties);
+				}
+
+				tx.success();
+			}
+
+			try (final Transaction tx = first.beginTx()) {
+
+				for (final MemoryNode node : first.getFilteredNodes(new MemoryLabelFilter<>("Test"))) {
+
+					final int count = (Integer)node.getProperty("count");
+
+					if (count == 0) {
+
+						node.delete(true);
+
+					} else if (count == 1) {
+
+						node.setProperty("name", "changed");
+						node.removeProperty("tags");
+
+					} else if (count == 2) {
+
+						final MemoryNode other = Iterables.first(Iterables.filter(n -> Integer.valueOf(3).equals(n.getProperty("count")), first.getFilteredNodes(new MemoryLabelFilter<>("Test"))));
+
+						node.createRelationshipTo(other, first.forName(RelationshipType.class, "LINK"), Map.of("weight", 2.5));
+					}
+				}
+
+				tx.success();
+			}
+
+			first.shutdown();
+
+			// second instance replays the write-ahead log and writes a snapshot on startup
+			Settings.MemorySnapshotInterval.setValue(1);
+
+			final MemoryDatabaseService second = new MemoryDatabaseService();
+
+			assertTrue(second.initialize("default", null, null));
+			assertPersistedData(second);
+
+			second.shutdown();
+
+			// third instance loads the snapshot
+			final MemoryDatabaseService third = new MemoryDatabaseService();
+
+			assertTrue(third.initialize("default", null, null));
+			assertPersistedData(third);
+
+			third.shutdown();
+
+		} finally {
+
+			Settings.MemoryStoragePath.setValue("");
+			Settings.MemorySnapshotInterval.setValue(Settings.MemorySnapshotInterval.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testCorruptRecordLength() throws IOException {
+
+		final Path storagePath = Files.createTempDirectory("structr-memory-test");
+
+		Settings.MemoryStoragePath.setValue(storagePath.toString());
+		Settings.MemorySnapshotInterval.setValue(1000);
+
+		try {
+
+			final MemoryDatabaseService first = new MemoryDatabaseService();
+
+			assertTrue(first.initialize("default", null, null));
+
+			try (final Transaction tx = first.beginTx()) {
+
+				for (int i=0; i<10; i++) {
+					first.createNode("Test", Set.of("Base"), Map.of("type", "Test", "count", i));
+				}
+
+				tx.success();
+			}
+
+			first.shutdown();
+
+			// simulate a torn write whose length field contains garbage
+			final Path segment;
+
+			try (final Stream<Path> files = Files.list(storagePath)) {
+				segment = Iterables.last(files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList());
+			}
+
+			try (final DataOutputStream out = new DataOutputStream(Files.newOutputStream(segment, StandardOpenOption.APPEND))) {
+
+				out.writeInt(Integer.MAX_VALUE);
+				out.writeLong(12345L);
+			}
+
+			final long corruptSize = Files.size(segment);
+
+			final MemoryDatabaseService second = new MemoryDatabaseService();
+
+			assertTrue(second.initialize("default", null, null));
+
+			try (final Transaction tx = second.beginTx()) {
+
+				assertEquals(Iterables.count(second.getFilteredNodes(new MemoryLabelFilter<>("Test"))), 10);
+
+				tx.success();
+			}
+
+			second.shutdown();
+
+			assertEquals(Files.size(segment), corruptSize - 12, "Torn tail record should be truncated");
+
+		} finally {
+
+			Settings.MemoryStoragePath.setValue("");
+			Settings.MemorySnapshotInterval.setValue(Settings.MemorySnapshotInterval.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testTornTailRecord() throws IOException {
+
+		final Path storagePath = Files.createTempDirectory("structr-memory-test");
+
+		Settings.MemoryStoragePath.setValue(storagePath.toString());
+		Settings.MemorySnapshotInterval.setValue(1000);
+
+		try {
+
+			final MemoryDatabaseService first = new MemoryDatabaseService();
+
+			assertTrue(first.initialize("default", null, null));
+
+			for (int i=0; i<2; i++) {
+
+				try (final Transaction tx = first.beginTx()) {
+
+					first.createNode("Test", Set.of("Base"), Map.of("type", "Test", "count", i));
+					tx.success();
+				}
+			}
+
+			first.shutdown();
+
+			// simulate a torn write that ended in the payload of the last record
+			final Path segment;
+
+			try (final Stream<Path> files = Files.list(storagePath)) {
+				segment = Iterables.last(files.filter(p -> p.getFileName().toString().endsWith(".log")).sorted().toList());
+			}
+
+			final long completeSize = Files.size(segment);
+
+			try (final FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+				channel.truncate(completeSize - 5);
+			}
+
+			final MemoryDatabaseService second = new MemoryDatabaseService();
+
+			assertTrue(second.initialize("default", null, null));
+
+			try (final Transaction tx = second.beginTx()) {
+
+				assertEquals(Iterables.count(second.getFilteredNodes(new MemoryLabelFilter<>("Test"))), 1);
+
+				second.createNode("Test", Set.of("Base"), Map.of("type", "Test", "count", 2));
+				tx.success();
+			}
+
+			second.shutdown();
+
+			assertTrue(Files.size(segment) < completeSize - 5, "Torn tail record should be truncated");
+
+			// records written after the recovery must not be lost
+			final MemoryDatabaseService third = new MemoryDatabaseService();
+
+			assertTrue(third.initialize("default", null, null));
+
+			try (final Transaction tx = third.beginTx()) {
+
+				assertEquals(Iterables.count(third.getFilteredNodes(new MemoryLabelFilter<>("Test"))), 2);
+
+				tx.success();
+			}
+
+			third.shutdown();
+
+		} finally {
+
+			Settings.MemoryStoragePath.setValue("");
+			Settings.MemorySnapshotInterval.setValue(Settings.MemorySnapshotInterval.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testCorruptSnapshot() throws IOException {
+
+		final Path storagePath = Files.createTempDirectory("structr-memory-test");
+
+		Settings.MemoryStoragePath.setValue(storagePath.toString());
+		Settings.MemorySnapshotInterval.setValue(1000);
+
+		try {
+
+			final MemoryDatabaseService first = new MemoryDatabaseService();
+
+			assertTrue(first.initialize("default", null, null));
+
+			try (final Transaction tx = first.beginTx()) {
+
+				first.createNode("Test", Set.of("Base"), Map.of("type", "Test", "count", 0));
+				tx.success();
+			}
+
+			first.shutdown();
+
+			// second instance writes a snapshot on startup and another one after its transaction
+			Settings.MemorySnapshotInterval.setValue(1);
+
+			final MemoryDatabaseService second = new MemoryDatabaseService();
+
+			assertTrue(second.initialize("default", null, null));
+
+			try (final Transaction tx = second.beginTx()) {
+
+				second.createNode("Test", Set.of("Base"), Map.of("type", "Test", "count", 1));
+				tx.success();
+			}
+
+			second.shutdown();
+
+			final Path snapshot = storagePath.resolve("snapshot-00000000000000000002.bin");
+			final Path segment  = storagePath.resolve("wal-00000000000000000002.log");
+
+			assertTrue(Files.exists(storagePath.resolve("snapshot-00000000000000000001.bin")), "Previous snapshot should be kept");
+			assertTrue(Files.exists(snapshot));
+			assertTrue(Files.exists(segment), "Log segment after the previous snapshot should be kept");
+
+			try (final FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.WRITE)) {
+				channel.truncate(Files.size(snapshot) - 3);
+			}
+
+			// third instance falls back to the previous snapshot and replays the log
+			Settings.MemorySnapshotInterval.setValue(1000);
+
+			final MemoryDatabaseService third = new MemoryDatabaseService();
+
+			assertTrue(third.initialize("default", null, null));
+
+			try (final Transaction tx = third.beginTx()) {
+
+				assertEquals(Iterables.count(third.getFilteredNodes(new MemoryLabelFilter<>("Test"))), 2);
+
+				tx.success();
+			}
+
+			third.shutdown();
+
+			// a missing transaction must prevent startup
+			Files.delete(segment);
+
+			final MemoryDatabaseService fourth = new MemoryDatabaseService();
+
+			assertFalse(fourth.initialize("default", null, null), "Startup should fail when the log has a gap");
+
+		} finally {
+
+			Settings.MemoryStoragePath.setValue("");
+			Settings.MemorySnapshotInterval.setValue(Settings.MemorySnapshotInterval.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testLabelChangesArePersisted() throws IOException {
+
+		final Path storagePath = Files.createTempDirectory("structr-memory-test");
+
+		Settings.MemoryStoragePath.setValue(storagePath.toString());
+		Settings.MemorySnapshotInterval.setValue(1000);
+
+		try {
+
+			final MemoryDatabaseService first = new MemoryDatabaseService();
+
+			assertTrue(first.initialize("default", null, null));
+
+			final Node node;
+
+			try (final Transaction tx = first.beginTx()) {
+
+				node = first.createNode("Test", Set.of("Base"), Map.of("type", "Test", "name", "node"));
+				tx.success();
+			}
+
+			// a transaction that only changes labels, without reading properties
+			try (final Transaction tx = first.beginTx()) {
+
+				node.addLabel("Added");
+				node.removeLabel("Base");
+
+				tx.success();
+			}
+
+			first.shutdown();
+
+			final MemoryDatabaseService second = new MemoryDatabaseService();
+
+			assertTrue(second.initialize("default", null, null));
+
+			try (final Transaction tx = second.beginTx()) {
+
+				assertEquals(Iterables.count(second.getFilteredNodes(new MemoryLabelFilter<>("Added"))), 1, "Added label was not persisted");
+				assertEquals(Iterables.count(second.getFilteredNodes(new MemoryLabelFilter<>("Base"))),  0, "Removed label was not persisted");
+
+				tx.success();
+			}
+
+			second.shutdown();
+
+		} finally {
+
+			Settings.MemoryStoragePath.setValue("");
+			Settings.MemorySnapshotInterval.setValue(Settings.MemorySnapshotInterval.getDefaultValue());
+		}
+	}
+
+	@Test
+	public void testCorruptValueLength() throws IOException {
+
+		// string, array and serialized value with a length that exceeds the data
+		final byte[][] corrupt = new byte[][] {
+			{ 1, 0x7f, -1, -1, -1, 'a' },
+			{ 10, 1, 0x7f, -1, -1, -1 },
+			{ 99, -1, -1, -1, -1 }
+		};
+
+		for (final byte[] data : corrupt) {
+
+			try {
+
+				MemoryStorageFormat.readValue(new DataInputStream(new ByteArrayInputStream(data)));
+				fail("Corrupt length should cause an IOException");
+
+			} catch (IOException expected) {}
+		}
+
+		final ByteArrayOutputStream buf = new ByteArrayOutputStream();
+
+		MemoryStorageFormat.writeValue(new DataOutputStream(buf), new String[] { "a", "b" });
+
+		assertEquals((String[])MemoryStorageFormat.readValue(new DataInputStream(new ByteArrayInputStream(buf.toByteArray()))), new String[] { "a", "b" });
+	}
+
+	// ----- private methods -----
+	private void assertPersistedData(final MemoryDatabaseService service) {
+
+		try (final Transaction tx = service.beginTx()) {
+
+			final List<MemoryNode> nodes = Iterables.toList(service.getFilteredNodes(new MemoryLabelFilter<>("Test")));
+
+			assertEquals(nodes.size(), 9);
+			assertEquals(Iterables.count(service.getFilteredNodes(new MemoryLabelFilter<>("Base"))), 9);
+
+			for (final MemoryNode node : nodes) {
+
+				final int count = (Integer)node.getProperty("count");
+
+				assertEquals(node.getProperty("created"), new Date(1000L * count));
+
+				if (count == 1) {
+
+					assertEquals(node.getProperty("name"), "changed");
+					assertNull(node.getProperty("tags"));
+
+				} else {
+
+					assertEquals(node.getProperty("name"), "node" + count);
+					assertEquals((String[])node.getProperty("tags"), new String[] { "a", "b" });
+				}
+
+				if (count == 2) {
+
+					final Relationship rel = Iterables.first(node.getRelationships(Direction.OUTGOING));
+
+					assertNotNull(rel);
+					assertEquals(rel.getType().name(), "LINK");
+					assertEquals(rel.getProperty("weight"), 2.5);
+					assertEquals(rel.getEndNode().getProperty("count"), 3);
+				}
+			}
+
+			tx.success();
+		}
+	}
 }
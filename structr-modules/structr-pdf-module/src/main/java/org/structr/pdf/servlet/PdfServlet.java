@@ -36,6 +36,7 @@ import org.structr.core.app.StructrApp;
 import org.structr.core.graph.Tx;
 import org.structr.rest.common.StatsCallback;
 import org.structr.rest.service.StructrHttpServiceConfig;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.common.StringRenderBuffer;
 import org.structr.web.entity.dom.DOMNode;
@@ -113,6 +114,9 @@ public class PdfServlet extends HtmlServlet {
 		final ServletOutputStream out = async.getResponse().getOutputStream();
 		final AtomicBoolean finished = new AtomicBoolean(false);
 		final DOMNode rootNode = rootElement;
+		final AsyncBuffer output = new AsyncBuffer();
+
+		renderContext.setBuffer(output);
 
 		setCustomResponseHeaders(response);
 
@@ -158,7 +162,7 @@ public class PdfServlet extends HtmlServlet {
 
 				try {
 
-					final Queue<String> queue = renderContext.getBuffer().getQueue();
+					final Queue<String> queue = output.getQueue();
 					String pageContent = "";
 					while (out.isReady()) {
 
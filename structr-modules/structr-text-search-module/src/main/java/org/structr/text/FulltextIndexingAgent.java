@@ -120,8 +120,11 @@ public class FulltextIndexingAgent extends Agent<String> {
 	}
 
 	@Override
-	protected boolean canHandleMore() {
-		return true;
+	public int getMaxAgents() {
+
+		// indexing looks up and creates IndexedWord nodes with unique names,
+		// parallel agents would create duplicates or fail on the same word
+		return 1;
 	}
 
 	// ----- private methods -----
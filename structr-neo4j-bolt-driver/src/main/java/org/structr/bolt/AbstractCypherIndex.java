@@ -57,6 +57,18 @@ abstract class AbstractCypherIndex<T extends PropertyContainer> extends Abstract
 		return new AdvancedCypherQuery(context, this, requestedPageSize, requestedPage);
 	}
 
+	@Override
+	public long getCount(final AdvancedCypherQuery query) {
+
+		final String statement = query.getCountStatement();
+		if (statement != null) {
+
+			return db.getCurrentTransaction().getLong(statement, query.getParameters());
+		}
+
+		return super.getCount(query);
+	}
+
 	@Override
 	public QueryFactory getFactoryForType(final Class type) {
 		return factories.get(type);
@@ -93,6 +105,7 @@ abstract class AbstractCypherIndex<T extends PropertyContainer> extends Abstract
 		factories.put(UuidQuery.class,         new UuidQueryFactory(this));
 		factories.put(RelationshipQuery.class, new RelationshipQueryFactory(this));
 		factories.put(ComparisonQuery.class,   new ComparisonQueryFactory(this));
+		factories.put(VisibilityQuery.class,   new VisibilityQueryFactory(this));
 
 		converters.put(Boolean.class, new BooleanTypeConverter());
 		converters.put(String.class,  new StringTypeConverter());
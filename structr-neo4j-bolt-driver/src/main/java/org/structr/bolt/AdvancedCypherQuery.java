@@ -196,6 +196,33 @@ public class AdvancedCypherQuery implements CypherQuery {
 		return buf.toString();
 	}
 
+	/**
+	 * Returns a statement that counts the results of this query in the
+	 * database, or null if the query spans more than one type label and
+	 * would need a UNION.
+	 */
+	public String getCountStatement() {
+
+		if (typeLabels.size() > 1) {
+			return null;
+		}
+
+		final boolean hasPredicates = buffer.length() > 0;
+		final StringBuilder buf     = new StringBuilder();
+
+		buf.append(index.getQueryPrefix(getTypeQueryLabel(Iterables.first(typeLabels)), sourceTypeLabel, targetTypeLabel, hasPredicates, hasOptionalParts));
+		buf.append(getGraphPartForMatch());
+
+		if (hasPredicates) {
+			buf.append(" WHERE ");
+			buf.append(buffer);
+		}
+
+		buf.append(" RETURN count(DISTINCT n)");
+
+		return buf.toString();
+	}
+
 	@Override
 	public Map<String, Object> getParameters() {
 		return parameters;
@@ -364,6 +391,46 @@ public class AdvancedCypherQuery implements CypherQuery {
 		buffer.append(")");
 	}
 
+	/**
+	 * Adds a predicate that matches nodes which are visible to the given
+	 * principals by flags, ownership or a direct SECURITY relationship
+	 * with read permission, or which have a permission-propagating
+	 * relationship that needs to be evaluated later.
+	 */
+	public void addVisibilityParameter(final Set<String> principalIds, final Set<String> propagatingRelationshipTypes, final boolean includeAuthenticated) {
+
+		buffer.append("(n.visibleToPublicUsers = true");
+
+		if (includeAuthenticated) {
+			buffer.append(" OR n.visibleToAuthenticatedUsers = true");
+		}
+
+		if (!principalIds.isEmpty()) {
+
+			final String paramKey = "param" + count++;
+
+			buffer.append(" OR n.id IN $");
+			buffer.append(paramKey);
+			buffer.append(" OR size([(p)-[:OWNS]->(n) WHERE p.id IN $");
+			buffer.append(paramKey);
+			buffer.append(" | p]) > 0");
+			buffer.append(" OR size([(p)-[s:SECURITY]->(n) WHERE p.id IN $");
+			buffer.append(paramKey);
+			buffer.append(" AND 'read' IN s.allowed | p]) > 0");
+
+			parameters.put(paramKey, new ArrayList<>(principalIds));
+		}
+
+		for (final String relationshipType : propagatingRelationshipTypes) {
+
+			buffer.append(" OR size([(n)-[:`");
+			buffer.append(relationshipType);
+			buffer.append("`]-() | n]) > 0");
+		}
+
+		buffer.append(")");
+	}
+
 	public void addListParameter(final String key, final String operator, final Object value) {
 
 		if (value != null) {
@@ -83,6 +83,9 @@ class AsyncSessionTransaction extends SessionTransaction {
 	@Override
 	public void close() {
 
+		// write buffered changes before committing
+		final RuntimeException flushException = flushBeforeCommit();
+
 		if (!success) {
 
 			resolveImmediately(tx.rollbackAsync());
@@ -140,6 +143,9 @@ class AsyncSessionTransaction extends SessionTransaction {
 				resolveImmediately(session.closeAsync());
 			//}
 		}
+		if (flushException != null) {
+			throw flushException;
+		}
 	}
 
 	public boolean isClosed() {
@@ -177,6 +183,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor = resolveImmediately(tx.runAsync(statement, map));
@@ -227,6 +234,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor = resolveImmediately(tx.runAsync(statement, map));
@@ -255,6 +263,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor = resolveImmediately(tx.runAsync(statement, map));
@@ -283,6 +292,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor = resolveImmediately(tx.runAsync(statement, map));
@@ -317,6 +327,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor          = resolveImmediately(tx.runAsync(statement, map));
@@ -351,6 +362,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor = resolveImmediately(tx.runAsync(statement, map));
@@ -383,14 +395,13 @@ class AsyncSessionTransaction extends SessionTransaction {
 	@Override
 	public Object collectRecords(final String statement, final Map<String, Object> map, final Object input) {
 
+		flushWriteBuffer();
 		logQuery(statement, map);
 
 		final IterableQueueingRecordConsumer consumer = (IterableQueueingRecordConsumer)input;
 
 		tx.runAsync(statement, map)
-			.thenCompose(cursor -> consumer.start(cursor))
-			.thenCompose(cursor -> cursor.forEachAsync(consumer::accept))
-			.thenAccept(summary -> consumer.finish())
+			.thenAccept(cursor -> consumer.start(cursor))
 			.exceptionally(t -> consumer.exception(t));
 
 		return consumer;
@@ -401,6 +412,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor    = resolveImmediately(tx.runAsync(statement, map));
@@ -429,6 +441,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor  = resolveImmediately(tx.runAsync(statement, map));
@@ -455,6 +468,7 @@ class AsyncSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final ResultCursor cursor   = resolveImmediately(tx.runAsync(statement, map));
@@ -29,9 +29,11 @@ import org.slf4j.LoggerFactory;
 import org.structr.api.Transaction;
 import org.structr.api.*;
 import org.structr.api.config.Settings;
+import org.structr.api.graph.Direction;
 import org.structr.api.graph.Identity;
 import org.structr.api.graph.Node;
 import org.structr.api.graph.Relationship;
+import org.structr.api.graph.RelationshipType;
 import org.structr.api.index.Index;
 import org.structr.api.index.IndexConfig;
 import org.structr.api.search.*;
@@ -54,6 +56,8 @@ public class BoltDatabaseService extends AbstractDatabaseService {
 	private CypherNodeIndex nodeIndex                             = null;
 	private boolean supportsRelationshipIndexes                   = false;
 	private boolean supportsIdempotentIndexCreation               = false;
+	private boolean writeBehind                                   = false;
+	private int writeBehindBatchSize                              = 1000;
 	private int neo4jMajorVersion                                 = -1;
 	private String errorMessage                                   = null;
 	private String databaseUrl                                    = null;
@@ -149,6 +153,9 @@ public class BoltDatabaseService extends AbstractDatabaseService {
 			RelationshipWrapper.initialize(relCacheSize);
 			logger.info("Relationship cache size set to {}", relCacheSize);
 
+			writeBehind          = Settings.WriteBehindEnabled.getPrefixedValue(serviceName);
+			writeBehindBatchSize = Settings.WriteBehindBatchSize.getPrefixedValue(serviceName);
+
 			// signal success
 			return true;
 
@@ -565,6 +572,14 @@ public class BoltDatabaseService extends AbstractDatabaseService {
 		return Settings.CypherDebugLoggingPing.getValue();
 	}
 
+	boolean isWriteBehindEnabled() {
+		return writeBehind;
+	}
+
+	int getWriteBehindBatchSize() {
+		return writeBehindBatchSize;
+	}
+
 	long unwrap(final Identity identity) {
 
 		if (identity instanceof BoltIdentity) {
@@ -687,6 +702,9 @@ public class BoltDatabaseService extends AbstractDatabaseService {
 
 			case ShowIndexesQuery:
 				return neo4jMajorVersion >= 5;
+
+			case VisibilityQueries:
+				return true;
 		}
 
 		return false;
@@ -697,6 +715,11 @@ public class BoltDatabaseService extends AbstractDatabaseService {
 		return errorMessage;
 	}
 
+	@Override
+	public void prefetchRelationships(final Iterable<Node> nodes, final Direction direction, final RelationshipType relationshipType, final String otherType) {
+		NodeWrapper.prefetchRelationships(this, nodes, direction, relationshipType, otherType);
+	}
+
 	@Override
 	public Map<String, Map<String, Integer>> getCachesInfo() {
 		return Map.of(
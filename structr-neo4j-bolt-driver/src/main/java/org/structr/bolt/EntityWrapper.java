@@ -134,14 +134,22 @@ abstract class EntityWrapper<T extends Entity> implements PropertyContainer, Cac
 		// only update values if actually different from what is stored
 		if (needsUpdate(key, value)) {
 
-			final Map<String, Object> map = new HashMap<>();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n.`" + key + "` = $value";
+			final WriteBuffer buffer = tx.getWriteBuffer();
+			if (buffer != null) {
 
-			map.put("id", id);
-			map.put("value", value);
+				buffer.setProperty(this, key, value);
 
-			// update entity handle
-			tx.set(query, map);
+			} else {
+
+				final Map<String, Object> map = new HashMap<>();
+				final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n.`" + key + "` = $value";
+
+				map.put("id", id);
+				map.put("value", value);
+
+				// update entity handle
+				tx.set(query, map);
+			}
 
 			// update data
 			accessData(true).put(key, value);
@@ -162,16 +170,25 @@ abstract class EntityWrapper<T extends Entity> implements PropertyContainer, Cac
 		// only update values if actually different from what is stored
 		if (!values.isEmpty()) {
 
-			final Map<String, Object> map = new HashMap<>();
-			final SessionTransaction tx   = db.getCurrentTransaction();
-			final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n += $properties";
+			final SessionTransaction tx = db.getCurrentTransaction();
+			final WriteBuffer buffer    = tx.getWriteBuffer();
 
-			// overwrite a potential "id" property
-			map.put("id", id);
-			map.put("properties", values);
+			if (buffer != null) {
 
-			// execute query
-			tx.set(query, map);
+				buffer.setProperties(this, values);
+
+			} else {
+
+				final Map<String, Object> map = new HashMap<>();
+				final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n += $properties";
+
+				// overwrite a potential "id" property
+				map.put("id", id);
+				map.put("properties", values);
+
+				// execute query
+				tx.set(query, map);
+			}
 
 			// update data
 			update(values);
@@ -185,14 +202,24 @@ abstract class EntityWrapper<T extends Entity> implements PropertyContainer, Cac
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n.`" + key + "` = Null";
+		final SessionTransaction tx = db.getCurrentTransaction();
+		final WriteBuffer buffer    = tx.getWriteBuffer();
 
-		map.put("id", id);
+		if (buffer != null) {
+
+			// null values remove the property when the buffer is flushed
+			buffer.setProperty(this, key, null);
+
+		} else {
+
+			final Map<String, Object> map = new HashMap<>();
+			final String query            = getQueryPrefix() + " WHERE ID(n) = $id SET n.`" + key + "` = Null";
+
+			map.put("id", id);
 
-		// execute query
-		tx.set(query, map);
+			// execute query
+			tx.set(query, map);
+		}
 
 		// remove key from data
 		accessData(true).put(key, null);
@@ -230,6 +257,11 @@ abstract class EntityWrapper<T extends Entity> implements PropertyContainer, Cac
 
 		buf.append(" DELETE n");
 
+		// pending changes of this entity are obsolete
+		if (tx.getWriteBuffer() != null) {
+			tx.getWriteBuffer().discard(this);
+		}
+
 		tx.set(buf.toString(), map);
 		setModified();
 
@@ -22,39 +22,49 @@ import org.neo4j.driver.Record;
 import org.neo4j.driver.async.ResultCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.structr.api.config.Settings;
 import org.structr.api.util.QueryTimer;
 
+import java.util.ArrayDeque;
 import java.util.Iterator;
-import java.util.concurrent.BlockingQueue;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionStage;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
 /**
- *
+ * Streams the records of a query from the async driver to a consuming
+ * thread. At most one fetch window of records (the fetch size of the
+ * query) is buffered, records are only requested from the cursor while
+ * there is room in the window, so the driver stops pulling from the
+ * database when the consumer is slower than the database.
  */
 public class IterableQueueingRecordConsumer implements Iterable<Record>, Iterator<Record>, AutoCloseable, Consumer<Record> {
 
-	private static final Logger logger        = LoggerFactory.getLogger(IterableQueueingRecordConsumer.class);
-	private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
-	private final AtomicInteger elementCount  = new AtomicInteger(0);
-	private final AtomicBoolean aborted       = new AtomicBoolean(false);
-	private final AtomicBoolean finished      = new AtomicBoolean(false);
-	private final AtomicBoolean added         = new AtomicBoolean(false);
-	private final AtomicBoolean started       = new AtomicBoolean(false);
-	private QueryTimer queryTimer             = null;
-	private BoltDatabaseService db            = null;
-	private ResultCursor cursor               = null;
-	private AdvancedCypherQuery query         = null;
-	private Throwable throwable               = null;
-	private boolean isClosed                  = false;
+	private static final Logger logger      = LoggerFactory.getLogger(IterableQueueingRecordConsumer.class);
+	private final ReentrantLock lock        = new ReentrantLock();
+	private final Condition notEmpty        = lock.newCondition();
+	private final Queue<Record> queue       = new ArrayDeque<>();
+	private QueryTimer queryTimer           = null;
+	private BoltDatabaseService db          = null;
+	private ResultCursor cursor             = null;
+	private AdvancedCypherQuery query       = null;
+	private Throwable throwable             = null;
+	private boolean isClosed                = false;
+	private boolean aborted                 = false;
+	private boolean finished                = false;
+	private boolean started                 = false;
+	private boolean pulling                 = false;
+	private int elementCount                = 0;
+	private int window                      = 0;
 
 	public IterableQueueingRecordConsumer(final BoltDatabaseService db, final AdvancedCypherQuery query) {
 
 		this.queryTimer = query.getQueryTimer();
+		this.window     = Math.max(1, query.pageSize());
 		this.query      = query;
 		this.db         = db;
 	}
@@ -70,9 +80,17 @@ public class IterableQueueingRecordConsumer implements Iterable<Record>, Iterato
 		final SessionTransaction tx = db.getCurrentTransaction();
 
 		tx.setIsPing(query.getQueryContext().isPing());
-		tx.collectRecords(statement, query.getParameters(), this);
 
-		started.set(true);
+		lock.lock();
+		try {
+
+			started = true;
+
+			tx.collectRecords(statement, query.getParameters(), this);
+
+		} finally {
+			lock.unlock();
+		}
 
 		if (queryTimer != null) {
 			queryTimer.querySent();
@@ -93,8 +111,23 @@ public class IterableQueueingRecordConsumer implements Iterable<Record>, Iterato
 				queryTimer.closed();
 			}
 
-			aborted.set(true);
-			cursor.consumeAsync();
+			final ResultCursor current;
+
+			lock.lock();
+			try {
+
+				aborted = true;
+				current = cursor;
+
+				queue.clear();
+
+			} finally {
+				lock.unlock();
+			}
+
+			if (current != null) {
+				current.consumeAsync();
+			}
 
 			if (queryTimer != null) {
 				queryTimer.consumed();
@@ -117,112 +150,302 @@ public class IterableQueueingRecordConsumer implements Iterable<Record>, Iterato
 		// This method will be called from a different thread, so there is no
 		// transaction context..
 
-		if (elementCount.get() == query.pageSize() && !aborted.get()) {
+		lock.lock();
+		try {
 
-			query.nextPage();
+			if (elementCount == query.pageSize() && !aborted) {
 
-			// there are probably more results available
-			elementCount.set(0);
-			finished.set(false);
+				query.nextPage();
 
-			// signal other thread that new results should be fetched
-			started.set(false);
+				// there are probably more results available
+				elementCount = 0;
 
-			if (queryTimer != null) {
-				queryTimer.nextPage();
-			}
+				// signal other thread that new results should be fetched
+				started = false;
 
-		} else {
+				if (queryTimer != null) {
+					queryTimer.nextPage();
+				}
 
-			finished.set(true);
-			added.set(true);
+			} else {
 
-			if (queryTimer != null) {
-				queryTimer.finished();
+				finished = true;
+
+				if (queryTimer != null) {
+					queryTimer.finished();
+				}
 			}
+
+			notEmpty.signalAll();
+
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	@Override
 	public boolean hasNext() {
 
-		// make the consuming thread wait for results util elements have been
-		// added OR the producer has no more results (finished == true)
-		final long yieldStart = System.currentTimeMillis();
+		final long timeout = TimeUnit.SECONDS.toNanos(Settings.ResultStreamTimeout.getValue());
+		long remaining     = timeout;
 
-		while (!added.get() || (!finished.get() && queue.isEmpty())) {
+		lock.lock();
+		try {
 
-			if (throwable != null) {
+			// make the consuming thread wait for results until elements have
+			// been added OR the producer has no more results
+			while (queue.isEmpty() && !finished && !aborted) {
 
-				if (throwable instanceof RuntimeException) {
+				if (throwable != null) {
 
-					throw (RuntimeException)throwable;
+					if (throwable instanceof RuntimeException) {
 
-				} else {
+						throw (RuntimeException)throwable;
 
-					throw new RuntimeException(throwable);
+					} else {
+
+						throw new RuntimeException(throwable);
+					}
 				}
-			}
 
-			// start fetching of next result portion while waiting for results
-			if (!started.getAndSet(true)) {
+				// start fetching of next result portion while waiting for results
+				if (!started) {
+
+					started = true;
+
+					final SessionTransaction tx = db.getCurrentTransaction(false);
+					if (tx != null && !tx.isClosed()) {
+
+						tx.collectRecords(query.getStatement(true), query.getParameters(), this);
+
+						// records can be delivered synchronously (in this thread),
+						// so the condition must be checked again before waiting
+						continue;
 
-				final SessionTransaction tx = db.getCurrentTransaction(false);
-				if (tx != null && !tx.isClosed()) {
+					} else {
 
-					tx.collectRecords(query.getStatement(true), query.getParameters(), this);
+						finished = true;
+						break;
+					}
 				}
-			}
 
-			// wait for data (or exception)
-			try { Thread.yield(); } catch (Throwable t) {}
+				if (timeout > 0L && remaining <= 0L) {
+
+					logger.warn("#######################################################################################################");
+					logger.warn("IterableQueueingRecordConsumer waited for {} seconds, aborting", TimeUnit.NANOSECONDS.toSeconds(timeout));
+					logger.warn("statement:  {}", query.getStatement(true));
+					logger.warn("parameters: {}", query.getParameters());
+					logger.warn("throwable:  {}", throwable);
+					logger.warn("finished:   {}", finished);
+					logger.warn("queue:      {}", queue.size());
+					logger.warn("#######################################################################################################");
 
-			if (System.currentTimeMillis() > yieldStart + 60_000) {
+					query.setTimeoutViolated();
+
+					return false;
+				}
 
-				logger.warn("#######################################################################################################");
-				logger.warn("IterableQueueingRecordConsumer waited for 1 minute, aborting");
-				logger.warn("statement:  {}", query.getStatement(true));
-				logger.warn("parameters: {}", query.getParameters());
-				logger.warn("throwable:  {}", throwable);
-				logger.warn("finished:   {}", finished.get());
-				logger.warn("added:      {}", added.get());
-				logger.warn("queue:      {}", queue);
-				logger.warn("#######################################################################################################");
+				// wait for data (or exception)
+				if (timeout > 0L) {
 
-				query.setTimeoutViolated();
+					remaining = notEmpty.awaitNanos(remaining);
 
-				return false;
+				} else {
+
+					notEmpty.await();
+				}
 			}
-		}
 
-		return !queue.isEmpty();
+			return !queue.isEmpty();
+
+		} catch (InterruptedException iex) {
+
+			Thread.currentThread().interrupt();
+
+			return false;
+
+		} finally {
+			lock.unlock();
+		}
 	}
 
 	@Override
 	public Record next() {
-		return queue.poll();
+
+		final Record record;
+		boolean resume = false;
+
+		lock.lock();
+		try {
+
+			record = queue.poll();
+
+			// request more records when the window is half empty
+			if (!pulling && cursor != null && !aborted && !finished && queue.size() <= window / 2) {
+
+				pulling = true;
+				resume  = true;
+			}
+
+		} finally {
+			lock.unlock();
+		}
+
+		if (resume) {
+			pull();
+		}
+
+		return record;
 	}
 
 	@Override
 	public void accept(final Record t) {
 
-		if (aborted.get()) {
-			return;
-		}
+		lock.lock();
+		try {
+
+			if (aborted) {
+				return;
+			}
 
-		queue.add(t);
-		added.set(true);
+			queue.add(t);
+			elementCount++;
 
-		elementCount.incrementAndGet();
+			notEmpty.signal();
+
+		} finally {
+			lock.unlock();
+		}
 	}
 
-	public CompletionStage<ResultCursor> start(final ResultCursor cursor) {
-		this.cursor = cursor;
-		return CompletableFuture.completedFuture(cursor);
+	/**
+	 * Starts streaming the records of the given cursor into this consumer.
+	 * Called by the driver when the statement has been sent.
+	 */
+	public void start(final ResultCursor cursor) {
+
+		lock.lock();
+		try {
+
+			this.cursor  = cursor;
+			this.pulling = true;
+
+		} finally {
+			lock.unlock();
+		}
+
+		pull();
 	}
 
 	public Void exception(final Throwable t) {
-		this.throwable = t;
+
+		lock.lock();
+		try {
+
+			this.throwable = t instanceof CompletionException && t.getCause() != null ? t.getCause() : t;
+			this.pulling   = false;
+
+			notEmpty.signalAll();
+
+		} finally {
+			lock.unlock();
+		}
+
 		return null;
 	}
-}
\ No newline at end of file
+
+	// ----- private methods -----
+	/**
+	 * Moves records from the cursor into the queue until the window is
+	 * full. Records that are already buffered by the driver are handled
+	 * in a loop, the method only returns to the driver when it has to
+	 * wait for the database or when the window is full. Only one thread
+	 * runs this method at a time, guarded by the pulling flag.
+	 */
+	private void pull() {
+
+		while (true) {
+
+			final ResultCursor current;
+
+			lock.lock();
+			try {
+
+				if (aborted || cursor == null || queue.size() >= window) {
+
+					pulling = false;
+					return;
+				}
+
+				current = cursor;
+
+			} finally {
+				lock.unlock();
+			}
+
+			final CompletableFuture<Record> future = current.nextAsync().toCompletableFuture();
+			if (!future.isDone()) {
+
+				future.whenComplete((record, t) -> {
+
+					if (handle(record, t)) {
+						pull();
+					}
+				});
+
+				return;
+			}
+
+			final Record record;
+
+			try {
+
+				record = future.join();
+
+			} catch (Throwable t) {
+
+				handle(null, t);
+				return;
+			}
+
+			if (!handle(record, null)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Handles the result of a single nextAsync call and returns true if
+	 * more records should be pulled.
+	 */
+	private boolean handle(final Record record, final Throwable t) {
+
+		if (t != null) {
+
+			exception(t);
+			return false;
+		}
+
+		if (record == null) {
+
+			lock.lock();
+			try {
+
+				// the cursor is exhausted, a new one is set when the next page is fetched
+				pulling = false;
+				cursor  = null;
+
+			} finally {
+				lock.unlock();
+			}
+
+			finish();
+
+			return false;
+		}
+
+		accept(record);
+
+		return true;
+	}
+}
@@ -138,13 +138,22 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String tenantIdentifier = getTenantIdentifer(db);
+		final SessionTransaction tx = db.getCurrentTransaction();
+		final WriteBuffer buffer    = tx.getWriteBuffer();
 
-		map.put("id", id);
+		if (buffer != null) {
 
-		tx.set(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id SET n :", label), map);
+			buffer.addLabel(this, label);
+
+		} else {
+
+			final Map<String, Object> map = new HashMap<>();
+			final String tenantIdentifier = getTenantIdentifer(db);
+
+			map.put("id", id);
+
+			tx.set(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id SET n :", label), map);
+		}
 
 		setModified();
 	}
@@ -154,13 +163,23 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 
 		assertNotStale();
 
-		final SessionTransaction tx   = db.getCurrentTransaction();
-		final Map<String, Object> map = new HashMap<>();
-		final String tenantIdentifier = getTenantIdentifer(db);
+		final SessionTransaction tx = db.getCurrentTransaction();
+		final WriteBuffer buffer    = tx.getWriteBuffer();
 
-		map.put("id", id);
+		if (buffer != null) {
+
+			buffer.removeLabel(this, label);
+
+		} else {
+
+			final Map<String, Object> map = new HashMap<>();
+			final String tenantIdentifier = getTenantIdentifer(db);
+
+			map.put("id", id);
+
+			tx.set(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id REMOVE n:", label), map);
+		}
 
-		tx.set(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id REMOVE n:", label), map);
 		setModified();
 	}
 
@@ -379,15 +398,16 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 	// ----- public static methods -----
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.types.Node node) {
 
-		NodeWrapper wrapper;
+		NodeWrapper wrapper = nodeCache.get(node.id());
+		if (wrapper == null) { // || wrapper.stale) {
 
-		synchronized (nodeCache) {
+			final NodeWrapper newWrapper = new NodeWrapper(db, node);
 
-			wrapper = nodeCache.get(node.id());
-			if (wrapper == null) { // || wrapper.stale) {
+			// make sure that there is only one wrapper per node
+			wrapper = nodeCache.putIfAbsent(node.id(), newWrapper);
+			if (wrapper == null) {
 
-				wrapper = new NodeWrapper(db, node);
-				nodeCache.put(node.id(), wrapper);
+				wrapper = newWrapper;
 			}
 		}
 
@@ -396,34 +416,101 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 
 	public static NodeWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		NodeWrapper wrapper;
+		NodeWrapper wrapper = nodeCache.get(id);
+		if (wrapper == null) { // || wrapper.stale) {
 
-		synchronized (nodeCache) {
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final String tenantIdentifier = getTenantIdentifer(db);
+			final Map<String, Object> map = new HashMap<>();
 
-			wrapper = nodeCache.get(id);
-			if (wrapper == null) { // || wrapper.stale) {
+			map.put("id", id);
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final String tenantIdentifier = getTenantIdentifer(db);
-				final Map<String, Object> map = new HashMap<>();
+			final org.neo4j.driver.types.Node node = tx.getNode(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id RETURN DISTINCT n"), map);
+			if (node != null) {
 
-				map.put("id", id);
+				wrapper = NodeWrapper.newInstance(db, node);
 
-				final org.neo4j.driver.types.Node node = tx.getNode(concat("MATCH (n", tenantIdentifier, ") WHERE ID(n) = $id RETURN DISTINCT n"), map);
-				if (node != null) {
+			} else {
 
-					wrapper = NodeWrapper.newInstance(db, node);
+				throw new NotFoundException("Node with ID " + id + " not found.");
+			}
+		}
 
-					nodeCache.put(id, wrapper);
+		return wrapper;
+	}
 
-				} else {
+	/**
+	 * Loads the relationships of the given type and direction for all given
+	 * nodes with a single query and stores them in the relationship caches
+	 * of the nodes. Nodes whose cache already contains the result are skipped.
+	 */
+	public static void prefetchRelationships(final BoltDatabaseService db, final Iterable<Node> nodes, final Direction direction, final RelationshipType relationshipType, final String otherType) {
 
-					throw new NotFoundException("Node with ID " + id + " not found.");
+		if (relationshipType == null || Settings.ForceResultStreaming.getValue()) {
+			return;
+		}
+
+		final Map<Long, NodeWrapper> batch = new LinkedHashMap<>();
+
+		for (final Node node : nodes) {
+
+			if (node instanceof NodeWrapper) {
+
+				final NodeWrapper wrapper = (NodeWrapper)node;
+
+				if (!wrapper.stale && !wrapper.dontUseCache && !wrapper.getRelationshipCache(direction, relationshipType, otherType).isLoaded()) {
+
+					batch.put(wrapper.id, wrapper);
 				}
 			}
 		}
 
-		return wrapper;
+		// a single node is fetched by getRelationships anyway
+		if (batch.size() < 2) {
+			return;
+		}
+
+		final String tenantIdentifier = getTenantIdentifer(db);
+		final String rel              = relationshipType.name();
+		final String typeLabel        = tenantIdentifier + (otherType != null ? (":" + otherType) : "");
+		final String match;
+
+		switch (direction) {
+
+			case OUTGOING:
+				match = concat("(n", tenantIdentifier, ")-[r:", rel, "]->(t", typeLabel, ") WHERE ID(n) IN $ids RETURN r, t, ID(n) AS nodeId");
+				break;
+
+			case INCOMING:
+				match = concat("(n", tenantIdentifier, ")<-[r:", rel, "]-(s", typeLabel, ") WHERE ID(n) IN $ids RETURN r, s, ID(n) AS nodeId");
+				break;
+
+			default:
+				match = concat("(n", tenantIdentifier, ")-[r:", rel, "]-(o", typeLabel, ") WHERE ID(n) IN $ids RETURN r, o, ID(n) AS nodeId");
+				break;
+		}
+
+		final CypherRelationshipIndex index                     = (CypherRelationshipIndex)db.relationshipIndex();
+		final AdvancedCypherQuery query                         = new RelationshipQuery(new QueryContext(), index, concat("MATCH ", match, " ORDER BY r.internalTimestamp"));
+		final RecordRelationshipMapper mapper                   = new RecordRelationshipMapper(db);
+		final Map<Long, List<Relationship>> relationshipsByNode = new HashMap<>();
+
+		query.getParameters().put("ids", new ArrayList<>(batch.keySet()));
+
+		for (final org.neo4j.driver.Record record : new LazyRecordIterable(db, query)) {
+
+			final Long nodeId = record.get("nodeId").asLong();
+
+			relationshipsByNode.computeIfAbsent(nodeId, k -> new ArrayList<>()).add(RelationshipWrapper.newInstance(db, mapper.apply(record)));
+		}
+
+		if (!query.timeoutViolated()) {
+
+			for (final NodeWrapper wrapper : batch.values()) {
+
+				wrapper.getRelationshipCache(direction, relationshipType, otherType).prefetched(relationshipsByNode.getOrDefault(wrapper.id, List.of()));
+			}
+		}
 	}
 
 	// ----- package-private static methods
@@ -433,34 +520,24 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 
 	public static void expunge(final Set<Long> toRemove) {
 
-		synchronized (nodeCache) {
-
-			for (final Long id : toRemove) {
+		for (final Long id : toRemove) {
 
-				expunge(id);
-			}
+			expunge(id);
 		}
 	}
 
 	public static void expunge(final Long toRemove) {
 
-		synchronized (nodeCache) {
+		final NodeWrapper node = nodeCache.remove(toRemove);
+		if (node != null) {
 
-			final NodeWrapper node = nodeCache.remove(toRemove);
-			if (node != null) {
-
-				node.clearCaches();
-			}
+			node.clearCaches();
 		}
 	}
 
 	// ----- protected static methods -----
 	protected static void clearCache() {
-
-		synchronized (nodeCache) {
-
-			nodeCache.clear();
-		}
+		nodeCache.clear();
 	}
 
 	// ----- private static methods -----
@@ -511,6 +588,20 @@ class NodeWrapper extends EntityWrapper<org.neo4j.driver.types.Node> implements
 			}
 		}
 
+		public synchronized boolean isLoaded() {
+			return set != null;
+		}
+
+		public synchronized void prefetched(final Collection<Relationship> relationships) {
+
+			if (set == null) {
+
+				set = new TreeSet<>((o1, o2) -> { return compare("internalTimestamp", o1, o2); });
+
+				set.addAll(relationships);
+			}
+		}
+
 		public synchronized Iterable<Relationship> getResult(final BoltDatabaseService db, final long id, final String match, final String returnStatement) {
 
 			final String whereStatement         = " WHERE ID(n) = $id ";
@@ -89,6 +89,9 @@ class ReactiveSessionTransaction extends SessionTransaction {
 	@Override
 	public void close() {
 
+		// write buffered changes before committing
+		final RuntimeException flushException = flushBeforeCommit();
+
 		if (!success) {
 
 			try {
@@ -153,6 +156,9 @@ class ReactiveSessionTransaction extends SessionTransaction {
 			// make sure that the resources are freed
 			session.close();
 		}
+		if (flushException != null) {
+			throw flushException;
+		}
 	}
 
 	public boolean isClosed() {
@@ -186,6 +192,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -238,6 +245,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -268,6 +276,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -303,6 +312,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -338,6 +348,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -373,6 +384,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -408,6 +420,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 			return Flux.from(tx.run(statement, map).records());
 
@@ -430,6 +443,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result             = tx.run(statement, map);
@@ -460,6 +474,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final Iterable<Map<String, Object>> iterable = Iterables.map(new RecordMapMapper(db), Flux.from(tx.run(statement, map).records()).toIterable());
@@ -487,6 +502,7 @@ class ReactiveSessionTransaction extends SessionTransaction {
 
 		try {
 
+			flushWriteBuffer();
 			logQuery(statement, map);
 
 			final RxResult result = tx.run(statement, map);
@@ -81,23 +81,17 @@ class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.types.Relations
 
 	public static void expunge(final Set<Long> toRemove) {
 
-		synchronized (relationshipCache) {
-
-			for (final Long id : toRemove) {
-				expunge(id);
-			}
+		for (final Long id : toRemove) {
+			expunge(id);
 		}
 	}
 
 	public static void expunge(final Long toRemove) {
 
-		synchronized (relationshipCache) {
-
-			final RelationshipWrapper wrapper = relationshipCache.remove(toRemove);
-			if (wrapper != null) {
+		final RelationshipWrapper wrapper = relationshipCache.remove(toRemove);
+		if (wrapper != null) {
 
-				wrapper.clearCaches();
-			}
+			wrapper.clearCaches();
 		}
 	}
 
@@ -194,16 +188,10 @@ class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.types.Relations
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final org.neo4j.driver.types.Relationship relationship) {
 
-		RelationshipWrapper wrapper;
-
-		synchronized (relationshipCache) {
+		final RelationshipWrapper wrapper = relationshipCache.get(relationship.id());
+		if (wrapper == null || wrapper.stale) {
 
-			wrapper = relationshipCache.get(relationship.id());
-			if (wrapper == null || wrapper.stale) {
-
-				wrapper = new RelationshipWrapper(db, relationship);
-				relationshipCache.put(relationship.id(), wrapper);
-			}
+			return cache(relationship.id(), wrapper, new RelationshipWrapper(db, relationship));
 		}
 
 		return wrapper;
@@ -211,42 +199,56 @@ class RelationshipWrapper extends EntityWrapper<org.neo4j.driver.types.Relations
 
 	public static RelationshipWrapper newInstance(final BoltDatabaseService db, final long id) {
 
-		RelationshipWrapper wrapper;
+		final RelationshipWrapper wrapper = relationshipCache.get(id);
+		if (wrapper == null || wrapper.stale) {
 
-		synchronized (relationshipCache) {
+			final SessionTransaction tx   = db.getCurrentTransaction();
+			final Map<String, Object> map = new HashMap<>();
+			final StringBuilder buf       = new StringBuilder();
+			final String tenantIdentifier = db.getTenantIdentifier();
 
-			wrapper = relationshipCache.get(id);
-			if (wrapper == null || wrapper.stale) {
+			map.put("id", id);
 
-				final SessionTransaction tx   = db.getCurrentTransaction();
-				final Map<String, Object> map = new HashMap<>();
-				final StringBuilder buf       = new StringBuilder();
-				final String tenantIdentifier = db.getTenantIdentifier();
+			buf.append("MATCH (");
 
-				map.put("id", id);
+			if (tenantIdentifier != null) {
+				buf.append(":");
+				buf.append(tenantIdentifier);
+			}
 
-				buf.append("MATCH (");
+			buf.append(")-[n]-(");
 
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
+			if (tenantIdentifier != null) {
+				buf.append(":");
+				buf.append(tenantIdentifier);
+			}
 
-				buf.append(")-[n]-(");
+			buf.append(") WHERE ID(n) = $id RETURN n");
 
-				if (tenantIdentifier != null) {
-					buf.append(":");
-					buf.append(tenantIdentifier);
-				}
+			return cache(id, wrapper, new RelationshipWrapper(db, tx.getRelationship(buf.toString(), map)));
+		}
 
-				buf.append(") WHERE ID(n) = $id RETURN n");
+		return wrapper;
+	}
 
-				wrapper = new RelationshipWrapper(db, tx.getRelationship(buf.toString(), map));
+	// ----- private static methods -----
+	private static RelationshipWrapper cache(final long id, final RelationshipWrapper staleWrapper, final RelationshipWrapper newWrapper) {
 
-				relationshipCache.put(id, wrapper);
-			}
+		if (staleWrapper != null) {
+
+			// replace stale wrapper
+			relationshipCache.put(id, newWrapper);
+
+			return newWrapper;
 		}
 
-		return wrapper;
+		// make sure that there is only one wrapper per relationship
+		final RelationshipWrapper existing = relationshipCache.putIfAbsent(id, newWrapper);
+		if (existing != null) {
+
+			return existing;
+		}
+
+		return newWrapper;
 	}
 }
@@ -51,6 +51,7 @@ abstract class SessionTransaction implements org.structr.api.Transaction {
 	protected final Set<Long> deletedNodes              = new HashSet<>();
 	protected final Set<Long> deletedRels               = new HashSet<>();
 	protected final Object transactionKey               = new Object();
+	protected WriteBuffer writeBuffer                   = null;
 	protected BoltDatabaseService db                    = null;
 	protected long transactionId                        = 0L;
 	protected boolean success                           = false;
@@ -60,6 +61,10 @@ abstract class SessionTransaction implements org.structr.api.Transaction {
 
 		this.transactionId = ID_SOURCE.getAndIncrement();
 		this.db            = db;
+
+		if (db.isWriteBehindEnabled()) {
+			this.writeBuffer = new WriteBuffer(db.getWriteBehindBatchSize());
+		}
 	}
 
 	public abstract boolean isClosed();
@@ -107,6 +112,14 @@ abstract class SessionTransaction implements org.structr.api.Transaction {
 		accessedEntities.add(wrapper);
 	}
 
+	/**
+	 * Returns the buffer for deferred property and label changes, or null
+	 * if write-behind is disabled.
+	 */
+	public WriteBuffer getWriteBuffer() {
+		return writeBuffer;
+	}
+
 	public void setIsPing(final boolean isPing) {
 		this.isPing = isPing;
 	}
@@ -151,6 +164,47 @@ abstract class SessionTransaction implements org.structr.api.Transaction {
 	}
 
 	// ----- protected methods -----
+	protected void flushWriteBuffer() {
+
+		if (writeBuffer != null && !writeBuffer.isEmpty()) {
+
+			writeBuffer.flush(this);
+		}
+	}
+
+	/**
+	 * Writes the buffered changes of a successful transaction before it
+	 * is committed, or discards them if the transaction is rolled back.
+	 *
+	 * @return the exception that occurred while flushing, or null
+	 */
+	protected RuntimeException flushBeforeCommit() {
+
+		if (writeBuffer != null) {
+
+			if (success) {
+
+				try {
+
+					flushWriteBuffer();
+
+				} catch (RuntimeException rex) {
+
+					success = false;
+					writeBuffer.clear();
+
+					return rex;
+				}
+
+			} else {
+
+				writeBuffer.clear();
+			}
+		}
+
+		return null;
+	}
+
 	protected void logQuery(final String statement) {
 		logQuery(statement, null);
 	}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Collects the property and label changes of a single transaction so
+ * they can be written with a small number of UNWIND statements instead
+ * of one statement per change.
+ *
+ * Changes are grouped by the query prefix of the entity, which contains
+ * the match pattern for nodes or relationships and the tenant label.
+ */
+class WriteBuffer {
+
+	private final Map<String, Map<Long, Map<String, Object>>> properties = new LinkedHashMap<>();
+	private final Map<String, Map<Long, Map<String, Boolean>>> labels    = new LinkedHashMap<>();
+	private int batchSize                                                = 1000;
+
+	public WriteBuffer(final int batchSize) {
+		this.batchSize = Math.max(1, batchSize);
+	}
+
+	public void setProperty(final EntityWrapper entity, final String key, final Object value) {
+		getProperties(entity).put(key, value);
+	}
+
+	public void setProperties(final EntityWrapper entity, final Map<String, Object> values) {
+		getProperties(entity).putAll(values);
+	}
+
+	public void addLabel(final NodeWrapper node, final String label) {
+		getLabels(node).put(label, true);
+	}
+
+	public void removeLabel(final NodeWrapper node, final String label) {
+		getLabels(node).put(label, false);
+	}
+
+	public void discard(final EntityWrapper entity) {
+
+		final String prefix                              = entity.getQueryPrefix();
+		final Map<Long, Map<String, Object>> propertyMap = properties.get(prefix);
+		final Map<Long, Map<String, Boolean>> labelMap   = labels.get(prefix);
+		final Long id                                    = entity.getDatabaseId();
+
+		if (propertyMap != null) {
+			propertyMap.remove(id);
+		}
+
+		if (labelMap != null) {
+			labelMap.remove(id);
+		}
+	}
+
+	public boolean isEmpty() {
+		return properties.isEmpty() && labels.isEmpty();
+	}
+
+	public void clear() {
+
+		properties.clear();
+		labels.clear();
+	}
+
+	/**
+	 * Writes all buffered changes using the given transaction. The buffer
+	 * is cleared before the first statement is sent, so statements issued
+	 * by the transaction itself do not trigger a recursive flush.
+	 */
+	public void flush(final SessionTransaction tx) {
+
+		final List<Entry<String, Map<String, Object>>> statements = new ArrayList<>();
+
+		for (final Entry<String, Map<Long, Map<String, Object>>> entry : properties.entrySet()) {
+
+			final String statement               = entry.getKey() + " WHERE ID(n) = row.id SET n += row.properties";
+			final List<Map<String, Object>> rows = new ArrayList<>();
+
+			for (final Entry<Long, Map<String, Object>> change : entry.getValue().entrySet()) {
+
+				final Map<String, Object> row = new HashMap<>();
+
+				row.put("id",         change.getKey());
+				row.put("properties", change.getValue());
+
+				rows.add(row);
+			}
+
+			addStatements(statements, statement, rows);
+		}
+
+		for (final Entry<String, Map<Long, Map<String, Boolean>>> entry : labels.entrySet()) {
+
+			final Map<String, List<Object>> added   = new LinkedHashMap<>();
+			final Map<String, List<Object>> removed = new LinkedHashMap<>();
+
+			for (final Entry<Long, Map<String, Boolean>> change : entry.getValue().entrySet()) {
+
+				for (final Entry<String, Boolean> label : change.getValue().entrySet()) {
+
+					final Map<String, List<Object>> target = label.getValue() ? added : removed;
+
+					target.computeIfAbsent(label.getKey(), k -> new ArrayList<>()).add(change.getKey());
+				}
+			}
+
+			for (final Entry<String, List<Object>> label : added.entrySet()) {
+				addStatements(statements, entry.getKey() + " WHERE ID(n) = row SET n :" + label.getKey(), label.getValue());
+			}
+
+			for (final Entry<String, List<Object>> label : removed.entrySet()) {
+				addStatements(statements, entry.getKey() + " WHERE ID(n) = row REMOVE n:" + label.getKey(), label.getValue());
+			}
+		}
+
+		clear();
+
+		for (final Entry<String, Map<String, Object>> statement : statements) {
+			tx.set(statement.getKey(), statement.getValue());
+		}
+	}
+
+	// ----- private methods -----
+	private Map<String, Object> getProperties(final EntityWrapper entity) {
+		return properties.computeIfAbsent(entity.getQueryPrefix(), k -> new LinkedHashMap<>()).computeIfAbsent(entity.getDatabaseId(), k -> new HashMap<>());
+	}
+
+	private Map<String, Boolean> getLabels(final NodeWrapper node) {
+		return labels.computeIfAbsent(node.getQueryPrefix(), k -> new LinkedHashMap<>()).computeIfAbsent(node.getDatabaseId(), k -> new LinkedHashMap<>());
+	}
+
+	private void addStatements(final List<Entry<String, Map<String, Object>>> statements, final String statement, final List<?> rows) {
+
+		final String unwind = "UNWIND $rows AS row " + statement;
+		final int size      = rows.size();
+
+		for (int i=0; i<size; i+=batchSize) {
+
+			final Map<String, Object> parameters = new HashMap<>();
+
+			parameters.put("rows", new ArrayList<>(rows.subList(i, Math.min(size, i + batchSize))));
+
+			statements.add(Map.entry(unwind, parameters));
+		}
+	}
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.internal.InternalRecord;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.types.Entity;
+import org.neo4j.driver.types.Node;
+import org.neo4j.driver.types.Relationship;
+import org.structr.api.config.Settings;
+import org.structr.api.search.QueryContext;
+import org.testng.annotations.Test;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the bounded record window of IterableQueueingRecordConsumer with
+ * a simulated result cursor, no database is needed.
+ */
+public class IterableQueueingRecordConsumerTest {
+
+	@Test
+	public void testWindowIsBounded() {
+
+		final TestCursor cursor                         = new TestCursor(0, 100, null, -1);
+		final TestTransaction tx                        = new TestTransaction(List.of(cursor));
+		final IterableQueueingRecordConsumer consumer   = new IterableQueueingRecordConsumer(new TestDatabaseService(tx), new TestQuery(10));
+		int consumed                                    = 0;
+
+		consumer.start();
+
+		assertEquals("Consumer must stop pulling when the window is full", 10, cursor.delivered.get());
+
+		while (consumer.hasNext()) {
+
+			assertEquals("Invalid record order", consumed, consumer.next().get("n").asInt());
+			consumed++;
+
+			assertTrue("Consumer buffered more records than the window size", cursor.delivered.get() - consumed <= 10);
+		}
+
+		assertEquals("Invalid number of records", 100, consumed);
+		assertEquals("Invalid number of pages",     1, tx.requests);
+	}
+
+	@Test
+	public void testAsynchronousDelivery() {
+
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+		try {
+
+			final TestCursor cursor                       = new TestCursor(0, 200, executor, -1);
+			final TestTransaction tx                      = new TestTransaction(List.of(cursor));
+			final IterableQueueingRecordConsumer consumer = new IterableQueueingRecordConsumer(new TestDatabaseService(tx), new TestQuery(16));
+			int consumed                                  = 0;
+
+			consumer.start();
+
+			for (final Record record : consumer) {
+
+				assertEquals("Invalid record order", consumed, record.get("n").asInt());
+				consumed++;
+
+				assertTrue("Consumer buffered more records than the window size", cursor.delivered.get() - consumed <= 16);
+			}
+
+			assertEquals("Invalid number of records", 200, consumed);
+
+		} finally {
+
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPaging() {
+
+		// full pages must trigger a request for the next page, a partial page ends the result
+		final TestTransaction tx                      = new TestTransaction(List.of(new TestCursor(0, 10, null, -1), new TestCursor(10, 10, null, -1), new TestCursor(20, 5, null, -1)));
+		final TestQuery query                         = new TestQuery(10);
+		final IterableQueueingRecordConsumer consumer = new IterableQueueingRecordConsumer(new TestDatabaseService(tx), query);
+		final long start                              = System.currentTimeMillis();
+		int consumed                                  = 0;
+
+		// pages are delivered synchronously here, the consumer must not wait for them
+		Settings.ResultStreamTimeout.setValue(10);
+
+		try {
+
+			consumer.start();
+
+			for (final Record record : consumer) {
+
+				assertEquals("Invalid record order", consumed, record.get("n").asInt());
+				consumed++;
+			}
+
+		} finally {
+
+			Settings.ResultStreamTimeout.setValue(Settings.ResultStreamTimeout.getDefaultValue());
+		}
+
+		assertTrue("Consumer waited for records that were already delivered", System.currentTimeMillis() - start < 10000L);
+		assertFalse("Consumer waited for records that were already delivered", query.timeoutViolated());
+		assertEquals("Invalid number of records", 25, consumed);
+		assertEquals("Invalid number of pages",    3, tx.requests);
+	}
+
+	@Test
+	public void testErrorIsPropagated() {
+
+		final TestCursor cursor                       = new TestCursor(0, 100, null, 5);
+		final IterableQueueingRecordConsumer consumer = new IterableQueueingRecordConsumer(new TestDatabaseService(new TestTransaction(List.of(cursor))), new TestQuery(10));
+		int consumed                                  = 0;
+
+		consumer.start();
+
+		try {
+
+			while (consumer.hasNext()) {
+
+				consumer.next();
+				consumed++;
+			}
+
+			fail("Cursor error was not propagated to the consumer");
+
+		} catch (RuntimeException expected) {
+
+			assertEquals("Invalid exception", "Record 5 failed", expected.getMessage());
+		}
+
+		assertEquals("Invalid number of records", 5, consumed);
+	}
+
+	@Test
+	public void testClose() {
+
+		final TestCursor cursor                       = new TestCursor(0, 100, null, -1);
+		final IterableQueueingRecordConsumer consumer = new IterableQueueingRecordConsumer(new TestDatabaseService(new TestTransaction(List.of(cursor))), new TestQuery(10));
+
+		consumer.start();
+
+		assertTrue(consumer.hasNext());
+		consumer.next();
+
+		consumer.close();
+
+		assertTrue("Cursor was not consumed on close", cursor.consumed);
+		assertFalse("Closed consumer must not return records", consumer.hasNext());
+		assertEquals("Closed consumer must not pull more records", 10, cursor.delivered.get());
+	}
+
+	// ----- nested classes -----
+	private static class TestQuery extends AdvancedCypherQuery {
+
+		private final int fetchSize;
+
+		public TestQuery(final int fetchSize) {
+
+			super(new QueryContext(), null, Integer.MAX_VALUE, 1);
+
+			this.fetchSize = fetchSize;
+		}
+
+		@Override
+		public int pageSize() {
+			return fetchSize;
+		}
+
+		@Override
+		public String getStatement(final boolean paged) {
+			return "MATCH (n) RETURN n";
+		}
+	}
+
+	private static class TestDatabaseService extends BoltDatabaseService {
+
+		private final SessionTransaction tx;
+
+		public TestDatabaseService(final SessionTransaction tx) {
+			this.tx = tx;
+		}
+
+		@Override
+		public SessionTransaction getCurrentTransaction(final boolean throwNotInTransactionException) {
+			return tx;
+		}
+	}
+
+	/**
+	 * Returns one cursor per requested page, like a transaction that
+	 * runs the paged statement of the query again.
+	 */
+	private static class TestTransaction extends SessionTransaction {
+
+		private final List<TestCursor> pages;
+		private int requests = 0;
+
+		public TestTransaction(final List<TestCursor> pages) {
+
+			super(new BoltDatabaseService());
+
+			this.pages = new LinkedList<>(pages);
+		}
+
+		@Override
+		public Object collectRecords(final String statement, final Map<String, Object> map, final Object consumer) {
+
+			final TestCursor cursor = pages.isEmpty() ? new TestCursor(0, 0, null, -1) : pages.remove(0);
+
+			requests++;
+
+			((IterableQueueingRecordConsumer)consumer).start(cursor);
+
+			return consumer;
+		}
+
+		@Override
+		public boolean isClosed() {
+			return false;
+		}
+
+		@Override
+		public void failure() {
+		}
+
+		@Override
+		public void success() {
+		}
+
+		@Override
+		public void close() {
+		}
+
+		@Override
+		public boolean getBoolean(final String statement) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public boolean getBoolean(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getLong(final String statement) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public long getLong(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Object getObject(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Entity getEntity(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Node getNode(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Relationship getRelationship(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterable<String> getStrings(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterable<Map<String, Object>> run(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void set(final String statement, final Map<String, Object> map) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterable<Record> newIterable(final BoltDatabaseService db, final AdvancedCypherQuery query) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Simulated result cursor, records are delivered synchronously (like
+	 * records the driver has already buffered) or by the given executor.
+	 */
+	private static class TestCursor implements ResultCursor {
+
+		private final AtomicInteger delivered = new AtomicInteger();
+		private final ExecutorService executor;
+		private final int offset;
+		private final int count;
+		private final int failAt;
+		private volatile boolean consumed = false;
+
+		public TestCursor(final int offset, final int count, final ExecutorService executor, final int failAt) {
+
+			this.executor = executor;
+			this.offset   = offset;
+			this.count    = count;
+			this.failAt   = failAt;
+		}
+
+		@Override
+		public CompletionStage<Record> nextAsync() {
+
+			if (executor != null) {
+
+				return CompletableFuture.supplyAsync(this::nextRecord, executor);
+			}
+
+			try {
+
+				return CompletableFuture.completedFuture(nextRecord());
+
+			} catch (RuntimeException ex) {
+
+				return CompletableFuture.failedFuture(ex);
+			}
+		}
+
+		@Override
+		public CompletionStage<ResultSummary> consumeAsync() {
+
+			consumed = true;
+
+			return CompletableFuture.completedFuture(null);
+		}
+
+		@Override
+		public List<String> keys() {
+			return List.of("n");
+		}
+
+		@Override
+		public CompletionStage<Record> peekAsync() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletionStage<Record> singleAsync() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletionStage<ResultSummary> forEachAsync(final Consumer<Record> action) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public CompletionStage<List<Record>> listAsync() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <T> CompletionStage<List<T>> listAsync(final Function<Record, T> mapFunction) {
+			throw new UnsupportedOperationException();
+		}
+
+		// ----- private methods -----
+		private Record nextRecord() {
+
+			final int index = delivered.get();
+
+			if (index == failAt) {
+				throw new RuntimeException("Record " + index + " failed");
+			}
+
+			if (index >= count || consumed) {
+				return null;
+			}
+
+			delivered.incrementAndGet();
+
+			return new InternalRecord(List.of("n"), new Value[] { Values.value(offset + index) });
+		}
+	}
+}
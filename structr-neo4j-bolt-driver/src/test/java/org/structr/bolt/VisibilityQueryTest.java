@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.bolt;
+
+import org.structr.api.search.Occurrence;
+import org.structr.api.search.QueryContext;
+import org.structr.api.search.SortOrder;
+import org.structr.api.search.VisibilityQuery;
+import org.testng.annotations.Test;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the Cypher predicate that is generated for a visibility query.
+ */
+public class VisibilityQueryTest {
+
+	@Test
+	public void testAnonymousVisibility() {
+
+		final AdvancedCypherQuery query = createQuery(new TestVisibilityQuery(Set.of(), Set.of(), false));
+
+		assertEquals("Invalid visibility statement", "MATCH (n:NodeInterface) WHERE (n.visibleToPublicUsers = true) RETURN DISTINCT n", query.getStatement(false));
+		assertEquals("Invalid visibility count statement", "MATCH (n:NodeInterface) WHERE (n.visibleToPublicUsers = true) RETURN count(DISTINCT n)", query.getCountStatement());
+		assertTrue("Invalid visibility parameters", query.getParameters().isEmpty());
+	}
+
+	@Test
+	public void testAuthenticatedVisibility() {
+
+		final Set<String> principalIds  = new LinkedHashSet<>(List.of("user", "group"));
+		final AdvancedCypherQuery query = createQuery(new TestVisibilityQuery(principalIds, Set.of("PROPAGATES"), true));
+		final String statement          = query.getStatement(false);
+		final String paramKey           = query.getParameters().keySet().iterator().next();
+
+		assertEquals("Invalid visibility parameters", List.of("user", "group"), query.getParameters().get(paramKey));
+
+		assertTrue("Missing public visibility",          statement.contains("n.visibleToPublicUsers = true"));
+		assertTrue("Missing authenticated visibility",   statement.contains(" OR n.visibleToAuthenticatedUsers = true"));
+		assertTrue("Missing principal nodes",            statement.contains(" OR n.id IN $" + paramKey));
+		assertTrue("Missing ownership",                  statement.contains(" OR size([(p)-[:OWNS]->(n) WHERE p.id IN $" + paramKey + " | p]) > 0"));
+		assertTrue("Missing security relationships",     statement.contains(" OR size([(p)-[s:SECURITY]->(n) WHERE p.id IN $" + paramKey + " AND 'read' IN s.allowed | p]) > 0"));
+		assertTrue("Missing propagating relationships",  statement.contains(" OR size([(n)-[:`PROPAGATES`]-() | n]) > 0"));
+		assertTrue("Visibility predicate must be the only WHERE clause", statement.startsWith("MATCH (n:NodeInterface) WHERE (n.visibleToPublicUsers = true OR "));
+		assertTrue("Visibility predicate must be closed", statement.endsWith(" | n]) > 0) RETURN DISTINCT n"));
+	}
+
+	// ----- private methods -----
+	private AdvancedCypherQuery createQuery(final VisibilityQuery predicate) {
+
+		final CypherNodeIndex index     = new CypherNodeIndex(new BoltDatabaseService());
+		final AdvancedCypherQuery query = index.createQuery(new QueryContext(), Integer.MAX_VALUE, 1);
+
+		assertTrue("Visibility query not supported", index.createQuery(predicate, query, true));
+
+		return query;
+	}
+
+	// ----- nested classes -----
+	private static class TestVisibilityQuery implements VisibilityQuery {
+
+		private final Set<String> propagatingRelationshipTypes;
+		private final Set<String> principalIds;
+		private final boolean includeAuthenticated;
+
+		public TestVisibilityQuery(final Set<String> principalIds, final Set<String> propagatingRelationshipTypes, final boolean includeAuthenticated) {
+
+			this.propagatingRelationshipTypes = propagatingRelationshipTypes;
+			this.includeAuthenticated         = includeAuthenticated;
+			this.principalIds                 = principalIds;
+		}
+
+		@Override
+		public Set<String> getPrincipalIds() {
+			return principalIds;
+		}
+
+		@Override
+		public Set<String> getPropagatingRelationshipTypes() {
+			return propagatingRelationshipTypes;
+		}
+
+		@Override
+		public boolean includeAuthenticated() {
+			return includeAuthenticated;
+		}
+
+		@Override
+		public Class getQueryType() {
+			return VisibilityQuery.class;
+		}
+
+		@Override
+		public String getName() {
+			return null;
+		}
+
+		@Override
+		public Class getType() {
+			return null;
+		}
+
+		@Override
+		public Object getValue() {
+			return null;
+		}
+
+		@Override
+		public String getLabel() {
+			return null;
+		}
+
+		@Override
+		public Occurrence getOccurrence() {
+			return Occurrence.REQUIRED;
+		}
+
+		@Override
+		public boolean isExactMatch() {
+			return true;
+		}
+
+		@Override
+		public SortOrder getSortOrder() {
+			return null;
+		}
+	}
+}
@@ -20,6 +20,9 @@ package org.structr.test.rest.test.property;
 
 import io.restassured.RestAssured;
 import io.restassured.filter.log.ResponseLoggingFilter;
+import org.structr.api.config.Settings;
+import org.structr.api.graph.Cardinality;
+import org.structr.api.schema.JsonObjectType;
 import org.structr.api.schema.JsonSchema;
 import org.structr.api.schema.JsonType;
 import org.structr.common.error.FrameworkException;
@@ -27,6 +30,7 @@ import org.structr.core.app.App;
 import org.structr.core.app.StructrApp;
 import org.structr.core.entity.AbstractNode;
 import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.NodeInterface;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.PropertyKey;
 import org.structr.schema.export.StructrSchema;
@@ -34,6 +38,9 @@ import org.structr.test.rest.common.StructrRestTestBase;
 import org.structr.test.rest.entity.TestTen;
 import org.testng.annotations.Test;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.testng.AssertJUnit.*;
@@ -119,6 +126,107 @@ public class FunctionPropertyTest extends StructrRestTestBase {
 		testSearchWithType("Double",  "if(eq(this.name, 'test'), 3.0, 8.0)", 3.0f);
 	}
 
+	@Test
+	public void testFunctionPropertiesInParallelJsonOutput() {
+
+		// schema setup
+		try (final Tx tx = app.tx()) {
+
+			final JsonSchema schema      = StructrSchema.createEmptySchema();
+			final JsonObjectType project = schema.addType("Project");
+			final JsonObjectType task    = schema.addType("Task");
+
+			project.relate(task, "TASK", Cardinality.OneToMany, "project", "tasks");
+
+			project.addFunctionProperty("depth", "test").setReadFunction("depth");
+			project.addViewProperty("test", "name");
+			project.addViewProperty("test", "tasks");
+
+			task.addFunctionProperty("depth", "test").setReadFunction("depth");
+			task.addViewProperty("test", "name");
+
+			StructrSchema.extendDatabaseSchema(app, schema);
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		final Class projectType = StructrApp.getConfiguration().getNodeEntityClass("Project");
+		final Class taskType    = StructrApp.getConfiguration().getNodeEntityClass("Task");
+		final PropertyKey tasks = StructrApp.key(projectType, "tasks");
+
+		// data setup
+		try (final Tx tx = app.tx()) {
+
+			for (int i=0; i<30; i++) {
+
+				final List<NodeInterface> list = new LinkedList<>();
+
+				list.add(app.create(taskType, "task" + i + "a"));
+				list.add(app.create(taskType, "task" + i + "b"));
+
+				app.create(projectType, new NodeAttribute<>(AbstractNode.name, String.format("project%02d", i)), new NodeAttribute<>(tasks, list));
+			}
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+		}
+
+		try {
+
+			// serialize in chunks of 4 objects
+			Settings.JsonParallelizationThreshold.setValue(4);
+
+			final String sequential = getResponseWithoutTimes("/Project/test?_sort=name");
+			final String parallel   = getResponseWithoutTimes("/Project/test?_sort=name&_parallelizeJsonOutput=1");
+
+			assertEquals("Parallel JSON output differs from sequential output", sequential, parallel);
+
+			for (final String query : new String[] { "", "&_parallelizeJsonOutput=1" }) {
+
+				RestAssured.given()
+					.contentType("application/json; charset=UTF-8")
+					.filter(ResponseLoggingFilter.logResponseIfStatusCodeIs(200))
+				.expect()
+					.statusCode(200)
+					.body("result",                    hasSize(30))
+					.body("result[0].name",            equalTo("project00"))
+					.body("result[0].depth",           equalTo(0))
+					.body("result[0].tasks[0].depth",  equalTo(1))
+					.body("result[29].name",           equalTo("project29"))
+					.body("result[29].depth",          equalTo(0))
+					.body("result[29].tasks[1].depth", equalTo(1))
+				.when()
+					.get("/Project/test?_sort=name" + query);
+			}
+
+		} finally {
+
+			Settings.JsonParallelizationThreshold.setValue(Settings.JsonParallelizationThreshold.getDefaultValue());
+		}
+	}
+
+	// ----- private methods -----
+	private String getResponseWithoutTimes(final String url) {
+
+		final String response = RestAssured.given()
+			.contentType("application/json; charset=UTF-8")
+		.expect()
+			.statusCode(200)
+		.when()
+			.get(url)
+			.asString();
+
+		// parallel output is not indented
+		return response.replaceAll("\\s", "").replaceAll("\"(query_time|serialization_time|result_count_time)\":\"?[0-9.,]*\"?", "");
+	}
+
 	private void testSearchWithType(final String typeName, final String readFunction, final Object value) {
 
 		try { Thread.sleep(1000); } catch (Throwable t) {}
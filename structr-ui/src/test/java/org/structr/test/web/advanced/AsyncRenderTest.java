@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.web.advanced;
+
+import org.apache.commons.lang3.StringUtils;
+import org.structr.api.config.Settings;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.test.web.StructrUiTest;
+import org.structr.web.entity.User;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.Page;
+import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests the asynchronous rendering of pages in HtmlServlet.
+ */
+public class AsyncRenderTest extends StructrUiTest {
+
+	@Test
+	public void testLargeAsyncOutput() {
+
+		// more than the render buffer can hold, so the renderer has to wait for the client
+		final String text = StringUtils.repeat("abcdefghijklmnopqrstuvwxyzäöü€", 40000);
+
+		createPage("large", text);
+
+		final HttpResponse<String> response = get("large").join();
+
+		assertEquals(200, response.statusCode());
+		assertTrue("Rendered page is incomplete", response.body().contains(text));
+	}
+
+	@Test
+	public void testRejectedAsyncRenders() {
+
+		createPage("slow", "${sleep(2000)}slow");
+
+		try {
+
+			// one render thread and one waiting request
+			Settings.HtmlAsyncRenderThreads.setValue(1);
+			Settings.HtmlAsyncRenderQueueSize.setValue(1);
+
+			final List<CompletableFuture<HttpResponse<String>>> requests = new ArrayList<>();
+			int successful                                               = 0;
+			int rejected                                                 = 0;
+
+			for (int i=0; i<4; i++) {
+				requests.add(get("slow"));
+			}
+
+			for (final CompletableFuture<HttpResponse<String>> request : requests) {
+
+				final HttpResponse<String> response = request.join();
+
+				switch (response.statusCode()) {
+
+					case 200:
+						assertTrue(response.body().contains("slow"));
+						successful++;
+						break;
+
+					case 503:
+						rejected++;
+						break;
+
+					default:
+						fail("Unexpected status code " + response.statusCode());
+				}
+			}
+
+			assertTrue("Requests within the queue size must be rendered", successful >= 2);
+			assertTrue("Requests exceeding the queue size must be rejected", rejected >= 1);
+
+		} finally {
+
+			Settings.HtmlAsyncRenderThreads.setValue(Settings.HtmlAsyncRenderThreads.getDefaultValue());
+			Settings.HtmlAsyncRenderQueueSize.setValue(Settings.HtmlAsyncRenderQueueSize.getDefaultValue());
+		}
+
+		// the pool is replaced when the settings change
+		assertEquals(200, get("slow").join().statusCode());
+	}
+
+	// ----- private methods -----
+	private void createPage(final String name, final String text) {
+
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "isAdmin"),  true)
+			);
+
+			final Page page       = Page.createSimplePage(securityContext, name);
+			final Element div     = (Element)page.getElementsByTagName("div").item(0);
+			final Content content = (Content)div.getFirstChild();
+
+			content.setProperty(StructrApp.key(Content.class, "content"), text);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private CompletableFuture<HttpResponse<String>> get(final String page) {
+
+		final HttpRequest request = HttpRequest.newBuilder(URI.create(baseUri + page))
+			.header("X-User",     "admin")
+			.header("X-Password", "admin")
+			.GET()
+			.build();
+
+		return HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
@@ -18,6 +18,8 @@
  */
 package org.structr.test.web.advanced;
 
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.structr.api.config.Settings;
@@ -25,12 +27,18 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.app.StructrApp;
 import org.structr.core.graph.NodeAttribute;
 import org.structr.core.graph.Tx;
+import org.structr.storage.StorageProviderFactory;
 import org.structr.test.web.StructrUiTest;
+import org.structr.web.common.FileHelper;
+import org.structr.web.entity.File;
 import org.structr.web.entity.Folder;
 import org.structr.web.entity.Image;
 import org.structr.web.entity.User;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -195,4 +203,68 @@ public class FilesystemTest extends StructrUiTest {
 			fail("Unexpected exception.");
 		}
 	}
+
+	@Test
+	public void test04ChecksumsAfterRewriteWithSameSize() {
+
+		Settings.DefaultChecksums.setValue("md5");
+
+		try (final Tx tx = app.tx()) {
+
+			// the checksums calculated while writing are not stored without a metadata update
+			final File file = FileHelper.createFile(securityContext, "aaaa".getBytes("utf-8"), "text/plain", File.class, "test.txt", false);
+
+			// same size, different content
+			try (final OutputStream os = file.getOutputStream()) {
+				IOUtils.write("bbbb", os, "utf-8");
+			}
+
+			assertChecksums(file, "bbbb");
+
+			FileHelper.setFileData(file, "cccc".getBytes("utf-8"), "text/plain");
+
+			assertChecksums(file, "cccc");
+
+			// the checksums calculated while writing can only be used once
+			try (final OutputStream os = StorageProviderFactory.getStorageProvider(file).getOutputStream()) {
+				IOUtils.write("dddd", os, "utf-8");
+			}
+
+			FileHelper.updateMetadata(file, true);
+
+			assertChecksums(file, "dddd");
+
+			// written through another instance of the same file
+			FileHelper.setFileData(file, "eeee".getBytes("utf-8"), "text/plain", false);
+
+			final File other = app.get(File.class, file.getUuid());
+
+			try (final OutputStream os = StorageProviderFactory.getStorageProvider(other).getOutputStream()) {
+				IOUtils.write("ffff", os, "utf-8");
+			}
+
+			FileHelper.updateMetadata(file, true);
+
+			assertChecksums(file, "ffff");
+
+			tx.success();
+
+		} catch (Throwable t) {
+			t.printStackTrace();
+			fail("Unexpected exception.");
+
+		} finally {
+
+			Settings.DefaultChecksums.setValue("");
+		}
+	}
+
+	// ----- private methods -----
+	private void assertChecksums(final File file, final String content) throws IOException {
+
+		final byte[] data = content.getBytes("utf-8");
+
+		assertEquals("Invalid checksum after rewrite", FileHelper.getChecksum(new ByteArrayInputStream(data), data.length), file.getProperty(StructrApp.key(File.class, "checksum")));
+		assertEquals("Invalid md5 after rewrite",      DigestUtils.md5Hex(data),                                           file.getProperty(StructrApp.key(File.class, "md5")));
+	}
 }
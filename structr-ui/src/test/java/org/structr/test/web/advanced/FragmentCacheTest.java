@@ -0,0 +1,360 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.test.web.advanced;
+
+import io.restassured.RestAssured;
+import org.apache.commons.lang3.StringUtils;
+import org.structr.common.Permission;
+import org.structr.common.error.FrameworkException;
+import org.structr.core.app.StructrApp;
+import org.structr.core.entity.Group;
+import org.structr.core.graph.FlushCachesCommand;
+import org.structr.core.graph.NodeAttribute;
+import org.structr.core.graph.Tx;
+import org.structr.test.web.StructrUiTest;
+import org.structr.web.entity.User;
+import org.structr.web.entity.dom.Content;
+import org.structr.web.entity.dom.DOMNode;
+import org.structr.web.entity.dom.Page;
+import org.testng.annotations.Test;
+import org.w3c.dom.Node;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.testng.AssertJUnit.*;
+
+/**
+ * Tests invalidation of the fragment cache.
+ */
+public class FragmentCacheTest extends StructrUiTest {
+
+	@Test
+	public void testModifiedContentInvalidatesFragment() {
+
+		final Content content = setupPage("${random(16)}");
+
+		final String first = get("admin");
+
+		assertEquals("Fragment was not cached", first, get("admin"));
+
+		try (final Tx tx = app.tx()) {
+
+			content.setProperty(StructrApp.key(Content.class, "content"), "modified");
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertTrue("Modified content was not rendered", get("admin").contains("modified"));
+	}
+
+	@Test
+	public void testFlushAllClearsFragments() {
+
+		setupPage("${random(16)}");
+
+		final String first = get("admin");
+
+		assertEquals("Fragment was not cached", first, get("admin"));
+
+		FlushCachesCommand.flushAll();
+
+		assertFalse("Fragment cache was not cleared", first.equals(get("admin")));
+	}
+
+	@Test
+	public void testChangedCacheTimeIsApplied() {
+
+		final Content content = setupPage("${random(16)}");
+
+		assertEquals("Fragment was not cached", get("admin"), get("admin"));
+
+		setCacheTime(content, null);
+
+		assertFalse("Fragment without cache time was cached", get("admin").equals(get("admin")));
+
+		setCacheTime(content, 60);
+
+		final String cached = get("admin");
+
+		assertEquals("Fragment was not cached", cached, get("admin"));
+	}
+
+	@Test
+	public void testResponseChangesPreventCaching() {
+
+		setupPage("${set_response_header('X-Fragment', 'rendered')}${random(16)}");
+
+		final String first = get("admin");
+
+		assertFalse("Fragment that changes the response was cached", first.equals(get("admin")));
+	}
+
+	@Test
+	public void testRepeaterShowsCreatedObjects() {
+
+		setupPage(null);
+
+		createGroup("group1");
+
+		assertTrue(get("admin").contains("[group1]"));
+
+		createGroup("group2");
+
+		final String output = get("admin");
+
+		assertTrue(output.contains("[group1]"));
+		assertTrue("Repeater does not show created object", output.contains("[group2]"));
+	}
+
+	@Test
+	public void testPermissionChangesInvalidateFragments() {
+
+		setupPage(null);
+
+		final Group visible = createGroup("group1");
+		final Group granted = createGroup("group2");
+		final Group member  = createGroup("group3");
+		User tester         = null;
+
+		try (final Tx tx = app.tx()) {
+
+			tester = createTestNode(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "tester"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "tester")
+			);
+
+			visible.grant(Permission.read, tester);
+
+			// the pages are visible for all authenticated users
+			for (final DOMNode node : app.nodeQuery(DOMNode.class).getAsList()) {
+				node.setProperty(StructrApp.key(DOMNode.class, "visibleToAuthenticatedUsers"), true);
+			}
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertEquals("[group1]", getGroups("tester"));
+
+		// grant
+		try (final Tx tx = app.tx()) {
+
+			granted.grant(Permission.read, tester);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		assertEquals("[group1][group2]", getGroups("tester"));
+
+		// group membership
+		try (final Tx tx = app.tx()) {
+
+			final Group parent = app.create(Group.class, "parent");
+
+			member.grant(Permission.read, parent);
+			parent.addMember(securityContext, tester);
+
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		// members can see their groups
+		assertEquals("[group1][group2][group3][parent]", getGroups("tester"));
+	}
+
+	@Test
+	public void testCommitDuringRenderingPreventsCaching() {
+
+		setupPage("${sleep(2000)}");
+
+		final Group group = createGroup("initial");
+
+		// the first request is slow, so it must not take part in the race
+		assertTrue(get("admin").contains("[initial]"));
+
+		rename(group, "before");
+
+		final Thread modifier = new Thread(() -> {
+
+			try {
+
+				Thread.sleep(1000);
+				rename(group, "after");
+
+			} catch (InterruptedException iex) {}
+		});
+
+		modifier.start();
+
+		// the repeater renders the group before the modification is committed
+		assertTrue(get("admin").contains("[before]"));
+
+		try { modifier.join(); } catch (InterruptedException iex) {}
+
+		assertTrue("Outdated output was cached", get("admin").contains("[after]"));
+	}
+
+	// ----- private methods -----
+	/**
+	 * Creates a page with a cached div that contains a repeater for all
+	 * groups and the given content.
+	 */
+	private Content setupPage(final String text) {
+
+		try (final Tx tx = app.tx()) {
+
+			createTestNode(User.class,
+				new NodeAttribute<>(StructrApp.key(User.class, "name"),     "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "password"), "admin"),
+				new NodeAttribute<>(StructrApp.key(User.class, "isAdmin"),  true)
+			);
+
+			final Page page       = Page.createSimplePage(securityContext, "page1");
+			final DOMNode div     = (DOMNode)page.getElementsByTagName("div").item(0);
+			final DOMNode span    = createElement(page, div, "span", "[${group.name}]");
+			final Content content = (Content)page.createTextNode(StringUtils.defaultString(text));
+
+			// the content is rendered after the repeater
+			div.appendChild(content);
+			div.setProperty(StructrApp.key(DOMNode.class, "fragmentCacheForSeconds"), 60);
+
+			span.setProperty(StructrApp.key(DOMNode.class, "functionQuery"), "find('Group', sort('name'))");
+			span.setProperty(StructrApp.key(DOMNode.class, "dataKey"),       "group");
+
+			tx.success();
+
+			return content;
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		return null;
+	}
+
+	/**
+	 * Sets the cache time of the div that contains the given content.
+	 */
+	private void setCacheTime(final Content content, final Integer seconds) {
+
+		try (final Tx tx = app.tx()) {
+
+			content.getParent().setProperty(StructrApp.key(DOMNode.class, "fragmentCacheForSeconds"), seconds);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private Group createGroup(final String name) {
+
+		try (final Tx tx = app.tx()) {
+
+			final Group group = app.create(Group.class, name);
+
+			tx.success();
+
+			return group;
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+
+		return null;
+	}
+
+	private void rename(final Group group, final String name) {
+
+		try (final Tx tx = app.tx()) {
+
+			group.setProperty(Group.name, name);
+			tx.success();
+
+		} catch (FrameworkException fex) {
+
+			fex.printStackTrace();
+			fail("Unexpected exception");
+		}
+	}
+
+	private DOMNode createElement(final Page page, final DOMNode parent, final String tag, final String text) {
+
+		final DOMNode child = (DOMNode)page.createElement(tag);
+		final Node node     = page.createTextNode(text);
+
+		parent.appendChild(child);
+		child.appendChild(node);
+
+		return child;
+	}
+
+	/**
+	 * Returns the names of the groups in the repeater output.
+	 */
+	private String getGroups(final String user) {
+
+		final StringBuilder buf = new StringBuilder();
+		final Matcher matcher   = Pattern.compile("\\[[^\\]<]*\\]").matcher(get(user));
+
+		while (matcher.find()) {
+			buf.append(matcher.group());
+		}
+
+		return buf.toString();
+	}
+
+	private String get(final String user) {
+
+		RestAssured.basePath = "/";
+
+		return RestAssured
+			.given()
+			.header("X-User",     user)
+			.header("X-Password", user)
+			.expect()
+			.statusCode(200)
+			.when()
+			.get("/html/page1")
+			.asString();
+	}
+}
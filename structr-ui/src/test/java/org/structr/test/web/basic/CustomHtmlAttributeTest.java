@@ -25,6 +25,7 @@ import org.structr.common.error.FrameworkException;
 import org.structr.core.graph.Tx;
 import org.structr.core.property.GenericProperty;
 import org.structr.test.web.StructrUiTest;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.dom.DOMNode;
 import org.structr.web.entity.dom.Page;
@@ -63,9 +64,12 @@ public class CustomHtmlAttributeTest extends StructrUiTest {
 
 
 			final RenderContext renderContext = new RenderContext(securityContext);
+			final AsyncBuffer buffer          = new AsyncBuffer();
+
+			renderContext.setBuffer(buffer);
 			newPage.render(renderContext, 0);
 
-			final String renderedHtml = StringUtils.join(renderContext.getBuffer().getQueue(), "");
+			final String renderedHtml = StringUtils.join(buffer.getQueue(), "");
 
 			final String expectedHtml =
 					"<!DOCTYPE html>\n" +
@@ -51,6 +51,7 @@ import org.structr.schema.export.StructrSchema;
 import org.structr.test.web.StructrUiTest;
 import org.structr.test.web.entity.TestOne;
 import org.structr.test.web.entity.TestTwo;
+import org.structr.web.common.AsyncBuffer;
 import org.structr.web.common.RenderContext;
 import org.structr.web.entity.Folder;
 import org.structr.web.entity.User;
@@ -1934,11 +1935,12 @@ public class UiScriptingTest extends StructrUiTest {
 
 		text.setTextContent(content);
 
-		// clear queue
-		context.getBuffer().getQueue().clear();
+		final AsyncBuffer buffer = new AsyncBuffer();
+
+		context.setBuffer(buffer);
 		p.render(context, 0);
 
-		assertEquals("Invalid JavaScript evaluation result", expected, String.join("", context.getBuffer().getQueue()).trim());
+		assertEquals("Invalid JavaScript evaluation result", expected, String.join("", buffer.getQueue()).trim());
 	}
 
 	public class RequestMockUp implements HttpServletRequest {
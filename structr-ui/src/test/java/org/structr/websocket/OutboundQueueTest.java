@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2010-2024 Structr GmbH
+ *
+ * This file is part of Structr <http://structr.org>.
+ *
+ * Structr is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * Structr is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Structr.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.structr.websocket;
+
+import org.structr.websocket.OutboundQueue.State;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+/**
+ *
+ */
+public class OutboundQueueTest {
+
+	@Test
+	public void testOrdering() {
+
+		final OutboundQueue queue = new OutboundQueue(10);
+
+		assertEquals(State.Scheduled, queue.offer(null, "1"));
+		assertEquals(State.Queued,    queue.offer(null, "2"));
+		assertEquals(State.Queued,    queue.offer(null, "3"));
+
+		assertEquals(List.of("1", "2", "3"), drain(queue));
+
+		// a drained queue starts a new sender with the next message
+		assertEquals(State.Scheduled, queue.offer(null, "4"));
+		assertEquals(List.of("4"), drain(queue));
+	}
+
+	@Test
+	public void testCoalescing() {
+
+		final OutboundQueue queue = new OutboundQueue(10);
+
+		queue.offer("a", "a1");
+		queue.offer("b", "b1");
+		queue.offer(null, "x");
+		queue.offer("a", "a2");
+
+		// the replacing message is sent after the messages queued before it
+		assertEquals(List.of("b1", "x", "a2"), drain(queue));
+
+		// messages that were already sent are not replaced
+		queue.offer("a", "a3");
+		assertEquals("a3", queue.poll());
+		queue.offer("a", "a4");
+		assertEquals(List.of("a4"), drain(queue));
+	}
+
+	@Test
+	public void testOverflow() {
+
+		final OutboundQueue queue = new OutboundQueue(3);
+
+		assertEquals(State.Scheduled, queue.offer("a", "a1"));
+		assertEquals(State.Queued,    queue.offer(null, "1"));
+		assertEquals(State.Queued,    queue.offer(null, "2"));
+
+		// replacing a message does not need additional space
+		assertEquals(State.Queued,    queue.offer("a", "a2"));
+
+		assertEquals(State.Rejected,  queue.offer(null, "3"));
+
+		// a rejected queue is closed and drops all messages
+		assertEquals(State.Queued,    queue.offer(null, "4"));
+		assertNull(queue.poll());
+	}
+
+	// ----- private methods -----
+	private List<String> drain(final OutboundQueue queue) {
+
+		final List<String> messages = new ArrayList<>();
+
+		for (String message = queue.poll(); message != null; message = queue.poll()) {
+			messages.add(message);
+		}
+
+		return messages;
+	}
+}